@@ -0,0 +1,59 @@
+package main.controller;
+
+import lejos.robotics.SampleProvider;
+import main.util.Microbenchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * A microbenchmark of the search for the two wall minimums in the readings of an ultrasonic localization
+ * sweep. The sweep is simulated: the vehicle turns on the spot in the middle of corner one and each reading is
+ * the distance to the nearer of the two walls, with some noise.
+ *
+ * @author JohnWu
+ */
+public class LocalizerBenchmark extends Microbenchmark {
+
+    // readings in a full turn, one every ultrasonic period at rotate speed
+    private static final int READINGS = 360;
+
+    private Localizer localizer;
+    private ArrayList<Localizer.SensorReading> sensorReadings;
+
+    public void setUp() {
+        localizer = new Localizer( null, new SampleProvider() {
+            public int sampleSize() {
+                return 1;
+            }
+
+            public void fetchSample( float[] sample, int offset ) {
+            }
+        }, null, 1 );
+        sensorReadings = new ArrayList<>();
+        Random random = new Random( 11 );
+        for ( int i = 0; i < READINGS; i++ ) {
+            // counter-clockwise from facing the west wall, 15 cm from both walls
+            double theta = 3*Math.PI/2 - i*2*Math.PI/READINGS;
+            double west = -Math.sin( theta ) > 1e-9 ? 15/-Math.sin( theta ) : Double.MAX_VALUE;
+            double south = -Math.cos( theta ) > 1e-9 ? 15/-Math.cos( theta ) : Double.MAX_VALUE;
+            Localizer.SensorReading sensorReading = localizer.new SensorReading();
+            sensorReading.setDistance( (float) Math.min( 255, Math.min( west, south ) + random.nextGaussian()*0.2 ) );
+            sensorReading.setTheta( -i*2*Math.PI/READINGS );
+            sensorReadings.add( sensorReading );
+        }
+    }
+
+    public long run( int operations ) {
+        long checksum = 0;
+        for ( int i = 0; i < operations; i++ ) {
+            int firstMinimumIndex = localizer.calculateFirstMinimumIndex( sensorReadings );
+            checksum += firstMinimumIndex;
+            if ( firstMinimumIndex >= 0 ) {
+                checksum += localizer.calculateSecondMinimumIndex( sensorReadings, firstMinimumIndex );
+            }
+        }
+        return checksum;
+    }
+
+}
@@ -0,0 +1,48 @@
+package main.controller;
+
+import main.util.Microbenchmark;
+
+import java.util.Random;
+
+/**
+ * A microbenchmark of one odometer update: the wheel displacements from the tacho counts, the change of heading
+ * and the displacement along x and y.
+ *
+ * @author JohnWu
+ */
+public class OdometerBenchmark extends Microbenchmark {
+
+    private static final int TACHO_COUNTS = 1024;
+
+    private Odometer odometer;
+    private int[] leftTachoCounts;
+    private int[] rightTachoCounts;
+
+    public void setUp() {
+        odometer = new Odometer( null, null, null );
+        leftTachoCounts = new int[TACHO_COUNTS];
+        rightTachoCounts = new int[TACHO_COUNTS];
+        Random random = new Random( 11 );
+        for ( int i = 1; i < TACHO_COUNTS; i++ ) {
+            // a few degrees a period, as when driving and turning at match speeds
+            leftTachoCounts[i] = leftTachoCounts[i - 1] + 2 + random.nextInt( 4 );
+            rightTachoCounts[i] = rightTachoCounts[i - 1] + 2 + random.nextInt( 4 );
+        }
+    }
+
+    public long run( int operations ) {
+        double x = 0, y = 0, theta = 0;
+        for ( int i = 0; i < operations; i++ ) {
+            int current = ( i + 1 ) & ( TACHO_COUNTS - 1 );
+            int previous = i & ( TACHO_COUNTS - 1 );
+            double left = odometer.calculateMotorDisplacement( leftTachoCounts[current], leftTachoCounts[previous] );
+            double right = odometer.calculateMotorDisplacement( rightTachoCounts[current], rightTachoCounts[previous] );
+            theta += odometer.calculateThetaChange( left, right );
+            double displacement = odometer.calculateVehicleDisplacement( left, right );
+            x += odometer.calculateXDisplacement( displacement, theta );
+            y += odometer.calculateYDisplacement( displacement, theta );
+        }
+        return Double.doubleToLongBits( x + y + theta );
+    }
+
+}
@@ -0,0 +1,37 @@
+package main.object;
+
+import main.util.Microbenchmark;
+
+import java.util.Random;
+
+/**
+ * A microbenchmark of formatting the odometer values for the screen, three of which are formatted every
+ * display period.
+ *
+ * @author JohnWu
+ */
+public class OdometerDisplayBenchmark extends Microbenchmark {
+
+    private static final int VALUES = 1024;
+
+    private double[] values;
+    private char[] buffer = new char[32];
+
+    public void setUp() {
+        values = new double[VALUES];
+        Random random = new Random( 11 );
+        for ( int i = 0; i < VALUES; i++ ) {
+            // positions on the field and headings in degrees
+            values[i] = i % 3 == 2 ? random.nextDouble()*360 : random.nextDouble()*400 - 40;
+        }
+    }
+
+    public long run( int operations ) {
+        long checksum = 0;
+        for ( int i = 0; i < operations; i++ ) {
+            checksum += ScreenFrame.formatDouble( values[i & ( VALUES - 1 )], 2, buffer, 0 );
+        }
+        return checksum;
+    }
+
+}
@@ -0,0 +1,23 @@
+package main.util;
+
+/**
+ * A microbenchmark of recording one event into the event trace, which the controller threads do while they run.
+ *
+ * @author JohnWu
+ */
+public class EventTraceBenchmark extends Microbenchmark {
+
+    private EventTrace trace;
+
+    public void setUp() {
+        trace = new EventTrace( 8192 );
+    }
+
+    public long run( int operations ) {
+        for ( int i = 0; i < operations; i++ ) {
+            trace.record( EventTrace.POSE, i, 0.5f, 0.25f );
+        }
+        return trace.getRecordedCount();
+    }
+
+}
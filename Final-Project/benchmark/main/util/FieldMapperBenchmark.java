@@ -0,0 +1,36 @@
+package main.util;
+
+import main.Parameters;
+import main.object.FieldGeometry;
+
+/**
+ * A microbenchmark of building the field mapping from the starting parameters, which is done once at the
+ * start of the match while the vehicle is waiting to move.
+ *
+ * @author JohnWu
+ */
+public class FieldMapperBenchmark extends Microbenchmark {
+
+    private Parameters parameters;
+    private FieldGeometry geometry;
+
+    public void setUp() {
+        parameters = new Parameters();
+        parameters.setForwardTeam( 11 );
+        parameters.setForwardLine( 8 );
+        parameters.setDefenderZone( new int[]{ 4, 4 } );
+        parameters.setBallDispenserPosition( new int[]{ 5, 11 } );
+        parameters.setBallDispenserOrientation( "S" );
+        geometry = FieldGeometry.getDefault();
+    }
+
+    public long run( int operations ) {
+        long checksum = 0;
+        for ( int i = 0; i < operations; i++ ) {
+            FieldMapper fieldMapper = new FieldMapper( parameters, geometry );
+            checksum += fieldMapper.getGrid().getRows();
+        }
+        return checksum;
+    }
+
+}
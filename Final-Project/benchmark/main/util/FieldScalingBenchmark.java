@@ -0,0 +1,159 @@
+package main.util;
+
+import main.Parameters;
+import main.object.FieldGeometry;
+import main.object.FieldGrid;
+import main.resource.Constants;
+
+import java.util.Random;
+
+/**
+ * A benchmark of how the field mapping, the planner and the wall distance table scale as the field grows from
+ * the competition field to 1000x1000 squares. For each size it reports the memory held by the mapping, the
+ * planner and the wall table, the time to build the mapping and the wall table, and the time of region
+ * queries, D* Lite repairs and wall distance lookups.
+ *
+ * @author JohnWu
+ */
+public class FieldScalingBenchmark {
+
+    private static final int[] SIZES = { 12, 50, 100, 250, 500, 1000 };
+    private static final int REGION_QUERIES = 10000000;
+    private static final int REPAIRS = 50;
+    private static final int WALL_LOOKUPS = 10000000;
+
+    /**
+     * Runs the benchmark and prints its report
+     *
+     * @param args unused
+     */
+    public static void main( String[] args ) {
+        // warm up on a middle sized field so the first rows are not timing the interpreter
+        for ( int i = 0; i < 3; i++ ) {
+            measure( 100, false );
+        }
+
+        System.out.println( "FieldScalingBenchmark" );
+        System.out.println( "   size    mapping KB   D* KB   build ms   region ns   D* goal ms   D* repair us   walls KB"
+                + "   walls ms   wall ns" );
+        for ( int size : SIZES ) {
+            measure( size, true );
+        }
+    }
+
+    /**
+     * A method that measures one field size
+     *
+     * @param size the number of rows and columns of the field
+     * @param print whether to print the results
+     */
+    private static void measure( int size, boolean print ) {
+        Parameters parameters = createParameters( size );
+        FieldGeometry geometry = new FieldGeometry( size, size, Constants.SQUARE_LENGTH );
+
+        // memory and build time of the mapping
+        long before = usedMemory();
+        long start = System.nanoTime();
+        FieldMapper fieldMapper = new FieldMapper( parameters, geometry );
+        double buildMillis = ( System.nanoTime() - start ) / 1e6;
+        long mappingBytes = usedMemory() - before;
+
+        before = usedMemory();
+        DStarLitePlanner replanner = new DStarLitePlanner( fieldMapper );
+        long replannerBytes = usedMemory() - before;
+
+        FieldGrid grid = fieldMapper.getGrid();
+        Random random = new Random( size );
+
+        // region queries over random squares
+        int[] rows = new int[4096];
+        int[] columns = new int[4096];
+        for ( int i = 0; i < rows.length; i++ ) {
+            rows[i] = random.nextInt( size );
+            columns[i] = random.nextInt( size );
+        }
+        long checksum = 0;
+        start = System.nanoTime();
+        for ( int i = 0; i < REGION_QUERIES; i++ ) {
+            int row = rows[i & 4095];
+            int column = columns[i & 4095];
+            if ( fieldMapper.isInDefenseRegion( row, column ) || grid.isAllowed( row, column ) ) {
+                checksum++;
+            }
+        }
+        double regionNanos = ( System.nanoTime() - start ) / (double) REGION_QUERIES;
+
+        // D* Lite, a full plan from corner one to corner three and then repairs around new obstacles
+        int goal = fieldMapper.getDestinationCell( FieldMapper.CORNER_THREE );
+        start = System.nanoTime();
+        replanner.setGoal( goal, fieldMapper.getDestinationCell( FieldMapper.CORNER_ONE ) );
+        double goalMillis = ( System.nanoTime() - start ) / 1e6;
+        start = System.nanoTime();
+        for ( int i = 0; i < REPAIRS; i++ ) {
+            int next = replanner.getNextWaypoint();
+            if ( next != -1 && next != goal ) {
+                replanner.markBlocked( next );
+            }
+        }
+        double repairMicros = ( System.nanoTime() - start ) / 1e3 / REPAIRS;
+        checksum += replanner.getRouteCost();
+
+        // memory and build time of the wall distance table, and lookups from random poses
+        before = usedMemory();
+        start = System.nanoTime();
+        WallDistanceTable wallDistanceTable = new WallDistanceTable( geometry );
+        double wallBuildMillis = ( System.nanoTime() - start ) / 1e6;
+        long wallBytes = usedMemory() - before;
+        double[] xs = new double[4096];
+        double[] ys = new double[4096];
+        double[] thetas = new double[4096];
+        for ( int i = 0; i < xs.length; i++ ) {
+            xs[i] = ( random.nextDouble()*size - 1 )*Constants.SQUARE_LENGTH;
+            ys[i] = ( random.nextDouble()*size - 1 )*Constants.SQUARE_LENGTH;
+            thetas[i] = random.nextDouble()*2*Math.PI;
+        }
+        double distances = 0;
+        start = System.nanoTime();
+        for ( int i = 0; i < WALL_LOOKUPS; i++ ) {
+            distances += wallDistanceTable.getExpectedDistance( xs[i & 4095], ys[i & 4095], thetas[i & 4095] );
+        }
+        double wallNanos = ( System.nanoTime() - start ) / (double) WALL_LOOKUPS;
+        checksum += (long) distances;
+
+        if ( print ) {
+            System.out.printf( "  %5d  %12d  %6d  %9.2f  %10.2f  %11.2f  %13.1f  %9d  %9.2f  %8.2f   (%d)%n",
+                    size, mappingBytes / 1024, replannerBytes / 1024, buildMillis, regionNanos, goalMillis,
+                    repairMicros, wallBytes / 1024, wallBuildMillis, wallNanos, checksum );
+        }
+    }
+
+    /**
+     * A method that creates match parameters scaled to the size of the field
+     *
+     * @param size the number of rows and columns of the field
+     * @return the parameters
+     */
+    private static Parameters createParameters( int size ) {
+        Parameters parameters = new Parameters();
+        parameters.setForwardTeam( 11 );
+        parameters.setForwardLine( size*2/3 );
+        parameters.setDefenderZone( new int[]{ size/3, size/3 } );
+        parameters.setBallDispenserPosition( new int[]{ size/2 - 1, size - 1 } );
+        parameters.setBallDispenserOrientation( "S" );
+        return parameters;
+    }
+
+    /**
+     * A method that returns the heap in use after collecting garbage
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for ( int i = 0; i < 3; i++ ) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
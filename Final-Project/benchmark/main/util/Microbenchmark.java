@@ -0,0 +1,37 @@
+package main.util;
+
+/**
+ * One hot path measured by the microbenchmark runner. The runner calls run with a number of operations and
+ * times the whole call, so a benchmark should do nothing in run but the operations themselves.
+ *
+ * Each run returns a checksum of what it computed, which the runner keeps so that the JIT cannot drop the
+ * work as dead code.
+ *
+ * @author JohnWu
+ */
+public abstract class Microbenchmark {
+
+    /**
+     * A method that returns the name the results are reported under
+     *
+     * @return the name of the benchmark
+     */
+    public String getName() {
+        return getClass().getName();
+    }
+
+    /**
+     * A method that prepares the inputs, called once before any run
+     */
+    public void setUp() {
+    }
+
+    /**
+     * A method that performs the operation being measured a number of times
+     *
+     * @param operations how many times to perform the operation
+     * @return a checksum of the results
+     */
+    public abstract long run( int operations );
+
+}
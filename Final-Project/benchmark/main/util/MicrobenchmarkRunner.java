@@ -0,0 +1,161 @@
+package main.util;
+
+import main.controller.LocalizerBenchmark;
+import main.controller.OdometerBenchmark;
+import main.object.OdometerDisplayBenchmark;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the microbenchmarks of the hot paths of the robot and writes their results as JSON in the layout of JMH,
+ * so that the results of two builds can be compared by the usual JMH tools.
+ *
+ * Each benchmark is run for a few warmup iterations, so the JIT has compiled it, and then for the measured
+ * iterations, each of about the same length. The score is the mean time per operation and the error is the
+ * half width of its 99.9% confidence interval. Nothing here needs more than the JRE of the brick, so the same
+ * runner can be copied to the brick in the microbenchmark jar.
+ *
+ * @author JohnWu
+ */
+public class MicrobenchmarkRunner {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    private static final long ITERATION_NANOS = 200000000L;
+
+    // two sided 99.9% quantile of the normal distribution
+    private static final double CONFIDENCE_QUANTILE = 3.291;
+
+    // the checksums of every run, so that no benchmark is dead code
+    private static volatile long sink;
+
+    /**
+     * Runs the benchmarks and writes their results
+     *
+     * @param args the JSON file to write, and optionally a part of the names of the benchmarks to run
+     */
+    public static void main( String[] args ) throws IOException {
+        String output = args.length > 0 ? args[0] : "microbenchmark.json";
+        String filter = args.length > 1 ? args[1] : "";
+        Microbenchmark[] benchmarks = {
+                new OdometerBenchmark(),
+                new LocalizerBenchmark(),
+                new FieldMapperBenchmark(),
+                new OdometerDisplayBenchmark(),
+                new EventTraceBenchmark()
+        };
+
+        List<JSONObject> results = new ArrayList<>();
+        System.out.println( "Microbenchmarks" );
+        System.out.println( String.format( "  %-45s %14s %12s", "benchmark", "score (ns/op)", "error" ) );
+        for ( Microbenchmark benchmark : benchmarks ) {
+            if ( !benchmark.getName().contains( filter ) ) {
+                continue;
+            }
+            JSONObject result = measure( benchmark );
+            JSONObject primaryMetric = (JSONObject) result.get( "primaryMetric" );
+            System.out.println( String.format( "  %-45s %14.1f %12.1f", benchmark.getName(),
+                    (Double) primaryMetric.get( "score" ), (Double) primaryMetric.get( "scoreError" ) ) );
+            results.add( result );
+        }
+
+        Writer writer = new FileWriter( output );
+        try {
+            writer.write( JSONArray.toJSONString( results ) );
+        } finally {
+            writer.close();
+        }
+        System.out.println( "  results written to " + output );
+    }
+
+    /**
+     * A method that warms up and measures one benchmark
+     *
+     * @param benchmark the benchmark
+     * @return the result in the layout of JMH
+     */
+    @SuppressWarnings( "unchecked" )
+    public static JSONObject measure( Microbenchmark benchmark ) {
+        benchmark.setUp();
+        int operations = calibrate( benchmark );
+        for ( int i = 0; i < WARMUP_ITERATIONS; i++ ) {
+            time( benchmark, operations );
+        }
+        double[] scores = new double[MEASUREMENT_ITERATIONS];
+        for ( int i = 0; i < MEASUREMENT_ITERATIONS; i++ ) {
+            scores[i] = (double) time( benchmark, operations )/operations;
+        }
+
+        double mean = 0;
+        for ( double score : scores ) {
+            mean += score;
+        }
+        mean /= scores.length;
+        double variance = 0;
+        for ( double score : scores ) {
+            variance += ( score - mean )*( score - mean );
+        }
+        variance /= scores.length - 1;
+        double error = CONFIDENCE_QUANTILE*Math.sqrt( variance/scores.length );
+
+        JSONArray iterations = new JSONArray();
+        for ( double score : scores ) {
+            iterations.add( score );
+        }
+        JSONArray rawData = new JSONArray();
+        rawData.add( iterations );
+        JSONArray confidence = new JSONArray();
+        confidence.add( mean - error );
+        confidence.add( mean + error );
+        JSONObject primaryMetric = new JSONObject();
+        primaryMetric.put( "score", mean );
+        primaryMetric.put( "scoreError", error );
+        primaryMetric.put( "scoreConfidence", confidence );
+        primaryMetric.put( "scoreUnit", "ns/op" );
+        primaryMetric.put( "rawData", rawData );
+
+        JSONObject result = new JSONObject();
+        result.put( "benchmark", benchmark.getName() );
+        result.put( "mode", "avgt" );
+        result.put( "threads", 1 );
+        result.put( "forks", 1 );
+        result.put( "jvm", System.getProperty( "java.home" ) );
+        result.put( "vmName", System.getProperty( "java.vm.name" ) );
+        result.put( "vmVersion", System.getProperty( "java.vm.version" ) );
+        result.put( "warmupIterations", WARMUP_ITERATIONS );
+        result.put( "measurementIterations", MEASUREMENT_ITERATIONS );
+        result.put( "operationsPerIteration", operations );
+        result.put( "primaryMetric", primaryMetric );
+        return result;
+    }
+
+    /**
+     * A method that finds how many operations make an iteration of about the set length
+     *
+     * @param benchmark the benchmark
+     * @return the operations per iteration
+     */
+    private static int calibrate( Microbenchmark benchmark ) {
+        int operations = 1;
+        while ( true ) {
+            long nanos = time( benchmark, operations );
+            if ( nanos >= ITERATION_NANOS/10 || operations >= 1 << 29 ) {
+                return (int) Math.max( 1, Math.min( Integer.MAX_VALUE, (long) operations*ITERATION_NANOS/Math.max( nanos, 1 ) ) );
+            }
+            operations *= 2;
+        }
+    }
+
+    private static long time( Microbenchmark benchmark, int operations ) {
+        long start = System.nanoTime();
+        sink += benchmark.run( operations );
+        return System.nanoTime() - start;
+    }
+
+}
@@ -0,0 +1,156 @@
+package main.util;
+
+import main.object.FieldGrid;
+import main.resource.Constants;
+
+import java.util.Random;
+
+/**
+ * A benchmark that replays a recorded style trace of ultrasonic readings into the occupancy grid and reports
+ * the update rate. The trace is simulated: the vehicle sweeps the field row by row while turning, and each
+ * reading is the distance to the walls or to a box of obstacle squares, with some noise.
+ *
+ * @author JohnWu
+ */
+public class OccupancyBenchmark {
+
+    private static final int READINGS = 100000;
+    private static final int WARMUP_REPLAYS = 20;
+    private static final int REPLAYS = 50;
+
+    // the rows the vehicle sweeps along, clear of the obstacle box
+    private static final int[] LANES = { 1, 2, 3, 4, 5, 8, 9, 10 };
+
+    // the obstacle box, rows and columns inclusive
+    private static final int OBSTACLE_ROW_LOW = 6;
+    private static final int OBSTACLE_ROW_HIGH = 7;
+    private static final int OBSTACLE_COLUMN_LOW = 5;
+    private static final int OBSTACLE_COLUMN_HIGH = 6;
+
+    /**
+     * Runs the benchmark and prints its report
+     *
+     * @param args unused
+     */
+    public static void main( String[] args ) {
+        FieldGrid grid = new FieldGrid( 12, 12, Constants.SQUARE_LENGTH );
+        double[] trace = createTrace( grid );
+        OccupancyGrid occupancyGrid = new OccupancyGrid( grid );
+
+        for ( int i = 0; i < WARMUP_REPLAYS; i++ ) {
+            replay( occupancyGrid, trace );
+        }
+        long start = System.nanoTime();
+        for ( int i = 0; i < REPLAYS; i++ ) {
+            replay( occupancyGrid, trace );
+        }
+        double nanos = ( System.nanoTime() - start ) / (double) REPLAYS / READINGS;
+
+        // one clean replay to check what the grid has learned
+        occupancyGrid.clear();
+        replay( occupancyGrid, trace );
+        int occupied = 0;
+        int falseOccupied = 0;
+        for ( int row = 0; row < grid.getRows(); row++ ) {
+            for ( int column = 0; column < grid.getColumns(); column++ ) {
+                boolean obstacle = isObstacle( row, column );
+                if ( occupancyGrid.isOccupied( grid.encodeCell( row, column ) ) ) {
+                    if ( obstacle ) {
+                        occupied++;
+                    } else if ( row > 0 && row < grid.getRows() - 1 && column > 0 && column < grid.getColumns() - 1 ) {
+                        falseOccupied++;
+                    }
+                }
+            }
+        }
+
+        System.out.println( "OccupancyBenchmark" );
+        System.out.println( "  readings per replay       " + READINGS );
+        System.out.printf( "  update                    %.1f ns%n", nanos );
+        System.out.printf( "  updates per second        %.0f%n", 1e9 / nanos );
+        System.out.println( "  obstacle squares found    " + occupied + " of 4" );
+        System.out.println( "  inner squares wrongly hit " + falseOccupied );
+    }
+
+    /**
+     * A method that adds every reading of the trace to the grid
+     *
+     * @param occupancyGrid the grid
+     * @param trace x, y, theta and distance of each reading
+     */
+    private static void replay( OccupancyGrid occupancyGrid, double[] trace ) {
+        for ( int i = 0; i < trace.length; i += 4 ) {
+            occupancyGrid.addReading( trace[i], trace[i + 1], trace[i + 2], trace[i + 3] );
+        }
+    }
+
+    /**
+     * A method that simulates the readings of the vehicle sweeping the field
+     *
+     * @param grid the compact mapping of the field
+     * @return x, y, theta and distance of each reading
+     */
+    private static double[] createTrace( FieldGrid grid ) {
+        Random random = new Random( 11 );
+        double squareLength = grid.getSquareLength();
+        double[] trace = new double[4*READINGS];
+        for ( int i = 0; i < READINGS; i++ ) {
+            // a back and forth sweep over the free rows, turning all the time
+            double progress = (double) i / READINGS;
+            int lane = (int) ( progress*LANES.length );
+            double along = progress*LANES.length - lane;
+            double x = ( lane % 2 == 0 ? along : 1 - along )*10*squareLength - squareLength/2;
+            double y = LANES[lane]*squareLength - squareLength/2;
+            double theta = ( i*0.05 ) % ( 2*Math.PI );
+            double distance = castRay( grid, x, y, theta );
+            if ( distance < Constants.ULTRASONICSENSOR_MAX_DISTANCE ) {
+                // only echoes are noisy, a reading with no echo stays at the maximum
+                distance += random.nextGaussian();
+            }
+            trace[4*i] = x;
+            trace[4*i + 1] = y;
+            trace[4*i + 2] = theta;
+            trace[4*i + 3] = Math.min( Constants.ULTRASONICSENSOR_MAX_DISTANCE, Math.max( 0, distance ) );
+        }
+        return trace;
+    }
+
+    /**
+     * A method that finds the distance to the first wall or obstacle along a ray, a centimetre at a time
+     *
+     * @param grid the compact mapping of the field
+     * @param x the x coordinate of the start
+     * @param y the y coordinate of the start
+     * @param theta the direction of the ray
+     * @return the distance, at most the ultrasonic range
+     */
+    private static double castRay( FieldGrid grid, double x, double y, double theta ) {
+        double squareLength = grid.getSquareLength();
+        for ( double distance = 0; distance < Constants.ULTRASONICSENSOR_MAX_DISTANCE; distance += 1 ) {
+            double pointX = x + distance*Math.sin( theta );
+            double pointY = y + distance*Math.cos( theta );
+            if ( pointX < -squareLength || pointY < -squareLength || pointX >= ( grid.getColumns() - 1 )*squareLength
+                    || pointY >= ( grid.getRows() - 1 )*squareLength ) {
+                return distance;
+            }
+            int cell = grid.getCell( pointX, pointY );
+            if ( isObstacle( cell / grid.getColumns(), cell % grid.getColumns() ) ) {
+                return distance;
+            }
+        }
+        return Constants.ULTRASONICSENSOR_MAX_DISTANCE;
+    }
+
+    /**
+     * A method that determines if a square is part of the obstacle box
+     *
+     * @param row the row of the square
+     * @param column the column of the square
+     * @return whether the square is an obstacle
+     */
+    private static boolean isObstacle( int row, int column ) {
+        return row >= OBSTACLE_ROW_LOW && row <= OBSTACLE_ROW_HIGH && column >= OBSTACLE_COLUMN_LOW
+                && column <= OBSTACLE_COLUMN_HIGH;
+    }
+
+}
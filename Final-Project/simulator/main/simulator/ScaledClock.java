@@ -0,0 +1,43 @@
+package main.simulator;
+
+import main.util.Clock;
+
+/**
+ * A clock that runs a number of times faster than the wall clock, so that the controllers keep their periods in
+ * simulated time while a match is played faster than real time.
+ *
+ * @author JohnWu
+ */
+public class ScaledClock extends Clock {
+
+    // properties
+    private double timeScale;
+    private long startNanos;
+
+    /**
+     * Main initialization method
+     *
+     * @param timeScale how many times faster than the wall clock the clock runs
+     */
+    public ScaledClock( double timeScale ) {
+        this.timeScale = timeScale;
+        this.startNanos = System.nanoTime();
+    }
+
+    public long currentTimeMillis() {
+        return (long) ( ( System.nanoTime() - startNanos )/1e6*timeScale );
+    }
+
+    public void sleep( long millis ) {
+        if ( millis <= 0 ) {
+            return;
+        }
+        long nanos = (long) ( millis*1e6/timeScale );
+        try {
+            Thread.sleep( nanos/1000000, (int) ( nanos % 1000000 ) );
+        } catch ( InterruptedException e ) {
+            // the simulation does not interrupt its threads
+        }
+    }
+
+}
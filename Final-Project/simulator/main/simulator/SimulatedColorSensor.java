@@ -0,0 +1,37 @@
+package main.simulator;
+
+import lejos.robotics.SampleProvider;
+
+/**
+ * A stand-in for an EV3 color sensor in red mode, reading the floor of the simulated world.
+ *
+ * @author JohnWu
+ */
+public class SimulatedColorSensor implements SampleProvider {
+
+    // objects
+    private SimulatedWorld world;
+
+    // properties
+    private boolean left;
+
+    /**
+     * Main initialization method
+     *
+     * @param world the world the sensor looks at
+     * @param left whether this is the left sensor
+     */
+    public SimulatedColorSensor( SimulatedWorld world, boolean left ) {
+        this.world = world;
+        this.left = left;
+    }
+
+    public int sampleSize() {
+        return 1;
+    }
+
+    public void fetchSample( float[] sample, int offset ) {
+        sample[offset] = world.getReflectance( left );
+    }
+
+}
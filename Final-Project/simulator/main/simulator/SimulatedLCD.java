@@ -0,0 +1,138 @@
+package main.simulator;
+
+import lejos.hardware.lcd.Font;
+import lejos.hardware.lcd.TextLCD;
+
+/**
+ * A stand-in for the text screen of the brick, which keeps the characters drawn on it so they can be printed.
+ *
+ * @author JohnWu
+ */
+public class SimulatedLCD implements TextLCD {
+
+    private static final int COLUMNS = 18;
+    private static final int ROWS = 8;
+
+    // variables
+    private char[][] text = new char[ROWS][COLUMNS];
+
+    /**
+     * Main initialization method
+     */
+    public SimulatedLCD() {
+        clear();
+    }
+
+    public synchronized void drawChar( char c, int x, int y ) {
+        if ( x >= 0 && x < COLUMNS && y >= 0 && y < ROWS ) {
+            text[y][x] = c;
+        }
+    }
+
+    public synchronized void drawString( String str, int x, int y, boolean inverted ) {
+        drawString( str, x, y );
+    }
+
+    public synchronized void drawString( String str, int x, int y ) {
+        for ( int i = 0; i < str.length(); i++ ) {
+            drawChar( str.charAt( i ), x + i, y );
+        }
+    }
+
+    public void drawInt( int i, int x, int y ) {
+        drawString( Integer.toString( i ), x, y );
+    }
+
+    public void drawInt( int i, int places, int x, int y ) {
+        String value = Integer.toString( i );
+        while ( value.length() < places ) {
+            value = " " + value;
+        }
+        drawString( value, x, y );
+    }
+
+    public synchronized void clear( int x, int y, int n ) {
+        for ( int i = 0; i < n; i++ ) {
+            drawChar( ' ', x + i, y );
+        }
+    }
+
+    public void clear( int y ) {
+        clear( 0, y, COLUMNS );
+    }
+
+    public synchronized void clear() {
+        for ( int y = 0; y < ROWS; y++ ) {
+            clear( y );
+        }
+    }
+
+    public synchronized void scroll() {
+        for ( int y = 1; y < ROWS; y++ ) {
+            text[y - 1] = text[y];
+        }
+        text[ROWS - 1] = new char[COLUMNS];
+        clear( ROWS - 1 );
+    }
+
+    /**
+     * A method that returns what is on the screen, one line per row
+     *
+     * @return the text on the screen
+     */
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        for ( int y = 0; y < ROWS; y++ ) {
+            builder.append( new String( text[y] ).replaceAll( "\\s+$", "" ) ).append( '\n' );
+        }
+        return builder.toString();
+    }
+
+    public Font getFont() {
+        return null;
+    }
+
+    public int getTextWidth() {
+        return COLUMNS;
+    }
+
+    public int getTextHeight() {
+        return ROWS;
+    }
+
+    public void refresh() {
+    }
+
+    public int getWidth() {
+        return 178;
+    }
+
+    public int getHeight() {
+        return 128;
+    }
+
+    public byte[] getDisplay() {
+        return new byte[0];
+    }
+
+    public byte[] getHWDisplay() {
+        return new byte[0];
+    }
+
+    public void setContrast( int contrast ) {
+    }
+
+    public void bitBlt( byte[] src, int sw, int sh, int sx, int sy, int dx, int dy, int w, int h, int rop ) {
+    }
+
+    public void bitBlt( byte[] src, int sw, int sh, int sx, int sy, byte[] dst, int dw, int dh, int dx, int dy, int w, int h, int rop ) {
+    }
+
+    public void setAutoRefresh( boolean on ) {
+    }
+
+    public int setAutoRefreshPeriod( int period ) {
+        return 0;
+    }
+
+}
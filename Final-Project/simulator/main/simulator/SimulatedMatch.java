@@ -0,0 +1,146 @@
+package main.simulator;
+
+import main.FinalProject;
+import main.Hardware;
+import main.MatchReport;
+import main.Parameters;
+import main.object.Calibration;
+import main.object.FieldGeometry;
+import main.object.Tuning;
+import main.resource.Constants;
+import main.util.Log;
+import main.util.StartupGraph;
+import main.util.Task;
+
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Plays the match of FinalProject headless against the simulated world and reports how long it took and
+ * where the vehicle really ended up.
+ *
+ * The vehicle starts in the middle of corner one facing the first intersection, placed by hand a little off,
+ * and its wheels are a little off the constants. The forward line is nearer than on the brick so that the target
+ * of the match is not in the defense region.
+ *
+ * The match runs on a virtual clock, which the simulation moves from one sleep of the controller threads to the
+ * next as soon as they are all asleep, so a match takes as long as its computing does and the same seed always
+ * plays the same match.
+ *
+ * The last line of the report is a single RESULT line of name=value pairs, which the tuning harness reads.
+ * When the trace.file system property is set, the event trace of the match is dumped to that file, and when the
+ * log.file property is set the log of the match is written to that file.
+ *
+ * @author JohnWu
+ */
+public class SimulatedMatch {
+
+    // longest simulated match before giving up (ms)
+    private static final long MATCH_TIMEOUT = 10*60*1000;
+
+    /**
+     * Runs the simulated match and prints its report
+     *
+     * @param args the seed, optional, then any tuning values as name=value
+     */
+    public static void main( String[] args ) {
+        long seed = args.length > 0 ? Long.parseLong( args[0] ) : 7;
+        Random random = new Random( seed );
+        final Tuning tuning = new Tuning();
+        for ( int i = 1; i < args.length; i++ ) {
+            int split = args[i].indexOf( '=' );
+            tuning.set( args[i].substring( 0, split ), args[i].substring( split + 1 ) );
+        }
+
+        final FieldGeometry geometry = FieldGeometry.getDefault();
+        VirtualClock clock = new VirtualClock();
+        final SimulatedWorld world = new SimulatedWorld( geometry, clock, seed );
+        double halfSquare = geometry.getSquareLength()/2;
+        world.setPose( -halfSquare + random.nextGaussian(), -halfSquare + random.nextGaussian(),
+                Math.PI/4 + random.nextGaussian()*0.03 );
+        world.setWheels( Constants.WHEEL_RADIUS*1.01, Constants.TRACK_LENGTH*0.99 );
+
+        SimulatedLCD lcd = new SimulatedLCD();
+        final Hardware hardware = new Hardware( world.createMotor( true ), world.createMotor( false ),
+                new SimulatedUltrasonicSensor( world ), new SimulatedColorSensor( world, true ),
+                new SimulatedColorSensor( world, false ), lcd );
+        hardware.setSoundAvailable( false );
+        hardware.setClock( clock );
+        String logFile = System.getProperty( "log.file" );
+        Log log = new Log( Constants.LOG_CAPACITY, logFile );
+        log.setClock( clock );
+        clock.start( log );
+        hardware.setLog( log );
+
+        int[] defenderZone = {4,4};
+        final Parameters parameters = new Parameters();
+        parameters.setForwardCorner(1);
+        parameters.setForwardLine(4);
+        parameters.setForwardTeam(11);
+        parameters.setDefenderZone(defenderZone);
+
+        final Calibration calibration = new Calibration();
+        final MatchReport[] report = new MatchReport[1];
+        Thread match = new Thread() {
+            public void run() {
+                report[0] = FinalProject.playMatch( StartupGraph.ready( "parameters", parameters ), hardware,
+                        geometry, calibration, tuning );
+            }
+        };
+        match.setDaemon( true );
+        long start = System.nanoTime();
+        clock.start( match );
+        while ( match.isAlive() && clock.currentTimeMillis() < MATCH_TIMEOUT ) {
+            clock.advanceToNextDeadline();
+        }
+        double wallSeconds = ( System.nanoTime() - start )/1e9;
+        double simulatedSeconds = world.getTime()/1000;
+
+        double[] pose = new double[3];
+        world.getPose( pose );
+        double destination = 2*geometry.getSquareLength();
+        double error = Math.hypot( pose[0] - destination, pose[1] - destination );
+        boolean finished = report[0] != null;
+        System.out.println( "Simulated match" );
+        System.out.println( "  finished:          " + finished );
+        System.out.println( String.format( "  simulated time:    %.1f s", simulatedSeconds ) );
+        System.out.println( String.format( "  wall time:         %.1f s (%.1fx real time)", wallSeconds, simulatedSeconds/wallSeconds ) );
+        System.out.println( String.format( "  true final pose:   %.2f, %.2f, %.1f deg", pose[0], pose[1], Math.toDegrees( pose[2] ) ) );
+        System.out.println( String.format( "  error to target:   %.2f cm", error ) );
+        System.out.println( String.format( "  calibration:       %s, r = %.4f, T = %.3f",
+                finished && report[0].isCalibrationUpdated() ? "updated" : "unchanged",
+                calibration.getWheelRadius(), calibration.getTrackLength() ) );
+        System.out.println( "  tuning:            " + tuning );
+        if ( finished ) {
+            System.out.println( String.format( "  first motion:      %.1f s", report[0].getTimeToFirstMotion()/1000.0 ) );
+        }
+        System.out.println( "  screen:" );
+        System.out.print( lcd );
+        if ( finished ) {
+            System.out.println( "  diagnostics:" );
+            report[0].getDiagnostics().writeSnapshot( new PrintWriter( System.out ) );
+        }
+        System.out.println( String.format( "  tasks (%d workers):", hardware.getExecutor().getWorkerCount() ) );
+        System.out.println( "    task                   priority  period      runs  overruns  misses  max (ms)  mean (ms)" );
+        for ( Task task : hardware.getExecutor().getTasks() ) {
+            System.out.println( String.format( "    %-22s %8d  %6d  %8d  %8d  %6d  %8d  %9.3f", task.getName(),
+                    task.getPriority(), task.getPeriod(), task.getRunCount(), task.getOverrunCount(),
+                    task.getDeadlineMissCount(), task.getMaxResponseTime(), task.getMeanExecutionTime() ) );
+        }
+        log.close();
+        System.out.println( String.format( "  log:               %s, %d records, %d dropped",
+                logFile != null ? logFile : "no file", log.getWrittenCount(), log.getDroppedCount() ) );
+        String traceFile = System.getProperty( "trace.file" );
+        if ( traceFile != null && hardware.getTrace().dump( traceFile ) ) {
+            System.out.println( "  event trace:       " + traceFile );
+        }
+        System.out.println( "RESULT finished=" + finished
+                + " time=" + simulatedSeconds
+                + " error=" + error
+                + " correctionStops=" + ( finished ? report[0].getCorrectionStopCount() : -1 )
+                + " drivingCorrections=" + ( finished ? report[0].getDrivingCorrectionCount() : -1 )
+                + " relocalizations=" + ( finished ? report[0].getRelocalizationCount() : -1 ) );
+        System.exit( finished ? 0 : 1 );
+    }
+
+}
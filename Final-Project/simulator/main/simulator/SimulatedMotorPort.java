@@ -0,0 +1,57 @@
+package main.simulator;
+
+import lejos.hardware.motor.MotorRegulator;
+import lejos.hardware.port.TachoMotorPort;
+
+/**
+ * A stand-in for an EV3 motor port, so that a real leJOS motor object drives a simulated wheel.
+ *
+ * @author JohnWu
+ */
+public class SimulatedMotorPort implements TachoMotorPort {
+
+    // properties
+    private String name;
+    private SimulatedRegulator regulator;
+
+    /**
+     * Main initialization method
+     *
+     * @param name the name of the port
+     * @param regulator the regulator of the simulated motor
+     */
+    public SimulatedMotorPort( String name, SimulatedRegulator regulator ) {
+        this.name = name;
+        this.regulator = regulator;
+    }
+
+    public MotorRegulator getRegulator() {
+        return regulator;
+    }
+
+    public int getTachoCount() {
+        return regulator.getTachoCount();
+    }
+
+    public void resetTachoCount() {
+        regulator.resetTachoCount();
+    }
+
+    public void controlMotor( int power, int mode ) {
+    }
+
+    public void setPWMMode( int mode ) {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean setPinMode( int mode ) {
+        return true;
+    }
+
+    public void close() {
+    }
+
+}
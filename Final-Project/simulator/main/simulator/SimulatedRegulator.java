@@ -0,0 +1,172 @@
+package main.simulator;
+
+import lejos.hardware.motor.MotorRegulator;
+import lejos.robotics.RegulatedMotor;
+import lejos.robotics.RegulatedMotorListener;
+
+/**
+ * A stand-in for the regulator of an EV3 motor, which follows the moves a leJOS motor asks for with a
+ * trapezoidal speed profile in the simulated world.
+ *
+ * @author JohnWu
+ */
+public class SimulatedRegulator implements MotorRegulator {
+
+    // objects
+    private SimulatedWorld world;
+
+    // variables
+    private double position;
+    private double velocity;
+    private double speed;
+    private double acceleration = 6000;
+    private int limit = NO_LIMIT;
+    private boolean moving;
+    private int tachoOffset;
+
+    /**
+     * Main initialization method
+     *
+     * @param world the world the motor moves in
+     */
+    public SimulatedRegulator( SimulatedWorld world ) {
+        this.world = world;
+    }
+
+    /**
+     * A method that moves the motor by one physics step, called by the world with its lock held
+     *
+     * @param seconds the length of the step
+     * @return the rotation of the motor during the step (deg)
+     */
+    double step( double seconds ) {
+        if ( !moving ) {
+            return 0;
+        }
+        double target;
+        if ( limit == NO_LIMIT ) {
+            target = speed;
+        } else if ( limit == -NO_LIMIT ) {
+            target = -speed;
+        } else {
+            double remaining = limit - position;
+            if ( Math.abs( remaining ) <= Math.abs( velocity )*seconds || Math.abs( remaining ) < 0.5 && Math.abs( velocity ) < acceleration*seconds*2 ) {
+                velocity = 0;
+                moving = false;
+                double last = remaining;
+                position = limit;
+                return last;
+            }
+            target = Math.signum( remaining )*Math.min( speed, Math.sqrt( 2*acceleration*Math.abs( remaining ) ) );
+        }
+        double change = acceleration*seconds;
+        velocity = target > velocity ? Math.min( target, velocity + change ) : Math.max( target, velocity - change );
+        if ( speed == 0 && velocity == 0 ) {
+            moving = false;
+        }
+        double rotation = velocity*seconds;
+        position += rotation;
+        return rotation;
+    }
+
+    public void newMove( float speed, int acceleration, int limit, boolean hold, boolean waitComplete ) {
+        world.advance();
+        synchronized ( world ) {
+            this.speed = Math.abs( speed );
+            this.acceleration = acceleration;
+            this.limit = limit;
+            this.moving = true;
+        }
+        if ( waitComplete ) {
+            waitComplete();
+        }
+    }
+
+    public void waitComplete() {
+        while ( isMoving() ) {
+            world.getClock().sleep( 1 );
+        }
+    }
+
+    public boolean isMoving() {
+        world.advance();
+        synchronized ( world ) {
+            return moving;
+        }
+    }
+
+    public int getTachoCount() {
+        world.advance();
+        synchronized ( world ) {
+            return (int) Math.round( position ) - tachoOffset;
+        }
+    }
+
+    public void resetTachoCount() {
+        world.advance();
+        synchronized ( world ) {
+            tachoOffset = (int) Math.round( position );
+        }
+    }
+
+    public float getPosition() {
+        world.advance();
+        synchronized ( world ) {
+            return (float) position;
+        }
+    }
+
+    public float getCurrentVelocity() {
+        synchronized ( world ) {
+            return (float) velocity;
+        }
+    }
+
+    public void adjustSpeed( float speed ) {
+        world.advance();
+        synchronized ( world ) {
+            this.speed = Math.abs( speed );
+        }
+    }
+
+    public void adjustAcceleration( int acceleration ) {
+        world.advance();
+        synchronized ( world ) {
+            this.acceleration = Math.abs( acceleration );
+        }
+    }
+
+    public int getLimitAngle() {
+        return limit;
+    }
+
+    public void startSynchronization() {
+        world.beginSynchronization();
+    }
+
+    public void endSynchronization( boolean immediate ) {
+        world.endSynchronization();
+    }
+
+    public void synchronizeWith( MotorRegulator[] regulators ) {
+        // the world stops the physics for every motor while commands are synchronized
+    }
+
+    public void setControlParamaters( int type, float moveP, float moveI, float moveD, float holdP, float holdI, float holdD, int offset ) {
+    }
+
+    public void setStallThreshold( int error, int time ) {
+    }
+
+    public boolean isStalled() {
+        return false;
+    }
+
+    public void addListener( RegulatedMotor motor, RegulatedMotorListener listener ) {
+    }
+
+    public RegulatedMotorListener removeListener() {
+        return null;
+    }
+
+}
@@ -0,0 +1,33 @@
+package main.simulator;
+
+import lejos.robotics.SampleProvider;
+
+/**
+ * A stand-in for an EV3 ultrasonic sensor in distance mode, ranging the walls and obstacles of the simulated
+ * world.
+ *
+ * @author JohnWu
+ */
+public class SimulatedUltrasonicSensor implements SampleProvider {
+
+    // objects
+    private SimulatedWorld world;
+
+    /**
+     * Main initialization method
+     *
+     * @param world the world the sensor ranges
+     */
+    public SimulatedUltrasonicSensor( SimulatedWorld world ) {
+        this.world = world;
+    }
+
+    public int sampleSize() {
+        return 1;
+    }
+
+    public void fetchSample( float[] sample, int offset ) {
+        sample[offset] = world.getRange();
+    }
+
+}
@@ -0,0 +1,304 @@
+package main.simulator;
+
+import lejos.hardware.motor.EV3LargeRegulatedMotor;
+import main.object.FieldGeometry;
+import main.resource.Constants;
+import main.util.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A headless physics model of the vehicle on the field: a differential drive with wheel slip, a floor with
+ * gridlines for the color sensors and walls and obstacle squares for the ultrasonic sensor.
+ *
+ * The world has no thread of its own. Every motor command and sensor reading first steps the physics in fixed
+ * steps up to the time of the clock the controllers also run on, so the simulation costs nothing while the
+ * controllers sleep, works on a single core and is as fast and as deterministic as that clock.
+ *
+ * @author JohnWu
+ */
+public class SimulatedWorld {
+
+    // length of one physics step (ms)
+    private static final double STEP = 1;
+
+    // half the width of a gridline plus the radius of the spot a color sensor sees (cm)
+    private static final double LINE_HALF_WIDTH = 0.25 + 0.5;
+
+    // reflected red light of the floor and of a gridline
+    private static final double FLOOR_REFLECTANCE = 0.6;
+    private static final double LINE_REFLECTANCE = 0.15;
+    private static final double REFLECTANCE_NOISE = 0.02;
+
+    // range noise (cm) and the farthest echo of the ultrasonic sensor (m)
+    private static final double RANGE_NOISE = 0.3;
+    private static final float MAX_ECHO = 2.55f;
+
+    // distance the body keeps from a wall (cm)
+    private static final double BODY_RADIUS = 8;
+
+    // properties
+    private FieldGeometry geometry;
+    private double minX, maxX, minY, maxY;
+    private double wheelRadius = Constants.WHEEL_RADIUS;
+    private double trackLength = Constants.TRACK_LENGTH;
+    private double slip = 0.01;
+    private double slipNoise = 0.005;
+    private List<double[]> obstacles = new ArrayList<double[]>();
+    private Random random;
+
+    // objects
+    private Clock clock;
+    private SimulatedRegulator leftRegulator, rightRegulator;
+
+    // variables
+    private double x, y, theta;
+    private double time;
+    private long startTime;
+    private int synchronizations;
+
+    /**
+     * Main initialization method
+     *
+     * @param geometry the dimensions of the field
+     * @param clock the clock the simulated time is read from
+     * @param seed the seed of the slip and sensor noise
+     */
+    public SimulatedWorld( FieldGeometry geometry, Clock clock, long seed ) {
+        this.geometry = geometry;
+        this.clock = clock;
+        double squareLength = geometry.getSquareLength();
+        this.minX = -squareLength;
+        this.minY = -squareLength;
+        this.maxX = ( geometry.getColumns() - 1 )*squareLength;
+        this.maxY = ( geometry.getRows() - 1 )*squareLength;
+        this.random = new Random( seed );
+        this.leftRegulator = new SimulatedRegulator( this );
+        this.rightRegulator = new SimulatedRegulator( this );
+        this.startTime = clock.currentTimeMillis();
+    }
+
+    /**
+     * A method that creates a motor driving one of the wheels
+     *
+     * @param left whether to drive the left wheel
+     * @return the motor
+     */
+    public EV3LargeRegulatedMotor createMotor( boolean left ) {
+        return new EV3LargeRegulatedMotor( new SimulatedMotorPort( left ? "A" : "D", left ? leftRegulator : rightRegulator ) );
+    }
+
+    /**
+     * A method that returns the simulated time since the world was created
+     *
+     * @return the simulated time (ms)
+     */
+    public double getTime() {
+        return clock.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * A method that steps the physics up to the current simulated time, unless motor commands are being
+     * synchronized
+     */
+    public synchronized void advance() {
+        if ( synchronizations > 0 ) {
+            return;
+        }
+        double now = getTime();
+        while ( time + STEP <= now ) {
+            step( STEP/1000 );
+            time += STEP;
+        }
+    }
+
+    /**
+     * A method that moves the vehicle by one physics step
+     *
+     * @param seconds the length of the step
+     */
+    private void step( double seconds ) {
+        double left = Math.toRadians( leftRegulator.step( seconds ) )*wheelRadius*calculateGrip();
+        double right = Math.toRadians( rightRegulator.step( seconds ) )*wheelRadius*calculateGrip();
+        theta += ( left - right )/trackLength;
+        theta = theta < 0 ? theta + 2*Math.PI : theta >= 2*Math.PI ? theta - 2*Math.PI : theta;
+        double distance = ( left + right )/2;
+        x = Math.max( minX + BODY_RADIUS, Math.min( maxX - BODY_RADIUS, x + distance*Math.sin( theta ) ) );
+        y = Math.max( minY + BODY_RADIUS, Math.min( maxY - BODY_RADIUS, y + distance*Math.cos( theta ) ) );
+    }
+
+    /**
+     * A method that calculates the fraction of the wheel travel that moves the vehicle
+     *
+     * @return the grip
+     */
+    private double calculateGrip() {
+        return 1 - slip - Math.abs( random.nextGaussian() )*slipNoise;
+    }
+
+    /**
+     * A method that reads the reflected red light under a color sensor
+     *
+     * @param left whether to read the left sensor
+     * @return the reflectance between 0 and 1
+     */
+    public synchronized float getReflectance( boolean left ) {
+        advance();
+        double lateral = left ? -Constants.LIGHT_SENSOR_LATERAL_OFFSET : Constants.LIGHT_SENSOR_LATERAL_OFFSET;
+        double sensorX = x + Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET*Math.sin( theta ) + lateral*Math.cos( theta );
+        double sensorY = y + Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET*Math.cos( theta ) - lateral*Math.sin( theta );
+        boolean line = isOnGridline( sensorX, geometry.getColumns() ) || isOnGridline( sensorY, geometry.getRows() );
+        double reflectance = ( line ? LINE_REFLECTANCE : FLOOR_REFLECTANCE ) + random.nextGaussian()*REFLECTANCE_NOISE;
+        return (float) Math.max( 0, Math.min( 1, reflectance ) );
+    }
+
+    /**
+     * A method which determines if a coordinate lies on one of the gridlines across the field
+     *
+     * @param coordinate the coordinate
+     * @param squares the number of squares along the coordinate
+     * @return whether the coordinate is on a gridline
+     */
+    private boolean isOnGridline( double coordinate, int squares ) {
+        double squareLength = geometry.getSquareLength();
+        long line = Math.round( coordinate/squareLength );
+        return line >= 0 && line <= squares - 2 && Math.abs( coordinate - line*squareLength ) < LINE_HALF_WIDTH;
+    }
+
+    /**
+     * A method that reads the front ultrasonic sensor
+     *
+     * @return the distance from the sensor to the nearest wall or obstacle (m), or infinity without an echo
+     */
+    public synchronized float getRange() {
+        advance();
+        double distance = calculateRange( x, y, theta ) - Constants.FORWARD_SENSOR_DISTANCE
+                + random.nextGaussian()*RANGE_NOISE;
+        float meters = (float) Math.max( 0, distance/100 );
+        return meters > MAX_ECHO ? Float.POSITIVE_INFINITY : meters;
+    }
+
+    /**
+     * A method that calculates the distance from a pose to the nearest wall or obstacle in front of it
+     *
+     * @param x the x coordinate of the pose
+     * @param y the y coordinate of the pose
+     * @param theta the heading of the pose
+     * @return the distance
+     */
+    public double calculateRange( double x, double y, double theta ) {
+        double directionX = Math.sin( theta );
+        double directionY = Math.cos( theta );
+        double range = Math.min( calculateExit( x, minX, maxX, directionX ), calculateExit( y, minY, maxY, directionY ) );
+        for ( int i = 0; i < obstacles.size(); i++ ) {
+            double[] box = obstacles.get( i );
+            double enter = Math.max( calculateEntry( x, box[0], box[2], directionX ), calculateEntry( y, box[1], box[3], directionY ) );
+            double exit = Math.min( calculateExit( x, box[0], box[2], directionX ), calculateExit( y, box[1], box[3], directionY ) );
+            if ( enter <= exit && enter >= 0 && enter < range ) {
+                range = enter;
+            }
+        }
+        return range;
+    }
+
+    private static double calculateEntry( double origin, double low, double high, double direction ) {
+        if ( Math.abs( direction ) < 1e-9 ) {
+            return origin >= low && origin <= high ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        return Math.min( ( low - origin )/direction, ( high - origin )/direction );
+    }
+
+    private static double calculateExit( double origin, double low, double high, double direction ) {
+        if ( Math.abs( direction ) < 1e-9 ) {
+            return origin >= low && origin <= high ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        }
+        return Math.max( ( low - origin )/direction, ( high - origin )/direction );
+    }
+
+    /**
+     * A method that stops the physics while motor commands are being synchronized
+     */
+    synchronized void beginSynchronization() {
+        advance();
+        synchronizations++;
+    }
+
+    /**
+     * A method that lets the physics catch up once synchronized motor commands have been given
+     */
+    synchronized void endSynchronization() {
+        if ( synchronizations > 0 ) {
+            synchronizations--;
+        }
+    }
+
+    /**
+     * A method that places an obstacle on a square
+     *
+     * @param row the row of the square
+     * @param column the column of the square
+     */
+    public synchronized void addObstacle( int row, int column ) {
+        double squareLength = geometry.getSquareLength();
+        obstacles.add( new double[]{ ( column - 1 )*squareLength, ( row - 1 )*squareLength, column*squareLength, row*squareLength } );
+    }
+
+    /**
+     * A method that places the vehicle
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param theta the heading
+     */
+    public synchronized void setPose( double x, double y, double theta ) {
+        advance();
+        this.x = x;
+        this.y = y;
+        this.theta = theta;
+    }
+
+    /**
+     * A method to read the true pose of the vehicle
+     *
+     * @param pose the array to fill with x, y and theta in radians
+     */
+    public synchronized void getPose( double[] pose ) {
+        advance();
+        pose[0] = x;
+        pose[1] = y;
+        pose[2] = theta;
+    }
+
+    /**
+     * A method to give the vehicle wheels that differ from the constants
+     *
+     * @param wheelRadius the true wheel radius
+     * @param trackLength the true track length
+     */
+    public synchronized void setWheels( double wheelRadius, double trackLength ) {
+        this.wheelRadius = wheelRadius;
+        this.trackLength = trackLength;
+    }
+
+    /**
+     * A method to set how much the wheels slip on the floor
+     *
+     * @param slip the mean fraction of wheel travel lost
+     * @param slipNoise the spread of the fraction lost
+     */
+    public synchronized void setSlip( double slip, double slipNoise ) {
+        this.slip = slip;
+        this.slipNoise = slipNoise;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public FieldGeometry getGeometry() {
+        return geometry;
+    }
+
+}
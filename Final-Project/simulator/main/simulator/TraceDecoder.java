@@ -0,0 +1,74 @@
+package main.simulator;
+
+import main.util.EventTrace;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes an event trace dumped on the brick or by the simulated match into a timeline, one event a line, with
+ * the time since the first event and since the previous event of the same thread.
+ *
+ * @author JohnWu
+ */
+public class TraceDecoder {
+
+    /**
+     * Decodes a dump and prints its timeline
+     *
+     * @param args the dump file
+     */
+    public static void main( String[] args ) throws IOException {
+        if ( args.length < 1 ) {
+            System.out.println( "Usage: TraceDecoder <trace file>" );
+            System.exit( 1 );
+        }
+        InputStream in = new FileInputStream( args[0] );
+        List<EventTrace.Event> events;
+        try {
+            events = EventTrace.read( in );
+        } finally {
+            in.close();
+        }
+        System.out.print( decode( events ) );
+    }
+
+    /**
+     * A method that formats events as a timeline followed by the number of events of each type
+     *
+     * @param events the events, oldest first
+     * @return the timeline
+     */
+    public static String decode( List<EventTrace.Event> events ) {
+        StringBuilder timeline = new StringBuilder();
+        timeline.append( String.format( "Event trace, %d events%n", events.size() ) );
+        timeline.append( String.format( "%12s %12s %7s  %-19s %s%n", "time (ms)", "delta (ms)", "thread", "event", "values" ) );
+        if ( events.isEmpty() ) {
+            return timeline.toString();
+        }
+        long first = events.get( 0 ).getTime();
+        int[] typeCounts = new int[32];
+        Map<Integer, Long> lastTimes = new HashMap<>();
+        for ( EventTrace.Event event : events ) {
+            Long last = lastTimes.put( event.getThread(), event.getTime() );
+            timeline.append( String.format( "%12.3f %12s %7d  %-19s %s%n", ( event.getTime() - first )/1e6,
+                    last == null ? "" : String.format( "%.3f", ( event.getTime() - last )/1e6 ), event.getThread(),
+                    EventTrace.getTypeName( event.getType() ), event.describe() ) );
+            if ( event.getType() >= 0 && event.getType() < typeCounts.length ) {
+                typeCounts[event.getType()]++;
+            }
+        }
+        timeline.append( String.format( "%nEvents by type%n" ) );
+        for ( int type = 0; type < typeCounts.length; type++ ) {
+            if ( typeCounts[type] > 0 ) {
+                timeline.append( String.format( "  %-19s %d%n", EventTrace.getTypeName( type ), typeCounts[type] ) );
+            }
+        }
+        return timeline.toString();
+    }
+
+}
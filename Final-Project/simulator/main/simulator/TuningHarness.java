@@ -0,0 +1,382 @@
+package main.simulator;
+
+import main.object.Tuning;
+import main.resource.Constants;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays the simulated match many times with randomly sampled thresholds and speeds and ranks them by how well
+ * the match went, so that the values on the brick can be chosen from data instead of by hand.
+ *
+ * Every configuration is played once per seed. The matches are split across a fork-join pool, one per
+ * processor, and each match runs in its own JVM since the controller threads of a match never stop. A match runs
+ * on the virtual clock, so its result only depends on the configuration and the seed and not on how many are
+ * played at once. The first configuration is always the constants, so the others can be compared against it,
+ * and the run fails when the constants themselves do not bring the vehicle to the target, since the ranking
+ * means nothing once the simulation is broken.
+ *
+ * @author JohnWu
+ */
+public class TuningHarness {
+
+    // first seed of the simulated world, the same as a single simulated match
+    private static final long FIRST_SEED = 7;
+
+    // seed of the configuration sampling, so that a run can be repeated
+    private static final long SAMPLING_SEED = 11;
+
+    // farthest the constants may leave the vehicle from the target, inside the square of the target (cm)
+    static final double BASELINE_ERROR = Constants.SQUARE_LENGTH/2;
+
+    /**
+     * Samples the configurations, plays them and prints the ranking
+     *
+     * @param args the number of configurations, the number of seeds and the parallelism, all optional
+     */
+    public static void main( String[] args ) {
+        int samples = args.length > 0 ? Integer.parseInt( args[0] ) : 8;
+        int seeds = args.length > 1 ? Integer.parseInt( args[1] ) : 3;
+        int parallelism = args.length > 2 ? Integer.parseInt( args[2] ) : Runtime.getRuntime().availableProcessors();
+
+        Tuning[] configurations = new Tuning[samples];
+        Random random = new Random( SAMPLING_SEED );
+        configurations[0] = new Tuning();
+        for ( int i = 1; i < samples; i++ ) {
+            configurations[i] = sample( random );
+        }
+
+        System.out.println( String.format( "Playing %d configurations x %d seeds on %d threads",
+                samples, seeds, parallelism ) );
+        long start = System.nanoTime();
+        Result[] results = new Result[samples*seeds];
+        ForkJoinPool pool = new ForkJoinPool( parallelism );
+        pool.invoke( new MatchTask( configurations, seeds, results, 0, results.length ) );
+        pool.shutdown();
+        double wallSeconds = ( System.nanoTime() - start )/1e9;
+
+        Result[] baseline = Arrays.copyOfRange( results, 0, seeds );
+        List<Summary> summaries = new ArrayList<>();
+        for ( int i = 0; i < samples; i++ ) {
+            summaries.add( new Summary( i, configurations[i], Arrays.copyOfRange( results, i*seeds, ( i + 1 )*seeds ) ) );
+        }
+        rank( summaries );
+
+        System.out.println( String.format( "Tuning results (%.1f s wall time)", wallSeconds ) );
+        System.out.println( "  config  finished   time (s)  error (cm)  stops  driving  relocalizations" );
+        for ( Summary summary : summaries ) {
+            System.out.println( String.format( "  %6d  %4d/%-4d  %8.1f  %10.2f  %5.1f  %7.1f  %15.1f", summary.getIndex(),
+                    summary.getFinishedCount(), summary.getRunCount(), summary.getMeanTime(), summary.getMeanError(),
+                    summary.getMeanCorrectionStops(), summary.getMeanDrivingCorrections(),
+                    summary.getMeanRelocalizations() ) );
+        }
+        System.out.println( "Configurations:" );
+        for ( Summary summary : summaries ) {
+            System.out.println( String.format( "  %6d  %s", summary.getIndex(), summary.getTuning() ) );
+        }
+        if ( !isBaselineMet( baseline ) ) {
+            System.out.println( String.format( "Baseline failed: configuration 0 did not finish within %.1f cm of "
+                    + "the target on every seed", BASELINE_ERROR ) );
+            System.exit( 1 );
+        }
+    }
+
+    /**
+     * A method which determines if the constants played well enough for the ranking to be trusted, every match
+     * finished and ended near the target
+     *
+     * @param results the results of the constants, one per seed
+     * @return whether the baseline is met
+     */
+    public static boolean isBaselineMet( Result[] results ) {
+        for ( Result result : results ) {
+            if ( !result.isFinished() || result.getError() > BASELINE_ERROR ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A method that draws a configuration uniformly from the range worth trying for each value
+     *
+     * @param random the random source
+     * @return the sampled tuning
+     */
+    public static Tuning sample( Random random ) {
+        Tuning tuning = new Tuning();
+        tuning.setLowerLightThreshold( round( uniform( random, 0.25, 0.5 ), 100 ) );
+        tuning.setLocalizationNoiseMargin( round( uniform( random, 1, 6 ), 10 ) );
+        tuning.setPointReachedThreshold( round( uniform( random, 0.3, 1.5 ), 100 ) );
+        tuning.setColorSensorHoldTime( Math.round( uniform( random, 500, 2500 ) ) );
+        tuning.setDriveSpeed( (int) Math.round( uniform( random, 80, 250 ) ) );
+        tuning.setCorrectionSpeed( (int) Math.round( uniform( random, 80, 200 ) ) );
+        tuning.setRotateSpeed( (int) Math.round( uniform( random, 60, 160 ) ) );
+        return tuning;
+    }
+
+    /**
+     * A method that orders the configurations, most finished matches first, then smallest error and shortest time
+     *
+     * @param summaries the configurations to order
+     */
+    public static void rank( List<Summary> summaries ) {
+        Collections.sort( summaries, new Comparator<Summary>() {
+            public int compare( Summary a, Summary b ) {
+                if ( a.getFinishedCount() != b.getFinishedCount() ) {
+                    return b.getFinishedCount() - a.getFinishedCount();
+                }
+                if ( a.getMeanError() != b.getMeanError() ) {
+                    return Double.compare( a.getMeanError(), b.getMeanError() );
+                }
+                return Double.compare( a.getMeanTime(), b.getMeanTime() );
+            }
+        } );
+    }
+
+    private static double uniform( Random random, double low, double high ) {
+        return low + random.nextDouble()*( high - low );
+    }
+
+    private static double round( double value, int scale ) {
+        return (double) Math.round( value*scale )/scale;
+    }
+
+    /**
+     * A method that plays one simulated match in its own JVM and reads its result line
+     *
+     * @param tuning the configuration to play with
+     * @param seed the seed of the simulated world
+     * @return the result, or an unfinished result if the match did not report one
+     */
+    public static Result playMatch( Tuning tuning, long seed ) {
+        List<String> command = new ArrayList<>();
+        command.add( System.getProperty( "java.home" ) + File.separator + "bin" + File.separator + "java" );
+        command.add( "-cp" );
+        command.add( System.getProperty( "java.class.path" ) );
+        command.add( SimulatedMatch.class.getName() );
+        command.add( Long.toString( seed ) );
+        command.addAll( Arrays.asList( tuning.toString().split( " " ) ) );
+        Result result = Result.unfinished();
+        try {
+            Process process = new ProcessBuilder( command ).redirectErrorStream( true ).start();
+            BufferedReader reader = new BufferedReader( new InputStreamReader( process.getInputStream() ) );
+            try {
+                String line;
+                while ( ( line = reader.readLine() ) != null ) {
+                    if ( line.startsWith( Result.PREFIX ) ) {
+                        result = Result.parse( line );
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            process.waitFor();
+        } catch ( IOException e ) {
+            // the match could not be started, it counts as unfinished
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    /**
+     * Plays a range of the matches, splitting it in half until a single match is left
+     */
+    private static class MatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private Tuning[] configurations;
+        private int seeds;
+        private Result[] results;
+        private int from, to;
+
+        MatchTask( Tuning[] configurations, int seeds, Result[] results, int from, int to ) {
+            this.configurations = configurations;
+            this.seeds = seeds;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if ( to - from == 1 ) {
+                results[from] = playMatch( configurations[from/seeds], FIRST_SEED + from%seeds );
+                return;
+            }
+            int middle = ( from + to ) >>> 1;
+            invokeAll( new MatchTask( configurations, seeds, results, from, middle ),
+                    new MatchTask( configurations, seeds, results, middle, to ) );
+        }
+    }
+
+    /**
+     * The result line of one simulated match
+     */
+    public static class Result {
+
+        static final String PREFIX = "RESULT ";
+
+        // properties
+        private boolean finished;
+        private double time;
+        private double error;
+        private int correctionStops;
+        private int drivingCorrections;
+        private long relocalizations;
+
+        /**
+         * A method that reads the result line printed by the simulated match
+         *
+         * @param line the line, starting with RESULT
+         * @return the result
+         */
+        public static Result parse( String line ) {
+            Result result = new Result();
+            for ( String pair : line.substring( PREFIX.length() ).trim().split( " +" ) ) {
+                int split = pair.indexOf( '=' );
+                String name = pair.substring( 0, split );
+                String value = pair.substring( split + 1 );
+                if ( name.equals( "finished" ) ) {
+                    result.finished = Boolean.parseBoolean( value );
+                } else if ( name.equals( "time" ) ) {
+                    result.time = Double.parseDouble( value );
+                } else if ( name.equals( "error" ) ) {
+                    result.error = Double.parseDouble( value );
+                } else if ( name.equals( "correctionStops" ) ) {
+                    result.correctionStops = Integer.parseInt( value );
+                } else if ( name.equals( "drivingCorrections" ) ) {
+                    result.drivingCorrections = Integer.parseInt( value );
+                } else if ( name.equals( "relocalizations" ) ) {
+                    result.relocalizations = Long.parseLong( value );
+                }
+            }
+            return result;
+        }
+
+        static Result unfinished() {
+            return new Result();
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        public double getError() {
+            return error;
+        }
+
+        public int getCorrectionStops() {
+            return correctionStops;
+        }
+
+        public int getDrivingCorrections() {
+            return drivingCorrections;
+        }
+
+        public long getRelocalizations() {
+            return relocalizations;
+        }
+    }
+
+    /**
+     * The means of the finished matches of one configuration
+     */
+    public static class Summary {
+
+        // properties
+        private int index;
+        private Tuning tuning;
+        private int runCount;
+        private int finishedCount;
+        private double meanTime;
+        private double meanError = Double.POSITIVE_INFINITY;
+        private double meanCorrectionStops;
+        private double meanDrivingCorrections;
+        private double meanRelocalizations;
+
+        /**
+         * Main initialization method
+         *
+         * @param index the number of the configuration
+         * @param tuning the configuration
+         * @param results the results of every seed it was played with
+         */
+        public Summary( int index, Tuning tuning, Result[] results ) {
+            this.index = index;
+            this.tuning = tuning;
+            this.runCount = results.length;
+            double time = 0, error = 0, correctionStops = 0, drivingCorrections = 0, relocalizations = 0;
+            for ( Result result : results ) {
+                if ( result.isFinished() ) {
+                    finishedCount++;
+                    time += result.getTime();
+                    error += result.getError();
+                    correctionStops += result.getCorrectionStops();
+                    drivingCorrections += result.getDrivingCorrections();
+                    relocalizations += result.getRelocalizations();
+                }
+            }
+            if ( finishedCount > 0 ) {
+                meanTime = time/finishedCount;
+                meanError = error/finishedCount;
+                meanCorrectionStops = correctionStops/finishedCount;
+                meanDrivingCorrections = drivingCorrections/finishedCount;
+                meanRelocalizations = relocalizations/finishedCount;
+            }
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Tuning getTuning() {
+            return tuning;
+        }
+
+        public int getRunCount() {
+            return runCount;
+        }
+
+        public int getFinishedCount() {
+            return finishedCount;
+        }
+
+        public double getMeanTime() {
+            return meanTime;
+        }
+
+        public double getMeanError() {
+            return meanError;
+        }
+
+        public double getMeanCorrectionStops() {
+            return meanCorrectionStops;
+        }
+
+        public double getMeanDrivingCorrections() {
+            return meanDrivingCorrections;
+        }
+
+        public double getMeanRelocalizations() {
+            return meanRelocalizations;
+        }
+    }
+
+}
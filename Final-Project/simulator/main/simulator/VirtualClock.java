@@ -0,0 +1,195 @@
+package main.simulator;
+
+import main.util.Clock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * A clock that only moves when it is told to, for tests that have to be deterministic.
+ *
+ * Every thread that sleeps on the clock waits for its deadline. Advancing the clock jumps to the earliest
+ * deadline, wakes the thread waiting for it and waits until that thread sleeps again or ends before jumping to
+ * the next one, so exactly one of the sleeping threads runs at a time and always in the same order. Threads
+ * with the same deadline wake in the order they went to sleep. A thread started through the clock, and a thread
+ * woken before its time, is waited for in the same way, so a thread started or woken by another one runs after it
+ * instead of alongside it. The records of the sleeping threads are reused, so that sleeping on the clock allocates
+ * nothing in a test that counts what a thread allocates.
+ *
+ * @author JohnWu
+ */
+public class VirtualClock extends Clock {
+
+    // longest the threads the clock let run may run before it gives up waiting for them (ms of wall clock)
+    private static final long RUN_TIMEOUT = 5000;
+
+    // variables
+    private long now;
+    private long order;
+    private PriorityQueue<Sleeper> sleepers = new PriorityQueue<Sleeper>();
+    private ArrayList<Sleeper> asleep = new ArrayList<Sleeper>();
+    private ArrayDeque<Sleeper> freeSleepers = new ArrayDeque<Sleeper>();
+    private ArrayList<Thread> awake = new ArrayList<Thread>();
+    private ArrayList<Thread> pendingWakes = new ArrayList<Thread>();
+
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    public void sleep( long millis ) {
+        Thread thread = Thread.currentThread();
+        synchronized ( this ) {
+            Sleeper sleeper = freeSleepers.poll();
+            if ( sleeper == null ) {
+                sleeper = new Sleeper();
+            }
+            sleeper.deadline = pendingWakes.remove( thread ) ? now : now + Math.max( millis, 0 );
+            sleeper.order = order++;
+            sleeper.thread = thread;
+            sleeper.woken = false;
+            sleepers.add( sleeper );
+            asleep.add( sleeper );
+            awake.remove( thread );
+            notifyAll();
+            while ( !sleeper.woken ) {
+                try {
+                    wait();
+                } catch ( InterruptedException e ) {
+                    // the thread runs on out of turn, and the clock waits for it as for a woken one
+                    sleepers.remove( sleeper );
+                    asleep.remove( sleeper );
+                    awake.add( thread );
+                    thread.interrupt();
+                    break;
+                }
+            }
+            sleeper.thread = null;
+            freeSleepers.add( sleeper );
+        }
+    }
+
+    public void start( Thread thread ) {
+        synchronized ( this ) {
+            awake.add( thread );
+        }
+        thread.start();
+    }
+
+    public synchronized void wake( Thread thread ) {
+        for ( int i = 0; i < asleep.size(); i++ ) {
+            Sleeper sleeper = asleep.get( i );
+            if ( sleeper.thread != thread ) {
+                continue;
+            }
+            if ( sleeper.deadline > now ) {
+                // woken once the threads running now sleep, after the ones already due
+                sleepers.remove( sleeper );
+                sleeper.deadline = now;
+                sleeper.order = order++;
+                sleepers.add( sleeper );
+            }
+            return;
+        }
+        if ( !pendingWakes.contains( thread ) ) {
+            pendingWakes.add( thread );
+        }
+    }
+
+    /**
+     * A method that moves the clock forward, running every thread whose deadline passes on the way
+     *
+     * @param millis the time to move forward (ms)
+     */
+    public synchronized void advance( long millis ) {
+        long target = now + millis;
+        awaitAwake();
+        while ( !sleepers.isEmpty() && sleepers.peek().deadline <= target ) {
+            advanceToNextDeadline();
+        }
+        now = Math.max( now, target );
+    }
+
+    /**
+     * A method that jumps to the earliest deadline and runs the thread waiting for it until it sleeps again
+     *
+     * @return the new time, or the current time if no thread is sleeping
+     */
+    public synchronized long advanceToNextDeadline() {
+        awaitAwake();
+        Sleeper sleeper = sleepers.poll();
+        if ( sleeper == null ) {
+            return now;
+        }
+        asleep.remove( sleeper );
+        now = Math.max( now, sleeper.deadline );
+        sleeper.woken = true;
+        awake.add( sleeper.thread );
+        notifyAll();
+        awaitAwake();
+        return now;
+    }
+
+    /**
+     * A method that waits until every thread the clock let run sleeps again or ends
+     */
+    private void awaitAwake() {
+        long giveUp = System.currentTimeMillis() + RUN_TIMEOUT;
+        while ( !awake.isEmpty() ) {
+            // a thread that ends does not notify the clock, so check on it now and then
+            for ( int i = awake.size() - 1; i >= 0; i-- ) {
+                if ( !awake.get( i ).isAlive() ) {
+                    awake.remove( i );
+                }
+            }
+            if ( awake.isEmpty() || System.currentTimeMillis() >= giveUp ) {
+                break;
+            }
+            try {
+                wait( 1 );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        awake.clear();
+    }
+
+    /**
+     * A method that waits until a number of threads are sleeping on the clock, so a test can start its threads
+     * and know where they are
+     *
+     * @param count the number of sleeping threads
+     */
+    public synchronized void awaitSleepers( int count ) {
+        long giveUp = System.currentTimeMillis() + RUN_TIMEOUT;
+        while ( sleepers.size() < count && System.currentTimeMillis() < giveUp ) {
+            try {
+                wait( 1 );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * A thread waiting for its deadline
+     */
+    private static class Sleeper implements Comparable<Sleeper> {
+
+        private long deadline;
+        private long order;
+        private Thread thread;
+        private boolean woken;
+
+        public int compareTo( Sleeper other ) {
+            if ( deadline != other.deadline ) {
+                return deadline < other.deadline ? -1 : 1;
+            }
+            return order < other.order ? -1 : order > other.order ? 1 : 0;
+        }
+
+    }
+
+}
@@ -1,21 +1,38 @@
 package main;
 
-import lejos.hardware.sensor.EV3ColorSensor;
-import lejos.hardware.sensor.EV3UltrasonicSensor;
-import lejos.robotics.SampleProvider;
 import main.controller.*;
 import lejos.hardware.Button;
-import lejos.hardware.ev3.LocalEV3;
 import lejos.hardware.lcd.TextLCD;
 import lejos.hardware.motor.EV3LargeRegulatedMotor;
+import main.object.Calibration;
+import main.object.DiagnosticsDisplay;
+import main.object.Feedback;
+import main.object.FieldGeometry;
 import main.object.OdometerDisplay;
+import main.object.Tuning;
+import main.object.UltrasonicSensor;
 import main.resource.Constants;
+import main.util.CalibrationEstimator;
+import main.util.Clock;
+import main.util.DStarLitePlanner;
+import main.util.Diagnostics;
 import main.util.EmergencyStopper;
+import main.util.EventTrace;
 import main.util.FieldMapper;
+import main.util.Log;
+import main.util.OccupancyGrid;
+import main.util.ParticleFilter;
+import main.util.PoseEstimator;
+import main.util.PoseMonitor;
+import main.util.RealTimeExecutor;
+import main.util.StartupGraph;
+import main.util.WallDistanceTable;
+import main.util.WarmUp;
 import main.wifi.WifiConnection;
 import main.wifi.WifiProperties;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Main class for vehicle
@@ -24,81 +41,236 @@ import java.util.Map;
  */
 public class FinalProject {
 
-    private static final EV3LargeRegulatedMotor leftMotor = new EV3LargeRegulatedMotor(LocalEV3.get().getPort( "A" ));
-    private static final EV3LargeRegulatedMotor rightMotor = new EV3LargeRegulatedMotor(LocalEV3.get().getPort( "D" ));
-    private static final SampleProvider forwardUltrasonicSensor = ( new EV3UltrasonicSensor( LocalEV3.get().getPort( "S1" ) ) ).getMode("Distance");
-    private static final SampleProvider leftColorSensor = ( new EV3ColorSensor( LocalEV3.get().getPort("S2") ) ).getMode("Red");
-    private static final SampleProvider rightColorSensor = ( new EV3ColorSensor( LocalEV3.get().getPort("S3") ) ).getMode("Red");
-
-    private static Parameters parameters;
-
     /**
      * The main class of the robot
      *
      * @param args
      */
     public static void main(String[] args) {
+        long startTime = System.currentTimeMillis();
+
+        // the hot paths are compiled while the sensors are opened and the parameters are waited for
+        final WarmUp warmUp = new WarmUp();
+        warmUp.start();
 
-        @SuppressWarnings("main/resource")
-        final TextLCD t = LocalEV3.get().getTextLCD();
-        /**
-         * Uncomment for wifi code
-         */
-//        retrieveStartingParameters();
-//
-//        if ( parameters.getForwardTeam() == 11 ) {
-//            Odometer odometer = new Odometer(leftMotor,rightMotor);
-//            Navigator navigator = new Navigator(leftMotor,rightMotor,odometer);
-//            OdometryDisplay odometryDisplay = new OdometryDisplay(odometer,t);
-//            odometer.start();
-//            odometryDisplay.start();
-//
-//            Localizer localizer = new Localizer( odometer, forwardUltrasonicSensor, navigator, parameters.getForwardCorner() );
-//            localizer.run();
-//        }
-
-        /**
-         * Uncomment for non-wifi code
-         */
+        // every device is opened on its own thread while the parameters are retrieved
+        StartupGraph startup = new StartupGraph();
+        Hardware hardware = Hardware.open( startup );
+        hardware.setStartTime( startTime );
+        final Log log = hardware.getLog();
+        final StartupGraph.Node<Parameters> parameters = startup.add( "parameters", new Callable<Parameters>() {
+            public Parameters call() {
+                return WifiProperties.ENABLE_WIFI ? retrieveStartingParameters( log ) : getDefaultParameters();
+            }
+        } );
+        // the match starts once the parameters are in, with the warm-up over
+        StartupGraph.Node<Parameters> matchStart = startup.add( "match start", new Callable<Parameters>() {
+            public Parameters call() {
+                warmUp.finish();
+                return parameters.get();
+            }
+        }, parameters );
+        startup.start();
+
+        // the emergency stop is watched from the start
         EmergencyStopper emergencyStopper = new EmergencyStopper();
-        emergencyStopper.start();
+        emergencyStopper.setTrace( hardware.getTrace(), Constants.TRACE_FILE );
+        emergencyStopper.setLog( hardware.getLog() );
+        hardware.getExecutor().schedule( emergencyStopper );
+        hardware.getExecutor().start();
 
-        int[] defenderZone = {4,4};
-        Parameters parameters = new Parameters();
-        parameters.setForwardCorner(1);
-        parameters.setForwardLine(8);
-        parameters.setForwardTeam(11);
-        parameters.setDefenderZone(defenderZone);
+        FieldGeometry fieldGeometry = FieldGeometry.load( Constants.FIELD_GEOMETRY_FILE );
+        Calibration calibration = Calibration.load( Constants.CALIBRATION_FILE );
+        MatchReport report = playMatch( matchStart, hardware, fieldGeometry, calibration, new Tuning() );
+        hardware.getLog().info( "warm-up", "rounds", warmUp.getRounds() );
+        hardware.getLog().info( "warm-up", "duration (ms)", warmUp.getDuration() );
+        if ( !warmUp.isCompiled() ) {
+            hardware.getLog().warn( "warm-up", "cut short before the compiler was done" );
+        }
+        for ( StartupGraph.Node<?> node : startup.getNodes() ) {
+            hardware.getLog().info( "startup", node.getName() + " open (ms)", node.getReadyTime() );
+        }
+        if ( report.isCalibrationUpdated() ) {
+            calibration.save( Constants.CALIBRATION_FILE );
+            hardware.getLog().info( "match", "calibration saved" );
+        }
+        report.getDiagnostics().export( Constants.DIAGNOSTICS_FILE );
+        hardware.getTrace().dump( Constants.TRACE_FILE );
+        hardware.getLog().close();
 
-        FieldMapper fieldMapper = new FieldMapper(parameters);
+        int buttonChoice = Button.waitForAnyPress();
+        System.exit(0);
+    }
 
+    /**
+     * A method that localizes and navigates the vehicle through a match. The controllers that only read the
+     * devices are started right away, and the vehicle waits for the starting parameters before it moves.
+     *
+     * @param parameters the starting parameters of the match, which may still be on their way
+     * @param hardware the motors, sensors and screen to play with
+     * @param fieldGeometry the field to play on
+     * @param calibration the wheel radius and track length to start with
+     * @param tuning the thresholds and speeds to drive and correct with
+     * @return what happened during the match
+     */
+    public static MatchReport playMatch( StartupGraph.Node<Parameters> parameters, Hardware hardware,
+                                         FieldGeometry fieldGeometry, Calibration calibration, Tuning tuning ) {
+        Clock clock = hardware.getClock();
+        long matchStart = clock.currentTimeMillis();
+        Diagnostics diagnostics = new Diagnostics( clock );
+        EventTrace trace = hardware.getTrace();
+        RealTimeExecutor executor = hardware.getExecutor();
+        executor.setDiagnostics( diagnostics );
+        executor.start();
+        Log log = hardware.getLog();
+        log.setDiagnostics( diagnostics );
+        executor.setLog( log );
+
+        // the boundaries of the match are mapped once the parameters are in
+        FieldMapper fieldMapper = new FieldMapper( fieldGeometry );
+        WallDistanceTable wallDistanceTable = new WallDistanceTable( fieldGeometry );
+
+        // each controller is started as soon as the devices it uses are open, while the others are still opening
+        EV3LargeRegulatedMotor leftMotor = hardware.getLeftMotor();
+        EV3LargeRegulatedMotor rightMotor = hardware.getRightMotor();
         Odometer odometer = new Odometer(leftMotor,rightMotor,fieldMapper);
-        Navigator navigator = new Navigator(leftMotor,rightMotor,odometer);
+        odometer.setCalibration( calibration );
+        odometer.setClock( clock );
+        odometer.setDiagnostics( diagnostics );
+        odometer.setTrace( trace );
+        executor.schedule( odometer );
+        TextLCD t = hardware.getTextLCD();
+        Feedback feedback = hardware.getFeedback();
+        feedback.setDiagnostics( diagnostics );
         OdometerDisplay odometerDisplay = new OdometerDisplay(odometer,t);
-        OdometerCorrection odometerCorrection = new OdometerCorrection( navigator, odometer, leftColorSensor, rightColorSensor );
-        odometer.start();
-        odometerDisplay.start();
+        DiagnosticsDisplay diagnosticsDisplay = new DiagnosticsDisplay( diagnostics, t );
+        executor.schedule( odometerDisplay );
+        executor.schedule( diagnosticsDisplay );
+        Navigator navigator = new Navigator(leftMotor,rightMotor,odometer);
+        navigator.setCalibration( calibration );
+        navigator.setTuning( tuning );
+        navigator.setClock( clock );
+        navigator.setDiagnostics( diagnostics );
+        navigator.setTrace( trace );
+        navigator.setFeedback( feedback );
+        navigator.setLog( log );
+        OdometerCorrection odometerCorrection = new OdometerCorrection( navigator, odometer, hardware.getLeftColorSensor(),
+                hardware.getRightColorSensor() );
+        odometerCorrection.setClock( clock );
+        odometerCorrection.setTuning( tuning );
+        odometerCorrection.setDiagnostics( diagnostics );
+        odometerCorrection.setTrace( trace );
+        odometerCorrection.setFeedback( feedback );
+        CalibrationEstimator calibrationEstimator = new CalibrationEstimator( calibration, fieldGeometry.getSquareLength() );
+        odometerCorrection.setCalibrationEstimator( calibrationEstimator );
+        executor.schedule( odometerCorrection.getLeftSensor() );
+        executor.schedule( odometerCorrection.getRightSensor() );
 
-        Localizer localizer = new Localizer( odometer, forwardUltrasonicSensor, navigator, 1 );
-        localizer.run();
+        // one ultrasonic sample per period, read by the sweep and by every controller after it
+        UltrasonicSensor forwardUltrasonicSensor = new UltrasonicSensor( hardware.getForwardUltrasonicSensor() );
+        forwardUltrasonicSensor.setSampleCounter( diagnostics.getCounter( "ultrasonic samples" ) );
+        executor.schedule( forwardUltrasonicSensor );
 
-        odometerCorrection.start();
+        // nothing moves before the match starts
+        fieldMapper.setParameters( parameters.get() );
+        log.info( "match", "parameters in (ms)", clock.currentTimeMillis() - matchStart );
+        DStarLitePlanner replanner = new DStarLitePlanner( fieldMapper );
+        navigator.setReplanner( replanner );
 
-        navigator.travelTo( 2* Constants.SQUARE_LENGTH, 2* Constants.SQUARE_LENGTH );
+        // localize on the first gridline intersection, falling back on the ultrasonic sweep to seed it
+        feedback.showStatus( "localizing" );
+        log.info( "match", "localizing" );
+        LightLocalizer lightLocalizer = new LightLocalizer( odometer, navigator, odometerCorrection.getLeftSensor(),
+                odometerCorrection.getRightSensor(), 1 );
+        lightLocalizer.setClock( clock );
+        lightLocalizer.seedFromCorner();
+        lightLocalizer.run();
+        if ( !lightLocalizer.isLocalized() ) {
+            log.warn( "match", "no intersection found, sweeping the walls" );
+            Localizer localizer = new Localizer( odometer, forwardUltrasonicSensor, navigator, 1 );
+            localizer.setClock( clock );
+            localizer.setTuning( tuning );
+            localizer.setLog( log );
+            localizer.run();
+            lightLocalizer.setVerifyingSeed( true );
+            lightLocalizer.run();
+        }
 
+        odometer.setPoseEstimator( new PoseEstimator( fieldGeometry, calibration ) );
+        ParticleLocalizer particleLocalizer = new ParticleLocalizer( odometer, forwardUltrasonicSensor,
+                new ParticleFilter( fieldGeometry, Constants.PARTICLE_COUNT ) );
+        odometerCorrection.setParticleLocalizer( particleLocalizer );
+        executor.schedule( particleLocalizer );
+        executor.schedule( odometerCorrection );
+        // a line seen while localizing is handled right away
+        odometerCorrection.release();
 
-        int buttonChoice = Button.waitForAnyPress();
-        System.exit(0);
+        // the obstacles and the occupancy grid are only worth watching once we are localized
+        ObstacleDetector obstacleDetector = new ObstacleDetector( odometer, forwardUltrasonicSensor, replanner );
+        executor.schedule( obstacleDetector );
+        OccupancyMapper occupancyMapper = new OccupancyMapper( odometer, forwardUltrasonicSensor,
+                new OccupancyGrid( fieldMapper.getGrid() ) );
+        PoseMonitor poseMonitor = new PoseMonitor( wallDistanceTable );
+        occupancyMapper.setPoseMonitor( poseMonitor );
+        navigator.setRelocalizer( lightLocalizer, poseMonitor );
+        executor.schedule( occupancyMapper );
+
+        feedback.showStatus( "navigating" );
+        feedback.playSound( Feedback.SOUND_BEEP );
+        log.info( "match", "navigating" );
+        if ( navigator.navigateAroundObstacles( 2*fieldGeometry.getSquareLength(), 2*fieldGeometry.getSquareLength() ) ) {
+            feedback.showStatus( "arrived" );
+        } else {
+            feedback.showStatus( "boxed in" );
+        }
+        log.info( "match", "done navigating, correction stops", odometerCorrection.getCorrectionStopCount() );
+        double[] estimate = new double[3];
+        particleLocalizer.getEstimate( estimate );
+        log.info( "particles", "distance of the estimate from the odometer (cm)",
+                Math.hypot( estimate[0] - odometer.getX(), estimate[1] - odometer.getY() ) );
+        feedback.playSound( Feedback.SOUND_BEEP_SEQUENCE_UP );
+
+        // the next match starts from what this one measured
+        MatchReport report = new MatchReport( calibrationEstimator.apply( calibration ),
+                odometerCorrection.getCorrectionStopCount(), odometerCorrection.getDrivingCorrectionCount(),
+                poseMonitor.getRelocalizationCount(), diagnostics );
+        long startTime = hardware.getStartTime() >= 0 ? hardware.getStartTime() : matchStart;
+        if ( navigator.getFirstMotionTime() >= 0 ) {
+            long timeToFirstMotion = navigator.getFirstMotionTime() - startTime;
+            diagnostics.getHistogram( "time to first motion" ).record( timeToFirstMotion );
+            log.info( "startup", "time to first motion (ms)", timeToFirstMotion );
+            report.setTimeToFirstMotion( timeToFirstMotion );
+        }
+        return report;
     }
 
     /**
-     * A method to retrieve the starting parameters inputted by the server
+     * A method that returns the starting parameters played with when the server is not used
+     *
+     * @return the starting parameters
      */
-    private static void retrieveStartingParameters() {
+    private static Parameters getDefaultParameters() {
+        int[] defenderZone = {4,4};
+        Parameters parameters = new Parameters();
+        parameters.setForwardCorner(1);
+        parameters.setForwardLine(8);
+        parameters.setForwardTeam(11);
+        parameters.setDefenderZone(defenderZone);
+        return parameters;
+    }
+
+    /**
+     * A method to retrieve the starting parameters inputted by the server, falling back on the default ones when
+     * they cannot be retrieved so that the field is never mapped from parameters left half filled
+     *
+     * @param log the log a failure is reported in
+     * @return the starting parameters
+     */
+    private static Parameters retrieveStartingParameters( Log log ) {
 
         WifiConnection conn = new WifiConnection( WifiProperties.SERVER_IP, WifiProperties.TEAM_NUMBER,
                 WifiProperties.ENABLE_DEBUG_WIFI_PRINT );
-        parameters = new Parameters();
+        Parameters parameters = new Parameters();
 
         try {
             Map data = conn.getData();
@@ -111,7 +283,9 @@ public class FinalProject {
             parameters.setBallDispenserPosition( new int[]{ ( (Long) data.get( "bx" )).intValue(), ( (Long) data.get( "by" )).intValue() });
             parameters.setBallDispenserOrientation( (String) data.get( "omega" ) );
         } catch ( Exception e ) {
-            // Error occurred
+            log.error( "parameters", "could not retrieve the starting parameters, playing with the defaults", e );
+            return getDefaultParameters();
         }
+        return parameters;
     }
 }
@@ -0,0 +1,257 @@
+package main;
+
+import lejos.hardware.ev3.EV3;
+import lejos.hardware.ev3.LocalEV3;
+import lejos.hardware.lcd.TextLCD;
+import lejos.hardware.motor.EV3LargeRegulatedMotor;
+import lejos.hardware.sensor.EV3ColorSensor;
+import lejos.hardware.sensor.EV3UltrasonicSensor;
+import lejos.robotics.SampleProvider;
+import main.object.Feedback;
+import main.resource.Constants;
+import main.util.Clock;
+import main.util.EventTrace;
+import main.util.Log;
+import main.util.RealTimeExecutor;
+import main.util.StartupGraph;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The motors, sensors, screen and clock of the vehicle, kept together so that the match can be played on the
+ * brick or on stand-ins for them, the executor the controllers run on, and the trace and log they record what they
+ * did in.
+ *
+ * On the brick the devices are opened in parallel by a startup graph, and asking for one waits only until that
+ * device is open, so a controller can be started while the devices it does not use are still being opened.
+ *
+ * @author JohnWu
+ */
+public class Hardware {
+
+    // objects
+    private StartupGraph.Node<EV3LargeRegulatedMotor> leftMotor, rightMotor;
+    private StartupGraph.Node<SampleProvider> forwardUltrasonicSensor;
+    private StartupGraph.Node<SampleProvider> leftColorSensor, rightColorSensor;
+    private StartupGraph.Node<TextLCD> textLCD;
+    private Clock clock = Clock.getSystemClock();
+    private EventTrace trace = new EventTrace( Constants.TRACE_CAPACITY );
+    private RealTimeExecutor executor;
+    private Feedback feedback;
+    private Log log;
+
+    // variables
+    private boolean soundAvailable = true;
+    private long startTime = -1;
+
+    /**
+     * Main initialization method
+     *
+     * @param leftMotor the left motor
+     * @param rightMotor the right motor
+     * @param forwardUltrasonicSensor the front facing ultrasonic sensor in distance mode
+     * @param leftColorSensor the left color sensor in red mode
+     * @param rightColorSensor the right color sensor in red mode
+     * @param textLCD the screen
+     */
+    public Hardware( EV3LargeRegulatedMotor leftMotor, EV3LargeRegulatedMotor rightMotor, SampleProvider forwardUltrasonicSensor,
+                     SampleProvider leftColorSensor, SampleProvider rightColorSensor, TextLCD textLCD ) {
+        this( StartupGraph.ready( "left motor", leftMotor ), StartupGraph.ready( "right motor", rightMotor ),
+                StartupGraph.ready( "ultrasonic sensor", forwardUltrasonicSensor ),
+                StartupGraph.ready( "left color sensor", leftColorSensor ),
+                StartupGraph.ready( "right color sensor", rightColorSensor ), StartupGraph.ready( "screen", textLCD ) );
+    }
+
+    /**
+     * An initialization method for devices that may still be opening
+     *
+     * @param leftMotor the left motor
+     * @param rightMotor the right motor
+     * @param forwardUltrasonicSensor the front facing ultrasonic sensor in distance mode
+     * @param leftColorSensor the left color sensor in red mode
+     * @param rightColorSensor the right color sensor in red mode
+     * @param textLCD the screen
+     */
+    public Hardware( StartupGraph.Node<EV3LargeRegulatedMotor> leftMotor,
+                     StartupGraph.Node<EV3LargeRegulatedMotor> rightMotor,
+                     StartupGraph.Node<SampleProvider> forwardUltrasonicSensor,
+                     StartupGraph.Node<SampleProvider> leftColorSensor,
+                     StartupGraph.Node<SampleProvider> rightColorSensor, StartupGraph.Node<TextLCD> textLCD ) {
+        this.leftMotor = leftMotor;
+        this.rightMotor = rightMotor;
+        this.forwardUltrasonicSensor = forwardUltrasonicSensor;
+        this.leftColorSensor = leftColorSensor;
+        this.rightColorSensor = rightColorSensor;
+        this.textLCD = textLCD;
+    }
+
+    /**
+     * A method that adds the devices of the brick to a startup graph, each port being opened on its own once the
+     * brick is, and returns right away. The devices are opened when the graph is started.
+     *
+     * @param graph the startup graph
+     * @return the hardware of the brick
+     */
+    public static Hardware open( StartupGraph graph ) {
+        final StartupGraph.Node<EV3> brick = graph.add( "brick", new Callable<EV3>() {
+            public EV3 call() {
+                return LocalEV3.get();
+            }
+        } );
+        Hardware hardware = new Hardware(
+                graph.add( "left motor", new Callable<EV3LargeRegulatedMotor>() {
+                    public EV3LargeRegulatedMotor call() {
+                        return new EV3LargeRegulatedMotor( brick.get().getPort( "A" ) );
+                    }
+                }, brick ),
+                graph.add( "right motor", new Callable<EV3LargeRegulatedMotor>() {
+                    public EV3LargeRegulatedMotor call() {
+                        return new EV3LargeRegulatedMotor( brick.get().getPort( "D" ) );
+                    }
+                }, brick ),
+                graph.add( "ultrasonic sensor", new Callable<SampleProvider>() {
+                    public SampleProvider call() {
+                        return ( new EV3UltrasonicSensor( brick.get().getPort( "S1" ) ) ).getMode( "Distance" );
+                    }
+                }, brick ),
+                graph.add( "left color sensor", new Callable<SampleProvider>() {
+                    public SampleProvider call() {
+                        return ( new EV3ColorSensor( brick.get().getPort( "S2" ) ) ).getMode( "Red" );
+                    }
+                }, brick ),
+                graph.add( "right color sensor", new Callable<SampleProvider>() {
+                    public SampleProvider call() {
+                        return ( new EV3ColorSensor( brick.get().getPort( "S3" ) ) ).getMode( "Red" );
+                    }
+                }, brick ),
+                graph.add( "screen", new Callable<TextLCD>() {
+                    public TextLCD call() {
+                        return brick.get().getTextLCD();
+                    }
+                }, brick ) );
+        hardware.setStartTime( System.currentTimeMillis() );
+        return hardware;
+    }
+
+    public EV3LargeRegulatedMotor getLeftMotor() {
+        return leftMotor.get();
+    }
+
+    public EV3LargeRegulatedMotor getRightMotor() {
+        return rightMotor.get();
+    }
+
+    public SampleProvider getForwardUltrasonicSensor() {
+        return forwardUltrasonicSensor.get();
+    }
+
+    public SampleProvider getLeftColorSensor() {
+        return leftColorSensor.get();
+    }
+
+    public SampleProvider getRightColorSensor() {
+        return rightColorSensor.get();
+    }
+
+    public TextLCD getTextLCD() {
+        return textLCD.get();
+    }
+
+    /**
+     * A method which returns the time the program started, which the time to the first motion is measured from
+     *
+     * @return the start time (ms), or -1 to measure it from the start of the match
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime( long startTime ) {
+        this.startTime = startTime;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public void setClock( Clock clock ) {
+        this.clock = clock;
+    }
+
+    public EventTrace getTrace() {
+        return trace;
+    }
+
+    public void setTrace( EventTrace trace ) {
+        this.trace = trace;
+    }
+
+    /**
+     * A method that returns the executor the controllers run on, made on the clock the first time it is asked for
+     *
+     * @return the executor
+     */
+    public RealTimeExecutor getExecutor() {
+        if ( executor == null ) {
+            executor = new RealTimeExecutor( clock );
+        }
+        return executor;
+    }
+
+    public void setExecutor( RealTimeExecutor executor ) {
+        this.executor = executor;
+    }
+
+    /**
+     * A method that returns the channel the controllers post sound cues and status messages to, made and started
+     * on the screen and clock the first time it is asked for
+     *
+     * @return the feedback channel
+     */
+    public Feedback getFeedback() {
+        if ( feedback == null ) {
+            feedback = new Feedback( getTextLCD() );
+            feedback.setClock( clock );
+            feedback.setSoundAvailable( soundAvailable );
+            feedback.start();
+        }
+        return feedback;
+    }
+
+    public void setFeedback( Feedback feedback ) {
+        this.feedback = feedback;
+    }
+
+    /**
+     * A method that returns the log the controllers write to, made and started on the log file and the clock the
+     * first time it is asked for
+     *
+     * @return the log
+     */
+    public Log getLog() {
+        if ( log == null ) {
+            log = new Log( Constants.LOG_CAPACITY, Constants.LOG_FILE );
+            log.setClock( clock );
+            clock.start( log );
+        }
+        return log;
+    }
+
+    public void setLog( Log log ) {
+        this.log = log;
+    }
+
+    /**
+     * A method which determines if the vehicle has a speaker
+     *
+     * @return whether sounds can be played
+     */
+    public boolean isSoundAvailable() {
+        return soundAvailable;
+    }
+
+    public void setSoundAvailable( boolean soundAvailable ) {
+        this.soundAvailable = soundAvailable;
+    }
+
+}
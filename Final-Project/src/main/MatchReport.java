@@ -0,0 +1,71 @@
+package main;
+
+import main.util.Diagnostics;
+
+/**
+ * What happened during a match, kept once the match is over so that it can be saved or compared.
+ *
+ * @author JohnWu
+ */
+public class MatchReport {
+
+    // properties
+    private boolean calibrationUpdated;
+    private int correctionStopCount;
+    private int drivingCorrectionCount;
+    private long relocalizationCount;
+    private Diagnostics diagnostics;
+    private long timeToFirstMotion = -1;
+
+    /**
+     * Main initialization method
+     *
+     * @param calibrationUpdated whether the calibration was updated from what was measured during the match
+     * @param correctionStopCount how many times the vehicle stopped to square up on a line
+     * @param drivingCorrectionCount how many line crossings corrected the pose without stopping
+     * @param relocalizationCount how many times the vehicle localized again
+     * @param diagnostics the counters and histograms of the controller threads
+     */
+    public MatchReport( boolean calibrationUpdated, int correctionStopCount, int drivingCorrectionCount,
+                        long relocalizationCount, Diagnostics diagnostics ) {
+        this.calibrationUpdated = calibrationUpdated;
+        this.correctionStopCount = correctionStopCount;
+        this.drivingCorrectionCount = drivingCorrectionCount;
+        this.relocalizationCount = relocalizationCount;
+        this.diagnostics = diagnostics;
+    }
+
+    public boolean isCalibrationUpdated() {
+        return calibrationUpdated;
+    }
+
+    public int getCorrectionStopCount() {
+        return correctionStopCount;
+    }
+
+    public int getDrivingCorrectionCount() {
+        return drivingCorrectionCount;
+    }
+
+    public long getRelocalizationCount() {
+        return relocalizationCount;
+    }
+
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * A method which returns how long after the start the wheels were first told to turn
+     *
+     * @return the time to the first motion (ms), or -1 if the vehicle never moved
+     */
+    public long getTimeToFirstMotion() {
+        return timeToFirstMotion;
+    }
+
+    public void setTimeToFirstMotion( long timeToFirstMotion ) {
+        this.timeToFirstMotion = timeToFirstMotion;
+    }
+
+}
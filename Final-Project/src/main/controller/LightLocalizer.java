@@ -0,0 +1,361 @@
+package main.controller;
+
+import main.object.FieldGeometry;
+import main.object.FieldGrid;
+import main.object.LightSensor;
+import main.resource.Constants;
+import main.util.Angles;
+import main.util.Clock;
+
+/**
+ * A controller to localize our robot on the first gridline intersection using both light sensors.
+ *
+ * The robot stops next to the intersection and turns in place. Each light sensor traces a circle around
+ * the middle of the vehicle and crosses both gridlines twice, so the two sensors together see all four
+ * crossings in a fraction of a full turn. The angles of the crossings give x, y and theta.
+ *
+ * @author JohnWu
+ */
+public class LightLocalizer extends Thread {
+
+    // crossing directions, the heading of the sensor from the middle of the vehicle when it sees a line
+    public static final int NORTH = 0;
+    public static final int EAST = 1;
+    public static final int SOUTH = 2;
+    public static final int WEST = 3;
+
+    // objects
+    private Odometer odometer;
+    private Navigator navigator;
+    private LightSensor leftSensor;
+    private LightSensor rightSensor;
+    private Clock clock = Clock.getSystemClock();
+
+    // variables
+    private int corner;
+    private double intersectionX;
+    private double intersectionY;
+    private double sensorRadius;
+    private double sensorAngle;
+    private double[] crossingAngles = new double[4];
+    private boolean verifyingSeed = false;
+    private boolean localized = false;
+
+    /**
+     * Our default constructor
+     *
+     * @param odometer odometer controller used in the robot
+     * @param navigator navigator controller used in the robot
+     * @param leftSensor left light sensor object used in the robot
+     * @param rightSensor right light sensor object used in the robot
+     * @param corner the starting corner of the robot
+     */
+    public LightLocalizer( Odometer odometer, Navigator navigator, LightSensor leftSensor, LightSensor rightSensor, int corner ) {
+        this.odometer = odometer;
+        this.navigator = navigator;
+        this.leftSensor = leftSensor;
+        this.rightSensor = rightSensor;
+        this.corner = corner;
+        this.sensorRadius = Math.hypot( Constants.LIGHT_SENSOR_LATERAL_OFFSET, Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET );
+        this.sensorAngle = Math.atan2( Constants.LIGHT_SENSOR_LATERAL_OFFSET, Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET );
+    }
+
+    /**
+     * The main method for localizing our robot
+     */
+    public void run() {
+        localized = false;
+
+        setIntersection();
+        if ( !localizeOnIntersection() ) {
+            return;
+        }
+
+        // leave the vehicle facing the same way as the ultrasonic localizer does
+        navigator.turnTo( Angles.wrap( calculateStartingTheta() - odometer.getTheta() ) );
+        setStartingSquare();
+        localized = true;
+    }
+
+    /**
+     * A method to localize again on the gridline intersection nearest to the odometer position, when the
+     * position is found to be wrong during the match
+     *
+     * @return whether the robot was localized
+     */
+    public boolean relocalize() {
+        FieldGeometry geometry = odometer.getFieldMapper().getGeometry();
+        double squareLength = geometry.getSquareLength();
+        intersectionX = Math.rint( odometer.getX() / squareLength )*squareLength;
+        intersectionY = Math.rint( odometer.getY() / squareLength )*squareLength;
+        intersectionX = Math.max( 0, Math.min( ( geometry.getColumns() - 2 )*squareLength, intersectionX ) );
+        intersectionY = Math.max( 0, Math.min( ( geometry.getRows() - 2 )*squareLength, intersectionY ) );
+
+        // the odometer is known to be wrong, so it cannot verify the result
+        boolean verifying = verifyingSeed;
+        verifyingSeed = false;
+        localized = localizeOnIntersection();
+        verifyingSeed = verifying;
+        if ( localized ) {
+            setStartingSquare();
+        }
+        return localized;
+    }
+
+    /**
+     * A method that sweeps the light sensors over the current intersection and sets the odometer from the
+     * crossings
+     *
+     * @return whether every crossing was found and the result was accepted
+     */
+    private boolean localizeOnIntersection() {
+        approachIntersection();
+        sweepAndRecordCrossings();
+
+        if ( !hasAllCrossings() ) {
+            return false;
+        }
+
+        double x = intersectionX + calculateXOffset( crossingAngles[NORTH], crossingAngles[SOUTH] );
+        double y = intersectionY + calculateYOffset( crossingAngles[EAST], crossingAngles[WEST] );
+        double theta = Angles.normalize( odometer.getTheta() + calculateThetaCorrection( crossingAngles[NORTH],
+                crossingAngles[EAST], crossingAngles[SOUTH], crossingAngles[WEST] ) );
+
+        // the ultrasonic seed must agree with the result when we are asked to verify it
+        if ( verifyingSeed && Math.hypot( x - odometer.getX(), y - odometer.getY() ) > Constants.LIGHT_LOCALIZATION_VERIFY_MARGIN ) {
+            return false;
+        }
+
+        odometer.setX( x );
+        odometer.setY( y );
+        odometer.setTheta( theta );
+        return true;
+    }
+
+    /**
+     * A method to seed the odometer with the nominal starting position: the middle of the corner square,
+     * facing the first gridline intersection
+     */
+    public void seedFromCorner() {
+        setIntersection();
+        double halfSquare = odometer.getFieldMapper().getGeometry().getSquareLength()/2;
+        if ( corner == 1 ) {
+            odometer.setX( intersectionX - halfSquare );
+            odometer.setY( intersectionY - halfSquare );
+            odometer.setTheta( Math.PI/4 );
+        }
+        if ( corner == 2 ) {
+            odometer.setX( intersectionX + halfSquare );
+            odometer.setY( intersectionY - halfSquare );
+            odometer.setTheta( 7*Math.PI/4 );
+        }
+        if ( corner == 3 ) {
+            odometer.setX( intersectionX + halfSquare );
+            odometer.setY( intersectionY + halfSquare );
+            odometer.setTheta( 5*Math.PI/4 );
+        }
+        if ( corner == 4 ) {
+            odometer.setX( intersectionX - halfSquare );
+            odometer.setY( intersectionY + halfSquare );
+            odometer.setTheta( 3*Math.PI/4 );
+        }
+    }
+
+    /**
+     * A method to drive towards the intersection until a light sensor reaches the first gridline
+     */
+    private void approachIntersection() {
+        navigator.turnTo( navigator.calculateMinAngle( intersectionX - odometer.getX(), intersectionY - odometer.getY() ) );
+        leftSensor.setLineDetected( false );
+        rightSensor.setLineDetected( false );
+        navigator.driveForward();
+        while ( !leftSensor.isLineDetected() && !rightSensor.isLineDetected() ) {
+            clock.sleep( Constants.LIGHT_LOCALIZATION_READING_PERIOD );
+        }
+        navigator.stopMotors();
+        navigator.driveDistance( Constants.LIGHT_LOCALIZATION_APPROACH_DISTANCE );
+    }
+
+    /**
+     * A method to rotate the vehicle in place until both sensors together have crossed all four gridline
+     * directions
+     */
+    private void sweepAndRecordCrossings() {
+        for ( int i = 0; i < crossingAngles.length; i++ ) {
+            crossingAngles[i] = Double.NaN;
+        }
+
+        double lastTheta = odometer.getTheta();
+        double sweptAngle = 0;
+        double leftHoldUntil = 0;
+        double rightHoldUntil = 0;
+
+        leftSensor.setLineDetected( false );
+        rightSensor.setLineDetected( false );
+        navigator.rotateCounterClockwise();
+
+        while ( sweptAngle < Constants.LIGHT_LOCALIZATION_MAX_SWEEP_ANGLE && !hasAllCrossings() ) {
+            double theta = odometer.getTheta();
+            sweptAngle += Math.abs( Angles.wrap( theta - lastTheta ) );
+            lastTheta = theta;
+
+            // a sensor still sitting on the line it just recorded must not record it again
+            if ( sweptAngle < leftHoldUntil ) {
+                leftSensor.setLineDetected( false );
+            } else if ( leftSensor.isLineDetected() ) {
+                recordCrossing( theta - sensorAngle );
+                leftHoldUntil = sweptAngle + Constants.LIGHT_LOCALIZATION_CROSSING_HOLD_ANGLE;
+            }
+            if ( sweptAngle < rightHoldUntil ) {
+                rightSensor.setLineDetected( false );
+            } else if ( rightSensor.isLineDetected() ) {
+                recordCrossing( theta + sensorAngle );
+                rightHoldUntil = sweptAngle + Constants.LIGHT_LOCALIZATION_CROSSING_HOLD_ANGLE;
+            }
+
+            clock.sleep( Constants.LIGHT_LOCALIZATION_READING_PERIOD );
+        }
+        navigator.stopMotors();
+    }
+
+    /**
+     * A method to store the heading of a sensor that crossed a line, keeping the first crossing per direction
+     *
+     * @param sensorHeading the heading of the sensor from the middle of the vehicle
+     */
+    private void recordCrossing( double sensorHeading ) {
+        int direction = classifyCrossing( sensorHeading );
+        if ( Double.isNaN( crossingAngles[direction] ) ) {
+            crossingAngles[direction] = Angles.normalize( sensorHeading );
+        }
+    }
+
+    /**
+     * A method which determines whether a crossing was recorded in every direction
+     *
+     * @return whether all four crossings were recorded
+     */
+    public boolean hasAllCrossings() {
+        for ( double crossingAngle : crossingAngles ) {
+            if ( Double.isNaN( crossingAngle ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A method that determines which direction a crossing belongs to. A sensor pointing north or south of
+     * the middle of the vehicle crosses the vertical gridline, east or west the horizontal one.
+     *
+     * @param sensorHeading the heading of the sensor from the middle of the vehicle
+     * @return the crossing direction
+     */
+    public int classifyCrossing( double sensorHeading ) {
+        return (int) Math.round( Angles.normalize( sensorHeading ) / ( Math.PI/2 ) ) % 4;
+    }
+
+    /**
+     * A method that calculates the x offset of the vehicle from the intersection
+     *
+     * @param northAngle the sensor heading of the north crossing
+     * @param southAngle the sensor heading of the south crossing
+     * @return the x offset from the intersection
+     */
+    public double calculateXOffset( double northAngle, double southAngle ) {
+        return -sensorRadius * Math.cos( ( Angles.normalize( southAngle ) - Angles.wrap( northAngle ) ) / 2 );
+    }
+
+    /**
+     * A method that calculates the y offset of the vehicle from the intersection
+     *
+     * @param eastAngle the sensor heading of the east crossing
+     * @param westAngle the sensor heading of the west crossing
+     * @return the y offset from the intersection
+     */
+    public double calculateYOffset( double eastAngle, double westAngle ) {
+        return -sensorRadius * Math.cos( ( Angles.wrap( eastAngle ) - Angles.wrap( westAngle ) ) / 2 );
+    }
+
+    /**
+     * A method that calculates the error of the odometer heading. The crossings of each gridline are
+     * symmetric about it, so any asymmetry is the heading error.
+     *
+     * @param northAngle the sensor heading of the north crossing
+     * @param eastAngle the sensor heading of the east crossing
+     * @param southAngle the sensor heading of the south crossing
+     * @param westAngle the sensor heading of the west crossing
+     * @return the correction to add to the odometer heading
+     */
+    public double calculateThetaCorrection( double northAngle, double eastAngle, double southAngle, double westAngle ) {
+        double verticalCorrection = ( Math.PI - ( Angles.wrap( northAngle ) + Angles.normalize( southAngle ) ) ) / 2;
+        double horizontalCorrection = -( Angles.wrap( eastAngle ) + Angles.wrap( westAngle ) ) / 2;
+        return ( verticalCorrection + horizontalCorrection ) / 2;
+    }
+
+    /**
+     * A method that calculates the theta the vehicle faces once localized, the same as the ultrasonic localizer
+     *
+     * @return the starting theta
+     */
+    public double calculateStartingTheta() {
+        if ( corner ==  2 ) {
+            return 3*Math.PI/2;
+        }
+        if ( corner ==  3 ) {
+            return Math.PI;
+        }
+        if ( corner ==  4 ) {
+            return Math.PI/2;
+        }
+        return 0;
+    }
+
+    /**
+     * A method which sets our starting square from the square the light sensors are in
+     */
+    public void setStartingSquare() {
+        FieldGrid grid = odometer.getFieldMapper().getGrid();
+        double theta = odometer.getTheta();
+        double sensorX = odometer.getX() + Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET*Math.sin( theta );
+        double sensorY = odometer.getY() + Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET*Math.cos( theta );
+        odometer.setCurrentCell( grid.getCell( sensorX, sensorY ) );
+    }
+
+    /**
+     * A method to set the first gridline intersection of our corner
+     */
+    private void setIntersection() {
+        FieldGeometry geometry = odometer.getFieldMapper().getGeometry();
+        intersectionX = geometry.getCornerX( corner );
+        intersectionY = geometry.getCornerY( corner );
+    }
+
+    /**
+     * A method which determines if the last run localized the robot
+     *
+     * @return whether the robot is localized
+     */
+    public boolean isLocalized() {
+        return localized;
+    }
+
+    /**
+     * A method to set whether the result must agree with the odometer position the run started from
+     *
+     * @param verifyingSeed whether to verify the seed position
+     */
+    public void setVerifyingSeed( boolean verifyingSeed ) {
+        this.verifyingSeed = verifyingSeed;
+    }
+
+    /**
+     * A method to set the clock the localizer sleeps on between readings
+     *
+     * @param clock the clock
+     */
+    public void setClock( Clock clock ) {
+        this.clock = clock;
+    }
+
+}
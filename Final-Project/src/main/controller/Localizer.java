@@ -1,8 +1,14 @@
 package main.controller;
 
 import lejos.robotics.SampleProvider;
+import main.object.FieldGeometry;
+import main.object.Tuning;
 import main.object.UltrasonicSensor;
 import main.resource.Constants;
+import main.util.Clock;
+import main.util.Diagnostics;
+import main.util.Log;
+import main.util.RealTimeExecutor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -10,6 +16,9 @@ import java.util.List;
 /**
  * A controller to localize our robot.
  *
+ * The readings of a sweep are taken from a pool made once, and the list they are kept in is reused by the next
+ * sweep, so turning on the spot creates no garbage for the collector to stop the odometer for.
+ *
  * @author JohnWu
  */
 public class Localizer extends Thread {
@@ -17,10 +26,17 @@ public class Localizer extends Thread {
     // objects
     private Odometer odometer;
     private UltrasonicSensor ultrasonicSensor;
+    private Clock clock = Clock.getSystemClock();
     private Navigator navigator;
+    private Tuning tuning = new Tuning();
+    private RealTimeExecutor executor;
+    private Log log;
+    private SensorReading[] readingPool = new SensorReading[Constants.LOCALIZATION_MAX_READINGS];
+    private ArrayList<SensorReading> sensorReadings = new ArrayList<>( Constants.LOCALIZATION_MAX_READINGS );
 
     // variables
     private int corner;
+    private boolean sampledElsewhere;
 
 
     /**
@@ -31,10 +47,27 @@ public class Localizer extends Thread {
      * @param navigator navigator controller used in the robot
      */
     public Localizer( Odometer odometer, SampleProvider ultrasonicSensor, Navigator navigator, int corner ) {
+        this( odometer, new UltrasonicSensor( ultrasonicSensor ), navigator, corner );
+        this.sampledElsewhere = false;
+    }
+
+    /**
+     * A constructor for a sensor the executor already samples for other controllers, which the sweep reads
+     * without scheduling it again
+     *
+     * @param odometer odometer controller used in the robot
+     * @param ultrasonicSensor front facing ultrasonic sensor, sampled by the executor
+     * @param navigator navigator controller used in the robot
+     */
+    public Localizer( Odometer odometer, UltrasonicSensor ultrasonicSensor, Navigator navigator, int corner ) {
         this.odometer = odometer;
-        this.ultrasonicSensor = new UltrasonicSensor( ultrasonicSensor );
+        this.ultrasonicSensor = ultrasonicSensor;
+        this.sampledElsewhere = true;
         this.navigator = navigator;
         this.corner = corner;
+        for ( int i = 0; i < readingPool.length; i++ ) {
+            readingPool[i] = new SensorReading();
+        }
     }
 
     /**
@@ -43,11 +76,13 @@ public class Localizer extends Thread {
     public void run() {
 
         try {
-            ultrasonicSensor.start();
+            if ( !sampledElsewhere ) {
+                executor.schedule( ultrasonicSensor );
+            }
 
             int firstMinIndex = -1;
             int secondMinIndex = -2;
-            ArrayList<SensorReading> sensorReadings = new ArrayList<>();
+            ArrayList<SensorReading> sensorReadings = this.sensorReadings;
 
             // repeatedly rotate until we find can precisely localize
             while ( firstMinIndex == -1 || secondMinIndex == -2 ) {
@@ -66,7 +101,9 @@ public class Localizer extends Thread {
                 }
             }
 
-            ultrasonicSensor.stopRunning();
+            if ( !sampledElsewhere ) {
+                ultrasonicSensor.cancel();
+            }
 
             // turn vehicle to face north
             navigator.turnTo( calculateRemainingAngleToFaceNorth( sensorReadings.get( secondMinIndex ) ) );
@@ -78,10 +115,10 @@ public class Localizer extends Thread {
             setStartingSquare();
 
         } catch ( Exception e ) {
-            try {
-                throw new Exception( "Error: ", e );
-            } catch (Exception e1) {
-                e1.printStackTrace();
+            if ( log != null ) {
+                log.error( "localizer", "sweep failed", e );
+            } else {
+                e.printStackTrace();
             }
         }
 
@@ -90,17 +127,18 @@ public class Localizer extends Thread {
     /**
      * A method to rotate our vehicle and characteristics on each sensor reading
      *
-     * @return an ArrayList of sensor reading objects
+     * @return an ArrayList of sensor reading objects, which the next sweep reuses
      */
     public ArrayList<SensorReading> rotateAndRecordSensorReadings() {
-        ArrayList<SensorReading> sensorReadings = new ArrayList<>();
+        sensorReadings.clear();
         navigator.rotateCounterClockwise();
-        while ( ultrasonicSensor.getFilteredSensorData() < Constants.LOCALIZATION_WALL_DISTANCE + Constants.LOCALIZATION_NOISE_MARGIN ) {
-            SensorReading sensorReading = new SensorReading();
+        while ( ultrasonicSensor.getFilteredSensorData() < Constants.LOCALIZATION_WALL_DISTANCE + tuning.getLocalizationNoiseMargin()
+                && sensorReadings.size() < readingPool.length ) {
+            SensorReading sensorReading = readingPool[sensorReadings.size()];
             sensorReading.setDistance( ultrasonicSensor.getFilteredSensorData() );
             sensorReading.setTheta( odometer.getTheta() );
             sensorReadings.add( sensorReading );
-            try { Thread.sleep( Constants.ULTRASONICSENSOR_SENSOR_READING_PERIOD ); } catch( Exception e ){ }
+            clock.sleep( Constants.ULTRASONICSENSOR_SENSOR_READING_PERIOD );
         }
         navigator.stopMotors();
         return sensorReadings;
@@ -110,19 +148,33 @@ public class Localizer extends Thread {
      * A method to rotate robot until first detection of left wall
      */
     private void rotateToLeftWall() {
-        while ( ultrasonicSensor.getFilteredSensorData() < Constants.LOCALIZATION_WALL_DISTANCE + Constants.LOCALIZATION_NOISE_MARGIN ) {
+        while ( ultrasonicSensor.getFilteredSensorData() < Constants.LOCALIZATION_WALL_DISTANCE + tuning.getLocalizationNoiseMargin() ) {
             navigator.rotateCounterClockwise();
+            clock.sleep( Constants.ULTRASONICSENSOR_SENSOR_READING_PERIOD );
         }
         while ( ultrasonicSensor.getFilteredSensorData() > Constants.LOCALIZATION_WALL_DISTANCE ) {
             navigator.rotateCounterClockwise();
+            clock.sleep( Constants.ULTRASONICSENSOR_SENSOR_READING_PERIOD );
         }
         navigator.stopMotors();
     }
 
     public float sumDistances( List<SensorReading> sensorReadings ) {
+        return sumDistances( sensorReadings, 0, sensorReadings.size() );
+    }
+
+    /**
+     * A method that sums the distances of a range of readings, without the view or iterator a sub list needs
+     *
+     * @param sensorReadings the sensor readings recorded from its rotation
+     * @param from the index of the first reading
+     * @param to the index after the last reading
+     * @return the sum of the distances
+     */
+    public float sumDistances( List<SensorReading> sensorReadings, int from, int to ) {
         float sum = 0;
-        for ( SensorReading sensorReading : sensorReadings ) {
-            sum += sensorReading.getDistance();
+        for ( int i = from; i < to; i++ ) {
+            sum += sensorReadings.get( i ).getDistance();
         }
         return sum;
     }
@@ -136,8 +188,8 @@ public class Localizer extends Thread {
     public int calculateFirstMinimumIndex(ArrayList<SensorReading> sensorReadings ) {
         int minimumIndex = -1;
         for ( int i=20; i<sensorReadings.size()-30; i++ ) {
-            float sumLeft = sumDistances( sensorReadings.subList( i-20, i ) );
-            float sumRight = sumDistances( sensorReadings.subList( i+1, i+21 ) );
+            float sumLeft = sumDistances( sensorReadings, i-20, i );
+            float sumRight = sumDistances( sensorReadings, i+1, i+21 );
             if ( Math.abs( sumLeft - sumRight ) < 1.5 ) {
                 minimumIndex = i;
                 break;
@@ -172,17 +224,18 @@ public class Localizer extends Thread {
      * @return the robots starting x-coordinate reading
      */
     public double calculateStartingX( SensorReading firstMinimum, SensorReading secondMinimum ) {
+        FieldGeometry geometry = odometer.getFieldMapper().getGeometry();
         if ( corner ==  1 ) {
-            return Constants.CORNER_ONE_X - ( Constants.SQUARE_LENGTH - firstMinimum.getDistance() );
+            return geometry.getCornerX( 1 ) - ( geometry.getSquareLength() - firstMinimum.getDistance() );
         }
         if ( corner ==  2 ) {
-            return Constants.CORNER_TWO_X + ( Constants.SQUARE_LENGTH - secondMinimum.getDistance() );
+            return geometry.getCornerX( 2 ) + ( geometry.getSquareLength() - secondMinimum.getDistance() );
         }
         if ( corner ==  3 ) {
-            return Constants.CORNER_THREE_X + ( Constants.SQUARE_LENGTH - firstMinimum.getDistance() );
+            return geometry.getCornerX( 3 ) + ( geometry.getSquareLength() - firstMinimum.getDistance() );
         }
         if ( corner ==  4 ) {
-            return Constants.CORNER_FOUR_X - ( Constants.SQUARE_LENGTH - secondMinimum.getDistance() );
+            return geometry.getCornerX( 4 ) - ( geometry.getSquareLength() - secondMinimum.getDistance() );
         }
         return 0;
     }
@@ -194,17 +247,18 @@ public class Localizer extends Thread {
      * @return the robots starting y-coordinate reading
      */
     public double calculateStartingY( SensorReading firstMinimum, SensorReading secondMinimum ) {
+        FieldGeometry geometry = odometer.getFieldMapper().getGeometry();
         if ( corner ==  1 ) {
-            return Constants.CORNER_ONE_Y - ( Constants.SQUARE_LENGTH - secondMinimum.getDistance() );
+            return geometry.getCornerY( 1 ) - ( geometry.getSquareLength() - secondMinimum.getDistance() );
         }
         if ( corner ==  2 ) {
-            return Constants.CORNER_TWO_Y - ( Constants.SQUARE_LENGTH - firstMinimum.getDistance() );
+            return geometry.getCornerY( 2 ) - ( geometry.getSquareLength() - firstMinimum.getDistance() );
         }
         if ( corner ==  3 ) {
-            return Constants.CORNER_THREE_Y + ( Constants.SQUARE_LENGTH - secondMinimum.getDistance() );
+            return geometry.getCornerY( 3 ) + ( geometry.getSquareLength() - secondMinimum.getDistance() );
         }
         if ( corner ==  4 ) {
-            return Constants.CORNER_FOUR_Y + ( Constants.SQUARE_LENGTH - firstMinimum.getDistance() );
+            return geometry.getCornerY( 4 ) + ( geometry.getSquareLength() - firstMinimum.getDistance() );
         }
         return 0;
     }
@@ -236,17 +290,10 @@ public class Localizer extends Thread {
      * @return
      */
     public void setStartingSquare() {
-        if ( corner ==  1 ) {
-            odometer.setCurrentSquare( odometer.getFieldMapper().getMapping()[0][0] );
-        }
-        if ( corner ==  2 ) {
-            odometer.setCurrentSquare( odometer.getFieldMapper().getMapping()[0][11] );
-        }
-        if ( corner ==  3 ) {
-            odometer.setCurrentSquare( odometer.getFieldMapper().getMapping()[11][11] );
-        }
-        if ( corner ==  4 ) {
-            odometer.setCurrentSquare( odometer.getFieldMapper().getMapping()[11][0] );
+        FieldGeometry geometry = odometer.getFieldMapper().getGeometry();
+        if ( corner >= 1 && corner <= 4 ) {
+            odometer.setCurrentCell( odometer.getFieldMapper().getGrid().encodeCell( geometry.getCornerRow( corner ),
+                    geometry.getCornerColumn( corner ) ) );
         }
     }
 
@@ -289,4 +336,50 @@ public class Localizer extends Thread {
         }
     }
 
+    /**
+     * A method to set the tuning that holds the margin above the wall distance readings are taken within
+     *
+     * @param tuning the tuning
+     */
+    public void setTuning( Tuning tuning ) {
+        this.tuning = tuning;
+    }
+
+    /**
+     * A method to set the clock the thread sleeps on between readings
+     *
+     * @param clock the clock
+     */
+    public void setClock( Clock clock ) {
+        this.clock = clock;
+    }
+
+    /**
+     * A method to set the executor that samples the ultrasonic sensor while the robot turns, which has to be
+     * set before localizing
+     *
+     * @param executor the executor
+     */
+    public void setExecutor( RealTimeExecutor executor ) {
+        this.executor = executor;
+    }
+
+    /**
+     * A method to set the log a failed sweep is written to
+     *
+     * @param log the log
+     */
+    public void setLog( Log log ) {
+        this.log = log;
+    }
+
+    /**
+     * A method to set the registry the ultrasonic samples are counted in
+     *
+     * @param diagnostics the diagnostics registry
+     */
+    public void setDiagnostics( Diagnostics diagnostics ) {
+        ultrasonicSensor.setSampleCounter( diagnostics.getCounter( "ultrasonic samples" ) );
+    }
+
 }
@@ -1,7 +1,20 @@
 package main.controller;
 
 import lejos.hardware.motor.EV3LargeRegulatedMotor;
+import main.object.Calibration;
+import main.object.DriveMotors;
+import main.object.Feedback;
+import main.object.FieldGrid;
+import main.object.Tuning;
 import main.resource.Constants;
+import main.util.Clock;
+import main.util.DStarLitePlanner;
+import main.util.Diagnostics;
+import main.util.EventTrace;
+import main.util.LatencyHistogram;
+import main.util.Log;
+import main.util.PoseEstimator;
+import main.util.PoseMonitor;
 
 /**
  * Navigator object used to navigate the vehicle.
@@ -12,7 +25,24 @@ public class Navigator {
 
     // objects
     private Odometer odometer;
-    private EV3LargeRegulatedMotor leftMotor, rightMotor;
+    private DriveMotors driveMotors;
+    private DStarLitePlanner replanner;
+    private LightLocalizer relocalizer;
+    private PoseMonitor poseMonitor;
+    private Calibration calibration;
+    private Tuning tuning;
+    private Clock clock = Clock.getSystemClock();
+    private LatencyHistogram reactionHistogram;
+    private EventTrace trace;
+    private Feedback feedback;
+    private Log log;
+
+    // variables
+    private int followedRouteVersion;
+    private int followedWaypoint;
+    private long reactionStart = -1;
+    private int lastCommand = -1;
+    private volatile boolean drivingLeg;
 
     /**
      * Default constructor for Navigator object.
@@ -23,8 +53,9 @@ public class Navigator {
      */
     public Navigator( EV3LargeRegulatedMotor leftMotor , EV3LargeRegulatedMotor rightMotor , Odometer odometer ) {
         this.odometer = odometer;
-        this.leftMotor = leftMotor;
-        this.rightMotor = rightMotor;
+        this.driveMotors = new DriveMotors( leftMotor, rightMotor );
+        this.calibration = new Calibration();
+        this.tuning = new Tuning();
     }
 
     /**
@@ -41,6 +72,132 @@ public class Navigator {
         travelToY( odometer.getY() + deltaY );
     }
 
+    /**
+     * A method to drive our vehicle to a certain cartesian coordinate around forbidden squares and the obstacles
+     * seen on the way. When an obstacle changes the route, the vehicle turns onto the repaired route from where
+     * it is instead of finishing its current leg.
+     *
+     * @param x X-Coordinate
+     * @param y Y-Coordinate
+     * @return whether the vehicle got there, false if the obstacles boxed it in
+     */
+    public boolean navigateAroundObstacles( double x , double y ) {
+        FieldGrid grid = replanner.getGrid();
+        int goal = grid.getCell( x, y );
+        replanner.setGoal( goal, grid.getCell( odometer.getX(), odometer.getY() ) );
+        while ( true ) {
+            relocalizeIfNeeded();
+            replanner.moveStart( grid.getCell( odometer.getX(), odometer.getY() ) );
+            followedRouteVersion = replanner.getRouteVersion();
+            followedWaypoint = replanner.getNextWaypoint();
+            if ( followedWaypoint == -1 ) {
+                // boxed in, nothing to do but stop where we are
+                stopMotors();
+                if ( log != null ) {
+                    log.warn( "navigator", "boxed in by obstacles, stopping short of the destination" );
+                }
+                return false;
+            }
+            boolean lastWaypoint = followedWaypoint == goal;
+            double waypointX = lastWaypoint ? x : grid.getCellX( followedWaypoint );
+            double waypointY = lastWaypoint ? y : grid.getCellY( followedWaypoint );
+            if ( travelAlongRoute( true, waypointX ) && travelAlongRoute( false, waypointY ) && lastWaypoint ) {
+                stopMotors();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * A method to drive one leg of the route along an axis, without stopping at its end so the next leg
+     * follows on directly
+     *
+     * @param alongX whether the leg is along the x axis
+     * @param coordinate the coordinate we want to travel to
+     * @return whether the leg was finished, false if the route was repaired on the way
+     */
+    private boolean travelAlongRoute( boolean alongX, double coordinate ) {
+        double delta = coordinate - ( alongX ? odometer.getX() : odometer.getY() );
+        if ( Math.abs( delta ) <= tuning.getPointReachedThreshold() ) {
+            return true;
+        }
+        turnTo( alongX ? calculateMinAngle( delta, 0 ) : calculateMinAngle( 0, delta ) );
+        driveLeg();
+        if ( reactionStart >= 0 ) {
+            // driving on the repaired route
+            if ( reactionHistogram != null ) {
+                reactionHistogram.record( clock.currentTimeMillis() - reactionStart );
+            }
+            reactionStart = -1;
+        }
+        while ( Math.abs( ( alongX ? odometer.getX() : odometer.getY() ) - coordinate ) > tuning.getPointReachedThreshold() ) {
+            // a correction stops the vehicle, and may be over before it is seen, but the leg goes on only once
+            // the correction is done with the motors
+            if ( odometer.isCorrecting() || !drivingLeg ) {
+                waitUntilCorrectionIsFinished();
+                driveLeg();
+            }
+            if ( isRouteRepaired() ) {
+                reactionStart = clock.currentTimeMillis();
+                tracePose( EventTrace.ROUTE_REPAIRED );
+                return false;
+            }
+            if ( poseMonitor != null && poseMonitor.isRelocalizationNeeded() ) {
+                return false;
+            }
+            clock.sleep( Constants.NAVIGATION_PERIOD );
+        }
+        return true;
+    }
+
+    /**
+     * A method that stops and localizes again on the nearest intersection when the pose monitor found the
+     * odometer disagreeing with the walls. A sweep that misses a line is tried again, and when every attempt
+     * fails the vehicle carries on with the odometer as it is until the monitor finds it wrong again.
+     */
+    private void relocalizeIfNeeded() {
+        if ( poseMonitor == null || relocalizer == null || !poseMonitor.isRelocalizationNeeded() ) {
+            return;
+        }
+        stopMotors();
+        if ( log != null ) {
+            log.warn( "navigator", "pose disagrees with the walls, relocalizing" );
+        }
+        if ( feedback != null ) {
+            feedback.showStatus( "relocalizing" );
+            feedback.playSound( Feedback.SOUND_TWO_BEEPS );
+        }
+        boolean relocalized = false;
+        for ( int attempt = 0; attempt < Constants.RELOCALIZATION_ATTEMPTS && !relocalized; attempt++ ) {
+            relocalized = relocalizer.relocalize();
+            if ( !relocalized && log != null ) {
+                log.warn( "navigator", "relocalization failed, attempt", attempt + 1 );
+            }
+        }
+        poseMonitor.clearRelocalization( relocalized );
+        if ( relocalized ) {
+            tracePose( EventTrace.RELOCALIZATION );
+        }
+        if ( feedback != null ) {
+            feedback.showStatus( "navigating" );
+        }
+    }
+
+    /**
+     * A method which determines if an obstacle changed the waypoint we are driving to
+     *
+     * @return whether the route was repaired
+     */
+    private boolean isRouteRepaired() {
+        int routeVersion = replanner.getRouteVersion();
+        if ( routeVersion == followedRouteVersion ) {
+            return false;
+        }
+        followedRouteVersion = routeVersion;
+        replanner.moveStart( replanner.getGrid().getCell( odometer.getX(), odometer.getY() ) );
+        return replanner.getNextWaypoint() != followedWaypoint;
+    }
+
     /**
      * A method to travel to a specific x coordinate
      *
@@ -50,12 +207,15 @@ public class Navigator {
         // turn to the minimum angle
         turnTo( calculateMinAngle( xCoordinate - odometer.getX(), 0 ) );
         // move to the specified point
-        driveForward();
-        while ( Math.abs( odometer.getX() - xCoordinate ) > Constants.POINT_REACHED_THRESHOLD ) {
-            if ( odometer.isCorrecting() ) {
+        driveLeg();
+        while ( Math.abs( odometer.getX() - xCoordinate ) > tuning.getPointReachedThreshold() ) {
+            // a correction stops the vehicle, and may be over before it is seen, but the leg goes on only once
+            // the correction is done with the motors
+            if ( odometer.isCorrecting() || !drivingLeg ) {
                 waitUntilCorrectionIsFinished();
-                driveForward();
+                driveLeg();
             }
+            clock.sleep( Constants.NAVIGATION_PERIOD );
         }
         stopMotors();
     }
@@ -69,12 +229,15 @@ public class Navigator {
         // turn to the minimum angle
         turnTo( calculateMinAngle( 0, yCoordinate - odometer.getY() ) );
         // move to the specified point
-        driveForward();
-        while ( Math.abs( odometer.getY() - yCoordinate ) > Constants.POINT_REACHED_THRESHOLD ) {
-            if ( odometer.isCorrecting() ) {
+        driveLeg();
+        while ( Math.abs( odometer.getY() - yCoordinate ) > tuning.getPointReachedThreshold() ) {
+            // a correction stops the vehicle, and may be over before it is seen, but the leg goes on only once
+            // the correction is done with the motors
+            if ( odometer.isCorrecting() || !drivingLeg ) {
                 waitUntilCorrectionIsFinished();
-                driveForward();
+                driveLeg();
             }
+            clock.sleep( Constants.NAVIGATION_PERIOD );
         }
         stopMotors();
     }
@@ -86,15 +249,14 @@ public class Navigator {
      * @param theta the theta angle that we want to turn our vehicle
      */
     public void turnTo( double theta ) {
-        leftMotor.setSpeed( Constants.VEHICLE_ROTATE_SPEED );
-        rightMotor.setSpeed( Constants.VEHICLE_ROTATE_SPEED );
+        drivingLeg = false;
+        driveMotors.setSpeeds( tuning.getRotateSpeed(), tuning.getRotateSpeed() );
+        traceCommand( EventTrace.COMMAND_TURN, tuning.getRotateSpeed(), tuning.getRotateSpeed() );
         if( theta < 0 ) { // if angle is negative, turn to the left
-            leftMotor.rotate( -convertAngle( -(theta*180)/Math.PI ) , true );
-            rightMotor.rotate( convertAngle( -(theta*180)/Math.PI ) , false );
+            driveMotors.rotate( -convertAngle( -(theta*180)/Math.PI ), convertAngle( -(theta*180)/Math.PI ), false );
         }
         else { // angle is positive, turn to the right
-            leftMotor.rotate( convertAngle( (theta*180)/Math.PI ) , true);
-            rightMotor.rotate( -convertAngle( (theta*180)/Math.PI ) , false);
+            driveMotors.rotate( convertAngle( (theta*180)/Math.PI ), -convertAngle( (theta*180)/Math.PI ), false );
         }
     }
 
@@ -102,46 +264,87 @@ public class Navigator {
      * A method to rotate the left motor forward
      */
     public void rotateLeftMotorForward() {
-        leftMotor.setSpeed( Constants.VEHICLE_FORWARD_SPEED_LOW );
-        leftMotor.forward();
+        traceCommand( EventTrace.COMMAND_LEFT_WHEEL, tuning.getCorrectionSpeed(), 0 );
+        driveMotors.setSpeeds( tuning.getCorrectionSpeed(), tuning.getCorrectionSpeed() );
+        driveMotors.driveLeftForward();
     }
 
     /**
      * A method to rotate the right motor forward
      */
     public void rotateRightMotorForward() {
-        rightMotor.setSpeed( Constants.VEHICLE_FORWARD_SPEED_LOW );
-        rightMotor.forward();
+        traceCommand( EventTrace.COMMAND_RIGHT_WHEEL, 0, tuning.getCorrectionSpeed() );
+        driveMotors.setSpeeds( tuning.getCorrectionSpeed(), tuning.getCorrectionSpeed() );
+        driveMotors.driveRightForward();
     }
 
     /**
      * A method to drive the vehicle forward
      */
     public void driveForward() {
-        leftMotor.setAcceleration( Constants.VEHICLE_ACCELERATION );
-        rightMotor.setAcceleration( Constants.VEHICLE_ACCELERATION );
-        leftMotor.setSpeed( Constants.VEHICLE_ROTATE_SPEED );
-        rightMotor.setSpeed( Constants.VEHICLE_ROTATE_SPEED );
-        leftMotor.forward();
-        rightMotor.forward();
+        driveMotors.setAcceleration( Constants.VEHICLE_ACCELERATION );
+        driveMotors.setSpeeds( tuning.getDriveSpeed(), tuning.getDriveSpeed() );
+        traceCommand( EventTrace.COMMAND_FORWARD, tuning.getDriveSpeed(), tuning.getDriveSpeed() );
+        driveMotors.drive( true, true );
+    }
+
+    /**
+     * A method to drive the vehicle forward along a leg, on which the odometer correction squares up on the
+     * lines it crosses
+     */
+    public void driveLeg() {
+        driveForward();
+        drivingLeg = true;
+    }
+
+    /**
+     * A method to drive the vehicle forward a certain distance
+     *
+     * @param distance the distance we want to travel
+     */
+    public void driveDistance( double distance ) {
+        drivingLeg = false;
+        driveMotors.setSpeeds( tuning.getCorrectionSpeed(), tuning.getCorrectionSpeed() );
+        traceCommand( EventTrace.COMMAND_DRIVE_DISTANCE, tuning.getCorrectionSpeed(), tuning.getCorrectionSpeed() );
+        driveMotors.rotate( convertDistance( distance ), convertDistance( distance ), false );
     }
 
     /**
      * A method to rotate our vehicle counter-clockwise
      */
     public void rotateCounterClockwise() {
-        leftMotor.setSpeed( -Constants.VEHICLE_ROTATE_SPEED );
-        rightMotor.setSpeed( Constants.VEHICLE_ROTATE_SPEED );
-        leftMotor.backward();
-        rightMotor.forward();
+        drivingLeg = false;
+        driveMotors.setSpeeds( tuning.getRotateSpeed(), tuning.getRotateSpeed() );
+        traceCommand( EventTrace.COMMAND_ROTATE, -tuning.getRotateSpeed(), tuning.getRotateSpeed() );
+        driveMotors.drive( false, true );
     }
 
     /**
-     * A method to stopMotors our motors
+     * A method to stop both motors together, waiting until they stand still
      */
     public void stopMotors() {
-        leftMotor.stop(true);
-        rightMotor.stop(false);
+        stopMotors( false );
+    }
+
+    /**
+     * A method to stop both motors together
+     *
+     * @param immediateReturn whether to return before the motors stand still, for a task that cannot wait and
+     *                        checks {@link #isMoving()} instead
+     */
+    public void stopMotors( boolean immediateReturn ) {
+        drivingLeg = false;
+        traceCommand( EventTrace.COMMAND_STOP, 0, 0 );
+        driveMotors.stop( immediateReturn );
+    }
+
+    /**
+     * A method which determines if either wheel is still turning
+     *
+     * @return whether the vehicle is moving
+     */
+    public boolean isMoving() {
+        return driveMotors.isMoving();
     }
 
     /**
@@ -182,7 +385,7 @@ public class Navigator {
      * @return the tacho count that we need to rotate
      */
     public int convertAngle( double angle ) {
-        return convertDistance( Math.PI * Constants.TRACK_LENGTH * angle / 360.0 );
+        return convertDistance( Math.PI * calibration.getTrackLength() * angle / 360.0 );
     }
 
     /**
@@ -192,16 +395,164 @@ public class Navigator {
      * @return the tacho count that we need to rotate
      */
     public int convertDistance( double distance ) {
-        return (int) ( (180.0 * distance) / (Math.PI * Constants.WHEEL_RADIUS) );
+        return (int) ( (180.0 * distance) / (Math.PI * calibration.getWheelRadius()) );
     }
 
     /**
-     * A method which waits until odometry correction finishes
+     * A method to set the wheel radius and track length used to convert distances and angles to tacho counts
+     *
+     * @param calibration the calibration
+     */
+    public void setCalibration( Calibration calibration ) {
+        this.calibration = calibration;
+    }
+
+    /**
+     * A method to set the tuning that holds the speeds and how close a point has to be reached
+     *
+     * @param tuning the tuning
+     */
+    public void setTuning( Tuning tuning ) {
+        this.tuning = tuning;
+    }
+
+    /**
+     * A method to set the clock the time to react to a repaired route, and the time of the first motion, are
+     * measured with
+     *
+     * @param clock the clock
+     */
+    public void setClock( Clock clock ) {
+        this.clock = clock;
+        driveMotors.setClock( clock );
+    }
+
+    /**
+     * A method which returns the time the wheels were first told to turn
+     *
+     * @return the time (ms), or -1 if they have not turned yet
+     */
+    public long getFirstMotionTime() {
+        return driveMotors.getFirstMotionTime();
+    }
+
+    /**
+     * A method to set the registry the time from a repaired route to driving on it is recorded in, and the motor
+     * commands are counted in
+     *
+     * @param diagnostics the diagnostics registry
+     */
+    public void setDiagnostics( Diagnostics diagnostics ) {
+        this.reactionHistogram = diagnostics.getHistogram( "navigator reaction" );
+        driveMotors.setDiagnostics( diagnostics );
+    }
+
+    /**
+     * A method to set the trace the motor commands, repaired routes and relocalizations are recorded in
+     *
+     * @param trace the event trace
+     */
+    public void setTrace( EventTrace trace ) {
+        this.trace = trace;
+    }
+
+    /**
+     * A method that records a motor command, once while it is repeated in a loop. Turns and set distances are
+     * always recorded since each one moves the vehicle again.
+     *
+     * @param command the motor command
+     * @param leftSpeed the speed of the left motor
+     * @param rightSpeed the speed of the right motor
+     */
+    private void traceCommand( int command, int leftSpeed, int rightSpeed ) {
+        if ( trace == null || ( command == lastCommand && command != EventTrace.COMMAND_TURN
+                && command != EventTrace.COMMAND_DRIVE_DISTANCE ) ) {
+            return;
+        }
+        lastCommand = command;
+        trace.record( EventTrace.MOTOR_COMMAND, command, leftSpeed, rightSpeed );
+    }
+
+    /**
+     * A method that records an event with the current pose
+     *
+     * @param type the event type
+     */
+    private void tracePose( int type ) {
+        if ( trace != null ) {
+            trace.record( type, (float) odometer.getX(), (float) odometer.getY(), (float) odometer.getTheta() );
+        }
+    }
+
+    /**
+     * A method to set the incremental planner used to navigate around obstacles
+     *
+     * @param replanner the incremental planner
+     */
+    public void setReplanner( DStarLitePlanner replanner ) {
+        this.replanner = replanner;
+    }
+
+    /**
+     * A method which determines if the vehicle is driving along a leg, the only motion the odometer correction
+     * can square up on a line from, as a line seen while turning or localizing belongs to the localizers
+     *
+     * @return whether the vehicle is driving along a leg
+     */
+    public boolean isDrivingLeg() {
+        return drivingLeg;
+    }
+
+    /**
+     * A method which determines if the vehicle has to stop and align on a gridline, or if the pose estimate
+     * is certain enough to take the line crossing while driving
+     *
+     * @return whether a correction stop is needed
+     */
+    public boolean isCorrectionStopNeeded() {
+        PoseEstimator poseEstimator = odometer.getPoseEstimator();
+        if ( poseEstimator == null ) {
+            return true;
+        }
+        return poseEstimator.getPositionUncertainty() > Constants.EKF_CORRECTION_STOP_POSITION
+                || poseEstimator.getHeadingUncertainty() > Constants.EKF_CORRECTION_STOP_HEADING;
+    }
+
+    /**
+     * A method to set the channel relocalizations are announced on
+     *
+     * @param feedback the feedback channel
+     */
+    public void setFeedback( Feedback feedback ) {
+        this.feedback = feedback;
+    }
+
+    /**
+     * A method to set the log relocalizations are written to
+     *
+     * @param log the log
+     */
+    public void setLog( Log log ) {
+        this.log = log;
+    }
+
+    /**
+     * A method to set what relocalizes the vehicle when its pose is found to be wrong
+     *
+     * @param relocalizer the light localizer to relocalize with
+     * @param poseMonitor the monitor that decides when to relocalize
+     */
+    public void setRelocalizer( LightLocalizer relocalizer, PoseMonitor poseMonitor ) {
+        this.relocalizer = relocalizer;
+        this.poseMonitor = poseMonitor;
+    }
+
+    /**
+     * A method which waits until odometry correction finishes, leaving the motors to it meanwhile
      */
     public void waitUntilCorrectionIsFinished() {
-        stopMotors();
         while ( odometer.isCorrecting() ) {
-            // do nothing
+            clock.sleep( Constants.NAVIGATION_PERIOD );
         }
     }
 
@@ -0,0 +1,111 @@
+package main.controller;
+
+import main.object.FieldGrid;
+import main.object.UltrasonicSensor;
+import main.resource.Constants;
+import main.util.DStarLitePlanner;
+import main.util.FieldMapper;
+import main.util.Task;
+
+/**
+ * A controller that marks the squares where the front ultrasonic sensor sees an obstacle as blocked, so the
+ * incremental planner can repair the route around them. The squares the sensor sees past are cleared again, so
+ * an obstacle that was moved, or a bad echo, does not keep the route out of its square for the whole match.
+ *
+ * @author JohnWu
+ */
+public class ObstacleDetector extends Task {
+
+    // objects
+    private Odometer odometer;
+    private UltrasonicSensor ultrasonicSensor;
+    private DStarLitePlanner replanner;
+
+    /**
+     * Our main constructor method
+     *
+     * @param odometer odometer controller used in the robot
+     * @param ultrasonicSensor front facing ultrasonic sensor, sampled by the executor
+     * @param replanner the incremental planner to report obstacles to
+     */
+    public ObstacleDetector( Odometer odometer, UltrasonicSensor ultrasonicSensor, DStarLitePlanner replanner ) {
+        super( "obstacle detector", Task.PRIORITY_NORMAL, Constants.OBSTACLE_DETECTION_PERIOD,
+                Constants.OBSTACLE_DETECTION_PERIOD );
+        this.odometer = odometer;
+        this.ultrasonicSensor = ultrasonicSensor;
+        this.replanner = replanner;
+    }
+
+    /**
+     * Marks the square the latest ultrasonic sample sees an obstacle in, and clears the squares it sees past
+     */
+    protected void execute() {
+        float distance = ultrasonicSensor.getFilteredSensorData();
+        double x = odometer.getX();
+        double y = odometer.getY();
+        double theta = odometer.getTheta();
+        int cell = -1;
+        if ( distance < Constants.OBSTACLE_DETECTION_DISTANCE ) {
+            cell = calculateObstacleCell( x, y, theta, distance );
+            if ( cell != -1 ) {
+                replanner.markBlocked( cell );
+            }
+        }
+        clearSeenSquares( x, y, theta, Math.min( distance, Constants.OBSTACLE_CLEAR_DISTANCE ), cell );
+    }
+
+    /**
+     * A method that clears the obstacles of the squares between the vehicle and the echo
+     *
+     * @param x the x coordinate of the vehicle
+     * @param y the y coordinate of the vehicle
+     * @param theta the heading of the vehicle
+     * @param distance how far along the heading the way is clear (cm)
+     * @param echoCell the square of the echo, which is left as it is, or -1
+     */
+    public void clearSeenSquares( double x, double y, double theta, double distance, int echoCell ) {
+        FieldGrid grid = replanner.getGrid();
+        FieldMapper fieldMapper = odometer.getFieldMapper();
+        int ownCell = grid.getCell( x, y );
+        int lastCell = ownCell;
+        double step = grid.getSquareLength()/4;
+        // the echo may come from anywhere in its square, so the last step short of it is left out
+        for ( double reach = step; reach < distance - step; reach += step ) {
+            int cell = grid.getCell( x + reach*Math.sin( theta ), y + reach*Math.cos( theta ) );
+            if ( cell != lastCell && cell != echoCell ) {
+                replanner.clearBlocked( cell, fieldMapper );
+                lastCell = cell;
+            }
+        }
+    }
+
+    /**
+     * A method that calculates the square of an obstacle seen by the ultrasonic sensor
+     *
+     * @param x the x coordinate of the vehicle
+     * @param y the y coordinate of the vehicle
+     * @param theta the heading of the vehicle
+     * @param distance the filtered distance to the obstacle from the middle of the vehicle
+     * @return the square of the obstacle, or -1 if it is the vehicle's own square or the field walls
+     */
+    public int calculateObstacleCell( double x, double y, double theta, double distance ) {
+        FieldGrid grid = replanner.getGrid();
+        double obstacleX = x + distance*Math.sin( theta );
+        double obstacleY = y + distance*Math.cos( theta );
+
+        // the field spans one square past the origin on the low side
+        double low = -grid.getSquareLength() + Constants.OBSTACLE_WALL_MARGIN;
+        double highX = ( grid.getColumns() - 1 )*grid.getSquareLength() - Constants.OBSTACLE_WALL_MARGIN;
+        double highY = ( grid.getRows() - 1 )*grid.getSquareLength() - Constants.OBSTACLE_WALL_MARGIN;
+        if ( obstacleX < low || obstacleY < low || obstacleX > highX || obstacleY > highY ) {
+            return -1;
+        }
+
+        int cell = grid.getCell( obstacleX, obstacleY );
+        if ( cell == grid.getCell( x, y ) ) {
+            return -1;
+        }
+        return cell;
+    }
+
+}
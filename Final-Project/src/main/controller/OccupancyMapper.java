@@ -0,0 +1,87 @@
+package main.controller;
+
+import main.object.UltrasonicSensor;
+import main.resource.Constants;
+import main.util.OccupancyGrid;
+import main.util.PoseEstimator;
+import main.util.PoseMonitor;
+import main.util.Task;
+
+/**
+ * A controller that builds an occupancy grid in the background from the front ultrasonic sensor and the
+ * odometer position. The same readings correct the pose estimator with the distance to the field walls and
+ * are checked against the walls by the pose monitor.
+ *
+ * @author JohnWu
+ */
+public class OccupancyMapper extends Task {
+
+    // objects
+    private Odometer odometer;
+    private UltrasonicSensor ultrasonicSensor;
+    private OccupancyGrid occupancyGrid;
+    private PoseMonitor poseMonitor;
+
+    // variables
+    private double[] position = new double[3];
+    private long readingCount;
+
+    /**
+     * Our main constructor method
+     *
+     * @param odometer odometer controller used in the robot
+     * @param ultrasonicSensor front facing ultrasonic sensor, sampled by the executor
+     * @param occupancyGrid the grid to add readings to
+     */
+    public OccupancyMapper( Odometer odometer, UltrasonicSensor ultrasonicSensor, OccupancyGrid occupancyGrid ) {
+        super( "occupancy mapper", Task.PRIORITY_NORMAL, Constants.OCCUPANCY_MAPPING_PERIOD,
+                Constants.OCCUPANCY_MAPPING_PERIOD );
+        this.odometer = odometer;
+        this.ultrasonicSensor = ultrasonicSensor;
+        this.occupancyGrid = occupancyGrid;
+    }
+
+    /**
+     * Adds the latest ultrasonic sample to the grid, the pose estimator and the pose monitor
+     */
+    protected void execute() {
+        // the position is not trusted while it is being corrected
+        if ( odometer.isCorrecting() ) {
+            return;
+        }
+        float distance = ultrasonicSensor.getFilteredSensorData();
+        odometer.getPosition( position );
+        occupancyGrid.addReading( position[0], position[1], position[2], distance );
+        readingCount++;
+        PoseEstimator poseEstimator = odometer.getPoseEstimator();
+        if ( poseEstimator != null ) {
+            poseEstimator.updateRange( distance );
+        }
+        if ( poseMonitor != null ) {
+            poseMonitor.check( position[0], position[1], position[2], distance );
+        }
+    }
+
+    /**
+     * A method that returns the number of readings added to the grid
+     *
+     * @return the reading count
+     */
+    public long getReadingCount() {
+        return readingCount;
+    }
+
+    /**
+     * A method to set the monitor that checks each reading against the walls
+     *
+     * @param poseMonitor the pose monitor
+     */
+    public void setPoseMonitor( PoseMonitor poseMonitor ) {
+        this.poseMonitor = poseMonitor;
+    }
+
+    public OccupancyGrid getOccupancyGrid() {
+        return occupancyGrid;
+    }
+
+}
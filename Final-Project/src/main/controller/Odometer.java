@@ -1,28 +1,42 @@
 package main.controller;
 
 import lejos.hardware.motor.EV3LargeRegulatedMotor;
-import main.object.Square;
+import main.object.Calibration;
 import main.resource.Constants;
+import main.util.Clock;
+import main.util.Diagnostics;
+import main.util.EventTrace;
 import main.util.FieldMapper;
+import main.util.LatencyHistogram;
+import main.util.PoseEstimator;
+import main.util.Task;
 
 /**
  * Odometer object used to keep track of vehicle position at all times.
  *
  * @author JohnWu
  */
-public class Odometer extends Thread {
+public class Odometer extends Task {
 
     // objects
     private EV3LargeRegulatedMotor leftMotor, rightMotor;
     private FieldMapper fieldMapper;
+    private PoseEstimator poseEstimator;
+    private Calibration calibration;
+    private Clock clock = Clock.getSystemClock();
+    private LatencyHistogram periodHistogram;
+    private EventTrace trace;
     private Object lock;
 
     // variables
     private double x, y, theta;
     private int currentLeftMotorTachoCount, currentRightMotorTachoCount,
             prevLeftMotorTachoCount, prevRightMotorTachoCount;
-    private boolean correcting = false;
-    private Square currentSquare;
+    private volatile boolean correcting = false;
+    private volatile int currentCell = -1;
+    private double[] estimate = new double[3];
+    private long lastUpdateStart = -1;
+    private int updates;
 
     /**
      * Default constructor for an odometer object.
@@ -31,9 +45,11 @@ public class Odometer extends Thread {
      * @param rightMotor the right motor EV3 object used in the robot
      */
     public Odometer( EV3LargeRegulatedMotor leftMotor , EV3LargeRegulatedMotor rightMotor, FieldMapper fieldMapper ) {
+        super( "odometer", Task.PRIORITY_CRITICAL, Constants.ODOMETER_PERIOD, Constants.ODOMETER_PERIOD );
         this.leftMotor = leftMotor;
         this.rightMotor = rightMotor;
         this.fieldMapper = fieldMapper;
+        calibration = new Calibration();
         lock = new Object();
         x = 0.0;
         y = 0.0;
@@ -45,31 +61,40 @@ public class Odometer extends Thread {
     }
 
     /**
-     * Our main odometer thread.
+     * One odometer update, run by the executor every odometer period.
      */
-    public void run() {
-        long updateStart, updateEnd;
-
-        while ( true ) {
-            updateStart = System.currentTimeMillis();
+    protected void execute() {
+        long updateStart = clock.currentTimeMillis();
+        if ( periodHistogram != null && lastUpdateStart >= 0 ) {
+            periodHistogram.record( updateStart - lastUpdateStart );
+        }
+        lastUpdateStart = updateStart;
 
-            // Get current tachometer values
-            currentLeftMotorTachoCount = leftMotor.getTachoCount();
-            currentRightMotorTachoCount = rightMotor.getTachoCount();
+        // Get current tachometer values
+        currentLeftMotorTachoCount = leftMotor.getTachoCount();
+        currentRightMotorTachoCount = rightMotor.getTachoCount();
 
-            // Use our change in rotation values to calculate displacement of each wheel
-            double leftMotorDisplacement =  calculateMotorDisplacement( currentLeftMotorTachoCount , prevLeftMotorTachoCount );
-            double rightMotorDisplacement = calculateMotorDisplacement( currentRightMotorTachoCount , prevRightMotorTachoCount );
+        // Use our change in rotation values to calculate displacement of each wheel
+        double leftMotorDisplacement =  calculateMotorDisplacement( currentLeftMotorTachoCount , prevLeftMotorTachoCount );
+        double rightMotorDisplacement = calculateMotorDisplacement( currentRightMotorTachoCount , prevRightMotorTachoCount );
 
-            // change in angle of our vehicle
-            double thetaChange = calculateThetaChange( leftMotorDisplacement , rightMotorDisplacement );
-            // change in distance of our vehicle
-            double displacement = calculateVehicleDisplacement( leftMotorDisplacement , rightMotorDisplacement );
+        // change in angle of our vehicle
+        double thetaChange = calculateThetaChange( leftMotorDisplacement , rightMotorDisplacement );
+        // change in distance of our vehicle
+        double displacement = calculateVehicleDisplacement( leftMotorDisplacement , rightMotorDisplacement );
 
-            prevLeftMotorTachoCount = currentLeftMotorTachoCount;
-            prevRightMotorTachoCount = currentRightMotorTachoCount;
+        prevLeftMotorTachoCount = currentLeftMotorTachoCount;
+        prevRightMotorTachoCount = currentRightMotorTachoCount;
 
-            synchronized ( lock ) {
+        synchronized ( lock ) {
+            if ( poseEstimator != null ) {
+                // the estimator integrates the same way and also carries the corrections from the sensors
+                poseEstimator.predict( leftMotorDisplacement, rightMotorDisplacement );
+                poseEstimator.getPose( estimate );
+                x = estimate[0];
+                y = estimate[1];
+                theta = estimate[2];
+            } else {
                 // update odometer values
                 theta += thetaChange;
                 if ( theta < 0 ) {
@@ -78,17 +103,8 @@ public class Odometer extends Thread {
                 x +=  calculateXDisplacement(displacement,theta);
                 y += calculateYDisplacement(displacement,theta);
             }
-
-            // ensure that the odometer only runs once every period
-            updateEnd = System.currentTimeMillis();
-            if ( updateEnd - updateStart < Constants.ODOMETER_PERIOD ) {
-                try {
-                    Thread.sleep( Constants.ODOMETER_PERIOD - ( updateEnd - updateStart ) );
-                } catch ( InterruptedException e ) {
-                    // there is nothing to be done here because it is not
-                    // expected that the odometer will be interrupted by
-                    // another thread
-                }
+            if ( trace != null && ++updates % Constants.TRACE_POSE_INTERVAL == 0 ) {
+                trace.record( EventTrace.POSE, (float) x, (float) y, (float) theta );
             }
         }
     }
@@ -102,7 +118,7 @@ public class Odometer extends Thread {
      */
     public double calculateMotorDisplacement( int currentTachoCount , int prevTachoCount ) {
         int tachoDelta = currentTachoCount - prevTachoCount;
-        return (2*Math.PI*Constants.WHEEL_RADIUS)*tachoDelta/360;
+        return (2*Math.PI*calibration.getWheelRadius())*tachoDelta/360;
     }
 
     /**
@@ -113,7 +129,7 @@ public class Odometer extends Thread {
      * @return the theta change of the robot
      */
     public double calculateThetaChange( double leftMotorDisplacement , double rightMotorDisplacement ) {
-        return ( leftMotorDisplacement - rightMotorDisplacement ) / Constants.TRACK_LENGTH;
+        return ( leftMotorDisplacement - rightMotorDisplacement ) / calibration.getTrackLength();
     }
 
     /**
@@ -196,6 +212,9 @@ public class Odometer extends Thread {
     public void setX(double x) {
         synchronized ( lock ) {
             this.x = x;
+            if ( poseEstimator != null ) {
+                poseEstimator.setX( x );
+            }
         }
     }
 
@@ -207,6 +226,9 @@ public class Odometer extends Thread {
     public void setY(double y) {
         synchronized ( lock ) {
             this.y = y;
+            if ( poseEstimator != null ) {
+                poseEstimator.setY( y );
+            }
         }
     }
 
@@ -218,6 +240,22 @@ public class Odometer extends Thread {
     public void setTheta(double theta) {
         synchronized ( lock ) {
             this.theta = theta;
+            if ( poseEstimator != null ) {
+                poseEstimator.setTheta( theta );
+            }
+        }
+    }
+
+    /**
+     * A method to read x, y and theta together, so they all come from the same odometer update
+     *
+     * @param position the array to fill with x, y and theta in radians
+     */
+    public void getPosition(double[] position) {
+        synchronized ( lock ) {
+            position[0] = x;
+            position[1] = y;
+            position[2] = theta;
         }
     }
 
@@ -270,21 +308,114 @@ public class Odometer extends Thread {
         return fieldMapper;
     }
 
+    /**
+     * A method that returns the pose estimator the odometer runs through, if any
+     *
+     * @return the pose estimator, or null
+     */
+    public PoseEstimator getPoseEstimator() {
+        return poseEstimator;
+    }
+
+    /**
+     * A method that makes the odometer run through a pose estimator, which starts from the current position
+     *
+     * @param poseEstimator the pose estimator
+     */
+    public void setPoseEstimator(PoseEstimator poseEstimator) {
+        synchronized ( lock ) {
+            poseEstimator.setPose( x, y, theta );
+            this.poseEstimator = poseEstimator;
+        }
+    }
+
+    /**
+     * A method that returns the wheel radius and track length the odometer uses
+     *
+     * @return the calibration
+     */
+    public Calibration getCalibration() {
+        return calibration;
+    }
+
+    /**
+     * A method to set the wheel radius and track length the odometer uses
+     *
+     * @param calibration the calibration
+     */
+    public void setCalibration(Calibration calibration) {
+        this.calibration = calibration;
+    }
+
+    /**
+     * A method that returns the clock the odometer runs on
+     *
+     * @return the clock
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * A method to set the clock the time between updates is measured on
+     *
+     * @param clock the clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * A method to set the registry the time between odometer updates is recorded in
+     *
+     * @param diagnostics the diagnostics registry
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.periodHistogram = diagnostics.getHistogram( "odometer period" );
+    }
+
+    /**
+     * A method to set the trace a pose snapshot is recorded in every few updates
+     *
+     * @param trace the event trace
+     */
+    public void setTrace(EventTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * A method that returns the tacho count of the left motor
+     *
+     * @return the left tacho count
+     */
+    public int getLeftTachoCount() {
+        return leftMotor.getTachoCount();
+    }
+
+    /**
+     * A method that returns the tacho count of the right motor
+     *
+     * @return the right tacho count
+     */
+    public int getRightTachoCount() {
+        return rightMotor.getTachoCount();
+    }
+
     /**
      * A method that returns our current square
      *
-     * @return the current square object
+     * @return the current square as a cell of the field grid, or -1 before the vehicle is localized
      */
-    public Square getCurrentSquare() {
-        return currentSquare;
+    public int getCurrentCell() {
+        return currentCell;
     }
 
     /**
      * A method that sets our current square
      *
-     * @param currentSquare a square object
+     * @param currentCell the square as a cell of the field grid
      */
-    public void setCurrentSquare(Square currentSquare) {
-        this.currentSquare = currentSquare;
+    public void setCurrentCell(int currentCell) {
+        this.currentCell = currentCell;
     }
 }
@@ -1,22 +1,73 @@
 package main.controller;
 
-import lejos.hardware.Sound;
 import lejos.robotics.SampleProvider;
+import main.object.Feedback;
+import main.object.FieldGrid;
 import main.object.LightSensor;
+import main.object.Tuning;
 import main.resource.Constants;
+import main.util.Angles;
+import main.util.CalibrationEstimator;
+import main.util.Clock;
+import main.util.Diagnostics;
+import main.util.EventTrace;
+import main.util.LatencyHistogram;
+import main.util.PoseEstimator;
+import main.util.Task;
 
 /**
  * A controller class for odometer correction
  *
+ * The correction is released by its light sensors when either of them sees a line, and then steps through
+ * stopping on the line or giving the crossings to the pose estimator, releasing itself again for the next
+ * sensor, for the wheels to stand still after a stop or for the end of the hold time, so it never waits on a
+ * worker of the executor. Where each sensor reached the line is kept, so a stop corrects the heading by the
+ * angle between the two crossings, and a sensor that has not left its line by the time the other one should
+ * have crossed it is running along it, and is ignored until it is off the line again.
+ *
  * @author JohnWu
  */
-public class OdometerCorrection extends Thread {
+public class OdometerCorrection extends Task {
 
     // objects
     private Navigator navigator;
     private Odometer odometer;
     private LightSensor leftSensor;
     private LightSensor rightSensor;
+    private ParticleLocalizer particleLocalizer;
+    private CalibrationEstimator calibrationEstimator;
+    private Clock clock = Clock.getSystemClock();
+    private Tuning tuning = new Tuning();
+    private LatencyHistogram correctionLatency;
+    private LatencyHistogram drivingCorrectionLatency;
+    private EventTrace trace;
+    private Feedback feedback;
+
+    // states
+    private static final int WAITING = 0;
+    private static final int PAIRING = 1;
+    private static final int CROSSING = 2;
+    private static final int STOPPING = 3;
+    private static final int HOLDING = 4;
+
+    // the largest heading error the second crossing is waited for, as the distance driven past the first one
+    private static final double MAX_CROSSING_ANGLE = Math.PI/8;
+    private static final double MAX_CROSSING_DISTANCE = 2*Constants.LIGHT_SENSOR_LATERAL_OFFSET*Math.tan( MAX_CROSSING_ANGLE );
+
+    // variables
+    private int state = WAITING;
+    private long detected;
+    private long holdStart;
+    private boolean leftHandled, rightHandled;
+    private boolean leftAccepted, rightAccepted;
+    private boolean leftCrossed, rightCrossed;
+    private boolean leftRiding, rightRiding;
+    private final double[] leftCrossing = new double[2];
+    private final double[] rightCrossing = new double[2];
+    private final double[] sensorPosition = new double[2];
+    private final double[] pose = new double[3];
+    private volatile int correctionStopCount;
+    private volatile int drivingCorrectionCount;
 
     /**
      * Our main constructor method
@@ -25,83 +76,462 @@ public class OdometerCorrection extends Thread {
      * @param rightSensor the right facing sensor EV3 object used in the robot
      */
     public OdometerCorrection( Navigator navigator, Odometer odometer, SampleProvider leftSensor, SampleProvider rightSensor ) {
+        super( "odometer correction", Task.PRIORITY_CRITICAL, 0, Constants.CORRECTION_DEADLINE );
         this.navigator = navigator;
         this.odometer = odometer;
         this.leftSensor = new LightSensor( leftSensor );
         this.rightSensor = new LightSensor( rightSensor );
-        this.leftSensor.start();
-        this.rightSensor.start();
+        this.leftSensor.setName( "left light sensor" );
+        this.rightSensor.setName( "right light sensor" );
+        this.leftSensor.setLineTask( this );
+        this.rightSensor.setLineTask( this );
     }
 
     /**
-     * Main thread
+     * One step of the correction, run whenever a sensor sees a line or a wait is over
      */
-    public void run() {
-        while ( true ) {
-            if ( isLineDetectedLeft() || isLineDetectedRight() ) {
-                navigator.stopMotors();
-                odometer.setCorrecting( true );
-                Sound.buzz();
-                while ( !isLineDetectedRight() ) {
-                    navigator.rotateRightMotorForward();
+    protected void execute() {
+        switch ( state ) {
+            case WAITING:
+                releaseRidingSensors();
+                if ( !isLineDetectedLeft() && !isLineDetectedRight() ) {
+                    break;
+                }
+                if ( navigator.isDrivingLeg() ) {
+                    startCorrection();
+                } else {
+                    // a line seen while turning or sweeping is left to the localizers, and passes during the hold
+                    hold( clock.currentTimeMillis() );
                 }
-                while ( !isLineDetectedLeft() ) {
-                    navigator.rotateLeftMotorForward();
+                break;
+            case PAIRING:
+                correctWhileDriving();
+                break;
+            case CROSSING:
+                awaitCrossing();
+                break;
+            case STOPPING:
+                if ( !isStopped() ) {
+                    break;
+                }
+                finishCorrection();
+                break;
+            case HOLDING:
+                long remaining = tuning.getColorSensorHoldTime() - ( clock.currentTimeMillis() - holdStart );
+                if ( remaining > 0 ) {
+                    releaseAfter( remaining );
+                    break;
                 }
-                correctOdometerValues();
-                navigator.stopMotors();
-                odometer.setCorrecting( false );
-                try { Thread.sleep( Constants.COLOR_SENSOR_HOLD_TIME ); } catch( Exception e ){}
                 leftSensor.setLineDetected( false );
                 rightSensor.setLineDetected( false );
+                leftRiding = false;
+                rightRiding = false;
+                state = WAITING;
+                break;
+        }
+    }
+
+    /**
+     * A method that starts on a line just seen, either without stopping or by stopping to square up on it
+     */
+    private void startCorrection() {
+        detected = clock.currentTimeMillis();
+        if ( trace != null ) {
+            trace.record( EventTrace.LINE_DETECTED, isLineDetectedLeft() ? 1 : 0, isLineDetectedRight() ? 1 : 0, 0 );
+        }
+        reportLineCrossings();
+        if ( !navigator.isCorrectionStopNeeded() ) {
+            leftHandled = false;
+            rightHandled = false;
+            leftAccepted = false;
+            rightAccepted = false;
+            state = PAIRING;
+            correctWhileDriving();
+            return;
+        }
+        leftCrossed = false;
+        rightCrossed = false;
+        state = CROSSING;
+        awaitCrossing();
+    }
+
+    /**
+     * A method that drives on past the line one sensor crossed until the other one crosses it too, and then
+     * stops on it. A sensor still on its line once the other one should have crossed is running along the line,
+     * and is ignored until it is off the line again.
+     */
+    private void awaitCrossing() {
+        recordCrossings();
+        if ( leftCrossed && rightCrossed ) {
+            stop();
+            return;
+        }
+        if ( !navigator.isDrivingLeg() ) {
+            // the leg ended before the other sensor reached a line, which is left to pass during the hold
+            hold( clock.currentTimeMillis() );
+            return;
+        }
+        if ( leftCrossed ) {
+            calculateSensorPosition( -Constants.LIGHT_SENSOR_LATERAL_OFFSET, sensorPosition );
+        } else {
+            calculateSensorPosition( Constants.LIGHT_SENSOR_LATERAL_OFFSET, sensorPosition );
+        }
+        double[] crossing = leftCrossed ? leftCrossing : rightCrossing;
+        if ( Math.hypot( sensorPosition[0] - crossing[0], sensorPosition[1] - crossing[1] ) < MAX_CROSSING_DISTANCE ) {
+            // the other sensor releases the correction again once it is on the line
+            releaseAfter( Constants.CORRECTION_COMMAND_PERIOD );
+            return;
+        }
+        LightSensor sensor = leftCrossed ? leftSensor : rightSensor;
+        if ( sensor.isOnLine() ) {
+            if ( leftCrossed ) {
+                leftRiding = true;
+            } else {
+                rightRiding = true;
             }
+        } else {
+            // a crossing the other sensor missed, so the next line is looked for again
+            sensor.setLineDetected( false );
+        }
+        state = WAITING;
+        releaseRidingSensors();
+    }
+
+    /**
+     * A method that stops the vehicle on the line both sensors crossed
+     */
+    private void stop() {
+        // marked before the stop, so the navigator waits for the correction instead of driving on as soon as the
+        // stop ends its leg
+        odometer.setCorrecting( true );
+        navigator.stopMotors( true );
+        if ( feedback != null ) {
+            feedback.playSound( Feedback.SOUND_BUZZ );
+        }
+        correctionStopCount++;
+        tracePose( EventTrace.CORRECTION_START );
+        state = STOPPING;
+        if ( isStopped() ) {
+            finishCorrection();
+        }
+    }
+
+    /**
+     * A method that looks at a sensor running along a line again once it is off the line, and keeps looking
+     * while it is not
+     */
+    private void releaseRidingSensors() {
+        if ( leftRiding && !leftSensor.isOnLine() ) {
+            leftRiding = false;
+            leftSensor.setLineDetected( false );
+        }
+        if ( rightRiding && !rightSensor.isOnLine() ) {
+            rightRiding = false;
+            rightSensor.setLineDetected( false );
+        }
+        if ( leftRiding || rightRiding ) {
+            releaseAfter( Constants.CORRECTION_COMMAND_PERIOD );
         }
     }
 
     /**
-     * A method to correct our odometer values
+     * A method which determines if the wheels stand still after a stop, releasing the correction again to look
+     * once more if they do not, so the wheels are never waited for on a worker of the executor
+     *
+     * @return whether the wheels stand still
+     */
+    private boolean isStopped() {
+        if ( navigator.isMoving() ) {
+            releaseAfter( Constants.CORRECTION_COMMAND_PERIOD );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * A method that corrects the odometer on the line the vehicle stopped on and holds until the line has
+     * passed
+     */
+    private void finishCorrection() {
+        correctOdometerValues();
+        if ( correctionLatency != null ) {
+            correctionLatency.record( clock.currentTimeMillis() - detected );
+        }
+        tracePose( EventTrace.CORRECTION_END );
+        recordAlignment();
+        odometer.setCorrecting( false );
+        hold( clock.currentTimeMillis() );
+    }
+
+    /**
+     * A method that ignores the sensors for the hold time, so the line being crossed is not seen again
+     *
+     * @param start when the hold time starts (ms)
+     */
+    private void hold( long start ) {
+        holdStart = start;
+        state = HOLDING;
+        releaseAfter( tuning.getColorSensorHoldTime() - ( clock.currentTimeMillis() - start ) );
+    }
+
+    /**
+     * A method that keeps where each sensor is when it is first seen on the line, as the odometer puts it
+     */
+    private void recordCrossings() {
+        if ( !leftCrossed && isLineDetectedLeft() ) {
+            calculateSensorPosition( -Constants.LIGHT_SENSOR_LATERAL_OFFSET, leftCrossing );
+            leftCrossed = true;
+        }
+        if ( !rightCrossed && isLineDetectedRight() ) {
+            calculateSensorPosition( Constants.LIGHT_SENSOR_LATERAL_OFFSET, rightCrossing );
+            rightCrossed = true;
+        }
+    }
+
+    /**
+     * A method that calculates the position of a light sensor from the odometer
+     *
+     * @param lateral the offset of the sensor to the right of the vehicle (cm)
+     * @param position the array to fill with the x and y of the sensor
+     */
+    private void calculateSensorPosition( double lateral, double[] position ) {
+        odometer.getPosition( pose );
+        double sin = Math.sin( pose[2] );
+        double cos = Math.cos( pose[2] );
+        position[0] = pose[0] + Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET*sin + lateral*cos;
+        position[1] = pose[1] + Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET*cos - lateral*sin;
+    }
+
+    /**
+     * A method to correct our odometer values on the line both sensors crossed. The line runs through the two
+     * crossings, so the angle between them is how far the odometer heading is off, and the odometer is turned
+     * back by it about their middle and moved across the line until that middle lies on the gridline.
      */
     public void correctOdometerValues() {
         double correctedTheta = calculateCorrectionTheta();
-        int currentSquareX = odometer.getCurrentSquare().getX();
-        int currentSquareY = odometer.getCurrentSquare().getY();
+        double squareLength = odometer.getFieldMapper().getGrid().getSquareLength();
+        double dx = rightCrossing[0] - leftCrossing[0];
+        double dy = rightCrossing[1] - leftCrossing[1];
+        // how far the odometer heading is turned clockwise from the real one
+        double error = Angles.wrap( Math.atan2( dx, dy ) - Math.PI/2 - correctedTheta );
+        double middleX = ( leftCrossing[0] + rightCrossing[0] )/2;
+        double middleY = ( leftCrossing[1] + rightCrossing[1] )/2;
+        odometer.getPosition( pose );
+        double sin = Math.sin( error );
+        double cos = Math.cos( error );
+        double offsetX = pose[0] - middleX;
+        double offsetY = pose[1] - middleY;
+        double x = middleX + offsetX*cos - offsetY*sin;
+        double y = middleY + offsetX*sin + offsetY*cos;
+        if ( correctedTheta == 0.0 || correctedTheta == Math.PI ) {
+            y += Math.rint( middleY/squareLength )*squareLength - middleY;
+        } else {
+            x += Math.rint( middleX/squareLength )*squareLength - middleX;
+        }
+        odometer.setTheta( Angles.normalize( pose[2] - error ) );
+        odometer.setX( x );
+        odometer.setY( y );
+        moveToNextSquare();
+    }
 
-        odometer.setTheta( correctedTheta );
-        if ( correctedTheta == 0.0 ) {
-            odometer.setY( odometer.getCurrentSquare().getNorthPosition() );
-            odometer.setCurrentSquare( odometer.getFieldMapper().getMapping()[currentSquareY+1][currentSquareX] );
+    /**
+     * A method that moves the square of the odometer on to the one past the line just crossed. The square is
+     * found from the corrected pose, so a crossing that was missed or seen twice does not put it out of step.
+     */
+    private void moveToNextSquare() {
+        FieldGrid grid = odometer.getFieldMapper().getGrid();
+        double theta = odometer.getTheta();
+        // the middle of the square ahead of the sensors
+        double ahead = Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET + grid.getSquareLength()/2;
+        odometer.setCurrentCell( grid.getCell( odometer.getX() + ahead*Math.sin( theta ), odometer.getY() + ahead*Math.cos( theta ) ) );
+    }
+
+    /**
+     * A method that gives the line crossing of each sensor to the pose estimator without stopping, waiting a
+     * short while for the second sensor to reach the line
+     */
+    private void correctWhileDriving() {
+        PoseEstimator poseEstimator = odometer.getPoseEstimator();
+        if ( !leftHandled && isLineDetectedLeft() ) {
+            leftAccepted = poseEstimator.updateLineCrossing( true );
+            leftHandled = true;
         }
-        if ( correctedTheta == Math.PI/2 ) {
-            odometer.setX( odometer.getCurrentSquare().getEastPosition() );
-            odometer.setCurrentSquare( odometer.getFieldMapper().getMapping()[currentSquareY][currentSquareX+1] );
+        if ( !rightHandled && isLineDetectedRight() ) {
+            rightAccepted = poseEstimator.updateLineCrossing( false );
+            rightHandled = true;
         }
-        if ( correctedTheta == 2*Math.PI ) {
-            odometer.setY( odometer.getCurrentSquare().getSouthPosition() );
-            odometer.setCurrentSquare( odometer.getFieldMapper().getMapping()[currentSquareY-1][currentSquareX] );
+        long elapsed = clock.currentTimeMillis() - detected;
+        if ( !( leftHandled && rightHandled ) && elapsed < Constants.LINE_CROSSING_PAIR_WINDOW ) {
+            // the other sensor releases the correction again once it is on the line
+            releaseAfter( Constants.LINE_CROSSING_PAIR_WINDOW - elapsed );
+            return;
         }
-        if ( correctedTheta == 3*Math.PI/2 ) {
-            odometer.setX( odometer.getCurrentSquare().getWestPosition() );
-            odometer.setCurrentSquare( odometer.getFieldMapper().getMapping()[currentSquareY][currentSquareX-1] );
+        if ( drivingCorrectionLatency != null ) {
+            drivingCorrectionLatency.record( elapsed );
         }
-        odometer.setCorrecting( false );
+        if ( trace != null ) {
+            trace.record( EventTrace.DRIVING_CORRECTION, leftHandled ? 1 : 0, rightHandled ? 1 : 0, 0 );
+        }
+        drivingCorrectionCount++;
+        // only a line both sensors crossed and the estimator agreed with is taken as a gridline across the leg,
+        // as a single sensor may be running along a line and not across one
+        if ( leftAccepted && rightAccepted ) {
+            moveToNextSquare();
+        }
+        hold( detected );
     }
 
     /**
-     * A method to determine if a line was recently detected or not for the left sensor
+     * A method that gives the calibration estimator the pose the vehicle is aligned on
+     */
+    private void recordAlignment() {
+        if ( calibrationEstimator == null ) {
+            return;
+        }
+        calibrationEstimator.recordAlignment( odometer.getLeftTachoCount(), odometer.getRightTachoCount(),
+                odometer.getX(), odometer.getY(), odometer.getTheta() );
+    }
+
+    /**
+     * A method that tells the particle localizer which sensors crossed the line
+     */
+    private void reportLineCrossings() {
+        if ( particleLocalizer == null ) {
+            return;
+        }
+        if ( isLineDetectedLeft() ) {
+            particleLocalizer.reportLineCrossing( true );
+        }
+        if ( isLineDetectedRight() ) {
+            particleLocalizer.reportLineCrossing( false );
+        }
+    }
+
+    /**
+     * A method to set the particle localizer that is told about line crossings
+     *
+     * @param particleLocalizer the particle localizer
+     */
+    public void setParticleLocalizer( ParticleLocalizer particleLocalizer ) {
+        this.particleLocalizer = particleLocalizer;
+    }
+
+    /**
+     * A method to set the trace the line crossings and corrections are recorded in
+     *
+     * @param trace the event trace
+     */
+    public void setTrace( EventTrace trace ) {
+        this.trace = trace;
+    }
+
+    /**
+     * A method to set the channel the buzz of a correction stop is posted to
+     *
+     * @param feedback the feedback channel
+     */
+    public void setFeedback( Feedback feedback ) {
+        this.feedback = feedback;
+    }
+
+    /**
+     * A method that records an event with the current pose
+     *
+     * @param type the event type
+     */
+    private void tracePose( int type ) {
+        if ( trace != null ) {
+            trace.record( type, (float) odometer.getX(), (float) odometer.getY(), (float) odometer.getTheta() );
+        }
+    }
+
+    /**
+     * A method to set the tuning the correction and its light sensors use
+     *
+     * @param tuning the tuning
+     */
+    public void setTuning( Tuning tuning ) {
+        this.tuning = tuning;
+        leftSensor.setTuning( tuning );
+        rightSensor.setTuning( tuning );
+    }
+
+    /**
+     * A method to set the registry the light sensor samples are counted in and the time from seeing a line to
+     * having corrected on it is recorded in
+     *
+     * @param diagnostics the diagnostics registry
+     */
+    public void setDiagnostics( Diagnostics diagnostics ) {
+        leftSensor.setSampleCounter( diagnostics.getCounter( "left light samples" ) );
+        rightSensor.setSampleCounter( diagnostics.getCounter( "right light samples" ) );
+        correctionLatency = diagnostics.getHistogram( "correction latency" );
+        drivingCorrectionLatency = diagnostics.getHistogram( "driving correction" );
+    }
+
+    /**
+     * A method that returns how many times the vehicle stopped to square up on a line
+     *
+     * @return the correction stop count
+     */
+    public int getCorrectionStopCount() {
+        return correctionStopCount;
+    }
+
+    /**
+     * A method that returns how many line crossings were given to the pose estimator without stopping
+     *
+     * @return the driving correction count
+     */
+    public int getDrivingCorrectionCount() {
+        return drivingCorrectionCount;
+    }
+
+    /**
+     * A method to set the calibration estimator that is given every gridline alignment
+     *
+     * @param calibrationEstimator the calibration estimator
+     */
+    public void setCalibrationEstimator( CalibrationEstimator calibrationEstimator ) {
+        this.calibrationEstimator = calibrationEstimator;
+    }
+
+    /**
+     * A method to determine if a line was recently detected or not for the left sensor, unless it is running
+     * along the line
      *
      * @return whether line has been detected
      */
     public boolean isLineDetectedLeft() {
-        return leftSensor.isLineDetected();
+        return leftSensor.isLineDetected() && !leftRiding;
     }
 
     /**
-     * A method to determine if a line was recently detected or not for the right sensor
+     * A method to determine if a line was recently detected or not for the right sensor, unless it is running
+     * along the line
      *
      * @return whether line has been detected
      */
     public boolean isLineDetectedRight() {
-        return rightSensor.isLineDetected();
+        return rightSensor.isLineDetected() && !rightRiding;
+    }
+
+    /**
+     * A method that returns the left light sensor
+     *
+     * @return the left light sensor object
+     */
+    public LightSensor getLeftSensor() {
+        return leftSensor;
+    }
+
+    /**
+     * A method that returns the right light sensor
+     *
+     * @return the right light sensor object
+     */
+    public LightSensor getRightSensor() {
+        return rightSensor;
     }
 
     /**
@@ -128,4 +558,13 @@ public class OdometerCorrection extends Thread {
         return 0.0;
     }
 
+    /**
+     * A method to set the clock the correction times the line crossings and its hold time with
+     *
+     * @param clock the clock
+     */
+    public void setClock( Clock clock ) {
+        this.clock = clock;
+    }
+
 }
\ No newline at end of file
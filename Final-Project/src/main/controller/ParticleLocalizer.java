@@ -0,0 +1,134 @@
+package main.controller;
+
+import main.object.UltrasonicSensor;
+import main.resource.Constants;
+import main.util.Angles;
+import main.util.ParticleFilter;
+import main.util.Task;
+
+/**
+ * A controller that keeps localizing the robot while it drives, by running a particle filter on the odometer
+ * steps, the gridlines crossed by the light sensors and the ultrasonic distance to the walls.
+ *
+ * The localizer only observes: its estimate is not fed back into the odometer, which the gridline corrections
+ * keep, and the match logs how far the two ended up apart so that feeding it back can be judged on real runs.
+ *
+ * @author JohnWu
+ */
+public class ParticleLocalizer extends Task {
+
+    // objects
+    private Odometer odometer;
+    private UltrasonicSensor ultrasonicSensor;
+    private ParticleFilter particleFilter;
+
+    // variables
+    private double[] position = new double[3];
+    private double lastX, lastY, lastTheta;
+    private boolean tracking;
+    private boolean initialized;
+    private volatile int leftCrossings, rightCrossings;
+    private int handledLeftCrossings, handledRightCrossings;
+
+    /**
+     * Our main constructor method
+     *
+     * @param odometer odometer controller used in the robot
+     * @param ultrasonicSensor front facing ultrasonic sensor, sampled by the executor
+     * @param particleFilter the filter to run
+     */
+    public ParticleLocalizer( Odometer odometer, UltrasonicSensor ultrasonicSensor, ParticleFilter particleFilter ) {
+        super( "particle localizer", Task.PRIORITY_NORMAL, Constants.PARTICLE_LOCALIZATION_PERIOD,
+                Constants.PARTICLE_LOCALIZATION_PERIOD );
+        this.odometer = odometer;
+        this.ultrasonicSensor = ultrasonicSensor;
+        this.particleFilter = particleFilter;
+    }
+
+    /**
+     * Runs one step of the filter on the latest ultrasonic sample, spreading the particles around the odometer
+     * position the first time
+     */
+    protected void execute() {
+        if ( !initialized ) {
+            synchronized ( this ) {
+                odometer.getPosition( position );
+                particleFilter.initialize( position[0], position[1], position[2],
+                        Constants.PARTICLE_INITIAL_POSITION_SPREAD, Constants.PARTICLE_INITIAL_HEADING_SPREAD );
+            }
+            initialized = true;
+        }
+        update( ultrasonicSensor.getFilteredSensorData() );
+    }
+
+    /**
+     * A method that runs one step of the filter
+     *
+     * @param distance the filtered ultrasonic distance
+     */
+    public synchronized void update( double distance ) {
+        // the odometer jumps while it is corrected, so the step is only taken between corrections
+        if ( odometer.isCorrecting() ) {
+            tracking = false;
+            return;
+        }
+        odometer.getPosition( position );
+        if ( tracking ) {
+            double deltaX = position[0] - lastX;
+            double deltaY = position[1] - lastY;
+            double deltaTheta = Angles.wrap( position[2] - lastTheta );
+            double heading = lastTheta + deltaTheta/2;
+            // the projection on the heading gives the sign of the step
+            double distanceDriven = deltaX*Math.sin( heading ) + deltaY*Math.cos( heading );
+            particleFilter.predict( distanceDriven, deltaTheta );
+        }
+        lastX = position[0];
+        lastY = position[1];
+        lastTheta = position[2];
+        tracking = true;
+
+        int left = leftCrossings;
+        int right = rightCrossings;
+        if ( left != handledLeftCrossings ) {
+            particleFilter.updateLineCrossing( true );
+            handledLeftCrossings = left;
+        }
+        if ( right != handledRightCrossings ) {
+            particleFilter.updateLineCrossing( false );
+            handledRightCrossings = right;
+        }
+        particleFilter.updateRange( distance );
+    }
+
+    /**
+     * A method that tells the filter a light sensor crossed a gridline, safe to call from any thread
+     *
+     * @param leftSensor whether it was the left sensor, otherwise the right one
+     */
+    public void reportLineCrossing( boolean leftSensor ) {
+        if ( leftSensor ) {
+            leftCrossings++;
+        } else {
+            rightCrossings++;
+        }
+    }
+
+    /**
+     * A method that returns the filter's estimate of the pose
+     *
+     * @param pose the array to fill with x, y and theta
+     */
+    public synchronized void getEstimate( double[] pose ) {
+        particleFilter.getEstimate( pose );
+    }
+
+    /**
+     * A method that returns how uncertain the filter's position is
+     *
+     * @return the spread of the particles (cm)
+     */
+    public synchronized double getPositionSpread() {
+        return particleFilter.getPositionSpread();
+    }
+
+}
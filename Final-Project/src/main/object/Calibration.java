@@ -0,0 +1,145 @@
+package main.object;
+
+import main.resource.Constants;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * The wheel radius and track length of the vehicle, measured on the field and kept in a small file on the brick
+ * so that the robot does not depend on the values measured when it was built.
+ *
+ * A value that is missing from the file, cannot be read or is too far from the measured default is ignored, so
+ * a bad calibration can never be worse than the constants.
+ *
+ * @author JohnWu
+ */
+public class Calibration {
+
+    private static final String WHEEL_RADIUS_KEY = "wheelRadius";
+    private static final String TRACK_LENGTH_KEY = "trackLength";
+
+    // properties
+    private volatile double wheelRadius;
+    private volatile double trackLength;
+
+    /**
+     * Main initialization method, uses the measured constants
+     */
+    public Calibration() {
+        this( Constants.WHEEL_RADIUS, Constants.TRACK_LENGTH );
+    }
+
+    /**
+     * Initialization method with calibrated values
+     *
+     * @param wheelRadius the radius of the wheels
+     * @param trackLength the distance between the wheels
+     */
+    public Calibration( double wheelRadius, double trackLength ) {
+        this.wheelRadius = wheelRadius;
+        this.trackLength = trackLength;
+    }
+
+    /**
+     * A method that reads the calibration saved on the brick
+     *
+     * @param path the calibration file
+     * @return the saved calibration, or the constants for any value that is missing or out of range
+     */
+    public static Calibration load( String path ) {
+        Calibration calibration = new Calibration();
+        Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream( path );
+            properties.load( in );
+        } catch ( IOException e ) {
+            // nothing was saved yet
+            return calibration;
+        } finally {
+            close( in );
+        }
+        double wheelRadius = parse( properties.getProperty( WHEEL_RADIUS_KEY ) );
+        if ( isPlausible( wheelRadius, Constants.WHEEL_RADIUS ) ) {
+            calibration.setWheelRadius( wheelRadius );
+        }
+        double trackLength = parse( properties.getProperty( TRACK_LENGTH_KEY ) );
+        if ( isPlausible( trackLength, Constants.TRACK_LENGTH ) ) {
+            calibration.setTrackLength( trackLength );
+        }
+        return calibration;
+    }
+
+    /**
+     * A method that saves the calibration on the brick
+     *
+     * @param path the calibration file
+     * @return whether the file was written
+     */
+    public boolean save( String path ) {
+        Properties properties = new Properties();
+        properties.setProperty( WHEEL_RADIUS_KEY, Double.toString( wheelRadius ) );
+        properties.setProperty( TRACK_LENGTH_KEY, Double.toString( trackLength ) );
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream( path );
+            properties.store( out, null );
+            return true;
+        } catch ( IOException e ) {
+            return false;
+        } finally {
+            close( out );
+        }
+    }
+
+    /**
+     * A method which determines if a calibrated value is close enough to its measured default to be trusted
+     *
+     * @param value the calibrated value
+     * @param measured the measured default
+     * @return whether the value can be used
+     */
+    public static boolean isPlausible( double value, double measured ) {
+        return Math.abs( value - measured ) <= Constants.CALIBRATION_MAX_DEVIATION*measured;
+    }
+
+    private static double parse( String value ) {
+        if ( value == null ) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble( value.trim() );
+        } catch ( NumberFormatException e ) {
+            return Double.NaN;
+        }
+    }
+
+    private static void close( Closeable closeable ) {
+        if ( closeable != null ) {
+            try { closeable.close(); } catch( IOException e ){}
+        }
+    }
+
+    public double getWheelRadius() {
+        return wheelRadius;
+    }
+
+    public void setWheelRadius( double wheelRadius ) {
+        this.wheelRadius = wheelRadius;
+    }
+
+    public double getTrackLength() {
+        return trackLength;
+    }
+
+    public void setTrackLength( double trackLength ) {
+        this.trackLength = trackLength;
+    }
+
+}
@@ -0,0 +1,101 @@
+package main.object;
+
+import lejos.hardware.lcd.TextLCD;
+import main.resource.Constants;
+import main.util.Counter;
+import main.util.Diagnostics;
+import main.util.LatencyHistogram;
+import main.util.Task;
+
+/**
+ * An object class that shows the diagnostics counters and histograms below the odometry display, one at a time,
+ * moving on to the next every page period. The last line of the screen is left to the status messages of the
+ * feedback channel.
+ *
+ * @author JohnWu
+ */
+public class DiagnosticsDisplay extends Task {
+
+    // the lines of the screen used, below the odometer values, and the column the values start at
+    private static final int FIRST_LINE = 3;
+    private static final int LINES = 4;
+    private static final int LINE_WIDTH = 16;
+    private static final int VALUE_COLUMN = 4;
+
+    // objects
+    private Diagnostics diagnostics;
+    private TextLCD t;
+
+    // variables
+    private long pagePeriod = Constants.DIAGNOSTICS_PAGE_PERIOD;
+    private ScreenFrame frame = new ScreenFrame( FIRST_LINE, LINES, LINE_WIDTH );
+
+    /**
+     * Our main constructor method
+     *
+     * @param diagnostics the registry to show
+     * @param textLCD the LCD Screen
+     */
+    public DiagnosticsDisplay( Diagnostics diagnostics, TextLCD textLCD ) {
+        super( "diagnostics display", Task.PRIORITY_LOW, Constants.DISPLAY_PERIOD, Constants.DISPLAY_PERIOD );
+        this.diagnostics = diagnostics;
+        this.t = textLCD;
+    }
+
+    /**
+     * Refreshes the current page
+     */
+    protected void execute() {
+        refresh();
+    }
+
+    /**
+     * A method that formats the counter or histogram of the current page into the frame and sends the characters
+     * that changed to the screen
+     */
+    public void refresh() {
+        for ( int i = 0; i < LINES; i++ ) {
+            frame.clearFrom( i, 0 );
+        }
+        int counters = diagnostics.getCounterCount();
+        int pages = counters + diagnostics.getHistogramCount();
+        if ( pages > 0 ) {
+            int page = (int) ( diagnostics.getUptime()/pagePeriod % pages );
+            if ( page < counters ) {
+                showCounter( diagnostics.getCounter( page ) );
+            } else {
+                showHistogram( diagnostics.getHistogram( page - counters ) );
+            }
+        }
+        frame.flush( t );
+    }
+
+    private void showCounter( Counter counter ) {
+        frame.write( 0, 0, counter.getName() );
+        frame.write( 1, 0, "n" );
+        frame.write( 1, VALUE_COLUMN, counter.getCount(), 0 );
+        frame.write( 2, 0, "/s" );
+        frame.write( 2, VALUE_COLUMN, diagnostics.getRate( counter ), 1 );
+    }
+
+    private void showHistogram( LatencyHistogram histogram ) {
+        // the number of samples is left to the exported file
+        frame.write( 0, 0, histogram.getName() );
+        frame.write( 1, 0, "avg" );
+        frame.write( 1, frame.write( 1, VALUE_COLUMN, histogram.getMean(), 1 ), " ms" );
+        frame.write( 2, 0, "p95" );
+        frame.write( 2, frame.write( 2, VALUE_COLUMN, histogram.getPercentile( 95 ), 0 ), " ms" );
+        frame.write( 3, 0, "max" );
+        frame.write( 3, frame.write( 3, VALUE_COLUMN, histogram.getMax(), 0 ), " ms" );
+    }
+
+    /**
+     * A method to set how long each counter or histogram is shown
+     *
+     * @param pagePeriod the page period in milliseconds
+     */
+    public void setPagePeriod( long pagePeriod ) {
+        this.pagePeriod = pagePeriod;
+    }
+
+}
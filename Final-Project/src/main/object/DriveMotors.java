@@ -0,0 +1,268 @@
+package main.object;
+
+import lejos.hardware.motor.EV3LargeRegulatedMotor;
+import lejos.robotics.RegulatedMotor;
+import main.util.Clock;
+import main.util.Counter;
+import main.util.Diagnostics;
+
+/**
+ * An object that sends the commands of the two drive motors, remembering what each motor was last told so that
+ * a command that changes nothing is never sent to the driver again.
+ *
+ * The two motors are synchronized, so a command for both of them, such as driving forward or stopping, starts
+ * on both wheels in the same regulator tick instead of one after the other, which yawed the vehicle a little on
+ * every start and stop. Waiting for a move to end is done outside the lock, so the other thread giving commands
+ * is not held up by a turn.
+ *
+ * @author JohnWu
+ */
+public class DriveMotors {
+
+    // what a motor was last told to do
+    private static final int UNKNOWN = -1;
+    private static final int STOPPED = 0;
+    private static final int FORWARD = 1;
+    private static final int BACKWARD = 2;
+    private static final int ROTATING = 3;
+
+    // objects
+    private EV3LargeRegulatedMotor leftMotor, rightMotor;
+    private Counter commandCounter;
+    private Counter skippedCommandCounter;
+    private Clock clock = Clock.getSystemClock();
+
+    // variables
+    private int leftSpeed = UNKNOWN, rightSpeed = UNKNOWN;
+    private int leftAcceleration = UNKNOWN, rightAcceleration = UNKNOWN;
+    private int leftMotion = UNKNOWN, rightMotion = UNKNOWN;
+    private volatile long firstMotionTime = -1;
+
+    /**
+     * Main initialization method
+     *
+     * @param leftMotor the left motor EV3 object used in the robot
+     * @param rightMotor the right motor EV3 object used in the robot
+     */
+    public DriveMotors( EV3LargeRegulatedMotor leftMotor, EV3LargeRegulatedMotor rightMotor ) {
+        this.leftMotor = leftMotor;
+        this.rightMotor = rightMotor;
+        leftMotor.synchronizeWith( new RegulatedMotor[]{ rightMotor } );
+    }
+
+    /**
+     * A method that sets the speed of each motor, the direction being given by the motion commands
+     *
+     * @param leftSpeed the speed of the left motor (deg/s)
+     * @param rightSpeed the speed of the right motor (deg/s)
+     */
+    public synchronized void setSpeeds( int leftSpeed, int rightSpeed ) {
+        leftSpeed = Math.abs( leftSpeed );
+        rightSpeed = Math.abs( rightSpeed );
+        if ( leftSpeed != this.leftSpeed ) {
+            leftMotor.setSpeed( leftSpeed );
+            this.leftSpeed = leftSpeed;
+            countCommand();
+        } else {
+            countSkippedCommand();
+        }
+        if ( rightSpeed != this.rightSpeed ) {
+            rightMotor.setSpeed( rightSpeed );
+            this.rightSpeed = rightSpeed;
+            countCommand();
+        } else {
+            countSkippedCommand();
+        }
+    }
+
+    /**
+     * A method that sets the acceleration of both motors
+     *
+     * @param acceleration the acceleration (deg/s^2)
+     */
+    public synchronized void setAcceleration( int acceleration ) {
+        if ( acceleration != leftAcceleration ) {
+            leftMotor.setAcceleration( acceleration );
+            leftAcceleration = acceleration;
+            countCommand();
+        } else {
+            countSkippedCommand();
+        }
+        if ( acceleration != rightAcceleration ) {
+            rightMotor.setAcceleration( acceleration );
+            rightAcceleration = acceleration;
+            countCommand();
+        } else {
+            countSkippedCommand();
+        }
+    }
+
+    /**
+     * A method that turns both motors until they are stopped, starting them together
+     *
+     * @param leftForward whether the left motor turns forward
+     * @param rightForward whether the right motor turns forward
+     */
+    public synchronized void drive( boolean leftForward, boolean rightForward ) {
+        int leftMotion = leftForward ? FORWARD : BACKWARD;
+        int rightMotion = rightForward ? FORWARD : BACKWARD;
+        if ( leftMotion == this.leftMotion && rightMotion == this.rightMotion ) {
+            countSkippedCommand();
+            return;
+        }
+        leftMotor.startSynchronization();
+        if ( leftMotion != this.leftMotion ) {
+            run( leftMotor, leftForward );
+        }
+        if ( rightMotion != this.rightMotion ) {
+            run( rightMotor, rightForward );
+        }
+        leftMotor.endSynchronization();
+        this.leftMotion = leftMotion;
+        this.rightMotion = rightMotion;
+        countCommand();
+        recordMotion();
+    }
+
+    /**
+     * A method that turns the left motor forward until it is stopped, leaving the right motor as it is
+     */
+    public synchronized void driveLeftForward() {
+        if ( leftMotion == FORWARD ) {
+            countSkippedCommand();
+            return;
+        }
+        leftMotor.forward();
+        leftMotion = FORWARD;
+        countCommand();
+        recordMotion();
+    }
+
+    /**
+     * A method that turns the right motor forward until it is stopped, leaving the left motor as it is
+     */
+    public synchronized void driveRightForward() {
+        if ( rightMotion == FORWARD ) {
+            countSkippedCommand();
+            return;
+        }
+        rightMotor.forward();
+        rightMotion = FORWARD;
+        countCommand();
+        recordMotion();
+    }
+
+    /**
+     * A method that turns each motor by an angle, starting them together
+     *
+     * @param leftAngle the angle of the left motor (deg)
+     * @param rightAngle the angle of the right motor (deg)
+     * @param immediateReturn whether to return before the motors have turned
+     */
+    public void rotate( int leftAngle, int rightAngle, boolean immediateReturn ) {
+        synchronized ( this ) {
+            leftMotor.startSynchronization();
+            leftMotor.rotate( leftAngle, true );
+            rightMotor.rotate( rightAngle, true );
+            leftMotor.endSynchronization();
+            leftMotion = ROTATING;
+            rightMotion = ROTATING;
+            countCommand();
+            recordMotion();
+        }
+        if ( !immediateReturn ) {
+            waitComplete();
+        }
+    }
+
+    /**
+     * A method that stops both motors together
+     *
+     * @param immediateReturn whether to return before the motors stand still
+     */
+    public void stop( boolean immediateReturn ) {
+        synchronized ( this ) {
+            if ( leftMotion == STOPPED && rightMotion == STOPPED ) {
+                countSkippedCommand();
+                return;
+            }
+            leftMotor.startSynchronization();
+            leftMotor.stop( true );
+            rightMotor.stop( true );
+            leftMotor.endSynchronization();
+            leftMotion = STOPPED;
+            rightMotion = STOPPED;
+            countCommand();
+        }
+        if ( !immediateReturn ) {
+            waitComplete();
+        }
+    }
+
+    /**
+     * A method which determines if either motor is still turning, such as while it slows down after a stop
+     *
+     * @return whether a motor is moving
+     */
+    public boolean isMoving() {
+        return leftMotor.isMoving() || rightMotor.isMoving();
+    }
+
+    /**
+     * A method that waits until both motors have finished their moves
+     */
+    public void waitComplete() {
+        leftMotor.waitComplete();
+        rightMotor.waitComplete();
+    }
+
+    /**
+     * A method to set the registry the commands sent to the motors, and the ones skipped, are counted in
+     *
+     * @param diagnostics the diagnostics registry
+     */
+    public void setDiagnostics( Diagnostics diagnostics ) {
+        commandCounter = diagnostics.getCounter( "motor commands" );
+        skippedCommandCounter = diagnostics.getCounter( "skipped motor commands" );
+    }
+
+    /**
+     * A method which returns the time the wheels were first told to turn
+     *
+     * @return the time (ms), or -1 if they have not turned yet
+     */
+    public long getFirstMotionTime() {
+        return firstMotionTime;
+    }
+
+    public void setClock( Clock clock ) {
+        this.clock = clock;
+    }
+
+    private void recordMotion() {
+        if ( firstMotionTime < 0 ) {
+            firstMotionTime = clock.currentTimeMillis();
+        }
+    }
+
+    private void run( EV3LargeRegulatedMotor motor, boolean forward ) {
+        if ( forward ) {
+            motor.forward();
+        } else {
+            motor.backward();
+        }
+    }
+
+    private void countCommand() {
+        if ( commandCounter != null ) {
+            commandCounter.increment();
+        }
+    }
+
+    private void countSkippedCommand() {
+        if ( skippedCommandCounter != null ) {
+            skippedCommandCounter.increment();
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+package main.object;
+
+import lejos.hardware.Sound;
+import lejos.hardware.lcd.TextLCD;
+import main.resource.Constants;
+import main.util.Clock;
+import main.util.Counter;
+import main.util.Diagnostics;
+
+/**
+ * An object that plays the sound cues and shows the status messages the controllers post, on a thread of its own
+ * at the lowest priority, so that a controller never waits for a tone to end or for the screen.
+ *
+ * Posting only copies the cue or message into a ring made when the object is constructed and wakes the thread.
+ * When the ring is full the oldest entry is overwritten, and an entry still waiting when it is older than the
+ * feedback maximum age is dropped instead of being played late, both being counted as dropped feedback. Playing
+ * a tone blocks, which is why this does not run as a task of the executor.
+ *
+ * @author JohnWu
+ */
+public class Feedback extends Thread {
+
+    // sound cues
+    public static final int SOUND_NONE = 0;
+    public static final int SOUND_BEEP = 1;
+    public static final int SOUND_TWO_BEEPS = 2;
+    public static final int SOUND_BUZZ = 3;
+    public static final int SOUND_BEEP_SEQUENCE_UP = 4;
+
+    // the line of the screen status messages are shown on, below the diagnostics
+    private static final int STATUS_LINE = 7;
+    private static final int LINE_WIDTH = 16;
+
+    // objects
+    private TextLCD t;
+    private Clock clock = Clock.getSystemClock();
+    private Counter droppedCounter;
+
+    // properties
+    private boolean soundAvailable = true;
+    private long maxAge = Constants.FEEDBACK_MAX_AGE;
+
+    // variables
+    private int[] cues = new int[Constants.FEEDBACK_CAPACITY];
+    private String[] messages = new String[Constants.FEEDBACK_CAPACITY];
+    private long[] postTimes = new long[Constants.FEEDBACK_CAPACITY];
+    private int head;
+    private int size;
+    private int droppedCount;
+    private volatile boolean running = true;
+    private ScreenFrame frame = new ScreenFrame( STATUS_LINE, 1, LINE_WIDTH );
+
+    /**
+     * Main initialization method
+     *
+     * @param textLCD the LCD Screen
+     */
+    public Feedback( TextLCD textLCD ) {
+        super( "feedback" );
+        this.t = textLCD;
+        setDaemon( true );
+        setPriority( Thread.MIN_PRIORITY );
+    }
+
+    /**
+     * A method that asks for a sound cue to be played, returning right away
+     *
+     * @param cue the sound cue
+     */
+    public void playSound( int cue ) {
+        post( cue, null );
+    }
+
+    /**
+     * A method that asks for a message to be shown on the status line, returning right away
+     *
+     * @param message the message, cut at the width of the screen
+     */
+    public void showStatus( String message ) {
+        post( SOUND_NONE, message );
+    }
+
+    private synchronized void post( int cue, String message ) {
+        if ( size == cues.length ) {
+            drop();
+        }
+        int index = ( head + size ) % cues.length;
+        cues[index] = cue;
+        messages[index] = message;
+        postTimes[index] = clock.currentTimeMillis();
+        size++;
+        notifyAll();
+    }
+
+    /**
+     * Plays or shows each entry as it is posted, dropping the ones that waited too long
+     */
+    public void run() {
+        while ( running ) {
+            int cue;
+            String message;
+            synchronized ( this ) {
+                while ( running && size == 0 ) {
+                    try {
+                        wait();
+                    } catch ( InterruptedException e ) {
+                        // stopped
+                    }
+                }
+                if ( !running ) {
+                    return;
+                }
+                if ( clock.currentTimeMillis() - postTimes[head] > maxAge ) {
+                    drop();
+                    continue;
+                }
+                cue = cues[head];
+                message = messages[head];
+                messages[head] = null;
+                head = ( head + 1 ) % cues.length;
+                size--;
+            }
+            if ( message != null ) {
+                frame.clearFrom( 0, 0 );
+                frame.write( 0, 0, message );
+                frame.flush( t );
+            } else if ( soundAvailable && cue != SOUND_NONE ) {
+                play( cue );
+            }
+        }
+    }
+
+    /**
+     * A method that plays a sound cue on the speaker, blocking until it ends
+     *
+     * @param cue the sound cue
+     */
+    protected void play( int cue ) {
+        switch ( cue ) {
+            case SOUND_BEEP:
+                Sound.beep();
+                break;
+            case SOUND_TWO_BEEPS:
+                Sound.twoBeeps();
+                break;
+            case SOUND_BUZZ:
+                Sound.buzz();
+                break;
+            case SOUND_BEEP_SEQUENCE_UP:
+                Sound.beepSequenceUp();
+                break;
+        }
+    }
+
+    /**
+     * A method that stops the thread, leaving the entries still waiting unplayed
+     */
+    public void shutdown() {
+        running = false;
+        interrupt();
+    }
+
+    private void drop() {
+        messages[head] = null;
+        head = ( head + 1 ) % cues.length;
+        size--;
+        droppedCount++;
+        if ( droppedCounter != null ) {
+            droppedCounter.increment();
+        }
+    }
+
+    /**
+     * A method which returns the number of entries dropped, overwritten in a full ring or too old to play
+     *
+     * @return the number of dropped entries
+     */
+    public synchronized int getDroppedCount() {
+        return droppedCount;
+    }
+
+    public void setClock( Clock clock ) {
+        this.clock = clock;
+    }
+
+    public void setSoundAvailable( boolean soundAvailable ) {
+        this.soundAvailable = soundAvailable;
+    }
+
+    public void setMaxAge( long maxAge ) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * A method to set the registry the dropped entries are counted in
+     *
+     * @param diagnostics the diagnostics registry
+     */
+    public void setDiagnostics( Diagnostics diagnostics ) {
+        droppedCounter = diagnostics.getCounter( "dropped feedback" );
+    }
+
+}
@@ -0,0 +1,170 @@
+package main.object;
+
+import main.resource.Constants;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * The dimensions of the field we play on, given at runtime instead of being fixed to the competition field.
+ *
+ * The field is a grid of rows by columns squares. The origin is the first gridline intersection from
+ * corner one, so the field spans one square below and left of it, and each corner is described by the
+ * square it starts in and the first gridline intersection in front of that square.
+ *
+ * The field of a match is read from a small file on the brick, so the robot plays on another field without
+ * being built again. A value that is missing from the file or cannot be a field is taken from the competition
+ * field.
+ *
+ * @author JohnWu
+ */
+public class FieldGeometry {
+
+    private static final String ROWS_KEY = "rows";
+    private static final String COLUMNS_KEY = "columns";
+    private static final String SQUARE_LENGTH_KEY = "squareLength";
+
+    // properties
+    private int rows;
+    private int columns;
+    private double squareLength;
+
+    /**
+     * Main initialization method
+     *
+     * @param rows the number of rows of squares, at least two
+     * @param columns the number of columns of squares, at least two
+     * @param squareLength the length of a square
+     */
+    public FieldGeometry( int rows, int columns, double squareLength ) {
+        if ( rows < 2 || columns < 2 ) {
+            throw new IllegalArgumentException( "A field needs at least two rows and two columns" );
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.squareLength = squareLength;
+    }
+
+    /**
+     * A method that returns the geometry of the competition field
+     *
+     * @return the default field geometry
+     */
+    public static FieldGeometry getDefault() {
+        return new FieldGeometry( Constants.FIELD_ROWS, Constants.FIELD_COLUMNS, Constants.SQUARE_LENGTH );
+    }
+
+    /**
+     * A method that reads the field to play on from the brick
+     *
+     * @param path the field file
+     * @return the field in the file, or the competition field for any value that is missing or out of range
+     */
+    public static FieldGeometry load( String path ) {
+        Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream( path );
+            properties.load( in );
+        } catch ( IOException e ) {
+            // no field was given, so we play on the competition field
+            return getDefault();
+        } finally {
+            if ( in != null ) {
+                try { in.close(); } catch( IOException e ){}
+            }
+        }
+        int rows = parseSquares( properties.getProperty( ROWS_KEY ), Constants.FIELD_ROWS );
+        int columns = parseSquares( properties.getProperty( COLUMNS_KEY ), Constants.FIELD_COLUMNS );
+        double squareLength = parseLength( properties.getProperty( SQUARE_LENGTH_KEY ) );
+        return new FieldGeometry( rows, columns, squareLength );
+    }
+
+    private static int parseSquares( String value, int competition ) {
+        if ( value == null ) {
+            return competition;
+        }
+        try {
+            int squares = Integer.parseInt( value.trim() );
+            return squares >= 2 ? squares : competition;
+        } catch ( NumberFormatException e ) {
+            return competition;
+        }
+    }
+
+    private static double parseLength( String value ) {
+        if ( value == null ) {
+            return Constants.SQUARE_LENGTH;
+        }
+        try {
+            double length = Double.parseDouble( value.trim() );
+            return length > 0 ? length : Constants.SQUARE_LENGTH;
+        } catch ( NumberFormatException e ) {
+            return Constants.SQUARE_LENGTH;
+        }
+    }
+
+    /**
+     * A method that returns the row of the square a corner starts in
+     *
+     * @param corner the corner, from 1 to 4
+     * @return the row of the corner square
+     */
+    public int getCornerRow( int corner ) {
+        return corner == 3 || corner == 4 ? rows - 1 : 0;
+    }
+
+    /**
+     * A method that returns the column of the square a corner starts in
+     *
+     * @param corner the corner, from 1 to 4
+     * @return the column of the corner square
+     */
+    public int getCornerColumn( int corner ) {
+        return corner == 2 || corner == 3 ? columns - 1 : 0;
+    }
+
+    /**
+     * A method that returns the x coordinate of the first gridline intersection from a corner
+     *
+     * @param corner the corner, from 1 to 4
+     * @return the x coordinate of the intersection
+     */
+    public double getCornerX( int corner ) {
+        return corner == 2 || corner == 3 ? ( columns - 2 )*squareLength : 0.0;
+    }
+
+    /**
+     * A method that returns the y coordinate of the first gridline intersection from a corner
+     *
+     * @param corner the corner, from 1 to 4
+     * @return the y coordinate of the intersection
+     */
+    public double getCornerY( int corner ) {
+        return corner == 3 || corner == 4 ? ( rows - 2 )*squareLength : 0.0;
+    }
+
+    /**
+     * A method that creates an empty compact mapping of this field
+     *
+     * @return a grid with every square forbidden
+     */
+    public FieldGrid createGrid() {
+        return new FieldGrid( rows, columns, squareLength );
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public double getSquareLength() {
+        return squareLength;
+    }
+
+}
@@ -0,0 +1,304 @@
+package main.object;
+
+/**
+ * A compact representation of our field that stores which squares are allowed in bitsets.
+ *
+ * Each row is stored in whole longs, one bit per square, and a transposed copy stores each column the
+ * same way, so a run of squares along a row or a column is checked a word at a time. The gridline
+ * positions of a square are computed from its indices instead of being stored.
+ *
+ * @author JohnWu
+ */
+public class FieldGrid {
+
+    // properties
+    private int rows;
+    private int columns;
+    private double squareLength;
+    private int wordsPerRow;
+    private int wordsPerColumn;
+    private long[] rowBits;
+    private long[] columnBits;
+
+    /**
+     * Main initialization method, every square starts forbidden
+     *
+     * @param rows the number of rows of squares
+     * @param columns the number of columns of squares
+     * @param squareLength the length of a square
+     */
+    public FieldGrid( int rows, int columns, double squareLength ) {
+        this.rows = rows;
+        this.columns = columns;
+        this.squareLength = squareLength;
+        this.wordsPerRow = ( columns + 63 ) >>> 6;
+        this.wordsPerColumn = ( rows + 63 ) >>> 6;
+        this.rowBits = new long[rows*wordsPerRow];
+        this.columnBits = new long[columns*wordsPerColumn];
+    }
+
+    /**
+     * A copy constructor
+     *
+     * @param grid the grid to copy
+     */
+    public FieldGrid( FieldGrid grid ) {
+        this.rows = grid.rows;
+        this.columns = grid.columns;
+        this.squareLength = grid.squareLength;
+        this.wordsPerRow = grid.wordsPerRow;
+        this.wordsPerColumn = grid.wordsPerColumn;
+        this.rowBits = grid.rowBits.clone();
+        this.columnBits = grid.columnBits.clone();
+    }
+
+    /**
+     * A method that determines if a square is allowed
+     *
+     * @param row the row of the square
+     * @param column the column of the square
+     * @return whether the square is allowed
+     */
+    public boolean isAllowed( int row, int column ) {
+        return ( rowBits[row*wordsPerRow + ( column >>> 6 )] & ( 1L << column ) ) != 0;
+    }
+
+    /**
+     * A method that determines if a square is allowed
+     *
+     * @param cell the square encoded as row * columns + column
+     * @return whether the square is allowed
+     */
+    public boolean isAllowed( int cell ) {
+        return isAllowed( cell / columns, cell % columns );
+    }
+
+    /**
+     * A method that determines if every square between two columns of a row is allowed
+     *
+     * @param row the row of the squares
+     * @param fromColumn the first column, inclusive
+     * @param toColumn the last column, inclusive
+     * @return whether all the squares are allowed
+     */
+    public boolean isRowSegmentAllowed( int row, int fromColumn, int toColumn ) {
+        return isRangeSet( rowBits, row*wordsPerRow, Math.min( fromColumn, toColumn ), Math.max( fromColumn, toColumn ) );
+    }
+
+    /**
+     * A method that determines if every square between two rows of a column is allowed
+     *
+     * @param column the column of the squares
+     * @param fromRow the first row, inclusive
+     * @param toRow the last row, inclusive
+     * @return whether all the squares are allowed
+     */
+    public boolean isColumnSegmentAllowed( int column, int fromRow, int toRow ) {
+        return isRangeSet( columnBits, column*wordsPerColumn, Math.min( fromRow, toRow ), Math.max( fromRow, toRow ) );
+    }
+
+    /**
+     * A method that allows or forbids a single square
+     *
+     * @param row the row of the square
+     * @param column the column of the square
+     * @param allowed whether the square is allowed
+     */
+    public void setAllowed( int row, int column, boolean allowed ) {
+        setRectangle( row, row, column, column, allowed );
+    }
+
+    /**
+     * A method that allows or forbids every square of a rectangle
+     *
+     * @param fromRow the first row, inclusive
+     * @param toRow the last row, inclusive
+     * @param fromColumn the first column, inclusive
+     * @param toColumn the last column, inclusive
+     * @param allowed whether the squares are allowed
+     */
+    public void setRectangle( int fromRow, int toRow, int fromColumn, int toColumn, boolean allowed ) {
+        fromRow = Math.max( 0, fromRow );
+        toRow = Math.min( rows - 1, toRow );
+        fromColumn = Math.max( 0, fromColumn );
+        toColumn = Math.min( columns - 1, toColumn );
+        if ( fromRow > toRow || fromColumn > toColumn ) {
+            return;
+        }
+        for ( int i = fromRow; i <= toRow; i++ ) {
+            setRange( rowBits, i*wordsPerRow, fromColumn, toColumn, allowed );
+        }
+        for ( int k = fromColumn; k <= toColumn; k++ ) {
+            setRange( columnBits, k*wordsPerColumn, fromRow, toRow, allowed );
+        }
+    }
+
+    /**
+     * A method that counts the allowed squares
+     *
+     * @return the number of allowed squares
+     */
+    public int countAllowed() {
+        int count = 0;
+        for ( long word : rowBits ) {
+            count += Long.bitCount( word );
+        }
+        return count;
+    }
+
+    /**
+     * A method that returns the position of the north gridline of a row
+     *
+     * @param row the row of the square
+     * @return the y coordinate of its north gridline
+     */
+    public double getNorthPosition( int row ) {
+        return row*squareLength;
+    }
+
+    /**
+     * A method that returns the position of the south gridline of a row
+     *
+     * @param row the row of the square
+     * @return the y coordinate of its south gridline
+     */
+    public double getSouthPosition( int row ) {
+        return ( row - 1 )*squareLength;
+    }
+
+    /**
+     * A method that returns the position of the east gridline of a column
+     *
+     * @param column the column of the square
+     * @return the x coordinate of its east gridline
+     */
+    public double getEastPosition( int column ) {
+        return column*squareLength;
+    }
+
+    /**
+     * A method that returns the position of the west gridline of a column
+     *
+     * @param column the column of the square
+     * @return the x coordinate of its west gridline
+     */
+    public double getWestPosition( int column ) {
+        return ( column - 1 )*squareLength;
+    }
+
+    /**
+     * A method that encodes a square as a single int
+     *
+     * @param row the row of the square
+     * @param column the column of the square
+     * @return the square encoded as row * columns + column
+     */
+    public int encodeCell( int row, int column ) {
+        return row*columns + column;
+    }
+
+    /**
+     * A method that returns the square containing a position, clamped to the field
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the square containing the position
+     */
+    public int getCell( double x, double y ) {
+        int row = (int) Math.floor( y / squareLength ) + 1;
+        int column = (int) Math.floor( x / squareLength ) + 1;
+        row = Math.max( 0, Math.min( rows - 1, row ) );
+        column = Math.max( 0, Math.min( columns - 1, column ) );
+        return row*columns + column;
+    }
+
+    /**
+     * A method that returns the x coordinate of the middle of a square
+     *
+     * @param cell the square
+     * @return the x coordinate of its middle
+     */
+    public double getCellX( int cell ) {
+        return ( cell % columns - 0.5 )*squareLength;
+    }
+
+    /**
+     * A method that returns the y coordinate of the middle of a square
+     *
+     * @param cell the square
+     * @return the y coordinate of its middle
+     */
+    public double getCellY( int cell ) {
+        return ( cell / columns - 0.5 )*squareLength;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public double getSquareLength() {
+        return squareLength;
+    }
+
+    /**
+     * A method that determines if every bit of a range is set
+     *
+     * @param bits the bitset
+     * @param offset the first word of the row or column
+     * @param from the first bit, inclusive
+     * @param to the last bit, inclusive
+     * @return whether every bit is set
+     */
+    private static boolean isRangeSet( long[] bits, int offset, int from, int to ) {
+        int fromWord = from >>> 6;
+        int toWord = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> ( 63 - ( to & 63 ) );
+        if ( fromWord == toWord ) {
+            long mask = firstMask & lastMask;
+            return ( bits[offset + fromWord] & mask ) == mask;
+        }
+        if ( ( bits[offset + fromWord] & firstMask ) != firstMask ) {
+            return false;
+        }
+        for ( int word = fromWord + 1; word < toWord; word++ ) {
+            if ( bits[offset + word] != -1L ) {
+                return false;
+            }
+        }
+        return ( bits[offset + toWord] & lastMask ) == lastMask;
+    }
+
+    /**
+     * A method that sets or clears every bit of a range
+     *
+     * @param bits the bitset
+     * @param offset the first word of the row or column
+     * @param from the first bit, inclusive
+     * @param to the last bit, inclusive
+     * @param value whether to set or clear the bits
+     */
+    private static void setRange( long[] bits, int offset, int from, int to, boolean value ) {
+        int fromWord = from >>> 6;
+        int toWord = to >>> 6;
+        for ( int word = fromWord; word <= toWord; word++ ) {
+            long mask = -1L;
+            if ( word == fromWord ) {
+                mask &= -1L << from;
+            }
+            if ( word == toWord ) {
+                mask &= -1L >>> ( 63 - ( to & 63 ) );
+            }
+            if ( value ) {
+                bits[offset + word] |= mask;
+            } else {
+                bits[offset + word] &= ~mask;
+            }
+        }
+    }
+
+}
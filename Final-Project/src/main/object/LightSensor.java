@@ -2,20 +2,26 @@ package main.object;
 
 import lejos.robotics.SampleProvider;
 import main.resource.Constants;
+import main.util.Counter;
+import main.util.Task;
 
 /**
- * An object that represents a Light Sensor
+ * An object that represents a Light Sensor, sampled by the executor every light sensor period
  *
  * @author JohnWu
  */
-public class LightSensor extends Thread {
+public class LightSensor extends Task {
 
     // objects
     private SampleProvider sensor;
+    private Tuning tuning = new Tuning();
+    private Counter sampleCounter;
+    private Task lineTask;
 
     // variables
     private float[] data;
-    private boolean lineDetected = false;
+    private volatile boolean lineDetected = false;
+    private volatile boolean onLine = false;
 
     /**
      * Our main constructor method
@@ -23,18 +29,28 @@ public class LightSensor extends Thread {
      * @param sensor the light sensor EV3 object used in the vehicle
      */
     public LightSensor( SampleProvider sensor ) {
+        super( "light sensor", Task.PRIORITY_CRITICAL, Constants.LIGHT_SENSOR_PERIOD, Constants.LIGHT_SENSOR_PERIOD );
         this.sensor = sensor;
         this.data = new float[sensor.sampleSize()];
     }
 
     /**
-     * Main thread
+     * Takes one sample, releasing the line task when a line is first seen
      */
-    public void run() {
-        while ( true ) {
-            sensor.fetchSample(data, 0);
-            if( data[0] < Constants.LOWER_LIGHT_THRESHOLD ) {
-                lineDetected = true;
+    protected void execute() {
+        sensor.fetchSample(data, 0);
+        if ( sampleCounter != null ) {
+            sampleCounter.increment();
+        }
+        if ( data[0] < tuning.getLowerLightThreshold() ) {
+            onLine = true;
+        } else if ( data[0] > Constants.UPPER_LIGHT_THRESHOLD ) {
+            onLine = false;
+        }
+        if( data[0] < tuning.getLowerLightThreshold() && !lineDetected ) {
+            lineDetected = true;
+            if ( lineTask != null ) {
+                lineTask.release();
             }
         }
     }
@@ -48,6 +64,16 @@ public class LightSensor extends Thread {
         return lineDetected;
     }
 
+    /**
+     * A method which determines if the sensor is over a line now, leaving it only once the reflectance is back
+     * above the upper threshold
+     *
+     * @return whether the sensor is on a line
+     */
+    public boolean isOnLine() {
+        return onLine;
+    }
+
     /**
      * A method to set our lineDetected boolean value
      *
@@ -56,4 +82,32 @@ public class LightSensor extends Thread {
     public void setLineDetected( boolean lineDetected ) {
         this.lineDetected = lineDetected;
     }
+
+    /**
+     * A method to set the tuning that holds the reflectance below which a line is detected
+     *
+     * @param tuning the tuning
+     */
+    public void setTuning( Tuning tuning ) {
+        this.tuning = tuning;
+    }
+
+    /**
+     * A method to set the task that is released whenever a line is seen, instead of it polling the sensor
+     *
+     * @param lineTask the task to release
+     */
+    public void setLineTask( Task lineTask ) {
+        this.lineTask = lineTask;
+    }
+
+    /**
+     * A method to set the counter every sample is counted with
+     *
+     * @param sampleCounter the counter
+     */
+    public void setSampleCounter( Counter sampleCounter ) {
+        this.sampleCounter = sampleCounter;
+    }
+
 }
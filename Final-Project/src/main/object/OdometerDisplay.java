@@ -3,16 +3,33 @@ package main.object;
 import lejos.hardware.lcd.TextLCD;
 import main.controller.Odometer;
 import main.resource.Constants;
+import main.util.Task;
 
 /**
  * An object class that outputs values to our odometry display
  *
+ * The values are formatted into a frame of characters that is kept between refreshes, and only the characters
+ * that changed since the last frame are sent to the screen, so a refresh allocates nothing and writes little. The
+ * executor refreshes it every display period at low priority, so it never holds up the odometer.
+ *
  * @author JohnWu
  */
-public class OdometerDisplay extends Thread {
+public class OdometerDisplay extends Task {
+
+    private static final String[] LABELS = { "X:", "Y:", "T:" };
+    private static final boolean[] UPDATE_ALL = { true, true, true };
+
+    // the column the values start at and the width of a line
+    private static final int VALUE_COLUMN = 3;
+    private static final int LINE_WIDTH = 16;
+
     private Odometer odometer;
     private TextLCD t;
 
+    private boolean cleared = false;
+    private double[] position = new double[3];
+    private ScreenFrame frame = new ScreenFrame(0, LABELS.length, LINE_WIDTH);
+
     /**
      * Our main constructor class
      *
@@ -20,96 +37,53 @@ public class OdometerDisplay extends Thread {
      * @param textLCD the LCD Screen
      */
     public OdometerDisplay(Odometer odometer, TextLCD textLCD) {
+        super("odometer display", Task.PRIORITY_LOW, Constants.DISPLAY_PERIOD, Constants.DISPLAY_PERIOD);
         this.odometer = odometer;
         this.t = textLCD;
     }
 
     /**
-     * The main thread
+     * Refreshes the screen, clearing it the first time
      */
-    public void run() {
-        long displayStart, displayEnd;
-        double[] position = new double[3];
-
-        // clear the display once
-        t.clear();
-
-        while (true) {
-            displayStart = System.currentTimeMillis();
-
-            // clear the lines for displaying odometry information
-            t.drawString("X:              ", 0, 0);
-            t.drawString("Y:              ", 0, 1);
-            t.drawString("T:              ", 0, 2);
-
-            // get the odometry information
-            odometer.updatePosition(position, new boolean[] { true, true, true });
-
-            // display odometry information
-            for (int i = 0; i < 3; i++) {
-                t.drawString(formattedDoubleToString(position[i], 2), 3, i);
-            }
-
-            // throttle the OdometerDisplay
-            displayEnd = System.currentTimeMillis();
-            if (displayEnd - displayStart < Constants.ODOMETER_PERIOD) {
-                try {
-                    Thread.sleep(Constants.ODOMETER_PERIOD - (displayEnd - displayStart));
-                } catch (InterruptedException e) {
-                    // there is nothing to be done here because it is not
-                    // expected that OdometerDisplay will be interrupted
-                    // by another thread
-                }
-            }
+    protected void execute() {
+        if (!cleared) {
+            clearScreen();
+            cleared = true;
         }
+        refresh();
     }
 
     /**
-     * A method which formats the double value to properly be displayed on the screen
-     *
-     * @param x the double value to be formatted
-     * @param places the amount of decimal places
-     * @return
+     * A method that clears the screen and draws the labels, forgetting the last frame
      */
-    private static String formattedDoubleToString(double x, int places) {
-        String result = "";
-        String stack = "";
-        long t;
-
-        // put in a minus sign as needed
-        if (x < 0.0)
-            result += "-";
-
-        // put in a leading 0
-        if (-1.0 < x && x < 1.0)
-            result += "0";
-        else {
-            t = (long)x;
-            if (t < 0)
-                t = -t;
-
-            while (t > 0) {
-                stack = Long.toString(t % 10) + stack;
-                t /= 10;
-            }
-
-            result += stack;
+    public void clearScreen() {
+        t.clear();
+        frame.reset();
+        for (int i = 0; i < LABELS.length; i++) {
+            frame.write(i, 0, LABELS[i]);
         }
+    }
 
-        // put the decimal, if needed
-        if (places > 0) {
-            result += ".";
+    /**
+     * A method that formats the odometer values into the frame and sends the characters that changed to the screen
+     */
+    public void refresh() {
+        odometer.updatePosition(position, UPDATE_ALL);
 
-            // put the appropriate number of decimals
-            for (int i = 0; i < places; i++) {
-                x = Math.abs(x);
-                x = x - Math.floor(x);
-                x *= 10.0;
-                result += Long.toString((long)x);
-            }
+        for (int i = 0; i < LABELS.length; i++) {
+            frame.clearFrom(i, frame.write(i, VALUE_COLUMN, position[i], 2));
         }
+        frame.flush(t);
+    }
 
-        return result;
+    /**
+     * A method to set how often the screen is refreshed, independently of the odometer period
+     *
+     * @param displayPeriod the refresh period in milliseconds
+     */
+    public void setDisplayPeriod(long displayPeriod) {
+        setPeriod(displayPeriod);
+        setDeadline(displayPeriod);
     }
 
-}
\ No newline at end of file
+}
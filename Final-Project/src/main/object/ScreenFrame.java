@@ -0,0 +1,168 @@
+package main.object;
+
+import lejos.hardware.lcd.TextLCD;
+
+/**
+ * A block of lines of the screen kept as characters between refreshes. Text and numbers are written into the
+ * frame without allocating, and only the characters that changed since the last flush are sent to the screen.
+ *
+ * @author JohnWu
+ */
+public class ScreenFrame {
+
+    // room in a line for the longest value a double can be formatted to, only the width is shown
+    private static final int LINE_CAPACITY = 48;
+
+    // properties
+    private int firstLine;
+    private int width;
+
+    // variables
+    private char[][] frame;
+    private char[][] shown;
+
+    /**
+     * Main initialization method
+     *
+     * @param firstLine the line of the screen the frame starts on
+     * @param lines the number of lines in the frame
+     * @param width the number of characters of each line shown
+     */
+    public ScreenFrame( int firstLine, int lines, int width ) {
+        this.firstLine = firstLine;
+        this.width = width;
+        this.frame = new char[lines][LINE_CAPACITY];
+        this.shown = new char[lines][width];
+        reset();
+    }
+
+    /**
+     * A method that blanks the frame and forgets what is on the screen, for after the screen was cleared
+     */
+    public void reset() {
+        for ( int i = 0; i < frame.length; i++ ) {
+            for ( int j = 0; j < LINE_CAPACITY; j++ ) {
+                frame[i][j] = ' ';
+            }
+            for ( int j = 0; j < width; j++ ) {
+                shown[i][j] = ' ';
+            }
+        }
+    }
+
+    /**
+     * A method that writes text into a line of the frame
+     *
+     * @param line the line of the frame
+     * @param column the column to start at
+     * @param text the text, cut at the end of the line
+     * @return the column after the text
+     */
+    public int write( int line, int column, String text ) {
+        int length = Math.min( text.length(), LINE_CAPACITY - column );
+        text.getChars( 0, length, frame[line], column );
+        return column + length;
+    }
+
+    /**
+     * A method that writes a number into a line of the frame
+     *
+     * @param line the line of the frame
+     * @param column the column to start at
+     * @param x the number
+     * @param places the amount of decimal places
+     * @return the column after the number
+     */
+    public int write( int line, int column, double x, int places ) {
+        return formatDouble( x, places, frame[line], column );
+    }
+
+    /**
+     * A method that blanks a line of the frame from a column to its end
+     *
+     * @param line the line of the frame
+     * @param column the first column to blank
+     */
+    public void clearFrom( int line, int column ) {
+        for ( int j = column; j < width; j++ ) {
+            frame[line][j] = ' ';
+        }
+    }
+
+    /**
+     * A method that sends the characters that changed since the last flush to the screen
+     *
+     * @param t the screen
+     * @return the number of characters sent
+     */
+    public int flush( TextLCD t ) {
+        int sent = 0;
+        for ( int i = 0; i < frame.length; i++ ) {
+            char[] line = frame[i];
+            char[] last = shown[i];
+            for ( int j = 0; j < width; j++ ) {
+                if ( line[j] != last[j] ) {
+                    t.drawChar( line[j], j, firstLine + i );
+                    last[j] = line[j];
+                    sent++;
+                }
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * A method which formats the double value to properly be displayed on the screen, truncating the decimals
+     *
+     * @param x the double value to be formatted
+     * @param places the amount of decimal places
+     * @param buffer the characters to write into
+     * @param offset the index of the first character to write
+     * @return the index after the last character written
+     */
+    public static int formatDouble( double x, int places, char[] buffer, int offset ) {
+        int end = offset;
+
+        // put in a minus sign as needed
+        if ( x < 0.0 ) {
+            buffer[end++] = '-';
+        }
+
+        // put in a leading 0
+        if ( -1.0 < x && x < 1.0 ) {
+            buffer[end++] = '0';
+        } else {
+            long t = (long) x;
+            if ( t < 0 ) {
+                t = -t;
+            }
+
+            // count the digits, then write them from the last one back
+            int digits = 0;
+            for ( long rest = t; rest > 0; rest /= 10 ) {
+                digits++;
+            }
+            for ( int i = end + digits - 1; i >= end; i-- ) {
+                buffer[i] = (char) ( '0' + t % 10 );
+                t /= 10;
+            }
+            end += digits;
+        }
+
+        // put the decimal, if needed
+        if ( places > 0 ) {
+            buffer[end++] = '.';
+
+            // put the appropriate number of decimals
+            for ( int i = 0; i < places; i++ ) {
+                x = Math.abs( x );
+                x = x - Math.floor( x );
+                x *= 10.0;
+                buffer[end++] = (char) ( '0' + (long) x );
+            }
+        }
+
+        return end;
+    }
+
+}
@@ -0,0 +1,127 @@
+package main.object;
+
+import main.resource.Constants;
+
+/**
+ * The thresholds and speeds the controllers drive and correct with. They start from the constants, but are kept
+ * in an object so that the simulator can try other values without recompiling the robot.
+ *
+ * @author JohnWu
+ */
+public class Tuning {
+
+    // properties
+    private volatile double lowerLightThreshold = Constants.LOWER_LIGHT_THRESHOLD;
+    private volatile double localizationNoiseMargin = Constants.LOCALIZATION_NOISE_MARGIN;
+    private volatile double pointReachedThreshold = Constants.POINT_REACHED_THRESHOLD;
+    private volatile long colorSensorHoldTime = Constants.COLOR_SENSOR_HOLD_TIME;
+    private volatile int driveSpeed = Constants.VEHICLE_ROTATE_SPEED;
+    private volatile int correctionSpeed = Constants.VEHICLE_FORWARD_SPEED_LOW;
+    private volatile int rotateSpeed = Constants.VEHICLE_ROTATE_SPEED;
+
+    public double getLowerLightThreshold() {
+        return lowerLightThreshold;
+    }
+
+    public void setLowerLightThreshold( double lowerLightThreshold ) {
+        this.lowerLightThreshold = lowerLightThreshold;
+    }
+
+    public double getLocalizationNoiseMargin() {
+        return localizationNoiseMargin;
+    }
+
+    public void setLocalizationNoiseMargin( double localizationNoiseMargin ) {
+        this.localizationNoiseMargin = localizationNoiseMargin;
+    }
+
+    public double getPointReachedThreshold() {
+        return pointReachedThreshold;
+    }
+
+    public void setPointReachedThreshold( double pointReachedThreshold ) {
+        this.pointReachedThreshold = pointReachedThreshold;
+    }
+
+    public long getColorSensorHoldTime() {
+        return colorSensorHoldTime;
+    }
+
+    public void setColorSensorHoldTime( long colorSensorHoldTime ) {
+        this.colorSensorHoldTime = colorSensorHoldTime;
+    }
+
+    /**
+     * @return the speed the vehicle drives between lines with
+     */
+    public int getDriveSpeed() {
+        return driveSpeed;
+    }
+
+    public void setDriveSpeed( int driveSpeed ) {
+        this.driveSpeed = driveSpeed;
+    }
+
+    /**
+     * @return the speed a single wheel creeps up to a line with, and the vehicle drives a set distance with
+     */
+    public int getCorrectionSpeed() {
+        return correctionSpeed;
+    }
+
+    public void setCorrectionSpeed( int correctionSpeed ) {
+        this.correctionSpeed = correctionSpeed;
+    }
+
+    /**
+     * @return the speed the vehicle turns on the spot with
+     */
+    public int getRotateSpeed() {
+        return rotateSpeed;
+    }
+
+    public void setRotateSpeed( int rotateSpeed ) {
+        this.rotateSpeed = rotateSpeed;
+    }
+
+    /**
+     * A method that sets one value by the name of its property
+     *
+     * @param name the property name, e.g. lowerLightThreshold
+     * @param value the value to set
+     * @throws IllegalArgumentException if there is no such property
+     */
+    public void set( String name, String value ) {
+        if ( name.equals( "lowerLightThreshold" ) ) {
+            setLowerLightThreshold( Double.parseDouble( value ) );
+        } else if ( name.equals( "localizationNoiseMargin" ) ) {
+            setLocalizationNoiseMargin( Double.parseDouble( value ) );
+        } else if ( name.equals( "pointReachedThreshold" ) ) {
+            setPointReachedThreshold( Double.parseDouble( value ) );
+        } else if ( name.equals( "colorSensorHoldTime" ) ) {
+            setColorSensorHoldTime( Long.parseLong( value ) );
+        } else if ( name.equals( "driveSpeed" ) ) {
+            setDriveSpeed( Integer.parseInt( value ) );
+        } else if ( name.equals( "correctionSpeed" ) ) {
+            setCorrectionSpeed( Integer.parseInt( value ) );
+        } else if ( name.equals( "rotateSpeed" ) ) {
+            setRotateSpeed( Integer.parseInt( value ) );
+        } else {
+            throw new IllegalArgumentException( "Unknown tuning property " + name );
+        }
+    }
+
+    /**
+     * @return the values as name=value pairs that set() reads back
+     */
+    public String toString() {
+        return "lowerLightThreshold=" + lowerLightThreshold
+                + " localizationNoiseMargin=" + localizationNoiseMargin
+                + " pointReachedThreshold=" + pointReachedThreshold
+                + " colorSensorHoldTime=" + colorSensorHoldTime
+                + " driveSpeed=" + driveSpeed
+                + " correctionSpeed=" + correctionSpeed
+                + " rotateSpeed=" + rotateSpeed;
+    }
+
+}
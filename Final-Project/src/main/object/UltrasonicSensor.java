@@ -2,20 +2,25 @@ package main.object;
 
 import lejos.robotics.SampleProvider;
 import main.resource.Constants;
+import main.util.Counter;
+import main.util.Task;
 
 /**
- * An object class that represents an ultrasonic sensor
+ * An object class that represents an ultrasonic sensor, sampled by the executor every reading period. The
+ * controllers that use the sensor share one and read its latest filtered distance, so the sensor is sampled once
+ * however many of them run.
  *
  * @author JohnWu
  */
-public class UltrasonicSensor extends Thread {
+public class UltrasonicSensor extends Task {
 
     // objects
     private SampleProvider sensor;
+    private Counter sampleCounter;
 
     // variables
     private float[] data;
-    private boolean running = true;
+    private volatile float distance = Constants.ULTRASONICSENSOR_MAX_DISTANCE;
 
     /**
      * Our main constructor method
@@ -23,37 +28,47 @@ public class UltrasonicSensor extends Thread {
      * @param sensor the ultrasonic sensor EV3 object used in the robot
      */
     public UltrasonicSensor( SampleProvider sensor ) {
+        super( "ultrasonic sensor", Task.PRIORITY_NORMAL, Constants.ULTRASONICSENSOR_SENSOR_READING_PERIOD,
+                Constants.ULTRASONICSENSOR_SENSOR_READING_PERIOD );
         this.sensor = sensor;
         this.data = new float[sensor.sampleSize()];
     }
 
     /**
-     * Main thread
+     * Takes one sample
      */
-    public void run() {
-        while ( true ) {
-            if ( running ) {
-                sensor.fetchSample( data, 0 );
-                try { Thread.sleep( Constants.ULTRASONICSENSOR_SENSOR_READING_PERIOD ); } catch( Exception e ){}
-            }
+    protected void execute() {
+        fetchSample();
+    }
+
+    /**
+     * A method that takes a sample, which getFilteredSensorData() returns until the next one
+     */
+    public void fetchSample() {
+        sensor.fetchSample( data, 0 );
+        float filtered = data[0]*100 + Constants.FORWARD_SENSOR_DISTANCE;
+        distance = filtered > Constants.ULTRASONICSENSOR_MAX_DISTANCE ? Constants.ULTRASONICSENSOR_MAX_DISTANCE : filtered;
+        if ( sampleCounter != null ) {
+            sampleCounter.increment();
         }
     }
 
     /**
-     * A method that stops our thread
+     * A method to set the counter every sample is counted with
+     *
+     * @param sampleCounter the counter
      */
-    public void stopRunning() {
-        running = false;
+    public void setSampleCounter( Counter sampleCounter ) {
+        this.sampleCounter = sampleCounter;
     }
 
     /**
-     * A method which filters our data for the distance
+     * A method which returns the filtered distance of the latest sample, safe to call from any thread
      *
-     * @return filtered distance data
+     * @return filtered distance data, the maximum distance until the first sample
      */
     public float getFilteredSensorData() {
-        float distance = data[0]*100 + Constants.FORWARD_SENSOR_DISTANCE;
-        return distance > Constants.ULTRASONICSENSOR_MAX_DISTANCE ? Constants.ULTRASONICSENSOR_MAX_DISTANCE : distance;
+        return distance;
     }
 
 }
@@ -32,6 +32,11 @@ public class Constants {
      */
     public static final long ODOMETER_PERIOD = 10;
 
+    /**
+     * Odometer display refresh period, in milliseconds
+     */
+    public static final long DISPLAY_PERIOD = 100;
+
     /**
      * Track length of vehicle, in centimetres
      */
@@ -57,6 +62,11 @@ public class Constants {
      */
     public static final double LOCALIZATION_NOISE_MARGIN = 3;
 
+    /**
+     * Most ultrasonic readings kept by one localization sweep, more than a full turn at rotate speed takes
+     */
+    public static final int LOCALIZATION_MAX_READINGS = 2048;
+
     /**
      * Sensor reading distance filter (max distance)
      */
@@ -92,17 +102,350 @@ public class Constants {
      */
     public static final double POINT_REACHED_THRESHOLD = 0.5;
 
-    public static final double CORNER_ONE_X = 0.0;
-    public static final double CORNER_ONE_Y = 0.0;
-    public static final double CORNER_ONE_THETA = Math.PI/2;
-    public static final double CORNER_TWO_X = 10*SQUARE_LENGTH;
-    public static final double CORNER_TWO_Y = 0.0;
-    public static final double CORNER_TWO_THETA = 0.0;
-    public static final double CORNER_THREE_X = 10*SQUARE_LENGTH;
-    public static final double CORNER_THREE_Y = 10*SQUARE_LENGTH;
-    public static final double CORNER_THREE_THETA = (3*Math.PI)/2;
-    public static final double CORNER_FOUR_X = 0.0;
-    public static final double CORNER_FOUR_Y = 10*SQUARE_LENGTH;
-    public static final double CORNER_FOUR_THETA = Math.PI;
+    /**
+     * Lateral distance from the middle of the vehicle to each light sensor (cm)
+     */
+    public static final double LIGHT_SENSOR_LATERAL_OFFSET = 5.5;
+
+    /**
+     * Distance from the wheel axle forward to the light sensors (cm)
+     */
+    public static final double LIGHT_SENSOR_LONGITUDINAL_OFFSET = 5.0;
+
+    /**
+     * Distance driven past the first gridline before the light localization sweep (cm)
+     */
+    public static final double LIGHT_LOCALIZATION_APPROACH_DISTANCE = 7.5;
+
+    /**
+     * Angle the vehicle must turn before a light sensor may record another line crossing (rad)
+     */
+    public static final double LIGHT_LOCALIZATION_CROSSING_HOLD_ANGLE = Math.PI/12;
+
+    /**
+     * Maximum angle of the light localization sweep before giving up (rad)
+     */
+    public static final double LIGHT_LOCALIZATION_MAX_SWEEP_ANGLE = 2*Math.PI;
+
+    /**
+     * Maximum disagreement between the light localization result and its seed position (cm)
+     */
+    public static final double LIGHT_LOCALIZATION_VERIFY_MARGIN = 6;
+
+    /**
+     * Light localization sensor polling interval (ms)
+     */
+    public static final long LIGHT_LOCALIZATION_READING_PERIOD = 5;
+
+    /**
+     * Ultrasonic distance under which the square ahead is marked as blocked (cm)
+     */
+    public static final double OBSTACLE_DETECTION_DISTANCE = 25;
+
+    /**
+     * Distance from the field walls inside which an ultrasonic echo is taken to be the wall (cm)
+     */
+    public static final double OBSTACLE_WALL_MARGIN = 5;
+
+    /**
+     * Ultrasonic distance within which the squares the sensor sees past are cleared of obstacles (cm)
+     */
+    public static final double OBSTACLE_CLEAR_DISTANCE = 60;
+
+    /**
+     * Obstacle detection reading interval (ms)
+     */
+    public static final long OBSTACLE_DETECTION_PERIOD = 50;
+
+    /**
+     * Log-odds added to the square an ultrasonic reading ends in
+     */
+    public static final float OCCUPANCY_LOG_ODDS_OCCUPIED = 0.85f;
+
+    /**
+     * Log-odds added to the squares an ultrasonic reading passes through
+     */
+    public static final float OCCUPANCY_LOG_ODDS_FREE = -0.4f;
+
+    /**
+     * Largest magnitude of the log-odds of a square, so it can still change
+     */
+    public static final float OCCUPANCY_LOG_ODDS_LIMIT = 4.0f;
+
+    /**
+     * Log-odds magnitude over which a square is taken to be occupied or free (about 70%)
+     */
+    public static final float OCCUPANCY_LOG_ODDS_THRESHOLD = 0.85f;
+
+    /**
+     * Occupancy mapping reading interval (ms)
+     */
+    public static final long OCCUPANCY_MAPPING_PERIOD = 30;
+
+    /**
+     * Number of particles of the particle filter
+     */
+    public static final int PARTICLE_COUNT = 300;
+
+    /**
+     * Seed of the particle filter random numbers, so runs can be repeated
+     */
+    public static final long PARTICLE_FILTER_SEED = 11;
+
+    /**
+     * Standard deviation of a particle's driven distance, as a fraction of the distance
+     */
+    public static final double PARTICLE_DISTANCE_NOISE = 0.05;
+
+    /**
+     * Standard deviation of a particle's heading change per odometry step (rad)
+     */
+    public static final double PARTICLE_THETA_NOISE = 0.002;
+
+    /**
+     * Standard deviation of a light sensor's distance to the gridline it crossed (cm)
+     */
+    public static final double PARTICLE_LINE_SIGMA = 1.5;
+
+    /**
+     * Standard deviation of an ultrasonic range to a wall (cm)
+     */
+    public static final double PARTICLE_RANGE_SIGMA = 4;
+
+    /**
+     * Likelihood added to every measurement, for readings the field walls do not explain
+     */
+    public static final double PARTICLE_LIKELIHOOD_FLOOR = 0.05;
+
+    /**
+     * Fraction of the particles under which the effective particle count triggers resampling
+     */
+    public static final double PARTICLE_RESAMPLE_RATIO = 0.5;
+
+    /**
+     * Standard deviation of the particles' position around the odometer position they start from (cm)
+     */
+    public static final double PARTICLE_INITIAL_POSITION_SPREAD = 3;
+
+    /**
+     * Standard deviation of the particles' heading around the odometer heading they start from (rad)
+     */
+    public static final double PARTICLE_INITIAL_HEADING_SPREAD = Math.PI/36;
+
+    /**
+     * Particle filter update interval (ms)
+     */
+    public static final long PARTICLE_LOCALIZATION_PERIOD = 20;
+
+    /**
+     * Variance added to the pose estimate per centimetre turned by a wheel (cm^2/cm)
+     */
+    public static final double EKF_WHEEL_NOISE = 0.02;
+
+    /**
+     * Variance of a light sensor's position when it crosses a gridline (cm^2)
+     */
+    public static final double EKF_LINE_VARIANCE = 1.0;
+
+    /**
+     * Variance of an ultrasonic range to a field wall (cm^2)
+     */
+    public static final double EKF_RANGE_VARIANCE = 16.0;
+
+    /**
+     * Squared number of standard deviations past which a measurement is rejected as an outlier
+     */
+    public static final double EKF_GATE = 9.0;
+
+    /**
+     * Variance of a position coordinate right after it is set by localization or correction (cm^2)
+     */
+    public static final double EKF_RESET_VARIANCE = 0.25;
+
+    /**
+     * Variance of the heading right after it is set by localization or correction (rad^2)
+     */
+    public static final double EKF_HEADING_RESET_VARIANCE = 0.0003;
+
+    /**
+     * Position uncertainty over which the vehicle stops to align on a gridline (cm)
+     */
+    public static final double EKF_CORRECTION_STOP_POSITION = 2.0;
+
+    /**
+     * Heading uncertainty over which the vehicle stops to align on a gridline (rad)
+     */
+    public static final double EKF_CORRECTION_STOP_HEADING = Math.PI/60;
+
+    /**
+     * Time to wait for the second light sensor to cross a line without stopping (ms)
+     */
+    public static final long LINE_CROSSING_PAIR_WINDOW = 500;
+
+    /**
+     * Number of wall distance table cells along each side of a square
+     */
+    public static final int WALL_TABLE_RESOLUTION = 3;
+
+    /**
+     * Number of heading bins of the wall distance table
+     */
+    public static final int WALL_TABLE_HEADING_BINS = 64;
+
+    /**
+     * Distance by which an ultrasonic echo may be farther than the expected wall (cm)
+     */
+    public static final double WALL_CHECK_TOLERANCE = 15;
+
+    /**
+     * Number of disagreeing ultrasonic readings in a row that trigger relocalization
+     */
+    public static final int WALL_CHECK_DISAGREEMENTS = 5;
+
+    /**
+     * Number of times relocalization is tried before the vehicle carries on with the odometer as it is
+     */
+    public static final int RELOCALIZATION_ATTEMPTS = 2;
+
+    /**
+     * File on the brick that keeps the calibrated wheel radius and track length
+     */
+    public static final String CALIBRATION_FILE = "calibration.properties";
+
+    /**
+     * File on the brick that gives the rows, columns and square length of the field to play on
+     */
+    public static final String FIELD_GEOMETRY_FILE = "field.properties";
+
+    /**
+     * File on the brick that the diagnostics snapshot is exported to after the match
+     */
+    public static final String DIAGNOSTICS_FILE = "diagnostics.csv";
+
+    /**
+     * Most counters, and most latency histograms, the diagnostics registry holds
+     */
+    public static final int DIAGNOSTICS_MAX_ENTRIES = 16;
+
+    /**
+     * Time each counter or histogram is shown on the diagnostics page, in milliseconds
+     */
+    public static final long DIAGNOSTICS_PAGE_PERIOD = 2000;
+
+    /**
+     * File on the brick that the event trace is dumped to on exit
+     */
+    public static final String TRACE_FILE = "trace.bin";
+
+    /**
+     * Number of events the event trace keeps, a power of two
+     */
+    public static final int TRACE_CAPACITY = 8192;
+
+    /**
+     * Number of sound cues and status messages waiting to be played or shown before the oldest is dropped
+     */
+    public static final int FEEDBACK_CAPACITY = 8;
+
+    /**
+     * Time a sound cue or status message may wait before it is dropped instead of played late, in milliseconds
+     */
+    public static final long FEEDBACK_MAX_AGE = 1000;
+
+    /**
+     * Number of odometer updates between pose snapshots in the event trace
+     */
+    public static final int TRACE_POSE_INTERVAL = 10;
+
+    /**
+     * File on the brick that the log is written to, the rotated files getting a number appended
+     */
+    public static final String LOG_FILE = "robot.log";
+
+    /**
+     * Number of log records waiting to be written before new ones are dropped, a power of two
+     */
+    public static final int LOG_CAPACITY = 256;
+
+    /**
+     * Size a log file may grow to before it is rotated, in bytes
+     */
+    public static final long LOG_FILE_SIZE = 64*1024;
+
+    /**
+     * Number of rotated log files kept next to the current one
+     */
+    public static final int LOG_FILE_COUNT = 2;
+
+    /**
+     * Time between the batches of records written to the log file, in milliseconds
+     */
+    public static final long LOG_FLUSH_PERIOD = 1000;
+
+    /**
+     * Longest time the warm-up before the match runs for, in milliseconds
+     */
+    public static final long WARM_UP_TIME = 10000;
+
+    /**
+     * Number of rounds the warm-up runs the hot paths for before it checks if the compiler is done
+     */
+    public static final int WARM_UP_ROUNDS = 200;
+
+    /**
+     * Number of rounds in a row the compiler must have had nothing to do for the warm-up to end
+     */
+    public static final int WARM_UP_QUIET_ROUNDS = 20;
+
+    /**
+     * Longest time an executor worker with nothing released sleeps before looking again, in milliseconds
+     */
+    public static final long EXECUTOR_IDLE_PERIOD = 100;
+
+    /**
+     * Light sensor sampling period, in milliseconds
+     */
+    public static final long LIGHT_SENSOR_PERIOD = 2;
+
+    /**
+     * Time from a line being seen to the odometer correction having acted on it, in milliseconds
+     */
+    public static final long CORRECTION_DEADLINE = 10;
+
+    /**
+     * Period the odometer correction repeats its wheel command with while squaring up on a line, in milliseconds
+     */
+    public static final long CORRECTION_COMMAND_PERIOD = 10;
+
+    /**
+     * Period the navigator checks its progress along a leg, and on a correction that holds it up, with, in
+     * milliseconds
+     */
+    public static final long NAVIGATION_PERIOD = 5;
+
+    /**
+     * Period the buttons are checked for an emergency stop with, in milliseconds
+     */
+    public static final long BUTTON_POLL_PERIOD = 50;
+
+    /**
+     * Largest fraction by which a calibrated value may differ from the measured constant
+     */
+    public static final double CALIBRATION_MAX_DEVIATION = 0.1;
+
+    /**
+     * Number of straight drives or turns needed before a calibrated value is used
+     */
+    public static final int CALIBRATION_MIN_SAMPLES = 3;
+
+    /**
+     * Number of rows of squares of the competition field
+     */
+    public static final int FIELD_ROWS = 12;
+
+    /**
+     * Number of columns of squares of the competition field
+     */
+    public static final int FIELD_COLUMNS = 12;
 
 }
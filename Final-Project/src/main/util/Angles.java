@@ -0,0 +1,35 @@
+package main.util;
+
+/**
+ * The angle arithmetic shared by the controllers and the estimators, in radians.
+ *
+ * @author JohnWu
+ */
+public final class Angles {
+
+    private Angles() {
+    }
+
+    /**
+     * A method that normalizes an angle to [0, 2pi)
+     *
+     * @param angle the angle
+     * @return the normalized angle
+     */
+    public static double normalize( double angle ) {
+        angle %= 2*Math.PI;
+        return angle < 0 ? angle + 2*Math.PI : angle;
+    }
+
+    /**
+     * A method that wraps an angle to [-pi, pi), for differences between headings
+     *
+     * @param angle the angle
+     * @return the wrapped angle
+     */
+    public static double wrap( double angle ) {
+        angle = normalize( angle );
+        return angle >= Math.PI ? angle - 2*Math.PI : angle;
+    }
+
+}
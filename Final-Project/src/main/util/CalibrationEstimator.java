@@ -0,0 +1,177 @@
+package main.util;
+
+import main.object.Calibration;
+import main.resource.Constants;
+
+/**
+ * An estimator of the wheel radius and track length from the gridline alignments the vehicle makes during the
+ * match, so that the calibration follows the wheels as they wear and the floor changes.
+ *
+ * Every alignment leaves the vehicle square to a gridline with a known heading. Between two alignments with the
+ * same heading the vehicle drove straight a whole number of squares, which gives the wheel radius from the
+ * wheel rotation. Between two alignments with different headings the vehicle turned a whole number of quarter
+ * turns, which gives the track length from the difference of the wheel arcs. Both are least squares fits over
+ * all the samples, and a sample that odometry disagrees with by more than a square or an eighth of a turn is
+ * thrown away.
+ *
+ * @author JohnWu
+ */
+public class CalibrationEstimator {
+
+    // properties
+    private Calibration calibration;
+    private double squareLength;
+
+    // variables
+    private boolean aligned;
+    private int lastLeftTachoCount, lastRightTachoCount;
+    private double lastX, lastY;
+    private int lastQuadrant;
+    private double radiusNumerator, radiusDenominator;
+    private double trackNumerator, trackDenominator;
+    private int straightSamples, turnSamples;
+
+    /**
+     * Main initialization method
+     *
+     * @param calibration the calibration used by odometry, which samples are checked against
+     * @param squareLength the length of a square
+     */
+    public CalibrationEstimator( Calibration calibration, double squareLength ) {
+        this.calibration = calibration;
+        this.squareLength = squareLength;
+    }
+
+    /**
+     * A method that records the vehicle aligned on a gridline
+     *
+     * @param leftTachoCount the tacho count of the left motor
+     * @param rightTachoCount the tacho count of the right motor
+     * @param x the x coordinate of the vehicle
+     * @param y the y coordinate of the vehicle
+     * @param theta the heading of the vehicle, square to the gridline
+     */
+    public synchronized void recordAlignment( int leftTachoCount, int rightTachoCount, double x, double y, double theta ) {
+        int quadrant = calculateQuadrant( theta );
+        if ( aligned ) {
+            double leftAngle = Math.toRadians( leftTachoCount - lastLeftTachoCount );
+            double rightAngle = Math.toRadians( rightTachoCount - lastRightTachoCount );
+            double predictedTurn = ( leftAngle - rightAngle )*calibration.getWheelRadius()/calibration.getTrackLength();
+            long quarterTurns = Math.round( predictedTurn/( Math.PI/2 ) );
+            // the quarter turns counted by odometry have to end on the heading we aligned on
+            if ( Math.abs( predictedTurn - quarterTurns*Math.PI/2 ) < Math.PI/4
+                    && ( ( lastQuadrant + quarterTurns ) % 4 + 4 ) % 4 == quadrant ) {
+                if ( quarterTurns == 0 ) {
+                    addStraightSample( ( leftAngle + rightAngle )/2, quadrant % 2 == 0 ? y - lastY : x - lastX );
+                } else {
+                    addTurnSample( leftAngle - rightAngle, quarterTurns*Math.PI/2 );
+                }
+            }
+        }
+        aligned = true;
+        lastLeftTachoCount = leftTachoCount;
+        lastRightTachoCount = rightTachoCount;
+        lastX = x;
+        lastY = y;
+        lastQuadrant = quadrant;
+    }
+
+    /**
+     * A method that adds a straight drive between two gridlines
+     *
+     * @param wheelAngle the mean rotation of the wheels in radians
+     * @param displacement the displacement along the heading measured by odometry
+     */
+    private void addStraightSample( double wheelAngle, double displacement ) {
+        double squares = Math.rint( Math.abs( displacement )/squareLength );
+        if ( squares < 1 || Math.abs( wheelAngle ) < 1e-9 ) {
+            return;
+        }
+        double distance = squares*squareLength;
+        // a detour that came back onto the same heading shows up as a longer drive than the gridlines allow
+        if ( Math.abs( Math.abs( wheelAngle )*calibration.getWheelRadius() - distance ) > Constants.CALIBRATION_MAX_DEVIATION*distance ) {
+            return;
+        }
+        radiusNumerator += Math.abs( wheelAngle )*distance;
+        radiusDenominator += wheelAngle*wheelAngle;
+        straightSamples++;
+    }
+
+    /**
+     * A method that adds a turn between two headings
+     *
+     * @param angleDifference the rotation of the left wheel minus the right wheel in radians
+     * @param turn the heading change
+     */
+    private void addTurnSample( double angleDifference, double turn ) {
+        // kept in wheel radians so that the track length follows the latest wheel radius
+        trackNumerator += angleDifference*turn;
+        trackDenominator += turn*turn;
+        turnSamples++;
+    }
+
+    /**
+     * A method that calculates which of the four gridline headings the vehicle is on
+     *
+     * @param theta the heading of the vehicle
+     * @return 0 for north, 1 for east, 2 for south and 3 for west
+     */
+    private int calculateQuadrant( double theta ) {
+        int quadrant = (int) ( Math.round( theta/( Math.PI/2 ) ) % 4 );
+        return quadrant < 0 ? quadrant + 4 : quadrant;
+    }
+
+    /**
+     * A method that returns the estimated wheel radius
+     *
+     * @return the wheel radius, or the calibrated one until there are enough samples
+     */
+    public synchronized double getWheelRadius() {
+        if ( straightSamples < Constants.CALIBRATION_MIN_SAMPLES ) {
+            return calibration.getWheelRadius();
+        }
+        return radiusNumerator/radiusDenominator;
+    }
+
+    /**
+     * A method that returns the estimated track length
+     *
+     * @return the track length, or the calibrated one until there are enough samples
+     */
+    public synchronized double getTrackLength() {
+        if ( turnSamples < Constants.CALIBRATION_MIN_SAMPLES ) {
+            return calibration.getTrackLength();
+        }
+        return getWheelRadius()*trackNumerator/trackDenominator;
+    }
+
+    /**
+     * A method that copies every estimate with enough samples into a calibration
+     *
+     * @param target the calibration to update
+     * @return whether any value was updated
+     */
+    public synchronized boolean apply( Calibration target ) {
+        boolean updated = false;
+        double wheelRadius = getWheelRadius();
+        if ( straightSamples >= Constants.CALIBRATION_MIN_SAMPLES && Calibration.isPlausible( wheelRadius, Constants.WHEEL_RADIUS ) ) {
+            target.setWheelRadius( wheelRadius );
+            updated = true;
+        }
+        double trackLength = getTrackLength();
+        if ( turnSamples >= Constants.CALIBRATION_MIN_SAMPLES && Calibration.isPlausible( trackLength, Constants.TRACK_LENGTH ) ) {
+            target.setTrackLength( trackLength );
+            updated = true;
+        }
+        return updated;
+    }
+
+    public synchronized int getStraightSamples() {
+        return straightSamples;
+    }
+
+    public synchronized int getTurnSamples() {
+        return turnSamples;
+    }
+
+}
@@ -0,0 +1,69 @@
+package main.util;
+
+/**
+ * The time and sleeping used by every controller thread, so that the threads can be run against a simulated or
+ * virtual clock instead of the wall clock of the brick.
+ *
+ * This class is the real clock. A stand-in overrides its methods.
+ *
+ * @author JohnWu
+ */
+public class Clock {
+
+    private static final Clock SYSTEM_CLOCK = new Clock();
+
+    /**
+     * A method that returns the wall clock of the brick
+     *
+     * @return the system clock
+     */
+    public static Clock getSystemClock() {
+        return SYSTEM_CLOCK;
+    }
+
+    /**
+     * A method that returns the current time
+     *
+     * @return the time (ms)
+     */
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * A method that makes the calling thread sleep, returning early if it is interrupted
+     *
+     * @param millis the time to sleep (ms)
+     */
+    public void sleep( long millis ) {
+        if ( millis <= 0 ) {
+            return;
+        }
+        try {
+            Thread.sleep( millis );
+        } catch ( InterruptedException e ) {
+            // there is nothing to be done here because it is not expected that
+            // a controller will be interrupted by another thread
+        }
+    }
+
+    /**
+     * A method that starts a thread which sleeps on the clock
+     *
+     * @param thread the thread
+     */
+    public void start( Thread thread ) {
+        thread.start();
+    }
+
+    /**
+     * A method that wakes a thread sleeping on the clock before its time, or cuts its next sleep short if it is
+     * not sleeping yet
+     *
+     * @param thread the thread
+     */
+    public void wake( Thread thread ) {
+        thread.interrupt();
+    }
+
+}
@@ -0,0 +1,51 @@
+package main.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named count of events, such as sensor samples, that any thread can add to without allocating.
+ *
+ * @author JohnWu
+ */
+public class Counter {
+
+    // properties
+    private String name;
+
+    // variables
+    private AtomicLong count = new AtomicLong();
+
+    /**
+     * Main initialization method
+     *
+     * @param name the name the count is shown and exported under
+     */
+    public Counter( String name ) {
+        this.name = name;
+    }
+
+    /**
+     * A method that counts one event
+     */
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    /**
+     * A method that counts a number of events at once
+     *
+     * @param events the number of events
+     */
+    public void add( long events ) {
+        count.addAndGet( events );
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+}
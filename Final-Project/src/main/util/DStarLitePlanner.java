@@ -0,0 +1,328 @@
+package main.util;
+
+import main.object.FieldGrid;
+
+/**
+ * An incremental route planner using D* Lite over a copy of our field mapping.
+ *
+ * The search runs backwards from the goal, so when the robot moves only the heuristic offset changes, and
+ * when an obstacle blocks a square only the squares whose distance depended on it are searched again.
+ * Moves are 4-connected like the legs the Navigator drives.
+ *
+ * @author JohnWu
+ */
+public class DStarLitePlanner {
+
+    private static final int[] ROW_MOVES = { 1, 0, -1, 0 };
+    private static final int[] COLUMN_MOVES = { 0, 1, 0, -1 };
+    private static final int MOVE_COST = 10;
+    private static final int INFINITY = 1 << 28;
+
+    // properties
+    private FieldGrid grid;
+    private int rows;
+    private int columns;
+    private IntBinaryHeap openSet;
+    private int[] costs;
+    private int[] lookaheads;
+    private int start = -1;
+    private int lastStart;
+    private int goal = -1;
+    private int keyModifier;
+    private int routeVersion;
+
+    /**
+     * Main initialization method
+     *
+     * @param fieldMapper the mapping of our field, which is copied so that obstacles stay local to the planner
+     */
+    public DStarLitePlanner( FieldMapper fieldMapper ) {
+        this.grid = new FieldGrid( fieldMapper.getGrid() );
+        this.rows = grid.getRows();
+        this.columns = grid.getColumns();
+        int cells = rows*columns;
+        this.openSet = new IntBinaryHeap( cells );
+        this.costs = new int[cells];
+        this.lookaheads = new int[cells];
+    }
+
+    /**
+     * A method that starts planning towards a new goal
+     *
+     * @param goal the square of our destination
+     * @param start the square the robot is in
+     */
+    public synchronized void setGoal( int goal, int start ) {
+        this.goal = goal;
+        this.start = start;
+        this.lastStart = start;
+        this.keyModifier = 0;
+        openSet.clear();
+        for ( int i = 0; i < costs.length; i++ ) {
+            costs[i] = INFINITY;
+            lookaheads[i] = INFINITY;
+        }
+        lookaheads[goal] = 0;
+        openSet.insert( goal, calculateKey( goal ) );
+        computeShortestPath();
+        routeVersion++;
+    }
+
+    /**
+     * A method that tells the planner the robot has moved. The robot's square is passable even when it is
+     * blocked, so that the robot can always step out of an obstacle it drove into or a square it is not allowed
+     * in, and stops being passable once the robot has left it.
+     *
+     * @param cell the square the robot is in now
+     */
+    public synchronized void moveStart( int cell ) {
+        if ( cell == start || goal == -1 ) {
+            return;
+        }
+        keyModifier += calculateHeuristic( lastStart, cell );
+        lastStart = cell;
+        int previous = start;
+        start = cell;
+        if ( !grid.isAllowed( previous ) ) {
+            updateVertex( previous );
+        }
+        if ( !grid.isAllowed( cell ) ) {
+            updateVertex( cell );
+        }
+        computeShortestPath();
+    }
+
+    /**
+     * A method that marks a square as blocked by an obstacle and repairs the route. The goal is never blocked,
+     * since there would be nowhere left to go; what is seen in it is left for the vehicle to stop short of.
+     *
+     * @param cell the blocked square
+     * @return whether the square was not known to be blocked before
+     */
+    public synchronized boolean markBlocked( int cell ) {
+        if ( cell == goal || !grid.isAllowed( cell ) ) {
+            return false;
+        }
+        grid.setAllowed( cell / columns, cell % columns, false );
+        if ( goal != -1 ) {
+            updateAround( cell );
+            computeShortestPath();
+        }
+        routeVersion++;
+        return true;
+    }
+
+    /**
+     * A method that clears an obstacle from a square that is allowed in the field mapping
+     *
+     * @param cell the square to clear
+     * @param fieldMapper the mapping of our field
+     * @return whether the square was blocked by an obstacle before
+     */
+    public synchronized boolean clearBlocked( int cell, FieldMapper fieldMapper ) {
+        if ( grid.isAllowed( cell ) || !fieldMapper.getGrid().isAllowed( cell ) ) {
+            return false;
+        }
+        grid.setAllowed( cell / columns, cell % columns, true );
+        if ( goal != -1 ) {
+            updateAround( cell );
+            computeShortestPath();
+        }
+        routeVersion++;
+        return true;
+    }
+
+    /**
+     * A method that returns the next square to drive to from the robot's square. It is the farthest square of
+     * the route that can be reached with one x leg and one y leg.
+     *
+     * @return the next square, the goal when the robot is in it, or -1 when there is no route
+     */
+    public synchronized int getNextWaypoint() {
+        if ( goal == -1 || lookaheads[start] >= INFINITY ) {
+            return -1;
+        }
+        int waypoint = start;
+        int cell = start;
+        int steps = 0;
+        while ( cell != goal && steps++ < costs.length ) {
+            cell = getBestSuccessor( cell );
+            if ( cell == -1 ) {
+                return -1;
+            }
+            if ( !hasLineOfSight( start, cell ) ) {
+                break;
+            }
+            waypoint = cell;
+        }
+        return waypoint;
+    }
+
+    /**
+     * A method that returns the cost of the route from the robot's square to the goal
+     *
+     * @return the cost, ten per move, or -1 when there is no route
+     */
+    public synchronized int getRouteCost() {
+        if ( goal == -1 || lookaheads[start] >= INFINITY ) {
+            return -1;
+        }
+        return lookaheads[start];
+    }
+
+    /**
+     * The main D* Lite loop, expands squares until the robot's square is consistent
+     */
+    private void computeShortestPath() {
+        while ( !openSet.isEmpty() && ( openSet.peekKey() < calculateKey( start ) || lookaheads[start] > costs[start] ) ) {
+            int cell = openSet.peek();
+            long oldKey = openSet.peekKey();
+            long newKey = calculateKey( cell );
+            if ( oldKey < newKey ) {
+                openSet.update( cell, newKey );
+            } else if ( costs[cell] > lookaheads[cell] ) {
+                costs[cell] = lookaheads[cell];
+                openSet.remove( cell );
+                updateNeighbours( cell );
+            } else {
+                costs[cell] = INFINITY;
+                updateVertex( cell );
+                updateNeighbours( cell );
+            }
+        }
+    }
+
+    /**
+     * A method that recomputes a square and every neighbour after the cost of its edges changed
+     *
+     * @param cell the changed square
+     */
+    private void updateAround( int cell ) {
+        updateVertex( cell );
+        updateNeighbours( cell );
+    }
+
+    /**
+     * A method that recomputes every neighbour of a square
+     *
+     * @param cell the square
+     */
+    private void updateNeighbours( int cell ) {
+        int row = cell / columns;
+        int column = cell % columns;
+        for ( int move = 0; move < 4; move++ ) {
+            int nextRow = row + ROW_MOVES[move];
+            int nextColumn = column + COLUMN_MOVES[move];
+            if ( nextRow >= 0 && nextRow < rows && nextColumn >= 0 && nextColumn < columns ) {
+                updateVertex( nextRow*columns + nextColumn );
+            }
+        }
+    }
+
+    /**
+     * A method that recomputes the one step lookahead of a square and queues it when it is inconsistent
+     *
+     * @param cell the square
+     */
+    private void updateVertex( int cell ) {
+        if ( cell != goal ) {
+            int best = getBestSuccessor( cell );
+            lookaheads[cell] = best == -1 ? INFINITY : Math.min( INFINITY, MOVE_COST + costs[best] );
+        }
+        if ( costs[cell] != lookaheads[cell] ) {
+            openSet.update( cell, calculateKey( cell ) );
+        } else {
+            openSet.remove( cell );
+        }
+    }
+
+    /**
+     * A method that returns the neighbour of a square with the lowest cost to the goal
+     *
+     * @param cell the square
+     * @return the best neighbour, or -1 when every neighbour is blocked
+     */
+    private int getBestSuccessor( int cell ) {
+        if ( !grid.isAllowed( cell ) && cell != start ) {
+            return -1;
+        }
+        int row = cell / columns;
+        int column = cell % columns;
+        int best = -1;
+        int bestCost = INFINITY;
+        for ( int move = 0; move < 4; move++ ) {
+            int nextRow = row + ROW_MOVES[move];
+            int nextColumn = column + COLUMN_MOVES[move];
+            if ( nextRow < 0 || nextRow >= rows || nextColumn < 0 || nextColumn >= columns
+                    || !grid.isAllowed( nextRow, nextColumn ) ) {
+                continue;
+            }
+            int next = nextRow*columns + nextColumn;
+            if ( costs[next] < bestCost ) {
+                bestCost = costs[next];
+                best = next;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A method that determines whether the robot can drive between two squares along x and then along y
+     *
+     * @param from the square we start from, which may be blocked
+     * @param to the square we drive to
+     * @return whether the way between the squares is clear
+     */
+    public boolean hasLineOfSight( int from, int to ) {
+        int fromRow = from / columns;
+        int fromColumn = from % columns;
+        int toRow = to / columns;
+        int toColumn = to % columns;
+        int columnStep = toColumn > fromColumn ? 1 : -1;
+        if ( fromColumn != toColumn && !grid.isRowSegmentAllowed( fromRow, fromColumn + columnStep, toColumn ) ) {
+            return false;
+        }
+        int rowStep = toRow > fromRow ? 1 : -1;
+        return fromRow == toRow || grid.isColumnSegmentAllowed( toColumn, fromRow + rowStep, toRow );
+    }
+
+    /**
+     * A method that calculates the priority of a square, compared on its first part and then its second
+     *
+     * @param cell the square
+     * @return both parts of the key packed into one long
+     */
+    private long calculateKey( int cell ) {
+        int cost = Math.min( costs[cell], lookaheads[cell] );
+        return ( (long) ( cost + calculateHeuristic( start, cell ) + keyModifier ) << 32 ) | cost;
+    }
+
+    /**
+     * A method that estimates the cost between two squares without overestimating it
+     *
+     * @param from the first square
+     * @param to the second square
+     * @return the estimated cost
+     */
+    private int calculateHeuristic( int from, int to ) {
+        return MOVE_COST*( Math.abs( from / columns - to / columns ) + Math.abs( from % columns - to % columns ) );
+    }
+
+    /**
+     * A method that returns the version of the route, which changes whenever the goal or an obstacle changes
+     *
+     * @return the route version
+     */
+    public synchronized int getRouteVersion() {
+        return routeVersion;
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    public FieldGrid getGrid() {
+        return grid;
+    }
+
+}
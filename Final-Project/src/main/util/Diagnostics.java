@@ -0,0 +1,167 @@
+package main.util;
+
+import main.resource.Constants;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * The registry of the counters and latency histograms the controllers update while the robot runs, so that the
+ * timing of the threads on the brick can be looked at on the screen and after the match.
+ *
+ * Controllers take their counters and histograms from the registry once, when they are set up, and then update
+ * them without allocating. Taking one by a name that is already registered gives the same one back, so several
+ * objects can add to the same count.
+ *
+ * @author JohnWu
+ */
+public class Diagnostics {
+
+    // properties
+    private Clock clock;
+    private long startTime;
+
+    // variables
+    private Counter[] counters = new Counter[Constants.DIAGNOSTICS_MAX_ENTRIES];
+    private int counterCount;
+    private LatencyHistogram[] histograms = new LatencyHistogram[Constants.DIAGNOSTICS_MAX_ENTRIES];
+    private int histogramCount;
+
+    /**
+     * Main initialization method
+     *
+     * @param clock the clock the rates are measured on, from now
+     */
+    public Diagnostics( Clock clock ) {
+        this.clock = clock;
+        this.startTime = clock.currentTimeMillis();
+    }
+
+    /**
+     * A method that returns the counter with a name, registering it the first time
+     *
+     * @param name the name of the counter
+     * @return the counter
+     */
+    public synchronized Counter getCounter( String name ) {
+        for ( int i = 0; i < counterCount; i++ ) {
+            if ( counters[i].getName().equals( name ) ) {
+                return counters[i];
+            }
+        }
+        if ( counterCount == counters.length ) {
+            throw new IllegalStateException( "Too many counters for " + name );
+        }
+        counters[counterCount] = new Counter( name );
+        return counters[counterCount++];
+    }
+
+    /**
+     * A method that returns the histogram with a name, registering it the first time
+     *
+     * @param name the name of the histogram
+     * @return the histogram
+     */
+    public synchronized LatencyHistogram getHistogram( String name ) {
+        for ( int i = 0; i < histogramCount; i++ ) {
+            if ( histograms[i].getName().equals( name ) ) {
+                return histograms[i];
+            }
+        }
+        if ( histogramCount == histograms.length ) {
+            throw new IllegalStateException( "Too many histograms for " + name );
+        }
+        histograms[histogramCount] = new LatencyHistogram( name );
+        return histograms[histogramCount++];
+    }
+
+    public synchronized int getCounterCount() {
+        return counterCount;
+    }
+
+    public synchronized Counter getCounter( int index ) {
+        return counters[index];
+    }
+
+    public synchronized int getHistogramCount() {
+        return histogramCount;
+    }
+
+    public synchronized LatencyHistogram getHistogram( int index ) {
+        return histograms[index];
+    }
+
+    /**
+     * A method that returns how long the registry has been counting
+     *
+     * @return the uptime (ms)
+     */
+    public long getUptime() {
+        return clock.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * A method that returns how often a counter counted since the registry was created
+     *
+     * @param counter the counter
+     * @return the rate (per second)
+     */
+    public double getRate( Counter counter ) {
+        long uptime = getUptime();
+        return uptime <= 0 ? 0 : counter.getCount()*1000.0/uptime;
+    }
+
+    /**
+     * A method that writes every counter and histogram as comma separated values, a row each
+     *
+     * @param out where to write to
+     */
+    public void writeSnapshot( PrintWriter out ) {
+        out.println( "# uptime " + getUptime() + " ms" );
+        StringBuilder header = new StringBuilder( "type,name,count,rate,mean,p50,p95,max" );
+        for ( int bucket = 0; bucket < LatencyHistogram.getBucketCount(); bucket++ ) {
+            long bound = LatencyHistogram.getBucketBound( bucket );
+            header.append( bound == Long.MAX_VALUE ? ",more" : ",le" + bound );
+        }
+        out.println( header );
+        for ( int i = 0; i < getCounterCount(); i++ ) {
+            Counter counter = getCounter( i );
+            out.println( "counter," + counter.getName() + "," + counter.getCount() + ","
+                    + String.format( "%.2f", getRate( counter ) ) + ",,,," );
+        }
+        for ( int i = 0; i < getHistogramCount(); i++ ) {
+            LatencyHistogram histogram = getHistogram( i );
+            StringBuilder row = new StringBuilder( "histogram," + histogram.getName() + "," + histogram.getCount()
+                    + ",," + String.format( "%.2f", histogram.getMean() ) + "," + histogram.getPercentile( 50 ) + ","
+                    + histogram.getPercentile( 95 ) + "," + histogram.getMax() );
+            for ( int bucket = 0; bucket < LatencyHistogram.getBucketCount(); bucket++ ) {
+                row.append( ',' ).append( histogram.getBucketCount( bucket ) );
+            }
+            out.println( row );
+        }
+        out.flush();
+    }
+
+    /**
+     * A method that saves a snapshot of every counter and histogram on the brick
+     *
+     * @param path the file to write
+     * @return whether the file was written
+     */
+    public boolean export( String path ) {
+        PrintWriter out = null;
+        try {
+            out = new PrintWriter( new FileWriter( path ) );
+            writeSnapshot( out );
+            return !out.checkError();
+        } catch ( IOException e ) {
+            return false;
+        } finally {
+            if ( out != null ) {
+                out.close();
+            }
+        }
+    }
+
+}
@@ -1,31 +1,62 @@
 package main.util;
 
 import lejos.hardware.Button;
+import main.resource.Constants;
 
 /**
- * A class to stop our code in emergency situations
+ * A class to stop our code in emergency situations, dumping the event trace and writing out the log first so
+ * that what led up to the stop can be looked at. The executor checks the buttons every button poll period at low priority.
  *
  * @author JohnWu
  */
-public class EmergencyStopper extends Thread {
+public class EmergencyStopper extends Task {
+
+    // objects
+    private EventTrace trace;
+    private String tracePath;
+    private Log log;
 
     /**
      * The main constructor class
      */
     public EmergencyStopper() {
-
+        super( "emergency stopper", Task.PRIORITY_LOW, Constants.BUTTON_POLL_PERIOD, Constants.BUTTON_POLL_PERIOD );
     }
 
     /**
-     * The main thread
+     * Stops when any button is pressed
      */
-    public void run() {
-        while (true) {
-            Button.waitForAnyPress();
+    protected void execute() {
+        if ( Button.readButtons() != 0 ) {
+            if ( trace != null ) {
+                trace.dump( tracePath );
+            }
+            if ( log != null ) {
+                log.info( "emergency stopper", "stopped by button" );
+                log.close();
+            }
             System.exit(0);
         }
     }
 
+    /**
+     * A method to set the trace that is dumped before stopping
+     *
+     * @param trace the event trace
+     * @param tracePath the file to dump it to
+     */
+    public void setTrace( EventTrace trace, String tracePath ) {
+        this.trace = trace;
+        this.tracePath = tracePath;
+    }
 
+    /**
+     * A method to set the log that is written out before stopping
+     *
+     * @param log the log
+     */
+    public void setLog( Log log ) {
+        this.log = log;
+    }
 
 }
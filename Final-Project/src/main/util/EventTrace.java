@@ -0,0 +1,306 @@
+package main.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size ring of small typed events that the controller threads record into, to see what happened and
+ * when without printing or beeping, which both change the timing being looked at.
+ *
+ * Recording an event takes the next slot with one atomic increment and writes the event into arrays allocated up
+ * front, so it takes no lock and allocates nothing. Once the ring is full the oldest events are overwritten. The
+ * ring is dumped to a binary file, which is decoded on the desktop into a timeline.
+ *
+ * @author JohnWu
+ */
+public class EventTrace {
+
+    // event types
+    public static final int LINE_DETECTED = 1;
+    public static final int CORRECTION_START = 2;
+    public static final int CORRECTION_END = 3;
+    public static final int DRIVING_CORRECTION = 4;
+    public static final int MOTOR_COMMAND = 5;
+    public static final int POSE = 6;
+    public static final int ROUTE_REPAIRED = 7;
+    public static final int RELOCALIZATION = 8;
+
+    // motor commands
+    public static final int COMMAND_STOP = 0;
+    public static final int COMMAND_FORWARD = 1;
+    public static final int COMMAND_TURN = 2;
+    public static final int COMMAND_ROTATE = 3;
+    public static final int COMMAND_LEFT_WHEEL = 4;
+    public static final int COMMAND_RIGHT_WHEEL = 5;
+    public static final int COMMAND_DRIVE_DISTANCE = 6;
+
+    private static final String[] TYPE_NAMES = { "UNKNOWN", "LINE_DETECTED", "CORRECTION_START", "CORRECTION_END",
+            "DRIVING_CORRECTION", "MOTOR_COMMAND", "POSE", "ROUTE_REPAIRED", "RELOCALIZATION" };
+    private static final String[] COMMAND_NAMES = { "stop", "forward", "turn", "rotate", "left wheel",
+            "right wheel", "drive distance" };
+
+    // "EVTR", then the version of the file layout
+    private static final int MAGIC = 0x45565452;
+    private static final int VERSION = 1;
+
+    // properties
+    private int capacity;
+    private int mask;
+    private long startTime;
+
+    // variables
+    private AtomicLong cursor = new AtomicLong();
+    private AtomicLongArray published;
+    private long[] times;
+    private int[] types;
+    private int[] threads;
+    private float[] a, b, c;
+
+    /**
+     * Main initialization method, allocates the whole ring
+     *
+     * @param capacity the number of events kept, a power of two
+     */
+    public EventTrace( int capacity ) {
+        if ( Integer.bitCount( capacity ) != 1 ) {
+            throw new IllegalArgumentException( "The capacity must be a power of two, not " + capacity );
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.startTime = System.nanoTime();
+        this.published = new AtomicLongArray( capacity );
+        for ( int i = 0; i < capacity; i++ ) {
+            published.set( i, -1 );
+        }
+        this.times = new long[capacity];
+        this.types = new int[capacity];
+        this.threads = new int[capacity];
+        this.a = new float[capacity];
+        this.b = new float[capacity];
+        this.c = new float[capacity];
+    }
+
+    /**
+     * A method that records an event with no values
+     *
+     * @param type the event type
+     */
+    public void record( int type ) {
+        record( type, 0, 0, 0 );
+    }
+
+    /**
+     * A method that records an event
+     *
+     * @param type the event type
+     * @param a the first value, its meaning depends on the type
+     * @param b the second value
+     * @param c the third value
+     */
+    public void record( int type, float a, float b, float c ) {
+        long sequence = cursor.getAndIncrement();
+        int slot = (int) sequence & mask;
+        // the slot is marked as being written so a dump never reads half of an event
+        published.set( slot, -1 );
+        times[slot] = System.nanoTime();
+        types[slot] = type;
+        threads[slot] = (int) Thread.currentThread().getId();
+        this.a[slot] = a;
+        this.b[slot] = b;
+        this.c[slot] = c;
+        published.lazySet( slot, sequence );
+    }
+
+    /**
+     * A method that returns how many events were recorded, including the ones overwritten since
+     *
+     * @return the event count
+     */
+    public long getRecordedCount() {
+        return cursor.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * A method that writes the events still in the ring, oldest first, skipping any being written at the time
+     *
+     * @param stream where to write to
+     * @return the number of events written
+     * @throws IOException if the stream cannot be written
+     */
+    public int dump( OutputStream stream ) throws IOException {
+        long end = cursor.get();
+        long begin = Math.max( 0, end - capacity );
+        Event[] events = new Event[(int) ( end - begin )];
+        int count = 0;
+        for ( long sequence = begin; sequence < end; sequence++ ) {
+            int slot = (int) sequence & mask;
+            if ( published.get( slot ) != sequence ) {
+                continue;
+            }
+            Event event = new Event( times[slot] - startTime, types[slot], threads[slot], a[slot], b[slot], c[slot] );
+            if ( published.get( slot ) == sequence ) {
+                events[count++] = event;
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( stream ) );
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+        out.writeLong( end );
+        out.writeInt( count );
+        for ( int i = 0; i < count; i++ ) {
+            Event event = events[i];
+            out.writeLong( event.getTime() );
+            out.writeInt( event.getType() );
+            out.writeInt( event.getThread() );
+            out.writeFloat( event.getA() );
+            out.writeFloat( event.getB() );
+            out.writeFloat( event.getC() );
+        }
+        out.flush();
+        return count;
+    }
+
+    /**
+     * A method that dumps the ring to a file on the brick
+     *
+     * @param path the file to write
+     * @return whether the file was written
+     */
+    public boolean dump( String path ) {
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream( path );
+            dump( out );
+            return true;
+        } catch ( IOException e ) {
+            return false;
+        } finally {
+            if ( out != null ) {
+                try { out.close(); } catch( IOException e ){}
+            }
+        }
+    }
+
+    /**
+     * A method that reads the events of a dump back
+     *
+     * @param stream the dump
+     * @return the events, oldest first
+     * @throws IOException if the stream is not a trace dump or cannot be read
+     */
+    public static List<Event> read( InputStream stream ) throws IOException {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( stream ) );
+        if ( in.readInt() != MAGIC ) {
+            throw new IOException( "Not an event trace" );
+        }
+        int version = in.readInt();
+        if ( version != VERSION ) {
+            throw new IOException( "Unsupported event trace version " + version );
+        }
+        in.readLong();
+        int count = in.readInt();
+        List<Event> events = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ ) {
+            events.add( new Event( in.readLong(), in.readInt(), in.readInt(), in.readFloat(), in.readFloat(),
+                    in.readFloat() ) );
+        }
+        return events;
+    }
+
+    /**
+     * A method that returns the name of an event type
+     *
+     * @param type the event type
+     * @return the name
+     */
+    public static String getTypeName( int type ) {
+        return type > 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : TYPE_NAMES[0];
+    }
+
+    /**
+     * One event read back from a dump
+     */
+    public static class Event {
+
+        private long time;
+        private int type;
+        private int thread;
+        private float a, b, c;
+
+        public Event( long time, int type, int thread, float a, float b, float c ) {
+            this.time = time;
+            this.type = type;
+            this.thread = thread;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+        }
+
+        /**
+         * A method that describes the values of the event according to its type
+         *
+         * @return the description
+         */
+        public String describe() {
+            switch ( type ) {
+                case LINE_DETECTED:
+                case DRIVING_CORRECTION:
+                    return ( a != 0 ? "left " : "" ) + ( b != 0 ? "right" : "" );
+                case CORRECTION_START:
+                case CORRECTION_END:
+                case POSE:
+                case RELOCALIZATION:
+                    return String.format( "x %.2f y %.2f theta %.1f deg", a, b, Math.toDegrees( c ) );
+                case MOTOR_COMMAND:
+                    int command = (int) a;
+                    return ( command >= 0 && command < COMMAND_NAMES.length ? COMMAND_NAMES[command] : "command " + command )
+                            + String.format( " left %.0f right %.0f", b, c );
+                default:
+                    return String.format( "%s %s %s", a, b, c );
+            }
+        }
+
+        /**
+         * @return the time since the trace was created (ns)
+         */
+        public long getTime() {
+            return time;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public int getThread() {
+            return thread;
+        }
+
+        public float getA() {
+            return a;
+        }
+
+        public float getB() {
+            return b;
+        }
+
+        public float getC() {
+            return c;
+        }
+    }
+
+}
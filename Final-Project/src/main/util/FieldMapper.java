@@ -1,78 +1,186 @@
 package main.util;
 
 import main.Parameters;
+import main.object.FieldGeometry;
+import main.object.FieldGrid;
 import main.object.Square;
-import main.resource.Constants;
 
 /**
  * A utility class that creates a mapping of our field based on its parameters
  *
+ * The mapping is stored in a FieldGrid bitset. The regions are computed once from the parameters and
+ * filled a word at a time, and the Square[][] mapping is built from the grid the first time it is asked for.
+ * The controllers only ever use the grid, and track squares by their cell in it, so the mapping is not built in a
+ * match.
+ * The size of the field comes from its FieldGeometry, so the same mapping works on fields other than 12x12.
+ *
  * @author JohnWu
  */
 public class FieldMapper {
 
+    // destinations of a match
+    public static final int CORNER_ONE = 0;
+    public static final int CORNER_TWO = 1;
+    public static final int CORNER_THREE = 2;
+    public static final int CORNER_FOUR = 3;
+    public static final int BALL_DISPENSER = 4;
+    public static final int SHOOTING_LEFT = 5;
+    public static final int SHOOTING_RIGHT = 6;
+    public static final int DESTINATION_COUNT = 7;
+
     // properties
+    private FieldGeometry geometry;
+    private FieldGrid grid;
     private Square[][] squares;
     private Parameters parameters;
 
+    // region bounds, rows and columns from inclusive to exclusive
+    private int goalRegionDown, goalRegionUp, goalRegionLeft, goalRegionRight;
+    private int offenseRegionDown, offenseRegionUp, offenseRegionLeft, offenseRegionRight;
+    private int defenseRegionDown, defenseRegionUp, defenseRegionLeft, defenseRegionRight;
+
     /**
-     * Main intialization method
+     * Main intialization method, for the competition field
      *
      * @param parameters the given to the robot
      */
     public FieldMapper( Parameters parameters ) {
+        this( parameters, FieldGeometry.getDefault() );
+    }
+
+    /**
+     * An initialization method for a field of any size
+     *
+     * @param parameters the given to the robot
+     * @param geometry the dimensions of the field
+     */
+    public FieldMapper( Parameters parameters, FieldGeometry geometry ) {
+        this( geometry );
+        setParameters( parameters );
+    }
+
+    /**
+     * An initialization method for the field before the parameters of the match are known, on which every square
+     * is allowed, so that the controllers that only need its size can start
+     *
+     * @param geometry the dimensions of the field
+     */
+    public FieldMapper( FieldGeometry geometry ) {
+        this.geometry = geometry;
+        this.grid = geometry.createGrid();
+        grid.setRectangle( 0, grid.getRows() - 1, 0, grid.getColumns() - 1, true );
+    }
+
+    /**
+     * A method that maps the boundaries of the match once its parameters are known
+     *
+     * @param parameters the given to the robot
+     */
+    public void setParameters( Parameters parameters ) {
         this.parameters = parameters;
-        this.squares = new Square[12][12];
+        calculateRegions();
         if ( parameters.getForwardTeam() == 11 ) {
             mapOffenseBoundaries();
         } else {
             mapDefenseBoundaries();
         }
+    }
 
+    /**
+     * A method that computes the bounds of each region from the parameters
+     */
+    private void calculateRegions() {
+        int lastRow = geometry.getRows() - 1;
+        int columns = geometry.getColumns();
+
+        // the defender zone is centred on the goal
+        goalRegionLeft = ( columns - parameters.getDefenderZone()[0] ) / 2 ;
+        goalRegionRight = goalRegionLeft + parameters.getDefenderZone()[0];
+        goalRegionUp = lastRow;
+        goalRegionDown = lastRow - parameters.getDefenderZone()[1];
+
+        offenseRegionLeft = 2;
+        offenseRegionRight = columns - 2;
+        offenseRegionUp = lastRow - parameters.getForwardLine();
+        offenseRegionDown = 1;
+
+        defenseRegionLeft = 2;
+        defenseRegionRight = columns - 2;
+        defenseRegionUp = lastRow;
+        defenseRegionDown = lastRow - parameters.getForwardLine();
     }
 
     /**
      * A method that maps offense boundaries
      */
     public void mapOffenseBoundaries() {
-        for ( int i = 0; i < 12; i++ ) {
-            for (int k = 0; k < 12; k++) {
-                Square square = new Square();
-                if ( !isInDefenseRegion( i, k ) && !isGoal( i, k ) ) {
-                    square.setAllowed(true);
-                } else {
-                    square.setAllowed(false);
-                }
-                square.setX(k);
-                square.setY(i);
-                square.setNorthPosition( i * Constants.SQUARE_LENGTH );
-                square.setSouthPosition( ( i - 1 ) * Constants.SQUARE_LENGTH );
-                square.setEastPosition( k * Constants.SQUARE_LENGTH );
-                square.setWestPosition( ( k - 1 ) * Constants.SQUARE_LENGTH );
-                squares[i][k] = square;
-            }
-        }
+        grid.setRectangle( 0, grid.getRows() - 1, 0, grid.getColumns() - 1, true );
+        grid.setRectangle( defenseRegionDown, defenseRegionUp - 1, defenseRegionLeft, defenseRegionRight - 1, false );
+        mapGoal();
+        squares = null;
     }
 
     /**
      * A method that maps defense boundaries
      */
     public void mapDefenseBoundaries() {
-        for ( int i = 0; i < 12; i++ ) {
-            for (int k = 0; k < 12; k++) {
-                Square square = new Square();
-                if ( !isInOffenseRegion( i, k ) && !isInGoalRegion( i, k ) && !isGoal( i, k ) ) {
-                    square.setAllowed(true);
-                } else {
-                    square.setAllowed(false);
-                }
-                square.setNorthPosition( i * Constants.SQUARE_LENGTH );
-                square.setSouthPosition( ( i - 1 ) * Constants.SQUARE_LENGTH );
-                square.setEastPosition( k * Constants.SQUARE_LENGTH );
-                square.setWestPosition( ( k - 1 ) * Constants.SQUARE_LENGTH );
-                squares[i][k] = square;
+        // only the goal region, the defender zone in front of the goal, is allowed
+        grid.setRectangle( 0, grid.getRows() - 1, 0, grid.getColumns() - 1, false );
+        grid.setRectangle( goalRegionDown, goalRegionUp - 1, goalRegionLeft, goalRegionRight - 1, true );
+        grid.setRectangle( offenseRegionDown, offenseRegionUp - 1, offenseRegionLeft, offenseRegionRight - 1, false );
+        mapGoal();
+        squares = null;
+    }
+
+    /**
+     * A method that forbids the squares of the goal
+     */
+    private void mapGoal() {
+        int goalColumn = getGoalColumn();
+        grid.setRectangle( grid.getRows() - 1, grid.getRows() - 1, goalColumn, goalColumn + 1, false );
+    }
+
+    /**
+     * A method that returns the square of a destination
+     *
+     * @param destination the destination
+     * @return the square of the destination
+     */
+    public int getDestinationCell( int destination ) {
+        if ( destination >= CORNER_ONE && destination <= CORNER_FOUR ) {
+            int corner = destination - CORNER_ONE + 1;
+            return grid.encodeCell( geometry.getCornerRow( corner ), geometry.getCornerColumn( corner ) );
+        }
+        if ( destination == BALL_DISPENSER ) {
+            // the square on the side the dispenser faces
+            double squareLength = geometry.getSquareLength();
+            double x = parameters.getBallDispenserPosition()[0]*squareLength;
+            double y = parameters.getBallDispenserPosition()[1]*squareLength;
+            String orientation = parameters.getBallDispenserOrientation();
+            if ( "N".equals( orientation ) ) {
+                y += squareLength/2;
+            } else if ( "S".equals( orientation ) ) {
+                y -= squareLength/2;
+            } else if ( "E".equals( orientation ) ) {
+                x += squareLength/2;
+            } else if ( "W".equals( orientation ) ) {
+                x -= squareLength/2;
             }
+            return grid.getCell( x, y );
         }
+        // the shooting spots are in front of each goal post, just behind the defense region
+        int row = Math.max( 0, defenseRegionDown - 1 );
+        int goalColumn = getGoalColumn();
+        return grid.encodeCell( row, destination == SHOOTING_LEFT ? goalColumn : goalColumn + 1 );
+    }
+
+    /**
+     * A method that returns the left column of the goal, which is two squares wide in the middle of the far row
+     *
+     * @return the left column of the goal
+     */
+    private int getGoalColumn() {
+        return geometry.getColumns()/2 - 1;
     }
 
     /**
@@ -83,12 +191,7 @@ public class FieldMapper {
      * @return whether square is in goal region
      */
     public boolean isInGoalRegion( int i, int k ) {
-        int left = ( 12 - parameters.getDefenderZone()[0] ) / 2 ;
-        int right = left * 2;
-        int up = 11;
-        int down = 11 - parameters.getDefenderZone()[1];
-
-        if ( i >= down && i < up && k >= left && k < right ) {
+        if ( i >= goalRegionDown && i < goalRegionUp && k >= goalRegionLeft && k < goalRegionRight ) {
             return false;
         }
         return true;
@@ -102,11 +205,7 @@ public class FieldMapper {
      * @return whether square is in offense
      */
     public boolean isInOffenseRegion( int i, int k ) {
-        int left = 2 ;
-        int right = 10;
-        int up = 11 - parameters.getForwardLine();
-        int down = 1;
-        if ( i >= down && i < up && k >= left && k < right ) {
+        if ( i >= offenseRegionDown && i < offenseRegionUp && k >= offenseRegionLeft && k < offenseRegionRight ) {
             return true;
         }
         return false;
@@ -120,12 +219,7 @@ public class FieldMapper {
      * @return whether square is in defense
      */
     public boolean isInDefenseRegion( int i, int k ) {
-        int left = 2 ;
-        int right = 10;
-        int up = 11;
-        int down = 11 - parameters.getForwardLine();
-
-        if ( i >= down && i < up && k >= left && k < right ) {
+        if ( i >= defenseRegionDown && i < defenseRegionUp && k >= defenseRegionLeft && k < defenseRegionRight ) {
             return true;
         }
         return false;
@@ -139,19 +233,75 @@ public class FieldMapper {
      * @return whether square is the goal
      */
     public boolean isGoal( int i, int k ) {
-        if ( i == 11 && ( k == 5 || k == 6 ) ) {
+        int goalColumn = getGoalColumn();
+        if ( i == geometry.getRows() - 1 && ( k == goalColumn || k == goalColumn + 1 ) ) {
             return true;
         }
         return false;
     }
 
     /**
-     * A method to retrieve the mapping
+     * A method to retrieve the dimensions of the field
+     *
+     * @return the field geometry
+     */
+    public FieldGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * A method to retrieve the compact mapping
+     *
+     * @return the bitset mapping of the field
+     */
+    public FieldGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * A method that creates a square object for one square of the compact mapping
+     *
+     * @param i i coordinate in the double matrix mapping
+     * @param k k coordinate in the double matrix mapping
+     * @return the square
+     */
+    private Square createSquare( int i, int k ) {
+        Square square = new Square();
+        square.setAllowed( grid.isAllowed( i, k ) );
+        square.setX( k );
+        square.setY( i );
+        square.setNorthPosition( grid.getNorthPosition( i ) );
+        square.setSouthPosition( grid.getSouthPosition( i ) );
+        square.setEastPosition( grid.getEastPosition( k ) );
+        square.setWestPosition( grid.getWestPosition( k ) );
+        return square;
+    }
+
+    /**
+     * A method to retrieve the mapping, built from the compact mapping on first use
      *
      * @return double matrix mapping of field
      */
-    public Square[][] getMapping() {
+    public synchronized Square[][] getMapping() {
+        if ( squares == null ) {
+            squares = createSquares();
+        }
         return squares;
     }
 
+    /**
+     * A method that creates a square object for every square of the compact mapping
+     *
+     * @return double matrix mapping of field
+     */
+    private Square[][] createSquares() {
+        Square[][] mapping = new Square[grid.getRows()][grid.getColumns()];
+        for ( int i = 0; i < grid.getRows(); i++ ) {
+            for ( int k = 0; k < grid.getColumns(); k++ ) {
+                mapping[i][k] = createSquare( i, k );
+            }
+        }
+        return mapping;
+    }
+
 }
@@ -0,0 +1,211 @@
+package main.util;
+
+/**
+ * A binary min-heap of int values with long keys, backed by primitive arrays so that it never allocates
+ * after construction. Each value may be in the heap once; inserting it again lowers its key.
+ *
+ * @author JohnWu
+ */
+public class IntBinaryHeap {
+
+    // properties
+    private int[] heap;
+    private long[] keys;
+    private int[] positions;
+    private int size;
+
+    /**
+     * Main initialization method
+     *
+     * @param capacity the number of distinct values, values must lie in [0, capacity)
+     */
+    public IntBinaryHeap( int capacity ) {
+        this.heap = new int[capacity];
+        this.keys = new long[capacity];
+        this.positions = new int[capacity];
+        for ( int i = 0; i < capacity; i++ ) {
+            positions[i] = -1;
+        }
+    }
+
+    /**
+     * A method that inserts a value, or lowers its key if it is already in the heap with a higher key
+     *
+     * @param value the value to insert
+     * @param key the key of the value
+     */
+    public void insert( int value, long key ) {
+        int position = positions[value];
+        if ( position == -1 ) {
+            position = size++;
+            heap[position] = value;
+            positions[value] = position;
+        } else if ( key >= keys[value] ) {
+            return;
+        }
+        keys[value] = key;
+        siftUp( position );
+    }
+
+    /**
+     * A method that inserts a value, or moves it to its new key if it is already in the heap
+     *
+     * @param value the value to insert
+     * @param key the key of the value
+     */
+    public void update( int value, long key ) {
+        int position = positions[value];
+        if ( position == -1 ) {
+            insert( value, key );
+            return;
+        }
+        long oldKey = keys[value];
+        keys[value] = key;
+        if ( key < oldKey ) {
+            siftUp( position );
+        } else {
+            siftDown( position );
+        }
+    }
+
+    /**
+     * A method that removes the value with the lowest key
+     *
+     * @return the value with the lowest key
+     */
+    public int poll() {
+        int value = heap[0];
+        remove( value );
+        return value;
+    }
+
+    /**
+     * A method that removes a value if it is in the heap
+     *
+     * @param value the value to remove
+     */
+    public void remove( int value ) {
+        int position = positions[value];
+        if ( position == -1 ) {
+            return;
+        }
+        positions[value] = -1;
+        size--;
+        if ( position < size ) {
+            // move the last value into the gap, then restore the order in whichever direction it breaks
+            int moved = heap[size];
+            heap[position] = moved;
+            positions[moved] = position;
+            siftDown( position );
+            if ( positions[moved] == position ) {
+                siftUp( position );
+            }
+        }
+    }
+
+    /**
+     * A method that returns the value with the lowest key without removing it
+     *
+     * @return the value with the lowest key
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * A method that returns the lowest key
+     *
+     * @return the lowest key
+     */
+    public long peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * A method that determines whether a value is in the heap
+     *
+     * @param value the value to look for
+     * @return whether the value is in the heap
+     */
+    public boolean contains( int value ) {
+        return positions[value] != -1;
+    }
+
+    /**
+     * A method that determines whether the heap is empty
+     *
+     * @return whether the heap is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * A method that returns the number of values in the heap
+     *
+     * @return the size of the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A method that empties the heap in time proportional to its size
+     */
+    public void clear() {
+        for ( int i = 0; i < size; i++ ) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * A method that moves a value up until its parent has a lower key
+     *
+     * @param position the position of the value in the heap
+     */
+    private void siftUp( int position ) {
+        int value = heap[position];
+        long key = keys[value];
+        while ( position > 0 ) {
+            int parent = ( position - 1 ) >>> 1;
+            int parentValue = heap[parent];
+            if ( keys[parentValue] <= key ) {
+                break;
+            }
+            heap[position] = parentValue;
+            positions[parentValue] = position;
+            position = parent;
+        }
+        heap[position] = value;
+        positions[value] = position;
+    }
+
+    /**
+     * A method that moves a value down until its children have higher keys
+     *
+     * @param position the position of the value in the heap
+     */
+    private void siftDown( int position ) {
+        int value = heap[position];
+        long key = keys[value];
+        int half = size >>> 1;
+        while ( position < half ) {
+            int child = 2*position + 1;
+            int right = child + 1;
+            if ( right < size && keys[heap[right]] < keys[heap[child]] ) {
+                child = right;
+            }
+            int childValue = heap[child];
+            if ( key <= keys[childValue] ) {
+                break;
+            }
+            heap[position] = childValue;
+            positions[childValue] = position;
+            position = child;
+        }
+        heap[position] = value;
+        positions[value] = position;
+    }
+
+}
@@ -0,0 +1,121 @@
+package main.util;
+
+/**
+ * A named histogram of durations in milliseconds, such as loop periods and latencies, over buckets fixed when
+ * it is created so that recording a duration allocates nothing.
+ *
+ * A histogram is meant to have a single thread recording into it. Other threads may read it while it is being
+ * recorded into, and then see a count that is a duration or two behind.
+ *
+ * @author JohnWu
+ */
+public class LatencyHistogram {
+
+    // inclusive upper bounds of the buckets (ms), the last bucket holds everything longer
+    private static final long[] BUCKET_BOUNDS = { 1, 2, 3, 5, 7, 10, 15, 20, 30, 50, 75, 100, 150, 200, 300, 500,
+            1000, 2000, 5000 };
+
+    // properties
+    private String name;
+
+    // variables
+    private long[] counts = new long[BUCKET_BOUNDS.length + 1];
+    private volatile long count;
+    private long total;
+    private long max;
+
+    /**
+     * Main initialization method
+     *
+     * @param name the name the histogram is shown and exported under
+     */
+    public LatencyHistogram( String name ) {
+        this.name = name;
+    }
+
+    /**
+     * A method that records one duration
+     *
+     * @param millis the duration (ms)
+     */
+    public void record( long millis ) {
+        int bucket = 0;
+        while ( bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket] ) {
+            bucket++;
+        }
+        counts[bucket]++;
+        total += millis;
+        if ( millis > max ) {
+            max = millis;
+        }
+        count++;
+    }
+
+    /**
+     * A method that returns the upper bound of the bucket a percentile of the durations falls in
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the bound (ms), or the longest duration if the percentile is past the last bound
+     */
+    public long getPercentile( double percentile ) {
+        long recorded = count;
+        if ( recorded == 0 ) {
+            return 0;
+        }
+        long rank = (long) Math.ceil( percentile/100*recorded );
+        long seen = 0;
+        for ( int bucket = 0; bucket < BUCKET_BOUNDS.length; bucket++ ) {
+            seen += counts[bucket];
+            if ( seen >= rank ) {
+                return Math.min( BUCKET_BOUNDS[bucket], max );
+            }
+        }
+        return max;
+    }
+
+    /**
+     * A method that returns the mean of the durations
+     *
+     * @return the mean (ms), 0 if nothing was recorded
+     */
+    public double getMean() {
+        long recorded = count;
+        return recorded == 0 ? 0 : (double) total/recorded;
+    }
+
+    /**
+     * A method that returns the number of buckets, the last of which has no upper bound
+     *
+     * @return the bucket count
+     */
+    public static int getBucketCount() {
+        return BUCKET_BOUNDS.length + 1;
+    }
+
+    /**
+     * A method that returns the upper bound of a bucket
+     *
+     * @param bucket the bucket
+     * @return the bound (ms), or Long.MAX_VALUE for the last bucket
+     */
+    public static long getBucketBound( int bucket ) {
+        return bucket < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[bucket] : Long.MAX_VALUE;
+    }
+
+    public long getBucketCount( int bucket ) {
+        return counts[bucket];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+}
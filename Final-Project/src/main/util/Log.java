@@ -0,0 +1,383 @@
+package main.util;
+
+import main.resource.Constants;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A log the controllers write records into without waiting on the file system, which a thread of its own at the
+ * lowest priority writes out in batches every flush period.
+ *
+ * A record is the time, level, thread id, source and message, and optionally a value or an exception. Writing one
+ * claims the next slot of a ring allocated up front with a compare-and-set and keeps references to the strings
+ * given, so it takes no lock and allocates nothing; sources and messages are meant to be constants. When the ring
+ * is full the record is dropped and counted instead of waiting, and the count is written into the file with the
+ * next batch. The file is rotated once it grows past the log file size, keeping the log file count of old files
+ * next to it with a number appended.
+ *
+ * @author JohnWu
+ */
+public class Log extends Thread {
+
+    // levels
+    public static final int DEBUG = 0;
+    public static final int INFO = 1;
+    public static final int WARN = 2;
+    public static final int ERROR = 3;
+
+    private static final String[] LEVEL_NAMES = { "DEBUG", "INFO ", "WARN ", "ERROR" };
+
+    // properties
+    private int capacity;
+    private int mask;
+    private String path;
+    private long fileSize = Constants.LOG_FILE_SIZE;
+    private int fileCount = Constants.LOG_FILE_COUNT;
+    private long flushPeriod = Constants.LOG_FLUSH_PERIOD;
+    private volatile int minimumLevel = INFO;
+
+    // objects
+    private Clock clock = Clock.getSystemClock();
+    private Counter droppedCounter;
+    private Writer out;
+
+    // variables, the ring the records are claimed from and the first one not written out yet
+    private AtomicLong cursor = new AtomicLong();
+    private volatile long head;
+    private AtomicLongArray published;
+    private long[] times;
+    private int[] levels;
+    private long[] threads;
+    private String[] sources;
+    private String[] messages;
+    private double[] values;
+    private boolean[] hasValues;
+    private Throwable[] thrown;
+    private AtomicLong droppedCount = new AtomicLong();
+    private long reportedDroppedCount;
+    private long writtenCount;
+    private long size;
+    private volatile boolean running = true;
+    private StringBuilder line = new StringBuilder();
+
+    /**
+     * Main initialization method, allocates the whole ring
+     *
+     * @param capacity the number of records waiting to be written before new ones are dropped, a power of two
+     * @param path the file to write to, or null to only drain the records
+     */
+    public Log( int capacity, String path ) {
+        super( "log" );
+        if ( Integer.bitCount( capacity ) != 1 ) {
+            throw new IllegalArgumentException( "The capacity must be a power of two, not " + capacity );
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.path = path;
+        this.published = new AtomicLongArray( capacity );
+        for ( int i = 0; i < capacity; i++ ) {
+            published.set( i, -1 );
+        }
+        this.times = new long[capacity];
+        this.levels = new int[capacity];
+        this.threads = new long[capacity];
+        this.sources = new String[capacity];
+        this.messages = new String[capacity];
+        this.values = new double[capacity];
+        this.hasValues = new boolean[capacity];
+        this.thrown = new Throwable[capacity];
+        setDaemon( true );
+        setPriority( Thread.MIN_PRIORITY );
+    }
+
+    /**
+     * A method that logs a message
+     *
+     * @param source what the message is about, such as the name of a controller
+     * @param message the message
+     * @return whether the record was kept
+     */
+    public boolean info( String source, String message ) {
+        return record( INFO, source, message, 0, false, null );
+    }
+
+    /**
+     * A method that logs a message with a value
+     *
+     * @param source what the message is about, such as the name of a controller
+     * @param message the message
+     * @param value the value the message is about
+     * @return whether the record was kept
+     */
+    public boolean info( String source, String message, double value ) {
+        return record( INFO, source, message, value, true, null );
+    }
+
+    /**
+     * A method that logs a warning
+     *
+     * @param source what the warning is about, such as the name of a controller
+     * @param message the warning
+     * @return whether the record was kept
+     */
+    public boolean warn( String source, String message ) {
+        return record( WARN, source, message, 0, false, null );
+    }
+
+    /**
+     * A method that logs a warning with a value
+     *
+     * @param source what the warning is about, such as the name of a controller
+     * @param message the warning
+     * @param value the value the warning is about
+     * @return whether the record was kept
+     */
+    public boolean warn( String source, String message, double value ) {
+        return record( WARN, source, message, value, true, null );
+    }
+
+    /**
+     * A method that logs an error and the exception that caused it, written out with its stack trace
+     *
+     * @param source what the error is about, such as the name of a controller
+     * @param message the error
+     * @param exception the exception
+     * @return whether the record was kept
+     */
+    public boolean error( String source, String message, Throwable exception ) {
+        return record( ERROR, source, message, 0, false, exception );
+    }
+
+    /**
+     * A method that logs a record at any level
+     *
+     * @param level the level
+     * @param source what the record is about
+     * @param message the message
+     * @param value the value the message is about
+     * @return whether the record was kept
+     */
+    public boolean log( int level, String source, String message, double value ) {
+        return record( level, source, message, value, true, null );
+    }
+
+    private boolean record( int level, String source, String message, double value, boolean hasValue,
+                            Throwable exception ) {
+        if ( level < minimumLevel ) {
+            return false;
+        }
+        long sequence;
+        do {
+            sequence = cursor.get();
+            if ( sequence - head >= capacity ) {
+                droppedCount.incrementAndGet();
+                if ( droppedCounter != null ) {
+                    droppedCounter.increment();
+                }
+                return false;
+            }
+        } while ( !cursor.compareAndSet( sequence, sequence + 1 ) );
+
+        int slot = (int) sequence & mask;
+        times[slot] = clock.currentTimeMillis();
+        levels[slot] = level;
+        threads[slot] = Thread.currentThread().getId();
+        sources[slot] = source;
+        messages[slot] = message;
+        values[slot] = value;
+        hasValues[slot] = hasValue;
+        thrown[slot] = exception;
+        published.lazySet( slot, sequence );
+        return true;
+    }
+
+    /**
+     * Writes out the records every flush period until the log is closed
+     */
+    public void run() {
+        while ( running ) {
+            clock.sleep( flushPeriod );
+            flush();
+        }
+    }
+
+    /**
+     * A method that writes out the records logged so far, stopping at one still being written
+     *
+     * @return the number of records written out
+     */
+    public synchronized int flush() {
+        int count = 0;
+        long sequence = head;
+        long dropped = droppedCount.get();
+        if ( dropped > reportedDroppedCount ) {
+            line.setLength( 0 );
+            line.append( clock.currentTimeMillis() ).append( ' ' ).append( LEVEL_NAMES[WARN] ).append( " log: " )
+                    .append( dropped - reportedDroppedCount ).append( " records dropped\n" );
+            write();
+            reportedDroppedCount = dropped;
+        }
+        for ( int slot = (int) sequence & mask; published.get( slot ) == sequence; slot = (int) sequence & mask ) {
+            format( slot );
+            sources[slot] = null;
+            messages[slot] = null;
+            thrown[slot] = null;
+            // the slot is free for the record a capacity later once the head has passed it
+            head = ++sequence;
+            write();
+            count++;
+        }
+        writtenCount += count;
+        if ( out != null ) {
+            try {
+                out.flush();
+            } catch ( IOException e ) {
+                closeFile();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A method that writes out what is left and closes the file, after which the log keeps nothing
+     */
+    public void close() {
+        running = false;
+        interrupt();
+        flush();
+        synchronized ( this ) {
+            closeFile();
+            path = null;
+        }
+    }
+
+    private void format( int slot ) {
+        line.setLength( 0 );
+        line.append( times[slot] ).append( ' ' ).append( LEVEL_NAMES[levels[slot]] ).append( " thread " )
+                .append( threads[slot] ).append( ' ' ).append( sources[slot] ).append( ": " ).append( messages[slot] );
+        if ( hasValues[slot] ) {
+            line.append( ' ' ).append( values[slot] );
+        }
+        line.append( '\n' );
+        if ( thrown[slot] != null ) {
+            StringWriter stackTrace = new StringWriter();
+            thrown[slot].printStackTrace( new PrintWriter( stackTrace ) );
+            line.append( stackTrace );
+        }
+    }
+
+    /**
+     * A method that writes the formatted line, opening or rotating the file first when needed
+     */
+    private void write() {
+        if ( path == null ) {
+            return;
+        }
+        try {
+            if ( out != null && size + line.length() > fileSize ) {
+                closeFile();
+                rotate();
+            }
+            if ( out == null ) {
+                File file = new File( path );
+                size = file.length();
+                out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file, true ), "UTF-8" ) );
+            }
+            out.append( line );
+            size += line.length();
+        } catch ( IOException e ) {
+            // the flash is full or gone, so the records are only drained from now on
+            closeFile();
+            path = null;
+        }
+    }
+
+    /**
+     * A method that moves each old file one number up, dropping the oldest, and the current file to the first
+     */
+    private void rotate() {
+        for ( int i = fileCount; i > 0; i-- ) {
+            File older = new File( path + "." + i );
+            File newer = new File( i == 1 ? path : path + "." + ( i - 1 ) );
+            if ( newer.exists() ) {
+                older.delete();
+                newer.renameTo( older );
+            }
+        }
+    }
+
+    private void closeFile() {
+        if ( out != null ) {
+            try { out.close(); } catch( IOException e ){}
+            out = null;
+        }
+    }
+
+    /**
+     * A method that returns how many records were dropped because the ring was full
+     *
+     * @return the dropped record count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * A method that returns how many records were written out
+     *
+     * @return the written record count
+     */
+    public synchronized long getWrittenCount() {
+        return writtenCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setClock( Clock clock ) {
+        this.clock = clock;
+    }
+
+    public void setMinimumLevel( int minimumLevel ) {
+        this.minimumLevel = minimumLevel;
+    }
+
+    public void setFlushPeriod( long flushPeriod ) {
+        this.flushPeriod = flushPeriod;
+    }
+
+    /**
+     * A method to set when the file is rotated and how many old files are kept
+     *
+     * @param fileSize the size a file may grow to (bytes)
+     * @param fileCount the number of old files kept
+     */
+    public void setRotation( long fileSize, int fileCount ) {
+        this.fileSize = fileSize;
+        this.fileCount = fileCount;
+    }
+
+    /**
+     * A method to set the registry the dropped records are counted in
+     *
+     * @param diagnostics the diagnostics registry
+     */
+    public void setDiagnostics( Diagnostics diagnostics ) {
+        droppedCounter = diagnostics.getCounter( "dropped log records" );
+    }
+
+}
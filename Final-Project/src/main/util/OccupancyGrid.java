@@ -0,0 +1,171 @@
+package main.util;
+
+import main.object.FieldGrid;
+import main.resource.Constants;
+
+/**
+ * A log-odds occupancy grid built from ultrasonic readings, with one cell per square of our field mapping.
+ *
+ * Each reading is traced as a ray from the vehicle: the squares it passes through become more likely free
+ * and the square it ends in becomes more likely occupied. The ray is walked square by square, so a reading
+ * costs at most a few dozen array writes whatever the size of the field. Only one thread may add readings;
+ * any thread may query, since each cell is a single float.
+ *
+ * @author JohnWu
+ */
+public class OccupancyGrid {
+
+    // properties
+    private int rows;
+    private int columns;
+    private double squareLength;
+    private float[] logOdds;
+    private int maxSteps;
+
+    /**
+     * Main initialization method, every square starts unknown
+     *
+     * @param grid the compact mapping the cells line up with
+     */
+    public OccupancyGrid( FieldGrid grid ) {
+        this.rows = grid.getRows();
+        this.columns = grid.getColumns();
+        this.squareLength = grid.getSquareLength();
+        this.logOdds = new float[rows*columns];
+        // a ray crosses at most one square per square length along each axis, plus the squares it ends in
+        this.maxSteps = 2*(int) Math.ceil( Constants.ULTRASONICSENSOR_MAX_DISTANCE / squareLength ) + 2;
+    }
+
+    /**
+     * A method that adds one ultrasonic reading to the grid
+     *
+     * @param x the x coordinate of the vehicle
+     * @param y the y coordinate of the vehicle
+     * @param theta the heading of the vehicle
+     * @param distance the filtered distance from the middle of the vehicle
+     */
+    public void addReading( double x, double y, double theta, double distance ) {
+        boolean hit = distance < Constants.ULTRASONICSENSOR_MAX_DISTANCE;
+
+        // walk the ray in square units, where square k spans [k, k + 1) along each axis
+        double startColumn = x / squareLength + 1;
+        double startRow = y / squareLength + 1;
+        double directionColumn = Math.sin( theta );
+        double directionRow = Math.cos( theta );
+        double length = distance / squareLength;
+
+        int column = (int) Math.floor( startColumn );
+        int row = (int) Math.floor( startRow );
+        int columnStep = directionColumn > 0 ? 1 : -1;
+        int rowStep = directionRow > 0 ? 1 : -1;
+        double columnDelta = directionColumn == 0 ? Double.MAX_VALUE : Math.abs( 1 / directionColumn );
+        double rowDelta = directionRow == 0 ? Double.MAX_VALUE : Math.abs( 1 / directionRow );
+        double nextColumn = directionColumn == 0 ? Double.MAX_VALUE
+                : ( directionColumn > 0 ? column + 1 - startColumn : startColumn - column )*columnDelta;
+        double nextRow = directionRow == 0 ? Double.MAX_VALUE
+                : ( directionRow > 0 ? row + 1 - startRow : startRow - row )*rowDelta;
+
+        for ( int step = 0; step < maxSteps; step++ ) {
+            if ( row < 0 || row >= rows || column < 0 || column >= columns ) {
+                return;
+            }
+            double exit = Math.min( nextColumn, nextRow );
+            if ( exit >= length ) {
+                update( row*columns + column, hit ? Constants.OCCUPANCY_LOG_ODDS_OCCUPIED : Constants.OCCUPANCY_LOG_ODDS_FREE );
+                return;
+            }
+            update( row*columns + column, Constants.OCCUPANCY_LOG_ODDS_FREE );
+            if ( nextColumn < nextRow ) {
+                column += columnStep;
+                nextColumn += columnDelta;
+            } else {
+                row += rowStep;
+                nextRow += rowDelta;
+            }
+        }
+    }
+
+    /**
+     * A method that adds to the log-odds of a square, within the limit so it can change its mind later
+     *
+     * @param cell the square
+     * @param change the change in log-odds
+     */
+    private void update( int cell, float change ) {
+        float value = logOdds[cell] + change;
+        if ( value > Constants.OCCUPANCY_LOG_ODDS_LIMIT ) {
+            value = Constants.OCCUPANCY_LOG_ODDS_LIMIT;
+        } else if ( value < -Constants.OCCUPANCY_LOG_ODDS_LIMIT ) {
+            value = -Constants.OCCUPANCY_LOG_ODDS_LIMIT;
+        }
+        logOdds[cell] = value;
+    }
+
+    /**
+     * A method that returns the probability that a square is occupied
+     *
+     * @param cell the square
+     * @return the probability, 0.5 when nothing is known
+     */
+    public double getOccupiedProbability( int cell ) {
+        return 1 - 1 / ( 1 + Math.exp( logOdds[cell] ) );
+    }
+
+    /**
+     * A method that returns the probability that a square is free
+     *
+     * @param cell the square
+     * @return the probability, 0.5 when nothing is known
+     */
+    public double getFreeProbability( int cell ) {
+        return 1 - getOccupiedProbability( cell );
+    }
+
+    /**
+     * A method that determines whether a square is believed to be occupied
+     *
+     * @param cell the square
+     * @return whether the log-odds are over the occupied threshold
+     */
+    public boolean isOccupied( int cell ) {
+        return logOdds[cell] >= Constants.OCCUPANCY_LOG_ODDS_THRESHOLD;
+    }
+
+    /**
+     * A method that determines whether a square is believed to be free
+     *
+     * @param cell the square
+     * @return whether the log-odds are under the free threshold
+     */
+    public boolean isFree( int cell ) {
+        return logOdds[cell] <= -Constants.OCCUPANCY_LOG_ODDS_THRESHOLD;
+    }
+
+    /**
+     * A method that returns the log-odds of a square
+     *
+     * @param cell the square
+     * @return the log-odds
+     */
+    public float getLogOdds( int cell ) {
+        return logOdds[cell];
+    }
+
+    /**
+     * A method that forgets every reading
+     */
+    public void clear() {
+        for ( int i = 0; i < logOdds.length; i++ ) {
+            logOdds[i] = 0;
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+}
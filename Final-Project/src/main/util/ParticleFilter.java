@@ -0,0 +1,377 @@
+package main.util;
+
+import main.object.FieldGeometry;
+import main.resource.Constants;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A Monte Carlo localization filter that keeps a cloud of possible poses of the vehicle.
+ *
+ * Odometry moves every particle with some noise, a light sensor crossing a line weights each particle by how
+ * close its sensor would be to a gridline, and an ultrasonic range weights it by the distance to the walls
+ * it would see. The particles live in primitive arrays, and resampling copies them into a second set of
+ * arrays that is then swapped in, so no update allocates. With a parallelism over one the per particle work
+ * is split across cores with fork-join, which is only worth it on a desktop.
+ *
+ * @author JohnWu
+ */
+public class ParticleFilter {
+
+    // work done per particle
+    private static final int PREDICT = 0;
+    private static final int LINE_CROSSING = 1;
+    private static final int RANGE = 2;
+
+    // properties
+    private FieldGeometry geometry;
+    private int count;
+    private double[] xs, ys, thetas, weights;
+    private double[] spareXs, spareYs, spareThetas;
+    private Random random;
+
+    // the field walls
+    private double minX, maxX, minY, maxY;
+
+    // the arguments of the per particle work being done
+    private int operation;
+    private double distanceArgument, thetaArgument, sensorLateral;
+
+    // parallel mode
+    private ForkJoinPool pool;
+    private ChunkTask[] chunks;
+    private RecursiveAction root;
+
+    /**
+     * Main initialization method, for running on the brick
+     *
+     * @param geometry the dimensions of the field
+     * @param count the number of particles
+     */
+    public ParticleFilter( FieldGeometry geometry, int count ) {
+        this( geometry, count, 1 );
+    }
+
+    /**
+     * An initialization method that splits the per particle work across several threads
+     *
+     * @param geometry the dimensions of the field
+     * @param count the number of particles
+     * @param parallelism the number of threads, 1 to do all the work on the calling thread
+     */
+    public ParticleFilter( FieldGeometry geometry, int count, int parallelism ) {
+        this.geometry = geometry;
+        this.count = count;
+        this.xs = new double[count];
+        this.ys = new double[count];
+        this.thetas = new double[count];
+        this.weights = new double[count];
+        this.spareXs = new double[count];
+        this.spareYs = new double[count];
+        this.spareThetas = new double[count];
+        this.random = new Random( Constants.PARTICLE_FILTER_SEED );
+
+        double squareLength = geometry.getSquareLength();
+        this.minX = -squareLength;
+        this.minY = -squareLength;
+        this.maxX = ( geometry.getColumns() - 1 )*squareLength;
+        this.maxY = ( geometry.getRows() - 1 )*squareLength;
+
+        if ( parallelism > 1 ) {
+            this.pool = new ForkJoinPool( parallelism );
+            this.chunks = new ChunkTask[parallelism*4];
+            for ( int i = 0; i < chunks.length; i++ ) {
+                chunks[i] = new ChunkTask( i*count/chunks.length, ( i + 1 )*count/chunks.length,
+                        Constants.PARTICLE_FILTER_SEED + i + 1 );
+            }
+            this.root = new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                protected void compute() {
+                    for ( ChunkTask chunk : chunks ) {
+                        chunk.reinitialize();
+                    }
+                    invokeAll( chunks );
+                }
+            };
+        }
+    }
+
+    /**
+     * A method that spreads the particles around a pose
+     *
+     * @param x the x coordinate of the pose
+     * @param y the y coordinate of the pose
+     * @param theta the heading of the pose
+     * @param positionSpread the standard deviation of the position
+     * @param thetaSpread the standard deviation of the heading
+     */
+    public void initialize( double x, double y, double theta, double positionSpread, double thetaSpread ) {
+        for ( int i = 0; i < count; i++ ) {
+            xs[i] = x + random.nextGaussian()*positionSpread;
+            ys[i] = y + random.nextGaussian()*positionSpread;
+            thetas[i] = Angles.normalize( theta + random.nextGaussian()*thetaSpread );
+            weights[i] = 1.0 / count;
+        }
+    }
+
+    /**
+     * A method that moves every particle by an odometry step
+     *
+     * @param distance the distance driven by the middle of the vehicle
+     * @param thetaChange the change of heading, clockwise
+     */
+    public void predict( double distance, double thetaChange ) {
+        if ( distance == 0 && thetaChange == 0 ) {
+            return;
+        }
+        distanceArgument = distance;
+        thetaArgument = thetaChange;
+        run( PREDICT );
+    }
+
+    /**
+     * A method that weights the particles by a light sensor crossing a gridline
+     *
+     * @param leftSensor whether the left sensor crossed the line, otherwise the right one
+     */
+    public void updateLineCrossing( boolean leftSensor ) {
+        sensorLateral = leftSensor ? -Constants.LIGHT_SENSOR_LATERAL_OFFSET : Constants.LIGHT_SENSOR_LATERAL_OFFSET;
+        run( LINE_CROSSING );
+        normalize();
+    }
+
+    /**
+     * A method that weights the particles by an ultrasonic range to the walls
+     *
+     * @param distance the filtered distance from the middle of the vehicle
+     */
+    public void updateRange( double distance ) {
+        // a reading with no echo says nothing about where the walls are
+        if ( distance >= Constants.ULTRASONICSENSOR_MAX_DISTANCE ) {
+            return;
+        }
+        distanceArgument = distance;
+        run( RANGE );
+        normalize();
+    }
+
+    /**
+     * A method that runs one kind of per particle work, split into chunks in parallel mode
+     *
+     * @param operation the work to do
+     */
+    private void run( int operation ) {
+        this.operation = operation;
+        if ( pool == null ) {
+            process( 0, count, random );
+        } else {
+            root.reinitialize();
+            pool.invoke( root );
+        }
+    }
+
+    /**
+     * A method that does the current per particle work on a range of particles
+     *
+     * @param from the first particle, inclusive
+     * @param to the last particle, exclusive
+     * @param random the random number generator of the thread
+     */
+    private void process( int from, int to, Random random ) {
+        double squareLength = geometry.getSquareLength();
+        for ( int i = from; i < to; i++ ) {
+            if ( operation == PREDICT ) {
+                double distance = distanceArgument*( 1 + random.nextGaussian()*Constants.PARTICLE_DISTANCE_NOISE );
+                double thetaChange = thetaArgument + random.nextGaussian()*( Constants.PARTICLE_THETA_NOISE
+                        + Math.abs( thetaArgument )*Constants.PARTICLE_DISTANCE_NOISE );
+                // move along the average heading of the step
+                double heading = thetas[i] + thetaChange/2;
+                xs[i] += distance*Math.sin( heading );
+                ys[i] += distance*Math.cos( heading );
+                thetas[i] = Angles.normalize( thetas[i] + thetaChange );
+            } else if ( operation == LINE_CROSSING ) {
+                double sin = Math.sin( thetas[i] );
+                double cos = Math.cos( thetas[i] );
+                double sensorX = xs[i] + Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET*sin + sensorLateral*cos;
+                double sensorY = ys[i] + Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET*cos - sensorLateral*sin;
+                double lineDistance = Math.min( Math.abs( sensorX - Math.rint( sensorX / squareLength )*squareLength ),
+                        Math.abs( sensorY - Math.rint( sensorY / squareLength )*squareLength ) );
+                weights[i] *= calculateLikelihood( lineDistance, Constants.PARTICLE_LINE_SIGMA );
+            } else {
+                double error = distanceArgument - calculateWallDistance( xs[i], ys[i], thetas[i] );
+                weights[i] *= calculateLikelihood( error, Constants.PARTICLE_RANGE_SIGMA );
+            }
+        }
+    }
+
+    /**
+     * A method that calculates the likelihood of an error, a gaussian with a floor so that an unexpected
+     * reading, like an obstacle in front of a wall, cannot wipe out every particle
+     *
+     * @param error the difference between the measured and expected value
+     * @param sigma the standard deviation of the measurement
+     * @return the likelihood
+     */
+    private static double calculateLikelihood( double error, double sigma ) {
+        return Math.exp( -error*error / ( 2*sigma*sigma ) ) + Constants.PARTICLE_LIKELIHOOD_FLOOR;
+    }
+
+    /**
+     * A method that calculates the distance from a pose to the field wall in front of it
+     *
+     * @param x the x coordinate of the pose
+     * @param y the y coordinate of the pose
+     * @param theta the heading of the pose
+     * @return the distance to the wall
+     */
+    public double calculateWallDistance( double x, double y, double theta ) {
+        double directionX = Math.sin( theta );
+        double directionY = Math.cos( theta );
+        double distanceX = directionX > 0 ? ( maxX - x ) / directionX
+                : directionX < 0 ? ( minX - x ) / directionX : Double.MAX_VALUE;
+        double distanceY = directionY > 0 ? ( maxY - y ) / directionY
+                : directionY < 0 ? ( minY - y ) / directionY : Double.MAX_VALUE;
+        return Math.max( 0, Math.min( distanceX, distanceY ) );
+    }
+
+    /**
+     * A method that scales the weights to sum to one and resamples when too few particles carry the weight
+     */
+    private void normalize() {
+        double total = 0;
+        for ( int i = 0; i < count; i++ ) {
+            total += weights[i];
+        }
+        if ( total <= 0 || Double.isNaN( total ) ) {
+            for ( int i = 0; i < count; i++ ) {
+                weights[i] = 1.0 / count;
+            }
+            return;
+        }
+        double squares = 0;
+        for ( int i = 0; i < count; i++ ) {
+            weights[i] /= total;
+            squares += weights[i]*weights[i];
+        }
+        if ( 1 / squares < Constants.PARTICLE_RESAMPLE_RATIO*count ) {
+            resample();
+        }
+    }
+
+    /**
+     * A method that draws a new set of particles in proportion to their weights with a single random
+     * number, the low variance sampler, into the spare arrays
+     */
+    public void resample() {
+        double step = 1.0 / count;
+        double position = random.nextDouble()*step;
+        double cumulative = weights[0];
+        int source = 0;
+        for ( int i = 0; i < count; i++ ) {
+            while ( position > cumulative && source < count - 1 ) {
+                source++;
+                cumulative += weights[source];
+            }
+            spareXs[i] = xs[source];
+            spareYs[i] = ys[source];
+            spareThetas[i] = thetas[source];
+            position += step;
+        }
+
+        double[] swap = xs;
+        xs = spareXs;
+        spareXs = swap;
+        swap = ys;
+        ys = spareYs;
+        spareYs = swap;
+        swap = thetas;
+        thetas = spareThetas;
+        spareThetas = swap;
+        for ( int i = 0; i < count; i++ ) {
+            weights[i] = step;
+        }
+    }
+
+    /**
+     * A method that calculates the weighted mean pose of the particles
+     *
+     * @param pose the array to fill with x, y and theta
+     */
+    public void getEstimate( double[] pose ) {
+        double x = 0;
+        double y = 0;
+        double sin = 0;
+        double cos = 0;
+        for ( int i = 0; i < count; i++ ) {
+            x += weights[i]*xs[i];
+            y += weights[i]*ys[i];
+            sin += weights[i]*Math.sin( thetas[i] );
+            cos += weights[i]*Math.cos( thetas[i] );
+        }
+        pose[0] = x;
+        pose[1] = y;
+        pose[2] = Angles.normalize( Math.atan2( sin, cos ) );
+    }
+
+    /**
+     * A method that calculates how far the particles are spread around their mean position
+     *
+     * @return the weighted standard deviation of the position
+     */
+    public double getPositionSpread() {
+        double x = 0;
+        double y = 0;
+        for ( int i = 0; i < count; i++ ) {
+            x += weights[i]*xs[i];
+            y += weights[i]*ys[i];
+        }
+        double variance = 0;
+        for ( int i = 0; i < count; i++ ) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            variance += weights[i]*( dx*dx + dy*dy );
+        }
+        return Math.sqrt( variance );
+    }
+
+    /**
+     * A method that stops the threads of the parallel mode
+     */
+    public void shutdown() {
+        if ( pool != null ) {
+            pool.shutdown();
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * A fork-join task that does the current per particle work on one range of particles. The tasks are made
+     * once and reinitialized for every step.
+     */
+    private class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private int from;
+        private int to;
+        private Random random;
+
+        ChunkTask( int from, int to, long seed ) {
+            this.from = from;
+            this.to = to;
+            this.random = new Random( seed );
+        }
+
+        protected void compute() {
+            process( from, to, random );
+        }
+
+    }
+
+}
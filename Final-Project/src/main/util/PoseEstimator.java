@@ -0,0 +1,328 @@
+package main.util;
+
+import main.object.Calibration;
+import main.object.FieldGeometry;
+import main.resource.Constants;
+
+/**
+ * An extended Kalman filter of the pose of the vehicle, between the tacho counts and everything that reads
+ * the odometer.
+ *
+ * The wheel displacements predict the pose the same way the odometer integrates them and grow its covariance
+ * with the distance each wheel turned. A light sensor crossing a gridline and an ultrasonic range to a field
+ * wall are scalar measurements, so an update needs no matrix inversion. The covariance is a 3x3 matrix in a
+ * double[9] and every intermediate lives in preallocated arrays, so no update allocates.
+ *
+ * @author JohnWu
+ */
+public class PoseEstimator {
+
+    // properties
+    private Calibration calibration;
+    private double squareLength;
+    private double minX, maxX, minY, maxY;
+
+    // state and covariance, row major
+    private double x, y, theta;
+    private double[] covariance = new double[9];
+
+    // scratch space
+    private double[] jacobian = new double[9];
+    private double[] product = new double[9];
+    private double[] gain = new double[3];
+    private double[] projection = new double[3];
+
+    /**
+     * Main initialization method
+     *
+     * @param geometry the dimensions of the field
+     */
+    public PoseEstimator( FieldGeometry geometry ) {
+        this( geometry, new Calibration() );
+    }
+
+    /**
+     * Initialization method with the calibrated wheels of the vehicle
+     *
+     * @param geometry the dimensions of the field
+     * @param calibration the wheel radius and track length
+     */
+    public PoseEstimator( FieldGeometry geometry, Calibration calibration ) {
+        this.calibration = calibration;
+        this.squareLength = geometry.getSquareLength();
+        this.minX = -squareLength;
+        this.minY = -squareLength;
+        this.maxX = ( geometry.getColumns() - 1 )*squareLength;
+        this.maxY = ( geometry.getRows() - 1 )*squareLength;
+        setPose( 0, 0, 0 );
+    }
+
+    /**
+     * A method that moves the pose by the displacement of each wheel
+     *
+     * @param leftDisplacement the distance the left wheel turned
+     * @param rightDisplacement the distance the right wheel turned
+     */
+    public synchronized void predict( double leftDisplacement, double rightDisplacement ) {
+        double trackLength = calibration.getTrackLength();
+        double distance = ( leftDisplacement + rightDisplacement )/2;
+        theta = Angles.normalize( theta + ( leftDisplacement - rightDisplacement )/trackLength );
+        double sin = Math.sin( theta );
+        double cos = Math.cos( theta );
+        x += distance*sin;
+        y += distance*cos;
+
+        // P = F P F^T, where F is the identity with the heading column of the motion
+        setIdentity( jacobian );
+        jacobian[2] = distance*cos;
+        jacobian[5] = -distance*sin;
+        multiply( jacobian, covariance, product );
+        multiplyTransposed( product, jacobian, covariance );
+
+        // P += G N G^T, where G maps the noise of each wheel onto the pose
+        double leftNoise = Constants.EKF_WHEEL_NOISE*Math.abs( leftDisplacement );
+        double rightNoise = Constants.EKF_WHEEL_NOISE*Math.abs( rightDisplacement );
+        double turn = distance/trackLength;
+        double g00 = sin/2 + turn*cos, g01 = sin/2 - turn*cos;
+        double g10 = cos/2 - turn*sin, g11 = cos/2 + turn*sin;
+        double g20 = 1/trackLength, g21 = -1/trackLength;
+        covariance[0] += g00*g00*leftNoise + g01*g01*rightNoise;
+        covariance[1] += g00*g10*leftNoise + g01*g11*rightNoise;
+        covariance[2] += g00*g20*leftNoise + g01*g21*rightNoise;
+        covariance[4] += g10*g10*leftNoise + g11*g11*rightNoise;
+        covariance[5] += g10*g20*leftNoise + g11*g21*rightNoise;
+        covariance[8] += g20*g20*leftNoise + g21*g21*rightNoise;
+        covariance[3] = covariance[1];
+        covariance[6] = covariance[2];
+        covariance[7] = covariance[5];
+    }
+
+    /**
+     * A method that corrects the pose with a light sensor crossing a gridline. The line crossed is taken to
+     * be the one nearest to where the pose puts the sensor.
+     *
+     * @param leftSensor whether the left sensor crossed the line, otherwise the right one
+     * @return whether the measurement agreed enough with the pose to be used
+     */
+    public synchronized boolean updateLineCrossing( boolean leftSensor ) {
+        double lateral = leftSensor ? -Constants.LIGHT_SENSOR_LATERAL_OFFSET : Constants.LIGHT_SENSOR_LATERAL_OFFSET;
+        double longitudinal = Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET;
+        double sin = Math.sin( theta );
+        double cos = Math.cos( theta );
+        double sensorX = x + longitudinal*sin + lateral*cos;
+        double sensorY = y + longitudinal*cos - lateral*sin;
+        double errorX = Math.rint( sensorX / squareLength )*squareLength - sensorX;
+        double errorY = Math.rint( sensorY / squareLength )*squareLength - sensorY;
+        if ( Math.abs( errorX ) < Math.abs( errorY ) ) {
+            return update( errorX, 1, 0, longitudinal*cos - lateral*sin, Constants.EKF_LINE_VARIANCE );
+        }
+        return update( errorY, 0, 1, -longitudinal*sin - lateral*cos, Constants.EKF_LINE_VARIANCE );
+    }
+
+    /**
+     * A method that corrects the pose with an ultrasonic range to the field wall in front of the vehicle
+     *
+     * @param distance the filtered distance from the middle of the vehicle
+     * @return whether the measurement agreed enough with the pose to be used
+     */
+    public synchronized boolean updateRange( double distance ) {
+        if ( distance >= Constants.ULTRASONICSENSOR_MAX_DISTANCE ) {
+            return false;
+        }
+        double sin = Math.sin( theta );
+        double cos = Math.cos( theta );
+        double wallX = sin > 0 ? maxX : minX;
+        double wallY = cos > 0 ? maxY : minY;
+        double distanceX = sin == 0 ? Double.MAX_VALUE : ( wallX - x )/sin;
+        double distanceY = cos == 0 ? Double.MAX_VALUE : ( wallY - y )/cos;
+
+        // a wall seen at a glancing angle does not echo reliably
+        if ( distanceX < distanceY ) {
+            if ( Math.abs( sin ) < 0.5 ) {
+                return false;
+            }
+            return update( distance - distanceX, -1/sin, 0, -( wallX - x )*cos/( sin*sin ), Constants.EKF_RANGE_VARIANCE );
+        }
+        if ( Math.abs( cos ) < 0.5 ) {
+            return false;
+        }
+        return update( distance - distanceY, 0, -1/cos, ( wallY - y )*sin/( cos*cos ), Constants.EKF_RANGE_VARIANCE );
+    }
+
+    /**
+     * A method that applies a scalar measurement, unless it is too unlikely given the covariance
+     *
+     * @param residual the measured value minus the expected value
+     * @param h0 the derivative of the expected value by x
+     * @param h1 the derivative of the expected value by y
+     * @param h2 the derivative of the expected value by theta
+     * @param variance the variance of the measurement
+     * @return whether the measurement was used
+     */
+    private boolean update( double residual, double h0, double h1, double h2, double variance ) {
+        for ( int i = 0; i < 3; i++ ) {
+            projection[i] = covariance[3*i]*h0 + covariance[3*i + 1]*h1 + covariance[3*i + 2]*h2;
+        }
+        double innovation = h0*projection[0] + h1*projection[1] + h2*projection[2] + variance;
+        if ( residual*residual > Constants.EKF_GATE*innovation ) {
+            return false;
+        }
+        for ( int i = 0; i < 3; i++ ) {
+            gain[i] = projection[i]/innovation;
+        }
+        x += gain[0]*residual;
+        y += gain[1]*residual;
+        theta = Angles.normalize( theta + gain[2]*residual );
+        // P -= K (H P), which keeps P symmetric since H P is the transpose of P H^T
+        for ( int i = 0; i < 3; i++ ) {
+            for ( int j = 0; j < 3; j++ ) {
+                covariance[3*i + j] -= gain[i]*projection[j];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A method that sets the whole pose, with the variance of a fresh localization
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param theta the heading
+     */
+    public synchronized void setPose( double x, double y, double theta ) {
+        this.x = x;
+        this.y = y;
+        this.theta = Angles.normalize( theta );
+        for ( int i = 0; i < 9; i++ ) {
+            covariance[i] = 0;
+        }
+        covariance[0] = Constants.EKF_RESET_VARIANCE;
+        covariance[4] = Constants.EKF_RESET_VARIANCE;
+        covariance[8] = Constants.EKF_HEADING_RESET_VARIANCE;
+    }
+
+    /**
+     * A method that sets the x coordinate after it was measured directly, like when the vehicle is aligned on
+     * a gridline
+     *
+     * @param x the x coordinate
+     */
+    public synchronized void setX( double x ) {
+        this.x = x;
+        resetComponent( 0, Constants.EKF_RESET_VARIANCE );
+    }
+
+    /**
+     * A method that sets the y coordinate after it was measured directly
+     *
+     * @param y the y coordinate
+     */
+    public synchronized void setY( double y ) {
+        this.y = y;
+        resetComponent( 1, Constants.EKF_RESET_VARIANCE );
+    }
+
+    /**
+     * A method that sets the heading after it was measured directly
+     *
+     * @param theta the heading
+     */
+    public synchronized void setTheta( double theta ) {
+        this.theta = Angles.normalize( theta );
+        resetComponent( 2, Constants.EKF_HEADING_RESET_VARIANCE );
+    }
+
+    /**
+     * A method that forgets the correlations of one component and gives it a new variance
+     *
+     * @param component the index of the component
+     * @param variance the new variance
+     */
+    private void resetComponent( int component, double variance ) {
+        for ( int i = 0; i < 3; i++ ) {
+            covariance[3*component + i] = 0;
+            covariance[3*i + component] = 0;
+        }
+        covariance[4*component] = variance;
+    }
+
+    /**
+     * A method that returns the estimated pose
+     *
+     * @param pose the array to fill with x, y and theta
+     */
+    public synchronized void getPose( double[] pose ) {
+        pose[0] = x;
+        pose[1] = y;
+        pose[2] = theta;
+    }
+
+    /**
+     * A method that returns the covariance of the pose
+     *
+     * @param result the array to fill with the 3x3 covariance, row major
+     */
+    public synchronized void getCovariance( double[] result ) {
+        System.arraycopy( covariance, 0, result, 0, 9 );
+    }
+
+    /**
+     * A method that returns the standard deviation of the position
+     *
+     * @return the position uncertainty (cm)
+     */
+    public synchronized double getPositionUncertainty() {
+        return Math.sqrt( covariance[0] + covariance[4] );
+    }
+
+    /**
+     * A method that returns the standard deviation of the heading
+     *
+     * @return the heading uncertainty (rad)
+     */
+    public synchronized double getHeadingUncertainty() {
+        return Math.sqrt( covariance[8] );
+    }
+
+    /**
+     * A method that sets a 3x3 matrix to the identity
+     *
+     * @param matrix the matrix
+     */
+    private static void setIdentity( double[] matrix ) {
+        for ( int i = 0; i < 9; i++ ) {
+            matrix[i] = i % 4 == 0 ? 1 : 0;
+        }
+    }
+
+    /**
+     * A method that multiplies two 3x3 matrices
+     *
+     * @param a the left matrix
+     * @param b the right matrix
+     * @param result the product, which must not be either input
+     */
+    private static void multiply( double[] a, double[] b, double[] result ) {
+        for ( int i = 0; i < 3; i++ ) {
+            for ( int j = 0; j < 3; j++ ) {
+                result[3*i + j] = a[3*i]*b[j] + a[3*i + 1]*b[3 + j] + a[3*i + 2]*b[6 + j];
+            }
+        }
+    }
+
+    /**
+     * A method that multiplies a 3x3 matrix by the transpose of another
+     *
+     * @param a the left matrix
+     * @param b the matrix whose transpose is on the right
+     * @param result the product, which must not be either input
+     */
+    private static void multiplyTransposed( double[] a, double[] b, double[] result ) {
+        for ( int i = 0; i < 3; i++ ) {
+            for ( int j = 0; j < 3; j++ ) {
+                result[3*i + j] = a[3*i]*b[3*j] + a[3*i + 1]*b[3*j + 1] + a[3*i + 2]*b[3*j + 2];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package main.util;
+
+import main.resource.Constants;
+
+/**
+ * A check of every ultrasonic reading against the distance to the walls the odometer pose predicts, which asks
+ * for relocalization once the two keep disagreeing.
+ *
+ * Only an echo from past where the wall should be is counted against the pose: a shorter echo may be an
+ * obstacle and a missing echo may be a glancing wall, but nothing can be seen behind a wall.
+ *
+ * @author JohnWu
+ */
+public class PoseMonitor {
+
+    // properties
+    private WallDistanceTable wallDistanceTable;
+
+    // variables
+    private int disagreements;
+    private volatile boolean relocalizationNeeded;
+    private long relocalizationCount;
+
+    /**
+     * Main initialization method
+     *
+     * @param wallDistanceTable the precomputed wall distances
+     */
+    public PoseMonitor( WallDistanceTable wallDistanceTable ) {
+        this.wallDistanceTable = wallDistanceTable;
+    }
+
+    /**
+     * A method that checks one ultrasonic reading against the pose
+     *
+     * @param x the x coordinate of the vehicle
+     * @param y the y coordinate of the vehicle
+     * @param theta the heading of the vehicle
+     * @param distance the filtered distance from the middle of the vehicle
+     * @return whether the reading agrees with the pose
+     */
+    public boolean check( double x, double y, double theta, double distance ) {
+        double expected = wallDistanceTable.getExpectedDistance( x, y, theta );
+        if ( distance < Constants.ULTRASONICSENSOR_MAX_DISTANCE && distance > expected + Constants.WALL_CHECK_TOLERANCE ) {
+            disagreements++;
+            if ( disagreements >= Constants.WALL_CHECK_DISAGREEMENTS ) {
+                relocalizationNeeded = true;
+            }
+            return false;
+        }
+        if ( Math.abs( distance - expected ) <= Constants.WALL_CHECK_TOLERANCE ) {
+            disagreements = 0;
+        }
+        return true;
+    }
+
+    /**
+     * A method which determines if the pose has disagreed with the ultrasonic sensor for long enough that the
+     * robot should localize again
+     *
+     * @return whether relocalization is needed
+     */
+    public boolean isRelocalizationNeeded() {
+        return relocalizationNeeded;
+    }
+
+    /**
+     * A method to call once the robot has tried to localize again, after which the disagreements are counted
+     * from zero whether it worked or not
+     *
+     * @param relocalized whether the robot was localized
+     */
+    public void clearRelocalization( boolean relocalized ) {
+        disagreements = 0;
+        relocalizationNeeded = false;
+        if ( relocalized ) {
+            relocalizationCount++;
+        }
+    }
+
+    /**
+     * A method that returns how many times the robot localized again successfully
+     *
+     * @return the relocalization count
+     */
+    public long getRelocalizationCount() {
+        return relocalizationCount;
+    }
+
+}
@@ -0,0 +1,300 @@
+package main.util;
+
+import main.resource.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the tasks of every controller on a few worker threads instead of one thread each.
+ *
+ * There is one worker per priority level, and a worker only takes tasks at its own level or above, so the
+ * odometer and the line correction always have a worker of their own and never wait behind the screen or the
+ * buttons. A free worker runs the released task with the highest priority, the one released first among equals,
+ * and sleeps on the clock until the next release otherwise. Releasing a task wakes a sleeping worker that may run
+ * it. Tasks are not preempted, which is why a task only does one short step per run.
+ *
+ * @author JohnWu
+ */
+public class RealTimeExecutor {
+
+    // objects
+    private Clock clock;
+    private List<Task> tasks = new ArrayList<>();
+    private Worker[] workers = new Worker[Task.PRIORITY_LEVELS];
+    private Counter deadlineMissCounter;
+    private Counter overrunCounter;
+    private Log log;
+
+    // variables
+    private volatile boolean running;
+
+    /**
+     * Main initialization method
+     *
+     * @param clock the clock the releases are timed and the workers sleep on
+     */
+    public RealTimeExecutor( Clock clock ) {
+        this.clock = clock;
+    }
+
+    /**
+     * A method that adds a task, releasing it right away if it is periodic
+     *
+     * @param task the task
+     * @throws IllegalStateException if the task is scheduled on another executor
+     */
+    public synchronized void schedule( Task task ) {
+        if ( task.executor == this ) {
+            return;
+        }
+        if ( task.executor != null ) {
+            throw new IllegalStateException( task.getName() + " is scheduled on another executor" );
+        }
+        task.executor = this;
+        task.releaseTime = Task.NOT_RELEASED;
+        tasks.add( task );
+        if ( task.getPeriod() > 0 ) {
+            release( task, 0 );
+        }
+    }
+
+    /**
+     * A method that removes a task, letting a run in progress finish
+     *
+     * @param task the task
+     */
+    public synchronized void cancel( Task task ) {
+        if ( task.executor != this ) {
+            return;
+        }
+        task.executor = null;
+        task.releaseTime = Task.NOT_RELEASED;
+        tasks.remove( task );
+    }
+
+    /**
+     * A method that releases a task after a delay, unless it is already released sooner
+     *
+     * @param task the task
+     * @param delay the delay (ms)
+     */
+    synchronized void release( Task task, long delay ) {
+        if ( task.executor != this ) {
+            return;
+        }
+        long releaseTime = clock.currentTimeMillis() + Math.max( delay, 0 );
+        if ( releaseTime >= task.releaseTime ) {
+            return;
+        }
+        task.releaseTime = releaseTime;
+        if ( task.running ) {
+            // the worker running it picks the release up when the run ends
+            return;
+        }
+        // wake the sleeping worker of the lowest level that may run it and would otherwise wake too late
+        for ( int level = task.getPriority(); level < workers.length; level++ ) {
+            Worker worker = workers[level];
+            if ( worker == null || !worker.sleeping ) {
+                continue;
+            }
+            if ( worker.wakeTime > releaseTime ) {
+                worker.sleeping = false;
+                clock.wake( worker );
+            }
+            return;
+        }
+    }
+
+    /**
+     * A method that starts the workers, once
+     */
+    public synchronized void start() {
+        if ( running ) {
+            return;
+        }
+        running = true;
+        for ( int level = 0; level < workers.length; level++ ) {
+            workers[level] = new Worker( level );
+            clock.start( workers[level] );
+        }
+    }
+
+    /**
+     * A method that stops the workers once their current runs end
+     */
+    public synchronized void shutdown() {
+        running = false;
+        for ( Worker worker : workers ) {
+            if ( worker != null ) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    /**
+     * A method that returns the tasks, in the order they were scheduled
+     *
+     * @return a copy of the task list
+     */
+    public synchronized List<Task> getTasks() {
+        return new ArrayList<>( tasks );
+    }
+
+    /**
+     * A method that returns the number of threads running the tasks
+     *
+     * @return the worker count
+     */
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * A method to set the registry the deadline misses and overruns of every task are counted in
+     *
+     * @param diagnostics the diagnostics registry
+     */
+    public void setDiagnostics( Diagnostics diagnostics ) {
+        deadlineMissCounter = diagnostics.getCounter( "deadline misses" );
+        overrunCounter = diagnostics.getCounter( "overruns" );
+    }
+
+    /**
+     * A method to set the log the exceptions thrown by a task are written to
+     *
+     * @param log the log
+     */
+    public void setLog( Log log ) {
+        this.log = log;
+    }
+
+    /**
+     * A method that takes the released task a worker should run next
+     *
+     * @param level the level of the worker
+     * @param now the current time (ms)
+     * @return the task, or null if none of the tasks it may run is released
+     */
+    private synchronized Task take( int level, long now ) {
+        Task next = null;
+        for ( int i = 0; i < tasks.size(); i++ ) {
+            Task task = tasks.get( i );
+            if ( task.running || task.getPriority() > level || task.releaseTime > now ) {
+                continue;
+            }
+            if ( next == null || task.getPriority() < next.getPriority()
+                    || task.getPriority() == next.getPriority() && task.releaseTime < next.releaseTime ) {
+                next = task;
+            }
+        }
+        if ( next != null ) {
+            next.running = true;
+            next.runRelease = next.releaseTime;
+            next.releaseTime = Task.NOT_RELEASED;
+        }
+        return next;
+    }
+
+    /**
+     * A method that returns when the next task a worker may run is released
+     *
+     * @param level the level of the worker
+     * @return the release time (ms), or NOT_RELEASED if none is waiting
+     */
+    private synchronized long nextReleaseTime( int level ) {
+        long next = Task.NOT_RELEASED;
+        for ( int i = 0; i < tasks.size(); i++ ) {
+            Task task = tasks.get( i );
+            if ( !task.running && task.getPriority() <= level && task.releaseTime < next ) {
+                next = task.releaseTime;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * A method that runs a task once and accounts for its deadline and the releases it ran past
+     *
+     * @param task the task
+     * @param start the time the run starts (ms)
+     */
+    private void runTask( Task task, long start ) {
+        long release = task.runRelease;
+        try {
+            task.execute();
+        } catch ( RuntimeException e ) {
+            // one failing step must not stop the worker that runs every other task
+            if ( log != null ) {
+                log.error( "executor", task.getName(), e );
+            } else {
+                e.printStackTrace();
+            }
+        }
+        long end = clock.currentTimeMillis();
+
+        synchronized ( this ) {
+            task.running = false;
+            if ( task.recordRun( end - release, end - start ) && deadlineMissCounter != null ) {
+                deadlineMissCounter.increment();
+            }
+            long period = task.getPeriod();
+            if ( task.executor == this && period > 0 ) {
+                long next = release + period;
+                if ( next <= end ) {
+                    // the releases the run went past are skipped instead of run back to back
+                    long overruns = ( end - release )/period;
+                    task.recordOverruns( overruns );
+                    if ( overrunCounter != null ) {
+                        overrunCounter.add( overruns );
+                    }
+                    next = release + ( overruns + 1 )*period;
+                }
+                task.releaseTime = Math.min( task.releaseTime, next );
+            }
+        }
+    }
+
+    /**
+     * A thread that runs the tasks at its level or above
+     */
+    private class Worker extends Thread {
+
+        private int level;
+        private volatile boolean sleeping;
+        private volatile long wakeTime;
+
+        private Worker( int level ) {
+            super( "executor " + level );
+            this.level = level;
+            setDaemon( true );
+            setPriority( level == Task.PRIORITY_CRITICAL ? Thread.MAX_PRIORITY : Thread.NORM_PRIORITY );
+        }
+
+        public void run() {
+            while ( running ) {
+                long now;
+                Task task;
+                synchronized ( RealTimeExecutor.this ) {
+                    now = clock.currentTimeMillis();
+                    task = take( level, now );
+                    if ( task == null ) {
+                        long next = nextReleaseTime( level );
+                        wakeTime = next == Task.NOT_RELEASED ? now + Constants.EXECUTOR_IDLE_PERIOD
+                                : Math.min( next, now + Constants.EXECUTOR_IDLE_PERIOD );
+                        sleeping = true;
+                    }
+                }
+                if ( task != null ) {
+                    runTask( task, now );
+                    continue;
+                }
+                // a release wakes the worker through the clock, which leaves the interrupt flag set on the brick
+                clock.sleep( wakeTime - now );
+                sleeping = false;
+                Thread.interrupted();
+            }
+        }
+    }
+
+}
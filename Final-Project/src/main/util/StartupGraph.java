@@ -0,0 +1,187 @@
+package main.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The devices and inputs the vehicle opens when it starts, each opened on a thread of its own as soon as the ones
+ * it depends on are open, so that opening the slow sensors of the brick and waiting for the parameters overlap.
+ *
+ * Asking a node for its value waits only for that node, so a controller can start as soon as its own devices are
+ * open while the others are still being opened. The time each node took to open, from the start of the graph, is
+ * kept to be reported.
+ *
+ * @author JohnWu
+ */
+public class StartupGraph {
+
+    // objects
+    private Clock clock = Clock.getSystemClock();
+    private List<Node<?>> nodes = new ArrayList<>();
+
+    // variables
+    private long startTime = -1;
+
+    /**
+     * A method that adds a node to open once the graph is started
+     *
+     * @param name the name the node is reported under
+     * @param opener what opens the device or retrieves the input
+     * @param dependencies the nodes that must be open first
+     * @param <T> the type of the device or input
+     * @return the node
+     */
+    public synchronized <T> Node<T> add( String name, Callable<T> opener, Node<?>... dependencies ) {
+        if ( startTime >= 0 ) {
+            throw new IllegalStateException( "The graph is already started, " + name + " cannot be added" );
+        }
+        Node<T> node = new Node<>( name, opener, dependencies );
+        nodes.add( node );
+        return node;
+    }
+
+    /**
+     * A method that starts opening every node, returning right away
+     */
+    public synchronized void start() {
+        startTime = clock.currentTimeMillis();
+        for ( final Node<?> node : nodes ) {
+            Thread thread = new Thread( "open " + node.getName() ) {
+                public void run() {
+                    node.open( startTime, clock );
+                }
+            };
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+
+    /**
+     * A method that returns a node that is open already, for devices made elsewhere
+     *
+     * @param name the name of the node
+     * @param value the device or input
+     * @param <T> the type of the device or input
+     * @return the node
+     */
+    public static <T> Node<T> ready( String name, T value ) {
+        Node<T> node = new Node<>( name, null, new Node<?>[0] );
+        node.value = value;
+        node.readyTime = 0;
+        node.done.countDown();
+        return node;
+    }
+
+    /**
+     * A method which returns the time the graph was started
+     *
+     * @return the start time (ms), or -1 if it is not started
+     */
+    public synchronized long getStartTime() {
+        return startTime;
+    }
+
+    public synchronized List<Node<?>> getNodes() {
+        return new ArrayList<>( nodes );
+    }
+
+    public void setClock( Clock clock ) {
+        this.clock = clock;
+    }
+
+    /**
+     * One device or input of the graph
+     *
+     * @param <T> the type of the device or input
+     */
+    public static class Node<T> {
+
+        // properties
+        private String name;
+        private Callable<T> opener;
+        private Node<?>[] dependencies;
+
+        // variables
+        private CountDownLatch done = new CountDownLatch( 1 );
+        private volatile T value;
+        private volatile Throwable failure;
+        private volatile long readyTime = -1;
+
+        private Node( String name, Callable<T> opener, Node<?>[] dependencies ) {
+            this.name = name;
+            this.opener = opener;
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * A method that opens the node once its dependencies are open
+         *
+         * @param startTime the time the graph was started (ms)
+         * @param clock the clock the time it took is measured on
+         */
+        private void open( long startTime, Clock clock ) {
+            try {
+                for ( Node<?> dependency : dependencies ) {
+                    dependency.get();
+                }
+                value = opener.call();
+            } catch ( Throwable e ) {
+                // leJOS reports a missing port or driver as an error, which must not leave the node waited on
+                failure = e;
+            } finally {
+                readyTime = clock.currentTimeMillis() - startTime;
+                done.countDown();
+            }
+        }
+
+        /**
+         * A method that returns the device or input, waiting until it is open
+         *
+         * @return the device or input
+         * @throws IllegalStateException if it could not be opened
+         */
+        public T get() {
+            boolean interrupted = false;
+            while ( done.getCount() > 0 ) {
+                try {
+                    done.await();
+                } catch ( InterruptedException e ) {
+                    interrupted = true;
+                }
+            }
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+            if ( failure != null ) {
+                throw new IllegalStateException( "Could not open " + name, failure );
+            }
+            return value;
+        }
+
+        /**
+         * A method which determines if the node is open, or failed to open
+         *
+         * @return whether the node is done opening
+         */
+        public boolean isReady() {
+            return done.getCount() == 0;
+        }
+
+        /**
+         * A method which returns how long after the start of the graph the node was open
+         *
+         * @return the time (ms), or -1 if it is not open yet
+         */
+        public long getReadyTime() {
+            return readyTime;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+}
@@ -0,0 +1,188 @@
+package main.util;
+
+/**
+ * A piece of work the real-time executor runs for a controller, either every period or whenever it is released
+ * by an event, such as a light sensor seeing a line.
+ *
+ * A task never sleeps or waits in execute(). It does one step and returns, and asks to be released again if it
+ * has to come back later, so the few workers of the executor can share every controller between them. Each run
+ * is timed from its release, which gives the deadline misses and overruns of the task.
+ *
+ * @author JohnWu
+ */
+public abstract class Task {
+
+    // priorities, the lower the sooner a task runs
+    public static final int PRIORITY_CRITICAL = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_LOW = 2;
+    public static final int PRIORITY_LEVELS = 3;
+
+    // release time of a task that is not waiting to run
+    static final long NOT_RELEASED = Long.MAX_VALUE;
+
+    // properties
+    private String name;
+    private int priority;
+    private volatile long period;
+    private volatile long deadline;
+
+    // objects
+    volatile RealTimeExecutor executor;
+
+    // variables, kept under the lock of the executor
+    long releaseTime = NOT_RELEASED;
+    long runRelease;
+    boolean running;
+    private volatile long runCount;
+    private volatile long deadlineMissCount;
+    private volatile long overrunCount;
+    private volatile long maxResponseTime;
+    private volatile long executionTime;
+
+    /**
+     * Main initialization method
+     *
+     * @param name the name the task is reported under
+     * @param priority one of the priorities
+     * @param period the time between releases (ms), or 0 for a task that only runs when it is released
+     * @param deadline the time a run may take from its release before it is late (ms)
+     */
+    protected Task( String name, int priority, long period, long deadline ) {
+        if ( priority < 0 || priority >= PRIORITY_LEVELS ) {
+            throw new IllegalArgumentException( "Unknown priority " + priority );
+        }
+        this.name = name;
+        this.priority = priority;
+        this.period = period;
+        this.deadline = deadline;
+    }
+
+    /**
+     * One step of the task, which must return quickly without sleeping or waiting
+     */
+    protected abstract void execute();
+
+    /**
+     * A method that releases the task to run as soon as a worker is free, safe to call from any thread
+     */
+    public void release() {
+        releaseAfter( 0 );
+    }
+
+    /**
+     * A method that releases the task to run after a delay, unless it is released sooner
+     *
+     * @param delay the delay (ms)
+     */
+    public void releaseAfter( long delay ) {
+        RealTimeExecutor executor = this.executor;
+        if ( executor != null ) {
+            executor.release( this, delay );
+        }
+    }
+
+    /**
+     * A method that takes the task off the executor it is scheduled on
+     */
+    public void cancel() {
+        RealTimeExecutor executor = this.executor;
+        if ( executor != null ) {
+            executor.cancel( this );
+        }
+    }
+
+    /**
+     * A method that counts one run of the task
+     *
+     * @param responseTime the time from the release to the end of the run (ms)
+     * @param executionTime the time the run took (ms)
+     * @return whether the run missed its deadline
+     */
+    boolean recordRun( long responseTime, long executionTime ) {
+        runCount++;
+        this.executionTime += executionTime;
+        if ( responseTime > maxResponseTime ) {
+            maxResponseTime = responseTime;
+        }
+        if ( deadline > 0 && responseTime > deadline ) {
+            deadlineMissCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A method that counts the releases skipped because a run ended after them
+     *
+     * @param overruns the number of skipped releases
+     */
+    void recordOverruns( long overruns ) {
+        overrunCount += overruns;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName( String name ) {
+        this.name = name;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return the time between releases (ms), or 0 for a task that only runs when it is released
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    public void setPeriod( long period ) {
+        this.period = period;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline( long deadline ) {
+        this.deadline = deadline;
+    }
+
+    public boolean isScheduled() {
+        return executor != null;
+    }
+
+    public long getRunCount() {
+        return runCount;
+    }
+
+    public long getDeadlineMissCount() {
+        return deadlineMissCount;
+    }
+
+    /**
+     * @return the number of releases skipped because a run ended after them
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * @return the longest time from a release to the end of its run (ms)
+     */
+    public long getMaxResponseTime() {
+        return maxResponseTime;
+    }
+
+    /**
+     * @return the mean time a run took (ms)
+     */
+    public double getMeanExecutionTime() {
+        return runCount == 0 ? 0 : (double) executionTime/runCount;
+    }
+
+}
@@ -0,0 +1,141 @@
+package main.util;
+
+import main.object.FieldGeometry;
+import main.resource.Constants;
+
+/**
+ * A table of the distance from a pose to the field wall in front of it, precomputed at startup so that
+ * checking an ultrasonic reading against the odometer is a single array read.
+ *
+ * The field is split into cells a fraction of a square wide and the heading into equal bins. A ray meets the
+ * nearer of the side walls it points at and the end walls it points at, and the first only depends on its x and
+ * the second on its y, so the table keeps the distance to the side walls for each column of cells and the
+ * distance to the end walls for each row. It grows with the sides of the field instead of its area. Each entry
+ * is the distance in millimetres from the middle of a cell along the middle of a heading bin, capped at the
+ * range of the ultrasonic sensor.
+ *
+ * @author JohnWu
+ */
+public class WallDistanceTable {
+
+    // properties
+    private int cellColumns;
+    private int cellRows;
+    private int headingBins;
+    private double cellLength;
+    private double minX, maxX, minY, maxY;
+    private short[] columnDistances;
+    private short[] rowDistances;
+
+    /**
+     * Main initialization method, builds the table
+     *
+     * @param geometry the dimensions of the field
+     */
+    public WallDistanceTable( FieldGeometry geometry ) {
+        double squareLength = geometry.getSquareLength();
+        this.cellLength = squareLength / Constants.WALL_TABLE_RESOLUTION;
+        this.cellColumns = geometry.getColumns()*Constants.WALL_TABLE_RESOLUTION;
+        this.cellRows = geometry.getRows()*Constants.WALL_TABLE_RESOLUTION;
+        this.headingBins = Constants.WALL_TABLE_HEADING_BINS;
+        this.minX = -squareLength;
+        this.minY = -squareLength;
+        this.maxX = ( geometry.getColumns() - 1 )*squareLength;
+        this.maxY = ( geometry.getRows() - 1 )*squareLength;
+        this.columnDistances = new short[cellColumns*headingBins];
+        this.rowDistances = new short[cellRows*headingBins];
+        build();
+    }
+
+    /**
+     * A method that casts a ray from the middle of every column of cells to the side walls and from the middle
+     * of every row to the end walls, along every heading bin
+     */
+    private void build() {
+        for ( int column = 0; column < cellColumns; column++ ) {
+            double x = minX + ( column + 0.5 )*cellLength;
+            for ( int bin = 0; bin < headingBins; bin++ ) {
+                double distance = calculateSideWallDistance( x, Math.sin( bin*2*Math.PI/headingBins ) );
+                columnDistances[column*headingBins + bin] = toEntry( distance );
+            }
+        }
+        for ( int row = 0; row < cellRows; row++ ) {
+            double y = minY + ( row + 0.5 )*cellLength;
+            for ( int bin = 0; bin < headingBins; bin++ ) {
+                double distance = calculateEndWallDistance( y, Math.cos( bin*2*Math.PI/headingBins ) );
+                rowDistances[row*headingBins + bin] = toEntry( distance );
+            }
+        }
+    }
+
+    private static short toEntry( double distance ) {
+        return (short) Math.round( 10*Math.max( 0, Math.min( distance, Constants.ULTRASONICSENSOR_MAX_DISTANCE ) ) );
+    }
+
+    /**
+     * A method that looks up the distance from a pose to the wall in front of it
+     *
+     * @param x the x coordinate of the pose
+     * @param y the y coordinate of the pose
+     * @param theta the heading of the pose
+     * @return the distance to the wall, at most the ultrasonic range
+     */
+    public double getExpectedDistance( double x, double y, double theta ) {
+        int column = (int) ( ( x - minX )/cellLength );
+        int row = (int) ( ( y - minY )/cellLength );
+        column = column < 0 ? 0 : column >= cellColumns ? cellColumns - 1 : column;
+        row = row < 0 ? 0 : row >= cellRows ? cellRows - 1 : row;
+        int bin = (int) Math.round( theta*headingBins/( 2*Math.PI ) ) % headingBins;
+        if ( bin < 0 ) {
+            bin += headingBins;
+        }
+        return Math.min( columnDistances[column*headingBins + bin], rowDistances[row*headingBins + bin] )/10.0;
+    }
+
+    /**
+     * A method that calculates the distance from a pose to the field wall in front of it
+     *
+     * @param x the x coordinate of the pose
+     * @param y the y coordinate of the pose
+     * @param theta the heading of the pose
+     * @return the distance to the wall
+     */
+    public double calculateWallDistance( double x, double y, double theta ) {
+        return Math.max( 0, Math.min( calculateSideWallDistance( x, Math.sin( theta ) ),
+                calculateEndWallDistance( y, Math.cos( theta ) ) ) );
+    }
+
+    /**
+     * A method that calculates the distance along a ray to the side wall it points at
+     *
+     * @param x the x coordinate of the ray
+     * @param directionX the x part of the direction of the ray
+     * @return the distance to the wall, or the largest double when the ray runs along the side walls
+     */
+    private double calculateSideWallDistance( double x, double directionX ) {
+        return directionX > 1e-9 ? ( maxX - x )/directionX
+                : directionX < -1e-9 ? ( minX - x )/directionX : Double.MAX_VALUE;
+    }
+
+    /**
+     * A method that calculates the distance along a ray to the end wall it points at
+     *
+     * @param y the y coordinate of the ray
+     * @param directionY the y part of the direction of the ray
+     * @return the distance to the wall, or the largest double when the ray runs along the end walls
+     */
+    private double calculateEndWallDistance( double y, double directionY ) {
+        return directionY > 1e-9 ? ( maxY - y )/directionY
+                : directionY < -1e-9 ? ( minY - y )/directionY : Double.MAX_VALUE;
+    }
+
+    /**
+     * A method that returns the size of the table
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return columnDistances.length + rowDistances.length;
+    }
+
+}
@@ -0,0 +1,307 @@
+package main.util;
+
+import lejos.robotics.SampleProvider;
+import main.Parameters;
+import main.controller.Localizer;
+import main.controller.Odometer;
+import main.object.FieldGeometry;
+import main.object.FieldGrid;
+import main.object.LightSensor;
+import main.object.ScreenFrame;
+import main.object.UltrasonicSensor;
+import main.resource.Constants;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * A thread that runs the hot paths of the controllers on made-up data while the vehicle waits for the match to
+ * start, so that the first sweep and the first leg are not run by the interpreter and their timing is the same as
+ * that of every later one.
+ *
+ * The classes of the controllers are loaded and initialized first. Each round then integrates wheel displacements
+ * through the odometer and the pose estimator, samples the sensors from stand-ins, searches a localization sweep
+ * for its minimums, weighs the particles, updates the occupancy grid, plans and repairs a route and formats the
+ * screen. Every object is made for the warm-up alone, so nothing of the match is touched. The rounds go on until
+ * the compiler has had nothing more to do for a number of rounds, the warm-up time is up, or the match starts.
+ *
+ * @author JohnWu
+ */
+public class WarmUp extends Thread {
+
+    // the classes the match uses, loaded before it starts
+    private static final String[] CLASS_NAMES = { "main.controller.LightLocalizer", "main.controller.Localizer",
+            "main.controller.Navigator", "main.controller.ObstacleDetector", "main.controller.OccupancyMapper",
+            "main.controller.Odometer", "main.controller.OdometerCorrection", "main.controller.ParticleLocalizer",
+            "main.object.DiagnosticsDisplay", "main.object.DriveMotors", "main.object.Feedback",
+            "main.object.OdometerDisplay", "main.util.CalibrationEstimator", "main.util.DStarLitePlanner",
+            "main.util.EventTrace", "main.util.LatencyHistogram", "main.util.RealTimeExecutor" };
+
+    // properties
+    private long warmUpTime = Constants.WARM_UP_TIME;
+    private int minimumRounds = Constants.WARM_UP_ROUNDS;
+    private int quietRounds = Constants.WARM_UP_QUIET_ROUNDS;
+
+    // objects
+    private Odometer odometer;
+    private PoseEstimator poseEstimator;
+    private LightSensor leftSensor, rightSensor;
+    private UltrasonicSensor ultrasonicSensor;
+    private Task[] sensorTasks;
+    private Localizer localizer;
+    private ArrayList<Localizer.SensorReading> sweep = new ArrayList<>();
+    private ParticleFilter particleFilter;
+    private OccupancyGrid occupancyGrid;
+    private PoseMonitor poseMonitor;
+    private DStarLitePlanner replanner;
+    private FieldMapper fieldMapper;
+    private ScreenFrame frame = new ScreenFrame( 0, 3, 16 );
+
+    // variables
+    private volatile boolean running = true;
+    private volatile int rounds;
+    private volatile long duration;
+    private volatile boolean compiled;
+    private double[] pose = new double[3];
+
+    /**
+     * Main initialization method
+     */
+    public WarmUp() {
+        super( "warm-up" );
+        setDaemon( true );
+        setPriority( Thread.MIN_PRIORITY );
+    }
+
+    /**
+     * Loads the classes and runs rounds until the hot paths are compiled, the time is up or the match starts
+     */
+    public void run() {
+        long start = System.currentTimeMillis();
+        loadClasses();
+        prepare();
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        long compilationTime = monitored ? compiler.getTotalCompilationTime() : 0;
+        int quiet = 0;
+        while ( running && System.currentTimeMillis() - start < warmUpTime ) {
+            round( rounds );
+            rounds++;
+            if ( monitored ) {
+                long total = compiler.getTotalCompilationTime();
+                quiet = total == compilationTime ? quiet + 1 : 0;
+                compilationTime = total;
+            }
+            // without the compilation time the minimum number of rounds is taken to be enough
+            if ( rounds >= minimumRounds && ( !monitored || quiet >= quietRounds ) ) {
+                compiled = true;
+                break;
+            }
+        }
+        duration = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * A method that stops the warm-up at the end of the current round and waits for it, for when the match starts
+     */
+    public void finish() {
+        running = false;
+        try {
+            join();
+        } catch ( InterruptedException e ) {
+            // the round is short, and the match starts either way
+        }
+    }
+
+    private void loadClasses() {
+        ClassLoader loader = WarmUp.class.getClassLoader();
+        for ( String className : CLASS_NAMES ) {
+            try {
+                Class.forName( className, true, loader );
+            } catch ( ClassNotFoundException e ) {
+                // a class the match does not use any more is left out
+            }
+        }
+    }
+
+    /**
+     * A method that makes the objects the rounds run on, on a default field with the vehicle in corner one
+     */
+    private void prepare() {
+        Parameters parameters = new Parameters();
+        parameters.setForwardCorner( 1 );
+        parameters.setForwardLine( 8 );
+        parameters.setForwardTeam( 11 );
+        parameters.setDefenderZone( new int[]{ 4, 4 } );
+        FieldGeometry geometry = FieldGeometry.getDefault();
+        fieldMapper = new FieldMapper( parameters, geometry );
+
+        odometer = new Odometer( null, null, fieldMapper );
+        poseEstimator = new PoseEstimator( geometry );
+        leftSensor = new LightSensor( new SyntheticSampleProvider( 0.5f, 0.1f, 7 ) );
+        rightSensor = new LightSensor( new SyntheticSampleProvider( 0.5f, 0.1f, 11 ) );
+        SyntheticSampleProvider ranges = new SyntheticSampleProvider( 0.3f, 1.2f, 13 );
+        ultrasonicSensor = new UltrasonicSensor( ranges );
+        sensorTasks = new Task[]{ leftSensor, rightSensor, ultrasonicSensor };
+
+        // the sweep of a vehicle in corner one, 15 cm from both walls
+        localizer = new Localizer( odometer, ranges, null, 1 );
+        for ( int i = 0; i < 360; i++ ) {
+            double theta = 3*Math.PI/2 - i*Math.PI/180;
+            double west = -Math.sin( theta ) > 1e-9 ? 15/-Math.sin( theta ) : Double.MAX_VALUE;
+            double south = -Math.cos( theta ) > 1e-9 ? 15/-Math.cos( theta ) : Double.MAX_VALUE;
+            Localizer.SensorReading sensorReading = localizer.new SensorReading();
+            sensorReading.setDistance( (float) Math.min( Constants.ULTRASONICSENSOR_MAX_DISTANCE,
+                    Math.min( west, south ) ) );
+            sensorReading.setTheta( -i*Math.PI/180 );
+            sweep.add( sensorReading );
+        }
+
+        particleFilter = new ParticleFilter( geometry, Constants.PARTICLE_COUNT );
+        particleFilter.initialize( geometry.getSquareLength()/2, geometry.getSquareLength()/2, 0, 2, 0.05 );
+        occupancyGrid = new OccupancyGrid( fieldMapper.getGrid() );
+        poseMonitor = new PoseMonitor( new WallDistanceTable( geometry ) );
+        replanner = new DStarLitePlanner( fieldMapper );
+    }
+
+    /**
+     * A method that runs each hot path once, the made-up inputs changing from round to round
+     *
+     * @param round the number of the round
+     */
+    private void round( int round ) {
+        FieldGrid grid = fieldMapper.getGrid();
+        double squareLength = fieldMapper.getGeometry().getSquareLength();
+
+        // odometry, a few updates of the odometer period along a gentle curve
+        for ( int i = 0; i < 10; i++ ) {
+            double left = odometer.calculateMotorDisplacement( round*10 + i + 2, round*10 + i );
+            double right = odometer.calculateMotorDisplacement( round*10 + i + 3, round*10 + i );
+            double thetaChange = odometer.calculateThetaChange( left, right );
+            double displacement = odometer.calculateVehicleDisplacement( left, right );
+            odometer.calculateXDisplacement( displacement, thetaChange );
+            odometer.calculateYDisplacement( displacement, thetaChange );
+            poseEstimator.predict( left, right );
+        }
+        poseEstimator.updateRange( 30 + round % 50 );
+        poseEstimator.updateLineCrossing( round % 2 == 0 );
+        poseEstimator.getPose( pose );
+
+        // sensors, run as the executor runs them
+        for ( int i = 0; i < 10; i++ ) {
+            for ( Task task : sensorTasks ) {
+                task.execute();
+            }
+            leftSensor.setLineDetected( false );
+            rightSensor.setLineDetected( false );
+        }
+        float distance = ultrasonicSensor.getFilteredSensorData();
+
+        // localization analysis
+        int firstMinimumIndex = localizer.calculateFirstMinimumIndex( sweep );
+        int secondMinimumIndex = localizer.calculateSecondMinimumIndex( sweep, firstMinimumIndex );
+        localizer.calculateStartingX( sweep.get( firstMinimumIndex ), sweep.get( secondMinimumIndex ) );
+        localizer.calculateStartingY( sweep.get( firstMinimumIndex ), sweep.get( secondMinimumIndex ) );
+
+        // particles, occupancy and the pose monitor, the vehicle driving up the first column
+        double x = squareLength/2;
+        double y = squareLength/2 + ( round % 40 )*squareLength/10;
+        particleFilter.predict( 1, 0.001 );
+        particleFilter.updateRange( distance );
+        if ( round % 10 == 0 ) {
+            particleFilter.updateLineCrossing( round % 20 == 0 );
+            particleFilter.resample();
+        }
+        particleFilter.getEstimate( pose );
+        occupancyGrid.addReading( x, y, Math.PI/2, distance );
+        poseMonitor.check( x, y, Math.PI/2, distance );
+
+        // planning, a route across the field and a repair around a square found blocked
+        int goal = grid.getCell( 2*squareLength, 2*squareLength + ( round % 3 )*squareLength );
+        replanner.setGoal( goal, grid.getCell( x, y ) );
+        replanner.moveStart( grid.getCell( x, y ) );
+        int blocked = grid.getCell( x + squareLength, y );
+        if ( replanner.markBlocked( blocked ) ) {
+            replanner.getNextWaypoint();
+            replanner.clearBlocked( blocked, fieldMapper );
+        }
+        replanner.getNextWaypoint();
+
+        // formatting
+        frame.clearFrom( 0, 0 );
+        frame.write( 0, 0, "X: " );
+        frame.write( 0, 3, pose[0], 2 );
+        frame.write( 1, frame.write( 1, 0, pose[1], 1 ), " ms" );
+        frame.write( 2, 0, round, 0 );
+    }
+
+    /**
+     * A method which returns the number of rounds run
+     *
+     * @return the number of rounds
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * A method which returns how long the warm-up took, once it is over
+     *
+     * @return the duration (ms)
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * A method which determines if the warm-up ran until the compiler had nothing more to do, rather than being
+     * cut short by the warm-up time or the start of the match
+     *
+     * @return whether the hot paths are taken to be compiled
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    public void setWarmUpTime( long warmUpTime ) {
+        this.warmUpTime = warmUpTime;
+    }
+
+    /**
+     * A method to set when the hot paths are taken to be compiled
+     *
+     * @param minimumRounds the number of rounds run in any case
+     * @param quietRounds the number of rounds in a row the compiler must have had nothing to do
+     */
+    public void setRounds( int minimumRounds, int quietRounds ) {
+        this.minimumRounds = minimumRounds;
+        this.quietRounds = quietRounds;
+    }
+
+    /**
+     * A stand-in for a sensor that gives a value that alternates between two levels
+     */
+    private static class SyntheticSampleProvider implements SampleProvider {
+
+        private float high, low;
+        private int period;
+        private int samples;
+
+        SyntheticSampleProvider( float high, float low, int period ) {
+            this.high = high;
+            this.low = low;
+            this.period = period;
+        }
+
+        public int sampleSize() {
+            return 1;
+        }
+
+        public void fetchSample( float[] sample, int offset ) {
+            sample[offset] = samples++ % period == 0 ? low : high;
+        }
+
+    }
+
+}
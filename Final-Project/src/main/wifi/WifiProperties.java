@@ -17,6 +17,11 @@ public class WifiProperties {
      */
     public static final int TEAM_NUMBER = 11;
 
+    /**
+     * Enabling/disabling retrieval of the starting parameters from the server
+     */
+    public static final boolean ENABLE_WIFI = false;
+
     /**
      * Enabling/disabling printing of debug info from WiFi class
      */
@@ -0,0 +1,96 @@
+package main.controller;
+
+import main.object.LightSensor;
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * A class to test the logic in the LightLocalizer class
+ *
+ * @author JohnWu
+ */
+public class LightLocalizerTest {
+
+    @Mock
+    private Odometer odometer;
+
+    @Mock
+    private Navigator navigator;
+
+    @Mock
+    private LightSensor leftSensor;
+
+    @Mock
+    private LightSensor rightSensor;
+
+    private LightLocalizer lightLocalizer;
+
+    // vehicle 3 cm west and 2 cm north of the intersection, odometer heading 0.1 rad behind
+    private double sensorRadius = Math.hypot( Constants.LIGHT_SENSOR_LATERAL_OFFSET, Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET );
+    private double xOffset = -3;
+    private double yOffset = 2;
+    private double headingError = 0.1;
+    private double northAngle, eastAngle, southAngle, westAngle;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        lightLocalizer = new LightLocalizer( odometer, navigator, leftSensor, rightSensor, 1 );
+
+        double verticalAngle = Math.asin( -xOffset/sensorRadius );
+        double horizontalAngle = Math.acos( -yOffset/sensorRadius );
+        northAngle = verticalAngle - headingError;
+        southAngle = Math.PI - verticalAngle - headingError;
+        eastAngle = horizontalAngle - headingError;
+        westAngle = 2*Math.PI - horizontalAngle - headingError;
+    }
+
+    @Test
+    public void testClassifyCrossing() {
+        // given
+        double almostNorth = 2*Math.PI - 0.2;
+        double almostSouth = Math.PI + 0.3;
+
+        // when
+        int north = lightLocalizer.classifyCrossing( almostNorth );
+        int south = lightLocalizer.classifyCrossing( almostSouth );
+        int west = lightLocalizer.classifyCrossing( -Math.PI/2 );
+
+        // then
+        Assert.assertEquals( LightLocalizer.NORTH, north );
+        Assert.assertEquals( LightLocalizer.SOUTH, south );
+        Assert.assertEquals( LightLocalizer.WEST, west );
+    }
+
+    @Test
+    public void testCalculateXOffset() {
+        // when
+        double offset = lightLocalizer.calculateXOffset( northAngle, southAngle );
+
+        // then
+        Assert.assertEquals( xOffset, offset, 1e-9 );
+    }
+
+    @Test
+    public void testCalculateYOffset() {
+        // when
+        double offset = lightLocalizer.calculateYOffset( eastAngle, westAngle );
+
+        // then
+        Assert.assertEquals( yOffset, offset, 1e-9 );
+    }
+
+    @Test
+    public void testCalculateThetaCorrection() {
+        // when
+        double correction = lightLocalizer.calculateThetaCorrection( northAngle, eastAngle, southAngle, westAngle );
+
+        // then
+        Assert.assertEquals( headingError, correction, 1e-9 );
+    }
+
+}
@@ -0,0 +1,76 @@
+package main.controller;
+
+import main.Parameters;
+import main.object.FieldGrid;
+import main.util.DStarLitePlanner;
+import main.util.FieldMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A class to test how the ObstacleDetector class clears the squares the ultrasonic sensor sees past
+ *
+ * @author JohnWu
+ */
+public class ObstacleDetectorTest {
+
+    private FieldGrid grid;
+    private DStarLitePlanner replanner;
+    private ObstacleDetector obstacleDetector;
+
+    @Before
+    public void setUp() {
+        Parameters parameters = new Parameters();
+        parameters.setForwardTeam( 11 );
+        parameters.setForwardLine( 8 );
+        parameters.setDefenderZone( new int[]{ 4, 4 } );
+        FieldMapper fieldMapper = new FieldMapper( parameters );
+        replanner = new DStarLitePlanner( fieldMapper );
+        grid = replanner.getGrid();
+        obstacleDetector = new ObstacleDetector( new Odometer( null, null, fieldMapper ), null, replanner );
+    }
+
+    @Test
+    public void testSquaresSeenPastAreCleared() {
+        // given, an obstacle two squares ahead of the vehicle
+        int vehicle = grid.encodeCell( 1, 0 );
+        int obstacle = grid.encodeCell( 3, 0 );
+        replanner.markBlocked( obstacle );
+
+        // when, the sensor sees past it
+        obstacleDetector.clearSeenSquares( grid.getCellX( vehicle ), grid.getCellY( vehicle ), 0, 60, -1 );
+
+        // then
+        Assert.assertTrue( grid.isAllowed( obstacle ) );
+    }
+
+    @Test
+    public void testSquareOfEchoIsKept() {
+        // given
+        int vehicle = grid.encodeCell( 1, 0 );
+        int obstacle = grid.encodeCell( 3, 0 );
+        replanner.markBlocked( obstacle );
+
+        // when, the echo comes from the obstacle
+        obstacleDetector.clearSeenSquares( grid.getCellX( vehicle ), grid.getCellY( vehicle ), 0, 60, obstacle );
+
+        // then
+        Assert.assertFalse( grid.isAllowed( obstacle ) );
+    }
+
+    @Test
+    public void testSquareBeyondEchoIsKept() {
+        // given
+        int vehicle = grid.encodeCell( 1, 0 );
+        int obstacle = grid.encodeCell( 3, 0 );
+        replanner.markBlocked( obstacle );
+
+        // when, something in the square before it answers
+        obstacleDetector.clearSeenSquares( grid.getCellX( vehicle ), grid.getCellY( vehicle ), 0, 30, -1 );
+
+        // then
+        Assert.assertFalse( grid.isAllowed( obstacle ) );
+    }
+
+}
@@ -1,12 +1,17 @@
 package main.controller;
 
 import lejos.hardware.motor.EV3LargeRegulatedMotor;
+import main.simulator.VirtualClock;
 import main.util.FieldMapper;
+import main.util.RealTimeExecutor;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import main.resource.Constants;
 
 /**
@@ -99,4 +104,37 @@ public class OdometerTest {
         Assert.assertEquals( 20, deltaY, 0 );
     }
 
+    @Test
+    public void testRunOnVirtualClock() {
+        // given, both wheels turn one degree every 10 ms of virtual time and the left one a degree more per second
+        final VirtualClock clock = new VirtualClock();
+        Mockito.when( leftMotor.getTachoCount() ).thenAnswer( new Answer<Integer>() {
+            public Integer answer( InvocationOnMock invocation ) {
+                return (int) ( clock.currentTimeMillis()/10 + clock.currentTimeMillis()/1000 );
+            }
+        } );
+        Mockito.when( rightMotor.getTachoCount() ).thenAnswer( new Answer<Integer>() {
+            public Integer answer( InvocationOnMock invocation ) {
+                return (int) ( clock.currentTimeMillis()/10 );
+            }
+        } );
+        odometer.setClock( clock );
+        RealTimeExecutor executor = new RealTimeExecutor( clock );
+        executor.schedule( odometer );
+        executor.start();
+        clock.awaitSleepers( executor.getWorkerCount() );
+
+        // when
+        clock.advance( 2000 );
+        double[] position = new double[3];
+        odometer.getPosition( position );
+        executor.shutdown();
+
+        // then, the left wheel turned 202 degrees and the right one 200
+        double wheelDegree = 2*Math.PI*Constants.WHEEL_RADIUS/360;
+        Assert.assertEquals( 2000, clock.currentTimeMillis() );
+        Assert.assertEquals( 2*wheelDegree/Constants.TRACK_LENGTH, position[2], 1e-9 );
+        Assert.assertEquals( 201*wheelDegree, position[1], 0.01 );
+    }
+
 }
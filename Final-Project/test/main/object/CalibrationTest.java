@@ -0,0 +1,57 @@
+package main.object;
+
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * A class to test saving and loading the Calibration class
+ *
+ * @author JohnWu
+ */
+public class CalibrationTest {
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        // given
+        File file = File.createTempFile( "calibration", ".properties" );
+        file.deleteOnExit();
+        Calibration calibration = new Calibration( 2.15, 16.1 );
+
+        // when
+        boolean saved = calibration.save( file.getPath() );
+        Calibration loaded = Calibration.load( file.getPath() );
+
+        // then
+        Assert.assertTrue( saved );
+        Assert.assertEquals( 2.15, loaded.getWheelRadius(), 0 );
+        Assert.assertEquals( 16.1, loaded.getTrackLength(), 0 );
+    }
+
+    @Test
+    public void testLoadFallsBackOnConstants() throws IOException {
+        // given
+        File missing = new File( System.getProperty( "java.io.tmpdir" ), "missing-calibration.properties" );
+        missing.delete();
+        File file = File.createTempFile( "calibration", ".properties" );
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter( file );
+        writer.write( "wheelRadius=5.0\ntrackLength=not a number\n" );
+        writer.close();
+
+        // when
+        Calibration defaults = Calibration.load( missing.getPath() );
+        Calibration implausible = Calibration.load( file.getPath() );
+
+        // then
+        Assert.assertEquals( Constants.WHEEL_RADIUS, defaults.getWheelRadius(), 0 );
+        Assert.assertEquals( Constants.TRACK_LENGTH, defaults.getTrackLength(), 0 );
+        Assert.assertEquals( Constants.WHEEL_RADIUS, implausible.getWheelRadius(), 0 );
+        Assert.assertEquals( Constants.TRACK_LENGTH, implausible.getTrackLength(), 0 );
+    }
+
+}
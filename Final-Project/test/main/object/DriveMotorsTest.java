@@ -0,0 +1,118 @@
+package main.object;
+
+import lejos.hardware.motor.EV3LargeRegulatedMotor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * A class to test the caching and synchronization of the commands in the DriveMotors class
+ *
+ * @author JohnWu
+ */
+public class DriveMotorsTest {
+
+    @Mock
+    private EV3LargeRegulatedMotor leftMotor;
+
+    @Mock
+    private EV3LargeRegulatedMotor rightMotor;
+
+    private DriveMotors driveMotors;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks( this );
+        driveMotors = new DriveMotors( leftMotor, rightMotor );
+    }
+
+    @Test
+    public void testRepeatedCommandsAreSentOnce() {
+        // when, driving forward again after a correction without stopping in between
+        for ( int i = 0; i < 3; i++ ) {
+            driveMotors.setAcceleration( 500 );
+            driveMotors.setSpeeds( 100, 100 );
+            driveMotors.drive( true, true );
+        }
+
+        // then
+        Mockito.verify( leftMotor, Mockito.times( 1 ) ).setAcceleration( 500 );
+        Mockito.verify( rightMotor, Mockito.times( 1 ) ).setAcceleration( 500 );
+        Mockito.verify( leftMotor, Mockito.times( 1 ) ).setSpeed( 100 );
+        Mockito.verify( rightMotor, Mockito.times( 1 ) ).setSpeed( 100 );
+        Mockito.verify( leftMotor, Mockito.times( 1 ) ).forward();
+        Mockito.verify( rightMotor, Mockito.times( 1 ) ).forward();
+    }
+
+    @Test
+    public void testChangedCommandsAreSentAgain() {
+        // given
+        driveMotors.setSpeeds( 100, 100 );
+        driveMotors.drive( true, true );
+
+        // when
+        driveMotors.setSpeeds( 100, 150 );
+        driveMotors.stop( true );
+        driveMotors.drive( false, true );
+
+        // then
+        Mockito.verify( leftMotor, Mockito.times( 1 ) ).setSpeed( 100 );
+        Mockito.verify( rightMotor, Mockito.times( 1 ) ).setSpeed( 150 );
+        Mockito.verify( leftMotor ).backward();
+        Mockito.verify( rightMotor, Mockito.times( 2 ) ).forward();
+    }
+
+    @Test
+    public void testStopIsSynchronizedAndSentOnce() {
+        // given
+        driveMotors.drive( true, true );
+
+        // when
+        driveMotors.stop( false );
+        driveMotors.stop( false );
+
+        // then, both motors stop in the same synchronized block before waiting for them
+        InOrder inOrder = Mockito.inOrder( leftMotor, rightMotor );
+        inOrder.verify( leftMotor ).startSynchronization();
+        inOrder.verify( leftMotor ).stop( true );
+        inOrder.verify( rightMotor ).stop( true );
+        inOrder.verify( leftMotor ).endSynchronization();
+        inOrder.verify( leftMotor ).waitComplete();
+        inOrder.verify( rightMotor ).waitComplete();
+        Mockito.verify( leftMotor, Mockito.times( 1 ) ).stop( true );
+        Mockito.verify( rightMotor, Mockito.never() ).stop( false );
+    }
+
+    @Test
+    public void testImmediateStopDoesNotWait() {
+        // given
+        driveMotors.drive( true, true );
+        Mockito.when( rightMotor.isMoving() ).thenReturn( true );
+
+        // when
+        driveMotors.stop( true );
+
+        // then, the caller polls the motors until they stand still instead
+        Mockito.verify( leftMotor ).stop( true );
+        Mockito.verify( rightMotor ).stop( true );
+        Mockito.verify( leftMotor, Mockito.never() ).waitComplete();
+        Mockito.verify( rightMotor, Mockito.never() ).waitComplete();
+        Assert.assertTrue( driveMotors.isMoving() );
+    }
+
+    @Test
+    public void testRotationIsAlwaysSent() {
+        // when
+        driveMotors.rotate( 90, -90, true );
+        driveMotors.rotate( 90, -90, true );
+
+        // then
+        Mockito.verify( leftMotor, Mockito.times( 2 ) ).rotate( 90, true );
+        Mockito.verify( rightMotor, Mockito.times( 2 ) ).rotate( -90, true );
+    }
+
+}
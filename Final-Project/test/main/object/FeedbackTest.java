@@ -0,0 +1,171 @@
+package main.object;
+
+import lejos.hardware.lcd.TextLCD;
+import main.resource.Constants;
+import main.simulator.VirtualClock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class to test that the Feedback class plays and shows what is posted to it without holding up the poster,
+ * dropping the oldest entries under load
+ *
+ * @author JohnWu
+ */
+public class FeedbackTest {
+
+    // time allowed for the feedback thread to catch up (ms)
+    private static final long TIMEOUT = 2000;
+
+    @Mock
+    private TextLCD textLCD;
+
+    private VirtualClock clock;
+    private RecordingFeedback feedback;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks( this );
+        clock = new VirtualClock();
+        feedback = new RecordingFeedback( textLCD );
+        feedback.setClock( clock );
+    }
+
+    @After
+    public void tearDown() {
+        feedback.shutdown();
+    }
+
+    @Test
+    public void testStatusIsShownOnLastLine() {
+        // given
+        feedback.start();
+
+        // when
+        feedback.showStatus( "arrived" );
+
+        // then
+        Mockito.verify( textLCD, Mockito.timeout( TIMEOUT ) ).drawChar( 'a', 0, 7 );
+        Mockito.verify( textLCD, Mockito.timeout( TIMEOUT ) ).drawChar( 'd', 6, 7 );
+    }
+
+    @Test
+    public void testPostDoesNotWaitForSound() throws InterruptedException {
+        // given, a cue that takes far longer to play than posting is allowed to
+        feedback.setPlayTime( TIMEOUT );
+        feedback.start();
+
+        // when
+        long start = System.nanoTime();
+        for ( int i = 0; i < 3; i++ ) {
+            feedback.playSound( Feedback.SOUND_BUZZ );
+        }
+        long elapsed = ( System.nanoTime() - start )/1000000;
+
+        // then
+        Assert.assertTrue( "posting took " + elapsed + " ms", elapsed < TIMEOUT/4 );
+    }
+
+    @Test
+    public void testOldestEntriesAreDroppedWhenFull() throws InterruptedException {
+        // given
+        for ( int i = 0; i < Constants.FEEDBACK_CAPACITY + 3; i++ ) {
+            feedback.playSound( i % 2 == 0 ? Feedback.SOUND_BEEP : Feedback.SOUND_TWO_BEEPS );
+        }
+
+        // when
+        feedback.start();
+        feedback.awaitPlayed( Constants.FEEDBACK_CAPACITY );
+
+        // then, the three oldest were overwritten
+        Assert.assertEquals( 3, feedback.getDroppedCount() );
+        Assert.assertEquals( Constants.FEEDBACK_CAPACITY, feedback.getPlayed().size() );
+        Assert.assertEquals( Feedback.SOUND_TWO_BEEPS, (int) feedback.getPlayed().get( 0 ) );
+    }
+
+    @Test
+    public void testStaleEntriesAreDropped() throws InterruptedException {
+        // given
+        feedback.playSound( Feedback.SOUND_BUZZ );
+        clock.advance( Constants.FEEDBACK_MAX_AGE + 1 );
+        feedback.playSound( Feedback.SOUND_BEEP );
+
+        // when
+        feedback.start();
+        feedback.awaitPlayed( 1 );
+
+        // then, the buzz waited too long to be played
+        Assert.assertEquals( 1, feedback.getDroppedCount() );
+        Assert.assertEquals( Feedback.SOUND_BEEP, (int) feedback.getPlayed().get( 0 ) );
+    }
+
+    @Test
+    public void testNothingIsPlayedWithoutSpeaker() throws InterruptedException {
+        // given
+        feedback.setSoundAvailable( false );
+        feedback.start();
+
+        // when
+        feedback.playSound( Feedback.SOUND_BEEP );
+        feedback.showStatus( "done" );
+
+        // then
+        Mockito.verify( textLCD, Mockito.timeout( TIMEOUT ) ).drawChar( 'd', 0, 7 );
+        Assert.assertTrue( feedback.getPlayed().isEmpty() );
+    }
+
+    /**
+     * Records the cues instead of playing them, taking a set time for each
+     */
+    private static class RecordingFeedback extends Feedback {
+
+        private final List<Integer> played = new ArrayList<>();
+        private long playTime;
+
+        RecordingFeedback( TextLCD textLCD ) {
+            super( textLCD );
+        }
+
+        @Override
+        protected void play( int cue ) {
+            try {
+                Thread.sleep( playTime );
+            } catch ( InterruptedException e ) {
+                // stopped
+            }
+            synchronized ( played ) {
+                played.add( cue );
+                played.notifyAll();
+            }
+        }
+
+        void setPlayTime( long playTime ) {
+            this.playTime = playTime;
+        }
+
+        void awaitPlayed( int count ) throws InterruptedException {
+            long end = System.currentTimeMillis() + TIMEOUT;
+            synchronized ( played ) {
+                while ( played.size() < count && System.currentTimeMillis() < end ) {
+                    played.wait( TIMEOUT );
+                }
+            }
+        }
+
+        List<Integer> getPlayed() {
+            synchronized ( played ) {
+                return new ArrayList<>( played );
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,60 @@
+package main.object;
+
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * A class to test loading the FieldGeometry class
+ *
+ * @author JohnWu
+ */
+public class FieldGeometryTest {
+
+    @Test
+    public void testLoad() throws IOException {
+        // given
+        File file = File.createTempFile( "field", ".properties" );
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter( file );
+        writer.write( "rows=8\ncolumns=10\nsquareLength=30.0\n" );
+        writer.close();
+
+        // when
+        FieldGeometry geometry = FieldGeometry.load( file.getPath() );
+
+        // then
+        Assert.assertEquals( 8, geometry.getRows() );
+        Assert.assertEquals( 10, geometry.getColumns() );
+        Assert.assertEquals( 30.0, geometry.getSquareLength(), 0 );
+    }
+
+    @Test
+    public void testLoadFallsBackOnTheCompetitionField() throws IOException {
+        // given
+        File missing = new File( System.getProperty( "java.io.tmpdir" ), "missing-field.properties" );
+        missing.delete();
+        File file = File.createTempFile( "field", ".properties" );
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter( file );
+        writer.write( "rows=1\ncolumns=not a number\nsquareLength=-30\n" );
+        writer.close();
+
+        // when
+        FieldGeometry defaults = FieldGeometry.load( missing.getPath() );
+        FieldGeometry implausible = FieldGeometry.load( file.getPath() );
+
+        // then
+        Assert.assertEquals( Constants.FIELD_ROWS, defaults.getRows() );
+        Assert.assertEquals( Constants.FIELD_COLUMNS, defaults.getColumns() );
+        Assert.assertEquals( Constants.SQUARE_LENGTH, defaults.getSquareLength(), 0 );
+        Assert.assertEquals( Constants.FIELD_ROWS, implausible.getRows() );
+        Assert.assertEquals( Constants.FIELD_COLUMNS, implausible.getColumns() );
+        Assert.assertEquals( Constants.SQUARE_LENGTH, implausible.getSquareLength(), 0 );
+    }
+
+}
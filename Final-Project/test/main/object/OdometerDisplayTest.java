@@ -0,0 +1,78 @@
+package main.object;
+
+import lejos.hardware.lcd.TextLCD;
+import main.controller.Odometer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * A class to test the logic in the OdometerDisplay class
+ *
+ * @author JohnWu
+ */
+public class OdometerDisplayTest {
+
+    private Odometer odometer;
+    private TextLCD textLCD;
+    private OdometerDisplay odometerDisplay;
+    private double[] values = new double[3];
+
+    @Before
+    public void setUp() {
+        odometer = Mockito.mock( Odometer.class );
+        textLCD = Mockito.mock( TextLCD.class );
+        Mockito.doAnswer( new Answer<Void>() {
+            public Void answer( InvocationOnMock invocation ) {
+                double[] position = (double[]) invocation.getArguments()[0];
+                System.arraycopy( values, 0, position, 0, 3 );
+                return null;
+            }
+        } ).when( odometer ).updatePosition( Mockito.any( double[].class ), Mockito.any( boolean[].class ) );
+        odometerDisplay = new OdometerDisplay( odometer, textLCD );
+    }
+
+    @Test
+    public void testRefreshDrawsOnlyChangedCharacters() {
+        // given
+        values[0] = 12.25;
+        values[1] = 30.48;
+        values[2] = 90;
+        odometerDisplay.clearScreen();
+        odometerDisplay.refresh();
+        Mockito.reset( textLCD );
+
+        // when
+        odometerDisplay.refresh();
+        Mockito.verifyZeroInteractions( textLCD );
+        values[0] = 12.75;
+        odometerDisplay.refresh();
+
+        // then
+        Mockito.verify( textLCD ).drawChar( '7', 6, 0 );
+        Mockito.verifyNoMoreInteractions( textLCD );
+    }
+
+    @Test
+    public void testRefreshClearsShorterValues() {
+        // given
+        values[2] = 100;
+        odometerDisplay.clearScreen();
+        odometerDisplay.refresh();
+        Mockito.reset( textLCD );
+
+        // when
+        values[2] = 5;
+        odometerDisplay.refresh();
+
+        // then, "100.00" becomes "5.00 "
+        Mockito.verify( textLCD ).drawChar( '5', 3, 2 );
+        Mockito.verify( textLCD ).drawChar( '.', 4, 2 );
+        Mockito.verify( textLCD ).drawChar( ' ', 8, 2 );
+        Mockito.verify( textLCD, Mockito.never() ).drawChar( Mockito.anyChar(), Mockito.eq( 0 ), Mockito.eq( 2 ) );
+    }
+
+}
@@ -0,0 +1,48 @@
+package main.object;
+
+import lejos.hardware.lcd.TextLCD;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * A class to test the logic in the ScreenFrame class
+ *
+ * @author JohnWu
+ */
+public class ScreenFrameTest {
+
+    @Test
+    public void testFormatDouble() {
+        // given
+        double[] inputs = { 12.345, -0.5, 0, 30.48, 359.99, -45.678, 100.0, -1.0 };
+        String[] expected = { "12.34", "-0.50", "0.00", "30.48", "359.99", "-45.67", "100.00", "-1.00" };
+        char[] buffer = new char[16];
+
+        for ( int i = 0; i < inputs.length; i++ ) {
+            // when
+            int end = ScreenFrame.formatDouble( inputs[i], 2, buffer, 3 );
+
+            // then
+            Assert.assertEquals( expected[i], new String( buffer, 3, end - 3 ) );
+        }
+    }
+
+    @Test
+    public void testFlushOffsetsLinesAndCutsAtWidth() {
+        // given
+        TextLCD textLCD = Mockito.mock( TextLCD.class );
+        ScreenFrame frame = new ScreenFrame( 4, 2, 4 );
+
+        // when
+        frame.write( 1, 2, "abc" );
+        int sent = frame.flush( textLCD );
+
+        // then
+        Assert.assertEquals( 2, sent );
+        Mockito.verify( textLCD ).drawChar( 'a', 2, 5 );
+        Mockito.verify( textLCD ).drawChar( 'b', 3, 5 );
+        Mockito.verifyNoMoreInteractions( textLCD );
+    }
+
+}
@@ -0,0 +1,44 @@
+package main.simulator;
+
+import main.object.Tuning;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A class to test a whole simulated match, played on the virtual clock in its own JVM
+ *
+ * @author JohnWu
+ */
+public class SimulatedMatchTest {
+
+    // farthest the vehicle may end from the target (cm)
+    private static final double MAX_ERROR = 3.0;
+
+    @Test
+    public void testMatchFinishesOnTheTarget() {
+        // given
+        Tuning tuning = new Tuning();
+
+        // when
+        TuningHarness.Result result = TuningHarness.playMatch( tuning, 7 );
+
+        // then
+        Assert.assertTrue( result.isFinished() );
+        Assert.assertEquals( 0, result.getError(), MAX_ERROR );
+    }
+
+    @Test
+    public void testMatchWithAHeadingErrorAtTheFirstLineFinishesOnTheTarget() {
+        // given the seed whose localization leaves the heading off by several degrees, with one sensor of the first
+        // leg running along a gridline
+        Tuning tuning = new Tuning();
+
+        // when
+        TuningHarness.Result result = TuningHarness.playMatch( tuning, 10 );
+
+        // then
+        Assert.assertTrue( result.isFinished() );
+        Assert.assertEquals( 0, result.getError(), MAX_ERROR );
+    }
+
+}
@@ -0,0 +1,116 @@
+package main.simulator;
+
+import lejos.hardware.motor.EV3LargeRegulatedMotor;
+import lejos.robotics.RegulatedMotor;
+import main.object.FieldGeometry;
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A class to test the physics in the SimulatedWorld class through the leJOS motors and the sensor stand-ins
+ *
+ * @author JohnWu
+ */
+public class SimulatedWorldTest {
+
+    private SimulatedWorld world;
+    private EV3LargeRegulatedMotor leftMotor, rightMotor;
+    private double[] pose = new double[3];
+
+    @Before
+    public void setUp() {
+        world = new SimulatedWorld( FieldGeometry.getDefault(), new ScaledClock( 50 ), 1 );
+        world.setSlip( 0, 0 );
+        leftMotor = world.createMotor( true );
+        rightMotor = world.createMotor( false );
+    }
+
+    @Test
+    public void testDriveStraight() {
+        // given
+        world.setPose( 15, 15, 0 );
+
+        // when
+        leftMotor.setSpeed( Constants.VEHICLE_FORWARD_SPEED_HIGH );
+        rightMotor.setSpeed( Constants.VEHICLE_FORWARD_SPEED_HIGH );
+        leftMotor.synchronizeWith( new RegulatedMotor[]{ rightMotor } );
+        leftMotor.startSynchronization();
+        leftMotor.rotate( 360, true );
+        rightMotor.rotate( 360, true );
+        leftMotor.endSynchronization();
+        leftMotor.waitComplete();
+        rightMotor.waitComplete();
+        world.getPose( pose );
+
+        // then
+        Assert.assertEquals( 360, leftMotor.getTachoCount() );
+        Assert.assertEquals( 360, rightMotor.getTachoCount() );
+        Assert.assertEquals( 15, pose[0], 0.05 );
+        Assert.assertEquals( 15 + 2*Math.PI*Constants.WHEEL_RADIUS, pose[1], 0.05 );
+    }
+
+    @Test
+    public void testTurnInPlace() {
+        // given
+        world.setPose( 15, 15, 0 );
+        int rotation = (int) Math.round( Math.toDegrees( Math.PI*Constants.TRACK_LENGTH/4/Constants.WHEEL_RADIUS ) );
+
+        // when
+        leftMotor.setSpeed( Constants.VEHICLE_ROTATE_SPEED );
+        rightMotor.setSpeed( Constants.VEHICLE_ROTATE_SPEED );
+        leftMotor.rotate( rotation, true );
+        rightMotor.rotate( -rotation, false );
+        leftMotor.waitComplete();
+        world.getPose( pose );
+
+        // then
+        Assert.assertEquals( 90, Math.toDegrees( pose[2] ), 0.5 );
+        Assert.assertEquals( 15, pose[0], 0.05 );
+        Assert.assertEquals( 15, pose[1], 0.05 );
+    }
+
+    @Test
+    public void testColorSensorsSeeGridlines() {
+        // given, the left sensor is on the line y = 30.48 and the right sensor is on the floor
+        float[] sample = new float[1];
+
+        // when
+        world.setPose( 15, Constants.SQUARE_LENGTH - Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET
+                - Constants.LIGHT_SENSOR_LATERAL_OFFSET*Math.sin( Math.PI/12 ), Math.PI/12 );
+        new SimulatedColorSensor( world, true ).fetchSample( sample, 0 );
+        float left = sample[0];
+        new SimulatedColorSensor( world, false ).fetchSample( sample, 0 );
+        float right = sample[0];
+
+        // then
+        Assert.assertTrue( left < Constants.LOWER_LIGHT_THRESHOLD );
+        Assert.assertTrue( right > Constants.UPPER_LIGHT_THRESHOLD );
+    }
+
+    @Test
+    public void testUltrasonicSensorRangesWallsAndObstacles() {
+        // given, the north wall is 85.28 cm ahead and an obstacle square is 45.72 cm to the east
+        SimulatedUltrasonicSensor ultrasonicSensor = new SimulatedUltrasonicSensor( world );
+        world.addObstacle( 9, 3 );
+        float[] sample = new float[1];
+
+        // when
+        world.setPose( 15, 250, 0 );
+        ultrasonicSensor.fetchSample( sample, 0 );
+        float wall = sample[0];
+        world.setPose( 15, 259, Math.PI/2 );
+        ultrasonicSensor.fetchSample( sample, 0 );
+        float obstacle = sample[0];
+        world.setPose( 15, 15, 0 );
+        ultrasonicSensor.fetchSample( sample, 0 );
+        float farWall = sample[0];
+
+        // then
+        Assert.assertEquals( 0.8528 - Constants.FORWARD_SENSOR_DISTANCE/100, wall, 0.02 );
+        Assert.assertEquals( 0.4572 - Constants.FORWARD_SENSOR_DISTANCE/100, obstacle, 0.02 );
+        Assert.assertTrue( Float.isInfinite( farWall ) );
+    }
+
+}
@@ -0,0 +1,91 @@
+package main.simulator;
+
+import main.object.Tuning;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A class to test the logic in the TuningHarness class
+ *
+ * @author JohnWu
+ */
+public class TuningHarnessTest {
+
+    @Test
+    public void testParseResult() {
+        // given
+        String line = "RESULT finished=true time=61.5 error=3.25 correctionStops=4 drivingCorrections=9 relocalizations=1";
+
+        // when
+        TuningHarness.Result result = TuningHarness.Result.parse( line );
+
+        // then
+        Assert.assertTrue( result.isFinished() );
+        Assert.assertEquals( 61.5, result.getTime(), 1e-9 );
+        Assert.assertEquals( 3.25, result.getError(), 1e-9 );
+        Assert.assertEquals( 4, result.getCorrectionStops() );
+        Assert.assertEquals( 9, result.getDrivingCorrections() );
+        Assert.assertEquals( 1, result.getRelocalizations() );
+    }
+
+    @Test
+    public void testSampledTuningRoundTrips() {
+        // given
+        Tuning sampled = TuningHarness.sample( new Random( 3 ) );
+
+        // when
+        Tuning read = new Tuning();
+        for ( String pair : sampled.toString().split( " " ) ) {
+            int split = pair.indexOf( '=' );
+            read.set( pair.substring( 0, split ), pair.substring( split + 1 ) );
+        }
+
+        // then
+        Assert.assertEquals( sampled.toString(), read.toString() );
+    }
+
+    @Test
+    public void testRankPutsFinishedMatchesFirst() {
+        // given
+        TuningHarness.Result close = TuningHarness.Result.parse( "RESULT finished=true time=70 error=1" );
+        TuningHarness.Result far = TuningHarness.Result.parse( "RESULT finished=true time=50 error=20" );
+        TuningHarness.Result unfinished = TuningHarness.Result.parse( "RESULT finished=false time=600 error=0" );
+        List<TuningHarness.Summary> summaries = new ArrayList<>();
+        summaries.add( new TuningHarness.Summary( 0, new Tuning(), new TuningHarness.Result[]{ far, unfinished } ) );
+        summaries.add( new TuningHarness.Summary( 1, new Tuning(), new TuningHarness.Result[]{ close, unfinished } ) );
+        summaries.add( new TuningHarness.Summary( 2, new Tuning(), new TuningHarness.Result[]{ far, far } ) );
+
+        // when
+        TuningHarness.rank( summaries );
+
+        // then
+        Assert.assertEquals( 2, summaries.get( 0 ).getIndex() );
+        Assert.assertEquals( 1, summaries.get( 1 ).getIndex() );
+        Assert.assertEquals( 0, summaries.get( 2 ).getIndex() );
+        Assert.assertEquals( 1, summaries.get( 1 ).getMeanError(), 1e-9 );
+    }
+
+    @Test
+    public void testBaselineNeedsEveryMatchFinishedNearTheTarget() {
+        // given
+        TuningHarness.Result close = TuningHarness.Result.parse( "RESULT finished=true time=70 error=1" );
+        TuningHarness.Result far = TuningHarness.Result.parse( "RESULT finished=true time=50 error="
+                + ( TuningHarness.BASELINE_ERROR + 1 ) );
+        TuningHarness.Result unfinished = TuningHarness.Result.parse( "RESULT finished=false time=600 error=0" );
+
+        // when
+        boolean allClose = TuningHarness.isBaselineMet( new TuningHarness.Result[]{ close, close } );
+        boolean oneFar = TuningHarness.isBaselineMet( new TuningHarness.Result[]{ close, far } );
+        boolean oneUnfinished = TuningHarness.isBaselineMet( new TuningHarness.Result[]{ close, unfinished } );
+
+        // then
+        Assert.assertTrue( allClose );
+        Assert.assertFalse( oneFar );
+        Assert.assertFalse( oneUnfinished );
+    }
+
+}
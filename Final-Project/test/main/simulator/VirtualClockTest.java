@@ -0,0 +1,112 @@
+package main.simulator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class to test that the VirtualClock class runs sleeping threads in deadline order
+ *
+ * @author JohnWu
+ */
+public class VirtualClockTest {
+
+    @Test
+    public void testThreadsWakeInDeadlineOrder() {
+        // given, two periodic threads started in an order the scheduler picks
+        final VirtualClock clock = new VirtualClock();
+        final List<String> wakeUps = new ArrayList<String>();
+        startPeriodicThread( clock, wakeUps, "a", 3 );
+        startPeriodicThread( clock, wakeUps, "b", 5 );
+        clock.awaitSleepers( 2 );
+
+        // when
+        clock.advance( 10 );
+
+        // then
+        Assert.assertEquals( 10, clock.currentTimeMillis() );
+        synchronized ( wakeUps ) {
+            Assert.assertEquals( "[a@3, b@5, a@6, a@9, b@10]", wakeUps.toString() );
+        }
+    }
+
+    @Test
+    public void testAdvanceToNextDeadline() {
+        // given
+        final VirtualClock clock = new VirtualClock();
+        final List<String> wakeUps = new ArrayList<String>();
+        startPeriodicThread( clock, wakeUps, "a", 40 );
+        clock.awaitSleepers( 1 );
+
+        // when
+        long first = clock.advanceToNextDeadline();
+        long second = clock.advanceToNextDeadline();
+
+        // then
+        Assert.assertEquals( 40, first );
+        Assert.assertEquals( 80, second );
+    }
+
+    @Test
+    public void testWokenThreadRunsBeforeTimeMovesOn() {
+        // given
+        final VirtualClock clock = new VirtualClock();
+        final List<String> wakeUps = new ArrayList<String>();
+        Thread thread = startPeriodicThread( clock, wakeUps, "a", 40 );
+        clock.awaitSleepers( 1 );
+
+        // when
+        clock.wake( thread );
+        clock.advance( 50 );
+
+        // then, woken at once and then on its period from there
+        synchronized ( wakeUps ) {
+            Assert.assertEquals( "[a@0, a@40]", wakeUps.toString() );
+        }
+    }
+
+    @Test
+    public void testStartedThreadRunsBeforeTimeMovesOn() {
+        // given
+        final VirtualClock clock = new VirtualClock();
+        final List<String> wakeUps = new ArrayList<String>();
+        Thread thread = new Thread() {
+            public void run() {
+                synchronized ( wakeUps ) {
+                    wakeUps.add( "started@" + clock.currentTimeMillis() );
+                }
+                clock.sleep( 5 );
+            }
+        };
+        thread.setDaemon( true );
+
+        // when, advanced without waiting for the thread to sleep first
+        clock.start( thread );
+        clock.advance( 10 );
+
+        // then
+        Assert.assertEquals( 10, clock.currentTimeMillis() );
+        synchronized ( wakeUps ) {
+            Assert.assertEquals( "[started@0]", wakeUps.toString() );
+        }
+    }
+
+    private static Thread startPeriodicThread( final VirtualClock clock, final List<String> wakeUps, final String name, final long period ) {
+        Thread thread = new Thread() {
+            public void run() {
+                while ( true ) {
+                    clock.sleep( period );
+                    synchronized ( wakeUps ) {
+                        wakeUps.add( name + "@" + clock.currentTimeMillis() );
+                    }
+                }
+            }
+        };
+        thread.setDaemon( true );
+        thread.start();
+        return thread;
+    }
+
+}
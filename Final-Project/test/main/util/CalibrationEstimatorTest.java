@@ -0,0 +1,144 @@
+package main.util;
+
+import main.object.Calibration;
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * A class to test the logic in the CalibrationEstimator class on simulated drives of a vehicle whose wheels
+ * differ from the constants
+ *
+ * @author JohnWu
+ */
+public class CalibrationEstimatorTest {
+
+    private static final double TRUE_WHEEL_RADIUS = 2.15;
+    private static final double TRUE_TRACK_LENGTH = 16.3;
+
+    private Calibration calibration;
+    private CalibrationEstimator calibrationEstimator;
+    private Random random;
+
+    // simulated vehicle
+    private double leftDegrees, rightDegrees;
+    private double x, y;
+    private int quadrant;
+
+    @Before
+    public void setUp() {
+        calibration = new Calibration();
+        calibrationEstimator = new CalibrationEstimator( calibration, Constants.SQUARE_LENGTH );
+        random = new Random( 3 );
+        leftDegrees = 0;
+        rightDegrees = 0;
+        x = 0;
+        y = 0;
+        quadrant = 0;
+    }
+
+    @Test
+    public void testEstimatesWheelsFromAlignments() {
+        // given, a tour of the field aligning on a gridline after every leg
+        align();
+
+        // when
+        for ( int lap = 0; lap < 4; lap++ ) {
+            drive( 2 );
+            align();
+            turn( 1 );
+            drive( 1 );
+            align();
+            drive( 3 );
+            align();
+            turn( lap % 2 == 0 ? -1 : 2 );
+            drive( 1 );
+            align();
+        }
+
+        // then
+        Assert.assertTrue( calibrationEstimator.getStraightSamples() >= Constants.CALIBRATION_MIN_SAMPLES );
+        Assert.assertTrue( calibrationEstimator.getTurnSamples() >= Constants.CALIBRATION_MIN_SAMPLES );
+        Assert.assertEquals( TRUE_WHEEL_RADIUS, calibrationEstimator.getWheelRadius(), 0.01 );
+        Assert.assertEquals( TRUE_TRACK_LENGTH, calibrationEstimator.getTrackLength(), 0.1 );
+        Assert.assertTrue( calibrationEstimator.apply( calibration ) );
+        Assert.assertEquals( TRUE_WHEEL_RADIUS, calibration.getWheelRadius(), 0.01 );
+        Assert.assertEquals( TRUE_TRACK_LENGTH, calibration.getTrackLength(), 0.1 );
+    }
+
+    @Test
+    public void testKeepsCalibrationWithoutEnoughSamples() {
+        // given
+        align();
+
+        // when
+        drive( 2 );
+        align();
+        turn( 1 );
+        drive( 1 );
+        align();
+
+        // then
+        Assert.assertEquals( Constants.WHEEL_RADIUS, calibrationEstimator.getWheelRadius(), 0 );
+        Assert.assertEquals( Constants.TRACK_LENGTH, calibrationEstimator.getTrackLength(), 0 );
+        Assert.assertFalse( calibrationEstimator.apply( calibration ) );
+        Assert.assertEquals( Constants.WHEEL_RADIUS, calibration.getWheelRadius(), 0 );
+    }
+
+    @Test
+    public void testRejectsDetourBackOntoHeading() {
+        // given
+        align();
+
+        // when, a sidestep ends on the same heading two squares further after driving three
+        for ( int i = 0; i < 4; i++ ) {
+            drive( 1 );
+            turn( 1 );
+            drive( 1 );
+            turn( -1 );
+            drive( 1 );
+            align();
+        }
+
+        // then
+        Assert.assertEquals( 0, calibrationEstimator.getStraightSamples() );
+        Assert.assertEquals( 0, calibrationEstimator.getTurnSamples() );
+    }
+
+    /**
+     * Drives the simulated vehicle straight along its heading
+     */
+    private void drive( int squares ) {
+        double distance = squares*Constants.SQUARE_LENGTH;
+        double degrees = Math.toDegrees( distance/TRUE_WHEEL_RADIUS );
+        leftDegrees += degrees;
+        rightDegrees += degrees;
+        x += distance*Math.round( Math.sin( quadrant*Math.PI/2 ) );
+        y += distance*Math.round( Math.cos( quadrant*Math.PI/2 ) );
+    }
+
+    /**
+     * Turns the simulated vehicle in place clockwise by quarter turns
+     */
+    private void turn( int quarterTurns ) {
+        double arc = quarterTurns*Math.PI/2*TRUE_TRACK_LENGTH/2;
+        leftDegrees += Math.toDegrees( arc/TRUE_WHEEL_RADIUS );
+        rightDegrees -= Math.toDegrees( arc/TRUE_WHEEL_RADIUS );
+        quadrant = ( ( quadrant + quarterTurns ) % 4 + 4 ) % 4;
+    }
+
+    /**
+     * Aligns the simulated vehicle on a gridline, reporting tacho counts off by a degree and a position off by
+     * a few centimetres as the odometer would
+     */
+    private void align() {
+        int leftTachoCount = (int) Math.round( leftDegrees + random.nextGaussian() );
+        int rightTachoCount = (int) Math.round( rightDegrees + random.nextGaussian() );
+        calibrationEstimator.recordAlignment( leftTachoCount, rightTachoCount, x + 3*random.nextGaussian(),
+                y + 3*random.nextGaussian(), quadrant*Math.PI/2 );
+    }
+
+}
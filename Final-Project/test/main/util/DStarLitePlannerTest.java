@@ -0,0 +1,123 @@
+package main.util;
+
+import main.Parameters;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A class to test the logic in the DStarLitePlanner class
+ *
+ * @author JohnWu
+ */
+public class DStarLitePlannerTest {
+
+    private FieldMapper fieldMapper;
+    private DStarLitePlanner replanner;
+
+    @Before
+    public void setUp() {
+        Parameters parameters = new Parameters();
+        parameters.setForwardTeam( 11 );
+        parameters.setForwardLine( 8 );
+        parameters.setDefenderZone( new int[]{ 4, 4 } );
+        fieldMapper = new FieldMapper( parameters );
+        replanner = new DStarLitePlanner( fieldMapper );
+    }
+
+    @Test
+    public void testRouteCostGoesAroundTheForbiddenSquares() {
+        // given
+        int start = fieldMapper.getGrid().encodeCell( 1, 5 );
+        int goal = fieldMapper.getGrid().encodeCell( 11, 3 );
+
+        // when
+        replanner.setGoal( goal, start );
+
+        // then, four moves more than the twelve of a straight route
+        Assert.assertEquals( 160, replanner.getRouteCost() );
+    }
+
+    @Test
+    public void testObstacleRepairsRoute() {
+        // given
+        int start = fieldMapper.getGrid().encodeCell( 0, 0 );
+        int goal = fieldMapper.getGrid().encodeCell( 11, 0 );
+        replanner.setGoal( goal, start );
+        int cost = replanner.getRouteCost();
+        int version = replanner.getRouteVersion();
+        Assert.assertEquals( goal, replanner.getNextWaypoint() );
+
+        // when, block column 0 so the route has to step over to column 1
+        replanner.markBlocked( fieldMapper.getGrid().encodeCell( 5, 0 ) );
+
+        // then
+        Assert.assertEquals( cost + 20, replanner.getRouteCost() );
+        Assert.assertNotEquals( version, replanner.getRouteVersion() );
+        int waypoint = replanner.getNextWaypoint();
+        Assert.assertNotEquals( goal, waypoint );
+        Assert.assertTrue( replanner.hasLineOfSight( start, waypoint ) );
+    }
+
+    @Test
+    public void testMoveStartKeepsRouteConsistent() {
+        // given
+        int goal = fieldMapper.getGrid().encodeCell( 11, 11 );
+        replanner.setGoal( goal, fieldMapper.getGrid().encodeCell( 0, 0 ) );
+        replanner.markBlocked( fieldMapper.getGrid().encodeCell( 2, 11 ) );
+
+        // when
+        replanner.moveStart( fieldMapper.getGrid().encodeCell( 0, 5 ) );
+
+        // then, around the blocked square at column 11 through column 10, as short as the straight route
+        Assert.assertEquals( 170, replanner.getRouteCost() );
+    }
+
+    @Test
+    public void testGoalIsNeverBlocked() {
+        // given
+        int goal = fieldMapper.getGrid().encodeCell( 11, 0 );
+        replanner.setGoal( goal, fieldMapper.getGrid().encodeCell( 0, 0 ) );
+        int version = replanner.getRouteVersion();
+
+        // when
+        boolean blocked = replanner.markBlocked( goal );
+
+        // then
+        Assert.assertFalse( blocked );
+        Assert.assertEquals( version, replanner.getRouteVersion() );
+        Assert.assertEquals( 110, replanner.getRouteCost() );
+    }
+
+    @Test
+    public void testMovingIntoABlockedSquareKeepsTheRoute() {
+        // given, an obstacle seen in a square the vehicle then drives into
+        int blocked = fieldMapper.getGrid().encodeCell( 0, 3 );
+        int goal = fieldMapper.getGrid().encodeCell( 0, 11 );
+        replanner.setGoal( goal, fieldMapper.getGrid().encodeCell( 0, 0 ) );
+        replanner.markBlocked( blocked );
+
+        // when
+        replanner.moveStart( blocked );
+
+        // then, the vehicle steps out of it and carries on
+        Assert.assertEquals( 80, replanner.getRouteCost() );
+        Assert.assertEquals( goal, replanner.getNextWaypoint() );
+    }
+
+    @Test
+    public void testBlockedInHasNoRoute() {
+        // given
+        int start = fieldMapper.getGrid().encodeCell( 0, 0 );
+        replanner.setGoal( fieldMapper.getGrid().encodeCell( 11, 11 ), start );
+
+        // when
+        replanner.markBlocked( fieldMapper.getGrid().encodeCell( 0, 1 ) );
+        replanner.markBlocked( fieldMapper.getGrid().encodeCell( 1, 0 ) );
+
+        // then
+        Assert.assertEquals( -1, replanner.getNextWaypoint() );
+        Assert.assertEquals( -1, replanner.getRouteCost() );
+    }
+
+}
@@ -0,0 +1,64 @@
+package main.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * A class to test the logic in the Diagnostics class
+ *
+ * @author JohnWu
+ */
+public class DiagnosticsTest {
+
+    private long now = 1000;
+    private Clock clock = new Clock() {
+        public long currentTimeMillis() {
+            return now;
+        }
+    };
+
+    @Test
+    public void testSameNameGivesSameCounter() {
+        // given
+        Diagnostics diagnostics = new Diagnostics( clock );
+
+        // when
+        Counter first = diagnostics.getCounter( "ultrasonic samples" );
+        Counter second = diagnostics.getCounter( "ultrasonic samples" );
+        first.increment();
+        second.increment();
+
+        // then
+        Assert.assertSame( first, second );
+        Assert.assertEquals( 1, diagnostics.getCounterCount() );
+        Assert.assertEquals( 2, first.getCount() );
+    }
+
+    @Test
+    public void testSnapshot() {
+        // given
+        Diagnostics diagnostics = new Diagnostics( clock );
+        Counter counter = diagnostics.getCounter( "left light samples" );
+        for ( int i = 0; i < 500; i++ ) {
+            counter.increment();
+        }
+        diagnostics.getHistogram( "odometer period" ).record( 10 );
+        now += 5000;
+
+        // when
+        StringWriter out = new StringWriter();
+        diagnostics.writeSnapshot( new PrintWriter( out ) );
+        String[] lines = out.toString().split( "\\r?\\n" );
+
+        // then
+        Assert.assertEquals( 100, diagnostics.getRate( counter ), 1e-9 );
+        Assert.assertEquals( "# uptime 5000 ms", lines[0] );
+        Assert.assertTrue( lines[1].startsWith( "type,name,count,rate,mean,p50,p95,max,le1," ) );
+        Assert.assertEquals( "counter,left light samples,500,100.00,,,,", lines[2] );
+        Assert.assertTrue( lines[3].startsWith( "histogram,odometer period,1,,10.00,10,10,10," ) );
+    }
+
+}
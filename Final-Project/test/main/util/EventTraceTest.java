@@ -0,0 +1,106 @@
+package main.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A class to test the logic in the EventTrace class
+ *
+ * @author JohnWu
+ */
+public class EventTraceTest {
+
+    @Test
+    public void testDumpReadsBack() throws IOException {
+        // given
+        EventTrace trace = new EventTrace( 16 );
+        trace.record( EventTrace.LINE_DETECTED, 1, 0, 0 );
+        trace.record( EventTrace.CORRECTION_START, 30.48f, 15.2f, (float) Math.PI/2 );
+        trace.record( EventTrace.MOTOR_COMMAND, EventTrace.COMMAND_FORWARD, 100, 100 );
+
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = trace.dump( out );
+        List<EventTrace.Event> events = EventTrace.read( new ByteArrayInputStream( out.toByteArray() ) );
+
+        // then
+        Assert.assertEquals( 3, written );
+        Assert.assertEquals( 3, events.size() );
+        Assert.assertEquals( "left ", events.get( 0 ).describe() );
+        Assert.assertEquals( EventTrace.CORRECTION_START, events.get( 1 ).getType() );
+        Assert.assertEquals( 30.48f, events.get( 1 ).getA(), 0 );
+        Assert.assertEquals( "forward left 100 right 100", events.get( 2 ).describe() );
+        Assert.assertEquals( (int) Thread.currentThread().getId(), events.get( 2 ).getThread() );
+        Assert.assertTrue( events.get( 1 ).getTime() <= events.get( 2 ).getTime() );
+    }
+
+    @Test
+    public void testFullRingKeepsNewestEvents() throws IOException {
+        // given
+        EventTrace trace = new EventTrace( 8 );
+
+        // when
+        for ( int i = 0; i < 20; i++ ) {
+            trace.record( EventTrace.POSE, i, 0, 0 );
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.dump( out );
+        List<EventTrace.Event> events = EventTrace.read( new ByteArrayInputStream( out.toByteArray() ) );
+
+        // then
+        Assert.assertEquals( 20, trace.getRecordedCount() );
+        Assert.assertEquals( 8, events.size() );
+        for ( int i = 0; i < 8; i++ ) {
+            Assert.assertEquals( 12 + i, events.get( i ).getA(), 0 );
+        }
+    }
+
+    @Test
+    public void testThreadsRecordWithoutLosingEvents() throws Exception {
+        // given
+        final EventTrace trace = new EventTrace( 1024 );
+        Thread[] threads = new Thread[4];
+        for ( int t = 0; t < threads.length; t++ ) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for ( int i = 0; i < 200; i++ ) {
+                        trace.record( EventTrace.POSE, i, 0, 0 );
+                    }
+                }
+            };
+        }
+
+        // when
+        for ( Thread thread : threads ) {
+            thread.start();
+        }
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<EventTrace.Event> events = EventTrace.read( new ByteArrayInputStream( toBytes( trace, out ) ) );
+
+        // then, every thread recorded its events in order
+        Assert.assertEquals( 800, events.size() );
+        for ( Thread thread : threads ) {
+            float expected = 0;
+            for ( EventTrace.Event event : events ) {
+                if ( event.getThread() == (int) thread.getId() ) {
+                    Assert.assertEquals( expected++, event.getA(), 0 );
+                }
+            }
+            Assert.assertEquals( 200, expected, 0 );
+        }
+    }
+
+    private static byte[] toBytes( EventTrace trace, ByteArrayOutputStream out ) throws IOException {
+        trace.dump( out );
+        return out.toByteArray();
+    }
+
+}
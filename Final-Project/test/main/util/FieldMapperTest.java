@@ -0,0 +1,149 @@
+package main.util;
+
+import main.Parameters;
+import main.object.FieldGeometry;
+import main.object.FieldGrid;
+import main.object.Square;
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A class to test the logic in the FieldMapper class
+ *
+ * @author JohnWu
+ */
+public class FieldMapperTest {
+
+    @Test
+    public void testOffenseMappingMatchesRegions() {
+        // given
+        FieldMapper fieldMapper = new FieldMapper( createParameters( 11, 8 ) );
+
+        // when
+        Square[][] mapping = fieldMapper.getMapping();
+
+        // then
+        for ( int i = 0; i < 12; i++ ) {
+            for ( int k = 0; k < 12; k++ ) {
+                boolean allowed = !fieldMapper.isInDefenseRegion( i, k ) && !fieldMapper.isGoal( i, k );
+                Assert.assertEquals( allowed, mapping[i][k].isAllowed() );
+                Assert.assertEquals( allowed, fieldMapper.getGrid().isAllowed( i, k ) );
+            }
+        }
+    }
+
+    @Test
+    public void testDefenseMappingMatchesRegions() {
+        // given
+        FieldMapper fieldMapper = new FieldMapper( createParameters( 3, 5 ) );
+
+        // when
+        Square[][] mapping = fieldMapper.getMapping();
+
+        // then
+        for ( int i = 0; i < 12; i++ ) {
+            for ( int k = 0; k < 12; k++ ) {
+                boolean allowed = !fieldMapper.isInOffenseRegion( i, k ) && !fieldMapper.isInGoalRegion( i, k )
+                        && !fieldMapper.isGoal( i, k );
+                Assert.assertEquals( allowed, mapping[i][k].isAllowed() );
+            }
+        }
+    }
+
+    @Test
+    public void testMappingPositions() {
+        // given
+        FieldMapper fieldMapper = new FieldMapper( createParameters( 11, 8 ) );
+
+        // when
+        Square square = fieldMapper.getMapping()[3][7];
+
+        // then
+        Assert.assertEquals( 7, square.getX() );
+        Assert.assertEquals( 3, square.getY() );
+        Assert.assertEquals( 3*Constants.SQUARE_LENGTH, square.getNorthPosition(), 0 );
+        Assert.assertEquals( 2*Constants.SQUARE_LENGTH, square.getSouthPosition(), 0 );
+        Assert.assertEquals( 7*Constants.SQUARE_LENGTH, square.getEastPosition(), 0 );
+        Assert.assertEquals( 6*Constants.SQUARE_LENGTH, square.getWestPosition(), 0 );
+    }
+
+    @Test
+    public void testSegmentAllowed() {
+        // given
+        FieldGrid grid = new FieldMapper( createParameters( 11, 8 ) ).getGrid();
+
+        // then
+        Assert.assertTrue( grid.isRowSegmentAllowed( 2, 11, 0 ) );
+        Assert.assertFalse( grid.isRowSegmentAllowed( 3, 0, 11 ) );
+        Assert.assertTrue( grid.isColumnSegmentAllowed( 1, 0, 11 ) );
+        Assert.assertFalse( grid.isColumnSegmentAllowed( 5, 0, 11 ) );
+    }
+
+    @Test
+    public void testSegmentAllowedAcrossWords() {
+        // given
+        FieldGrid grid = new FieldGrid( 3, 200, Constants.SQUARE_LENGTH );
+        grid.setRectangle( 0, 2, 0, 199, true );
+        grid.setAllowed( 1, 130, false );
+
+        // then
+        Assert.assertTrue( grid.isRowSegmentAllowed( 0, 10, 190 ) );
+        Assert.assertTrue( grid.isRowSegmentAllowed( 1, 0, 129 ) );
+        Assert.assertFalse( grid.isRowSegmentAllowed( 1, 60, 140 ) );
+        Assert.assertFalse( grid.isColumnSegmentAllowed( 130, 0, 2 ) );
+        Assert.assertEquals( 599, grid.countAllowed() );
+    }
+
+    @Test
+    public void testLargerFieldGeometry() {
+        // given
+        FieldGeometry geometry = new FieldGeometry( 20, 16, Constants.SQUARE_LENGTH );
+        FieldMapper fieldMapper = new FieldMapper( createParameters( 11, 8 ), geometry );
+        FieldGrid grid = fieldMapper.getGrid();
+
+        // then
+        Assert.assertEquals( 20, grid.getRows() );
+        Assert.assertEquals( 16, grid.getColumns() );
+        Assert.assertTrue( fieldMapper.isGoal( 19, 7 ) );
+        Assert.assertTrue( fieldMapper.isGoal( 19, 8 ) );
+        Assert.assertFalse( grid.isAllowed( 19, 7 ) );
+        Assert.assertTrue( fieldMapper.isInDefenseRegion( 11, 13 ) );
+        Assert.assertFalse( fieldMapper.isInDefenseRegion( 11, 14 ) );
+        Assert.assertEquals( grid.encodeCell( 19, 15 ), fieldMapper.getDestinationCell( FieldMapper.CORNER_THREE ) );
+        Assert.assertEquals( 14*Constants.SQUARE_LENGTH, geometry.getCornerX( 3 ), 0 );
+        Assert.assertEquals( 18*Constants.SQUARE_LENGTH, geometry.getCornerY( 3 ), 0 );
+    }
+
+    @Test
+    public void testParametersMapAFieldMadeBeforeThem() {
+        // given
+        FieldMapper fieldMapper = new FieldMapper( FieldGeometry.getDefault() );
+        int allowedBefore = fieldMapper.getGrid().countAllowed();
+
+        // when
+        fieldMapper.setParameters( createParameters( 11, 8 ) );
+
+        // then
+        Assert.assertEquals( 144, allowedBefore );
+        Assert.assertEquals( new FieldMapper( createParameters( 11, 8 ) ).getGrid().countAllowed(),
+                fieldMapper.getGrid().countAllowed() );
+        Assert.assertFalse( fieldMapper.getGrid().isAllowed( 11, 5 ) );
+    }
+
+    /**
+     * A method that creates the parameters of a match
+     *
+     * @param forwardTeam the forward team
+     * @param forwardLine the forward line
+     * @return the parameters
+     */
+    private Parameters createParameters( int forwardTeam, int forwardLine ) {
+        Parameters parameters = new Parameters();
+        parameters.setForwardTeam( forwardTeam );
+        parameters.setForwardLine( forwardLine );
+        parameters.setDefenderZone( new int[]{ 4, 4 } );
+        return parameters;
+    }
+
+}
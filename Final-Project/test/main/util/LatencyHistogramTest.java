@@ -0,0 +1,50 @@
+package main.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A class to test the logic in the LatencyHistogram class
+ *
+ * @author JohnWu
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesFallInBuckets() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram( "odometer period" );
+
+        // when, ninety periods on time and ten late ones
+        for ( int i = 0; i < 90; i++ ) {
+            histogram.record( 10 );
+        }
+        for ( int i = 0; i < 10; i++ ) {
+            histogram.record( 40 );
+        }
+
+        // then
+        Assert.assertEquals( 100, histogram.getCount() );
+        Assert.assertEquals( 13, histogram.getMean(), 1e-9 );
+        Assert.assertEquals( 10, histogram.getPercentile( 50 ) );
+        Assert.assertEquals( 10, histogram.getPercentile( 90 ) );
+        Assert.assertEquals( 40, histogram.getPercentile( 95 ) );
+        Assert.assertEquals( 40, histogram.getMax() );
+    }
+
+    @Test
+    public void testLongDurationsGoInTheLastBucket() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram( "correction latency" );
+
+        // when
+        histogram.record( 12000 );
+
+        // then
+        int last = LatencyHistogram.getBucketCount() - 1;
+        Assert.assertEquals( 1, histogram.getBucketCount( last ) );
+        Assert.assertEquals( Long.MAX_VALUE, LatencyHistogram.getBucketBound( last ) );
+        Assert.assertEquals( 12000, histogram.getPercentile( 99 ) );
+    }
+
+}
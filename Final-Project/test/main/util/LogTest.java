@@ -0,0 +1,160 @@
+package main.util;
+
+import main.simulator.VirtualClock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class to test the batching, dropping and rotation of the Log class. The records are written out by calling
+ * flush on the test thread instead of starting the thread of the log.
+ *
+ * @author JohnWu
+ */
+public class LogTest {
+
+    private File file;
+    private VirtualClock clock;
+    private Log log;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile( "robot", ".log" );
+        file.delete();
+        clock = new VirtualClock();
+        log = new Log( 4, file.getPath() );
+        log.setClock( clock );
+    }
+
+    @After
+    public void tearDown() {
+        log.close();
+        for ( int i = 0; i <= 2; i++ ) {
+            new File( i == 0 ? file.getPath() : file.getPath() + "." + i ).delete();
+        }
+    }
+
+    @Test
+    public void testRecordsAreWrittenInOrder() throws IOException {
+        // given
+        clock.advance( 1500 );
+        log.info( "match", "localizing" );
+        log.warn( "navigator", "error", 2.5 );
+        log.error( "localizer", "sweep failed", new IllegalStateException( "no readings" ) );
+
+        // when
+        int written = log.flush();
+
+        // then
+        List<String> lines = readLines( file );
+        Assert.assertEquals( 3, written );
+        Assert.assertTrue( lines.get( 0 ), lines.get( 0 ).matches( "1500 INFO  thread \\d+ match: localizing" ) );
+        Assert.assertTrue( lines.get( 1 ), lines.get( 1 ).endsWith( "WARN  thread " + Thread.currentThread().getId()
+                + " navigator: error 2.5" ) );
+        Assert.assertTrue( lines.get( 2 ), lines.get( 2 ).endsWith( "localizer: sweep failed" ) );
+        Assert.assertEquals( "java.lang.IllegalStateException: no readings", lines.get( 3 ) );
+    }
+
+    @Test
+    public void testRecordsAreDroppedWhenFullAndReported() throws IOException {
+        // given
+        for ( int i = 0; i < 6; i++ ) {
+            log.info( "odometer", "update", i );
+        }
+
+        // when
+        int written = log.flush();
+
+        // then, the ring kept the first four and the next batch starts with the count of the others
+        List<String> lines = readLines( file );
+        Assert.assertEquals( 4, written );
+        Assert.assertEquals( 2, log.getDroppedCount() );
+        Assert.assertTrue( lines.get( 0 ), lines.get( 0 ).endsWith( "log: 2 records dropped" ) );
+        Assert.assertTrue( lines.get( 4 ), lines.get( 4 ).endsWith( "update 3.0" ) );
+        Assert.assertTrue( log.info( "odometer", "update", 4 ) );
+    }
+
+    @Test
+    public void testLevelsBelowMinimumAreSkipped() {
+        // given
+        log.setMinimumLevel( Log.WARN );
+
+        // when
+        boolean kept = log.info( "match", "navigating" );
+
+        // then
+        Assert.assertFalse( kept );
+        Assert.assertEquals( 0, log.flush() );
+        Assert.assertEquals( 0, log.getDroppedCount() );
+    }
+
+    @Test
+    public void testFileIsRotated() throws IOException {
+        // given, files that fit one record each
+        log.setRotation( 80, 2 );
+
+        // when
+        for ( int i = 0; i < 4; i++ ) {
+            log.info( "match", "a record long enough to fill", i );
+            log.flush();
+        }
+
+        // then
+        Assert.assertTrue( readLines( file ).get( 0 ).endsWith( "fill 3.0" ) );
+        Assert.assertTrue( readLines( new File( file.getPath() + ".1" ) ).get( 0 ).endsWith( "fill 2.0" ) );
+        Assert.assertTrue( readLines( new File( file.getPath() + ".2" ) ).get( 0 ).endsWith( "fill 1.0" ) );
+    }
+
+    @Test
+    public void testRecordingAllocatesNothing() {
+        // given
+        Assume.assumeTrue( ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean );
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue( threadMXBean.isThreadAllocatedMemorySupported() );
+        threadMXBean.setThreadAllocatedMemoryEnabled( true );
+        Log log = new Log( 4, null );
+        for ( int i = 0; i < 10000; i++ ) {
+            log.info( "odometer", "update", i );
+            if ( i % 8 == 0 ) {
+                log.flush();
+            }
+        }
+        log.flush();
+        long threadId = Thread.currentThread().getId();
+
+        // when, recording into a full ring as well as an empty one
+        long allocated = threadMXBean.getThreadAllocatedBytes( threadId );
+        for ( int i = 0; i < 8; i++ ) {
+            log.warn( "odometer", "update", i );
+        }
+        allocated = threadMXBean.getThreadAllocatedBytes( threadId ) - allocated;
+
+        // then
+        Assert.assertEquals( "bytes allocated by recording", 0, allocated );
+    }
+
+    private List<String> readLines( File file ) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader( new FileReader( file ) );
+        try {
+            for ( String line = reader.readLine(); line != null; line = reader.readLine() ) {
+                lines.add( line );
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+}
@@ -0,0 +1,86 @@
+package main.util;
+
+import main.object.FieldGrid;
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A class to test the logic in the OccupancyGrid class
+ *
+ * @author JohnWu
+ */
+public class OccupancyGridTest {
+
+    private FieldGrid grid;
+    private OccupancyGrid occupancyGrid;
+
+    @Before
+    public void setUp() {
+        grid = new FieldGrid( 12, 12, Constants.SQUARE_LENGTH );
+        occupancyGrid = new OccupancyGrid( grid );
+    }
+
+    @Test
+    public void testHitMarksEndOccupiedAndRayFree() {
+        // when
+        occupancyGrid.addReading( 15, 15, Math.PI/2, 100 );
+
+        // then
+        Assert.assertTrue( occupancyGrid.getLogOdds( grid.encodeCell( 1, 1 ) ) < 0 );
+        Assert.assertTrue( occupancyGrid.getLogOdds( grid.encodeCell( 1, 2 ) ) < 0 );
+        Assert.assertTrue( occupancyGrid.getLogOdds( grid.encodeCell( 1, 3 ) ) < 0 );
+        Assert.assertTrue( occupancyGrid.isOccupied( grid.encodeCell( 1, 4 ) ) );
+        Assert.assertEquals( 0, occupancyGrid.getLogOdds( grid.encodeCell( 1, 5 ) ), 0 );
+        Assert.assertEquals( 0, occupancyGrid.getLogOdds( grid.encodeCell( 2, 2 ) ), 0 );
+        Assert.assertTrue( occupancyGrid.getOccupiedProbability( grid.encodeCell( 1, 4 ) ) > 0.5 );
+    }
+
+    @Test
+    public void testMaxRangeReadingMarksNothingOccupied() {
+        // when
+        occupancyGrid.addReading( 15, 15, Math.PI/2, Constants.ULTRASONICSENSOR_MAX_DISTANCE );
+
+        // then
+        for ( int cell = 0; cell < 144; cell++ ) {
+            Assert.assertTrue( occupancyGrid.getLogOdds( cell ) <= 0 );
+        }
+        Assert.assertTrue( occupancyGrid.getLogOdds( grid.encodeCell( 1, 8 ) ) < 0 );
+    }
+
+    @Test
+    public void testRayStopsAtFieldEdge() {
+        // when
+        occupancyGrid.addReading( 15, 15, 3*Math.PI/2, 100 );
+
+        // then
+        int updated = 0;
+        for ( int cell = 0; cell < 144; cell++ ) {
+            if ( occupancyGrid.getLogOdds( cell ) != 0 ) {
+                updated++;
+            }
+        }
+        Assert.assertEquals( 2, updated );
+        Assert.assertFalse( occupancyGrid.isOccupied( grid.encodeCell( 1, 0 ) ) );
+    }
+
+    @Test
+    public void testLogOddsStayWithinLimit() {
+        // when
+        for ( int i = 0; i < 100; i++ ) {
+            occupancyGrid.addReading( 15, 15, 0, 100 );
+        }
+
+        // then
+        Assert.assertEquals( Constants.OCCUPANCY_LOG_ODDS_LIMIT, occupancyGrid.getLogOdds( grid.encodeCell( 4, 1 ) ), 0 );
+        Assert.assertTrue( occupancyGrid.isFree( grid.encodeCell( 2, 1 ) ) );
+
+        // a few misses bring an occupied square back under the threshold
+        for ( int i = 0; i < 10; i++ ) {
+            occupancyGrid.addReading( 15, 15, 0, 200 );
+        }
+        Assert.assertFalse( occupancyGrid.isOccupied( grid.encodeCell( 4, 1 ) ) );
+    }
+
+}
@@ -0,0 +1,117 @@
+package main.util;
+
+import main.object.FieldGeometry;
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A class to test the logic in the ParticleFilter class
+ *
+ * @author JohnWu
+ */
+public class ParticleFilterTest {
+
+    private FieldGeometry geometry = FieldGeometry.getDefault();
+
+    @Test
+    public void testPredictMovesParticles() {
+        // given
+        ParticleFilter particleFilter = new ParticleFilter( geometry, 500 );
+        particleFilter.initialize( 0, 0, 0, 0.1, 0.001 );
+        double[] pose = new double[3];
+
+        // when
+        particleFilter.predict( 30, 0 );
+        particleFilter.predict( 0, Math.PI/2 );
+        particleFilter.predict( 10, 0 );
+        particleFilter.getEstimate( pose );
+
+        // then
+        Assert.assertEquals( 10, pose[0], 1 );
+        Assert.assertEquals( 30, pose[1], 1 );
+        Assert.assertEquals( Math.PI/2, pose[2], 0.05 );
+    }
+
+    @Test
+    public void testWallRangesConverge() {
+        // given
+        ParticleFilter particleFilter = new ParticleFilter( geometry, Constants.PARTICLE_COUNT );
+        assertWallRangesConverge( particleFilter );
+    }
+
+    @Test
+    public void testParallelWallRangesConverge() {
+        // given
+        ParticleFilter particleFilter = new ParticleFilter( geometry, 2000, 4 );
+        try {
+            assertWallRangesConverge( particleFilter );
+        } finally {
+            particleFilter.shutdown();
+        }
+    }
+
+    @Test
+    public void testLineCrossingFavoursParticlesOnLine() {
+        // given
+        ParticleFilter particleFilter = new ParticleFilter( geometry, 1000 );
+        double lineY = Constants.SQUARE_LENGTH - Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET;
+        particleFilter.initialize( 15, lineY - 3, 0, 2, 0.001 );
+        double[] pose = new double[3];
+
+        // when
+        particleFilter.updateLineCrossing( true );
+        particleFilter.updateLineCrossing( false );
+        particleFilter.getEstimate( pose );
+
+        // then
+        Assert.assertEquals( lineY, pose[1], 1 );
+    }
+
+    @Test
+    public void testResampleKeepsPopulation() {
+        // given
+        ParticleFilter particleFilter = new ParticleFilter( geometry, 100 );
+        particleFilter.initialize( 50, 50, 1, 3, 0.1 );
+        double[] before = new double[3];
+        double[] after = new double[3];
+        particleFilter.getEstimate( before );
+
+        // when
+        particleFilter.resample();
+        particleFilter.getEstimate( after );
+
+        // then
+        Assert.assertEquals( 100, particleFilter.getCount() );
+        Assert.assertEquals( before[0], after[0], 1 );
+        Assert.assertEquals( before[1], after[1], 1 );
+    }
+
+    /**
+     * A method that turns on the spot near the north east walls, feeding the true wall ranges, and checks
+     * the filter finds the true position
+     *
+     * @param particleFilter the filter
+     */
+    private void assertWallRangesConverge( ParticleFilter particleFilter ) {
+        double trueX = 250;
+        double trueY = 250;
+        particleFilter.initialize( trueX - 6, trueY + 8, 0, 8, 0.01 );
+        double[] pose = new double[3];
+
+        // when
+        double theta = 0;
+        for ( int i = 0; i < 12; i++ ) {
+            particleFilter.updateRange( particleFilter.calculateWallDistance( trueX, trueY, theta ) );
+            particleFilter.predict( 0, Math.PI/2 );
+            theta += Math.PI/2;
+        }
+        particleFilter.getEstimate( pose );
+
+        // then
+        Assert.assertEquals( trueX, pose[0], 3 );
+        Assert.assertEquals( trueY, pose[1], 3 );
+        Assert.assertTrue( particleFilter.getPositionSpread() < 5 );
+    }
+
+}
@@ -0,0 +1,106 @@
+package main.util;
+
+import main.object.FieldGeometry;
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A class to test the logic in the PoseEstimator class
+ *
+ * @author JohnWu
+ */
+public class PoseEstimatorTest {
+
+    private PoseEstimator poseEstimator;
+    private double[] pose = new double[3];
+
+    @Before
+    public void setUp() {
+        poseEstimator = new PoseEstimator( FieldGeometry.getDefault() );
+    }
+
+    @Test
+    public void testPredictMatchesOdometer() {
+        // given
+        double x = 10;
+        double y = 20;
+        double theta = 0;
+        poseEstimator.setPose( x, y, theta );
+
+        // when
+        for ( int i = 0; i < 50; i++ ) {
+            double left = i < 20 ? 0.5 : 0.4;
+            double right = i < 20 ? 0.5 : 0.3;
+            poseEstimator.predict( left, right );
+            theta += ( left - right )/Constants.TRACK_LENGTH;
+            x += ( left + right )/2*Math.sin( theta );
+            y += ( left + right )/2*Math.cos( theta );
+        }
+        poseEstimator.getPose( pose );
+
+        // then
+        Assert.assertEquals( x, pose[0], 1e-9 );
+        Assert.assertEquals( y, pose[1], 1e-9 );
+        Assert.assertEquals( theta, pose[2], 1e-9 );
+    }
+
+    @Test
+    public void testUncertaintyGrowsWhileDriving() {
+        // given
+        poseEstimator.setPose( 0, 0, 0 );
+        double initial = poseEstimator.getPositionUncertainty();
+
+        // when
+        for ( int i = 0; i < 100; i++ ) {
+            poseEstimator.predict( 1, 1 );
+        }
+
+        // then
+        Assert.assertTrue( poseEstimator.getPositionUncertainty() > initial );
+        Assert.assertTrue( poseEstimator.getHeadingUncertainty() > Math.sqrt( Constants.EKF_HEADING_RESET_VARIANCE ) );
+    }
+
+    @Test
+    public void testLineCrossingCorrectsPosition() {
+        // given, the left sensor is on the line y = 30.48 when the vehicle is at y = 25.48
+        double trueY = Constants.SQUARE_LENGTH - Constants.LIGHT_SENSOR_LONGITUDINAL_OFFSET;
+        poseEstimator.setPose( 15, trueY + 1.5 - 50, 0 );
+        for ( int i = 0; i < 50; i++ ) {
+            poseEstimator.predict( 1, 1 );
+        }
+        double[] before = new double[9];
+        poseEstimator.getCovariance( before );
+
+        // when
+        boolean used = poseEstimator.updateLineCrossing( true );
+        double[] after = new double[9];
+        poseEstimator.getCovariance( after );
+        poseEstimator.getPose( pose );
+
+        // then
+        Assert.assertTrue( used );
+        Assert.assertTrue( Math.abs( pose[1] - trueY ) < 1.5 );
+        Assert.assertEquals( 15, pose[0], 1.5 );
+        Assert.assertTrue( after[4] < before[4] );
+    }
+
+    @Test
+    public void testWallRangeGatesObstacles() {
+        // given, the north wall is 85.28 cm ahead
+        poseEstimator.setPose( 250, 250, 0 );
+
+        // when
+        boolean obstacleUsed = poseEstimator.updateRange( 40 );
+        boolean wallUsed = poseEstimator.updateRange( 84 );
+        poseEstimator.getPose( pose );
+
+        // then
+        Assert.assertFalse( obstacleUsed );
+        Assert.assertTrue( wallUsed );
+        Assert.assertTrue( pose[1] > 250 );
+        Assert.assertEquals( 250, pose[0], 1e-9 );
+    }
+
+}
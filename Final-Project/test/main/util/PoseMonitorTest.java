@@ -0,0 +1,74 @@
+package main.util;
+
+import main.object.FieldGeometry;
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A class to test the logic in the PoseMonitor class
+ *
+ * @author JohnWu
+ */
+public class PoseMonitorTest {
+
+    private PoseMonitor poseMonitor;
+
+    // facing the north wall, 85 cm away
+    private double x = 250;
+    private double y = 250;
+    private double wallDistance = 11*Constants.SQUARE_LENGTH - 250;
+
+    @Before
+    public void setUp() {
+        poseMonitor = new PoseMonitor( new WallDistanceTable( FieldGeometry.getDefault() ) );
+    }
+
+    @Test
+    public void testEchoesBehindWallTriggerRelocalization() {
+        // when
+        for ( int i = 0; i < Constants.WALL_CHECK_DISAGREEMENTS; i++ ) {
+            Assert.assertFalse( poseMonitor.isRelocalizationNeeded() );
+            Assert.assertFalse( poseMonitor.check( x, y, 0, wallDistance + 40 ) );
+        }
+
+        // then
+        Assert.assertTrue( poseMonitor.isRelocalizationNeeded() );
+        poseMonitor.clearRelocalization( true );
+        Assert.assertFalse( poseMonitor.isRelocalizationNeeded() );
+        Assert.assertEquals( 1, poseMonitor.getRelocalizationCount() );
+    }
+
+    @Test
+    public void testFailedRelocalizationIsNotCounted() {
+        // given
+        for ( int i = 0; i < Constants.WALL_CHECK_DISAGREEMENTS; i++ ) {
+            poseMonitor.check( x, y, 0, wallDistance + 40 );
+        }
+
+        // when
+        poseMonitor.clearRelocalization( false );
+
+        // then, the disagreements start over
+        Assert.assertFalse( poseMonitor.isRelocalizationNeeded() );
+        Assert.assertEquals( 0, poseMonitor.getRelocalizationCount() );
+        Assert.assertFalse( poseMonitor.check( x, y, 0, wallDistance + 40 ) );
+        Assert.assertFalse( poseMonitor.isRelocalizationNeeded() );
+    }
+
+    @Test
+    public void testObstaclesAndAgreementDoNotTrigger() {
+        // when
+        for ( int i = 0; i < 20; i++ ) {
+            poseMonitor.check( x, y, 0, wallDistance + 40 );
+            poseMonitor.check( x, y, 0, wallDistance );
+            poseMonitor.check( x, y, 0, 20 );
+            poseMonitor.check( x, y, 0, Constants.ULTRASONICSENSOR_MAX_DISTANCE );
+        }
+
+        // then
+        Assert.assertFalse( poseMonitor.isRelocalizationNeeded() );
+    }
+
+}
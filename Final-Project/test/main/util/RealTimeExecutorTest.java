@@ -0,0 +1,149 @@
+package main.util;
+
+import main.simulator.VirtualClock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class to test the scheduling and accounting of the RealTimeExecutor class
+ *
+ * @author JohnWu
+ */
+public class RealTimeExecutorTest {
+
+    // longest a test waits for a worker (ms of wall clock)
+    private static final long TIMEOUT = 5000;
+
+    @Test
+    public void testReleasedTasksRunInPriorityOrder() {
+        // given, a low priority task scheduled before a critical one with the same period
+        VirtualClock clock = new VirtualClock();
+        List<String> runs = new ArrayList<String>();
+        RealTimeExecutor executor = new RealTimeExecutor( clock );
+        executor.schedule( new RecordingTask( "display", Task.PRIORITY_LOW, 10, clock, runs ) );
+        executor.schedule( new RecordingTask( "odometer", Task.PRIORITY_CRITICAL, 10, clock, runs ) );
+        executor.start();
+        clock.awaitSleepers( executor.getWorkerCount() );
+
+        // when
+        synchronized ( runs ) {
+            runs.clear();
+        }
+        clock.advance( 20 );
+        executor.shutdown();
+
+        // then
+        synchronized ( runs ) {
+            Assert.assertEquals( "[odometer@10, display@10, odometer@20, display@20]", runs.toString() );
+        }
+    }
+
+    @Test
+    public void testEventTaskRunsOnceWhenReleased() {
+        // given
+        VirtualClock clock = new VirtualClock();
+        List<String> runs = new ArrayList<String>();
+        RealTimeExecutor executor = new RealTimeExecutor( clock );
+        RecordingTask task = new RecordingTask( "correction", Task.PRIORITY_CRITICAL, 0, clock, runs );
+        executor.schedule( task );
+        executor.start();
+        clock.awaitSleepers( executor.getWorkerCount() );
+
+        // when, the release wakes the worker through the clock, which runs it before time moves on
+        task.release();
+        clock.advance( 0 );
+        long runCount = task.getRunCount();
+        clock.advance( 1000 );
+        executor.shutdown();
+
+        // then
+        Assert.assertEquals( 1, runCount );
+        Assert.assertEquals( 1, task.getRunCount() );
+        Assert.assertEquals( 0, task.getDeadlineMissCount() );
+        synchronized ( runs ) {
+            Assert.assertEquals( "[correction@0]", runs.toString() );
+        }
+    }
+
+    @Test
+    public void testOverrunsAreSkippedAndCounted() {
+        // given, a task with a period of 10 ms whose runs take 25 ms
+        final SteppedClock clock = new SteppedClock();
+        RealTimeExecutor executor = new RealTimeExecutor( clock );
+        final List<String> runs = new ArrayList<String>();
+        Task task = new RecordingTask( "slow", Task.PRIORITY_NORMAL, 10, clock, runs ) {
+            protected void execute() {
+                super.execute();
+                clock.step( 25 );
+                if ( getRunCount() == 2 ) {
+                    cancel();
+                }
+            }
+        };
+        executor.schedule( task );
+
+        // when
+        executor.start();
+        long giveUp = System.currentTimeMillis() + TIMEOUT;
+        while ( task.isScheduled() && System.currentTimeMillis() < giveUp ) {
+            Thread.yield();
+        }
+        executor.shutdown();
+
+        // then, each run goes past two releases and the next one starts on the third, apart from the last one
+        // which is no longer scheduled when it ends
+        Assert.assertEquals( 3, task.getRunCount() );
+        Assert.assertEquals( 4, task.getOverrunCount() );
+        Assert.assertEquals( 3, task.getDeadlineMissCount() );
+        Assert.assertTrue( task.getMaxResponseTime() >= 25 );
+        synchronized ( runs ) {
+            Assert.assertEquals( "slow@0", runs.get( 0 ) );
+        }
+    }
+
+    /**
+     * A task that records its name and the time of every run
+     */
+    private static class RecordingTask extends Task {
+
+        private Clock clock;
+        private List<String> runs;
+
+        RecordingTask( String name, int priority, long period, Clock clock, List<String> runs ) {
+            super( name, priority, period, 10 );
+            this.clock = clock;
+            this.runs = runs;
+        }
+
+        protected void execute() {
+            synchronized ( runs ) {
+                runs.add( getName() + "@" + clock.currentTimeMillis() );
+            }
+        }
+    }
+
+    /**
+     * A clock that moves a millisecond for every sleep of a worker, and as far as a task steps it
+     */
+    private static class SteppedClock extends Clock {
+
+        private long now;
+
+        public synchronized long currentTimeMillis() {
+            return now;
+        }
+
+        public void sleep( long millis ) {
+            super.sleep( 1 );
+            step( Math.min( millis, 1 ) );
+        }
+
+        synchronized void step( long millis ) {
+            now += millis;
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package main.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class to test that the StartupGraph class opens its nodes in parallel, in the order of their dependencies
+ *
+ * @author JohnWu
+ */
+public class StartupGraphTest {
+
+    // time each slow node takes to open (ms)
+    private static final long OPEN_TIME = 300;
+
+    @Test
+    public void testIndependentNodesOpenInParallel() {
+        // given
+        StartupGraph graph = new StartupGraph();
+        StartupGraph.Node<String> first = graph.add( "first", new SlowOpener( "first" ) );
+        StartupGraph.Node<String> second = graph.add( "second", new SlowOpener( "second" ) );
+        StartupGraph.Node<String> third = graph.add( "third", new SlowOpener( "third" ) );
+
+        // when
+        long start = System.currentTimeMillis();
+        graph.start();
+        String values = first.get() + second.get() + third.get();
+        long elapsed = System.currentTimeMillis() - start;
+
+        // then
+        Assert.assertEquals( "firstsecondthird", values );
+        Assert.assertTrue( "opened in " + elapsed + " ms", elapsed < 2*OPEN_TIME );
+        Assert.assertTrue( third.getReadyTime() >= OPEN_TIME );
+    }
+
+    @Test
+    public void testNodeOpensAfterItsDependencies() {
+        // given
+        StartupGraph graph = new StartupGraph();
+        final StartupGraph.Node<String> brick = graph.add( "brick", new SlowOpener( "brick" ) );
+        StartupGraph.Node<String> motor = graph.add( "motor", new Callable<String>() {
+            public String call() {
+                return brick.get() + " port A";
+            }
+        }, brick );
+
+        // when
+        graph.start();
+
+        // then
+        Assert.assertEquals( "brick port A", motor.get() );
+        Assert.assertTrue( motor.getReadyTime() >= brick.getReadyTime() );
+    }
+
+    @Test
+    public void testNodeIsReadyWhileOthersAreOpening() throws InterruptedException {
+        // given, a sensor that does not open until the test lets it
+        final CountDownLatch sensorOpened = new CountDownLatch( 1 );
+        StartupGraph graph = new StartupGraph();
+        StartupGraph.Node<String> sensor = graph.add( "sensor", new Callable<String>() {
+            public String call() throws InterruptedException {
+                sensorOpened.await();
+                return "sensor";
+            }
+        } );
+        StartupGraph.Node<String> motor = graph.add( "motor", new SlowOpener( "motor" ) );
+
+        // when
+        graph.start();
+        String value = motor.get();
+
+        // then
+        Assert.assertEquals( "motor", value );
+        Assert.assertFalse( sensor.isReady() );
+        Assert.assertEquals( -1, sensor.getReadyTime() );
+        sensorOpened.countDown();
+        Assert.assertEquals( "sensor", sensor.get() );
+    }
+
+    @Test
+    public void testFailureReachesDependentNodes() {
+        // given
+        StartupGraph graph = new StartupGraph();
+        StartupGraph.Node<String> brick = graph.add( "brick", new Callable<String>() {
+            public String call() {
+                throw new IllegalArgumentException( "no port" );
+            }
+        } );
+        StartupGraph.Node<String> motor = graph.add( "motor", new SlowOpener( "motor" ), brick );
+
+        // when
+        graph.start();
+
+        // then
+        try {
+            motor.get();
+            Assert.fail();
+        } catch ( IllegalStateException e ) {
+            Assert.assertEquals( "Could not open motor", e.getMessage() );
+            Assert.assertEquals( "no port", e.getCause().getCause().getMessage() );
+        }
+    }
+
+    @Test
+    public void testErrorIsReportedInsteadOfWaitingForever() {
+        // given, a driver that is not on the brick
+        StartupGraph graph = new StartupGraph();
+        StartupGraph.Node<String> sensor = graph.add( "sensor", new Callable<String>() {
+            public String call() {
+                throw new UnsatisfiedLinkError( "no driver" );
+            }
+        } );
+        StartupGraph.Node<String> reading = graph.add( "reading", new SlowOpener( "reading" ), sensor );
+
+        // when
+        graph.start();
+
+        // then
+        try {
+            reading.get();
+            Assert.fail();
+        } catch ( IllegalStateException e ) {
+            Assert.assertTrue( sensor.isReady() );
+            Assert.assertTrue( e.getCause().getCause() instanceof UnsatisfiedLinkError );
+        }
+    }
+
+    @Test
+    public void testReadyNodeNeedsNoGraph() {
+        // when
+        StartupGraph.Node<String> screen = StartupGraph.ready( "screen", "lcd" );
+
+        // then
+        Assert.assertTrue( screen.isReady() );
+        Assert.assertEquals( "lcd", screen.get() );
+        Assert.assertEquals( 0, screen.getReadyTime() );
+    }
+
+    /**
+     * Takes the open time to return its value
+     */
+    private static class SlowOpener implements Callable<String> {
+
+        private String value;
+
+        SlowOpener( String value ) {
+            this.value = value;
+        }
+
+        public String call() throws InterruptedException {
+            TimeUnit.MILLISECONDS.sleep( OPEN_TIME );
+            return value;
+        }
+
+    }
+
+}
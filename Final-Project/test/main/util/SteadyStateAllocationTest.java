@@ -0,0 +1,290 @@
+package main.util;
+
+import lejos.hardware.motor.EV3LargeRegulatedMotor;
+import main.Parameters;
+import main.controller.Localizer;
+import main.controller.Navigator;
+import main.controller.ObstacleDetector;
+import main.controller.OccupancyMapper;
+import main.controller.Odometer;
+import main.controller.OdometerCorrection;
+import main.controller.ParticleLocalizer;
+import main.object.Calibration;
+import main.object.DiagnosticsDisplay;
+import main.object.Feedback;
+import main.object.FieldGeometry;
+import main.object.FieldGrid;
+import main.object.OdometerDisplay;
+import main.object.Tuning;
+import main.object.UltrasonicSensor;
+import main.resource.Constants;
+import main.simulator.SimulatedColorSensor;
+import main.simulator.SimulatedLCD;
+import main.simulator.SimulatedUltrasonicSensor;
+import main.simulator.SimulatedWorld;
+import main.simulator.VirtualClock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class to test that the controllers allocate nothing once they are warmed up, since on the brick every
+ * collection shows up as missed odometer updates.
+ *
+ * The tasks run on the executor of the match and the navigator drives the simulated vehicle in laps around the
+ * middle of the field with its own travel loops, while the log drains what they write and the feedback channel
+ * shows what they post, all on a virtual clock, so that the odometer correction squares up on the lines it
+ * crosses or takes them while driving as it does in a match. After a warm-up long enough for the compiler to be
+ * done with the loop, the bytes allocated by every one of those threads are counted over one stretch of the
+ * match, and the build fails as soon as a change brings garbage back into it.
+ *
+ * @author JohnWu
+ */
+public class SteadyStateAllocationTest {
+
+    // simulated time the match runs before and while it is measured (ms)
+    private static final long WARM_UP = 60000;
+    private static final long MEASURED = 30000;
+
+    // the squares the corners of the lap are in, rows and columns from 1 to 4
+    private static final int LAP_LOW = 1;
+    private static final int LAP_HIGH = 4;
+
+    private VirtualClock clock;
+    private SimulatedWorld world;
+    private EV3LargeRegulatedMotor leftMotor, rightMotor;
+    private Odometer odometer;
+    private Navigator navigator;
+    private OdometerCorrection odometerCorrection;
+    private RealTimeExecutor executor;
+    private Log log;
+    private Feedback feedback;
+    private List<Thread> threads = new ArrayList<>();
+    private double lapLow, lapHigh;
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue( ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean );
+        threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue( threadMXBean.isThreadAllocatedMemorySupported() );
+        threadMXBean.setThreadAllocatedMemoryEnabled( true );
+
+        // every thread started on the clock is one of the measured ones
+        clock = new VirtualClock() {
+            public void start( Thread thread ) {
+                threads.add( thread );
+                super.start( thread );
+            }
+        };
+        FieldGeometry geometry = FieldGeometry.getDefault();
+        world = new SimulatedWorld( geometry, clock, 3 );
+        leftMotor = world.createMotor( true );
+        rightMotor = world.createMotor( false );
+        UltrasonicSensor ultrasonicSensor = new UltrasonicSensor( new SimulatedUltrasonicSensor( world ) );
+        SimulatedLCD lcd = new SimulatedLCD();
+
+        Parameters parameters = new Parameters();
+        parameters.setForwardCorner( 1 );
+        parameters.setForwardLine( 4 );
+        parameters.setForwardTeam( 11 );
+        parameters.setDefenderZone( new int[]{ 4, 4 } );
+        FieldMapper fieldMapper = new FieldMapper( parameters, geometry );
+        Calibration calibration = new Calibration();
+        Diagnostics diagnostics = new Diagnostics( clock );
+        ultrasonicSensor.setSampleCounter( diagnostics.getCounter( "ultrasonic samples" ) );
+        EventTrace trace = new EventTrace( Constants.TRACE_CAPACITY );
+        executor = new RealTimeExecutor( clock );
+        executor.setDiagnostics( diagnostics );
+        log = new Log( Constants.LOG_CAPACITY, null );
+        log.setClock( clock );
+        log.setDiagnostics( diagnostics );
+        executor.setLog( log );
+        feedback = new Feedback( lcd );
+        feedback.setClock( clock );
+        feedback.setSoundAvailable( false );
+        feedback.setDiagnostics( diagnostics );
+
+        odometer = new Odometer( leftMotor, rightMotor, fieldMapper );
+        odometer.setClock( clock );
+        odometer.setDiagnostics( diagnostics );
+        odometer.setTrace( trace );
+        odometer.setPoseEstimator( new PoseEstimator( geometry, calibration ) );
+        Tuning tuning = new Tuning();
+        tuning.setDriveSpeed( Constants.VEHICLE_FORWARD_SPEED_LOW );
+        navigator = new Navigator( leftMotor, rightMotor, odometer );
+        navigator.setClock( clock );
+        navigator.setTuning( tuning );
+        navigator.setDiagnostics( diagnostics );
+        navigator.setTrace( trace );
+        navigator.setFeedback( feedback );
+        navigator.setLog( log );
+        odometerCorrection = new OdometerCorrection( navigator, odometer,
+                new SimulatedColorSensor( world, true ), new SimulatedColorSensor( world, false ) );
+        odometerCorrection.setClock( clock );
+        odometerCorrection.setTuning( tuning );
+        odometerCorrection.setDiagnostics( diagnostics );
+        odometerCorrection.setTrace( trace );
+        odometerCorrection.setFeedback( feedback );
+        ParticleLocalizer particleLocalizer = new ParticleLocalizer( odometer, ultrasonicSensor,
+                new ParticleFilter( geometry, Constants.PARTICLE_COUNT ) );
+        odometerCorrection.setParticleLocalizer( particleLocalizer );
+        DStarLitePlanner replanner = new DStarLitePlanner( fieldMapper );
+        ObstacleDetector obstacleDetector = new ObstacleDetector( odometer, ultrasonicSensor, replanner );
+        OccupancyMapper occupancyMapper = new OccupancyMapper( odometer, ultrasonicSensor,
+                new OccupancyGrid( fieldMapper.getGrid() ) );
+        occupancyMapper.setPoseMonitor( new PoseMonitor( new WallDistanceTable( geometry ) ) );
+        DiagnosticsDisplay diagnosticsDisplay = new DiagnosticsDisplay( diagnostics, lcd );
+        diagnosticsDisplay.setPagePeriod( 500 );
+
+        executor.schedule( odometer );
+        executor.schedule( odometerCorrection.getLeftSensor() );
+        executor.schedule( odometerCorrection.getRightSensor() );
+        executor.schedule( odometerCorrection );
+        executor.schedule( ultrasonicSensor );
+        executor.schedule( particleLocalizer );
+        executor.schedule( obstacleDetector );
+        executor.schedule( occupancyMapper );
+        executor.schedule( new OdometerDisplay( odometer, lcd ) );
+        executor.schedule( diagnosticsDisplay );
+
+        // clockwise laps through the middle of the field, starting a little off the first leg
+        double squareLength = geometry.getSquareLength();
+        lapLow = ( LAP_LOW + 0.5 )*squareLength;
+        lapHigh = ( LAP_HIGH + 0.5 )*squareLength;
+        world.addObstacle( 7, 7 );
+        world.setPose( lapLow, lapLow + squareLength, 0.05 );
+        odometer.setX( lapLow );
+        odometer.setY( lapLow + squareLength );
+        odometer.setTheta( 0 );
+        FieldGrid grid = fieldMapper.getGrid();
+        odometer.setCurrentCell( grid.getCell( odometer.getX(), odometer.getY() ) );
+    }
+
+    @After
+    public void tearDown() {
+        running = false;
+        executor.shutdown();
+        log.close();
+        feedback.shutdown();
+        clock.advance( Constants.EXECUTOR_IDLE_PERIOD );
+    }
+
+    @Test
+    public void testControlLoopAllocatesNothingOnceWarmedUp() {
+        // given
+        clock.start( log );
+        feedback.start();
+        executor.start();
+        startLaps();
+        clock.advance( WARM_UP );
+
+        // when
+        int correctionStops = odometerCorrection.getCorrectionStopCount();
+        int drivingCorrections = odometerCorrection.getDrivingCorrectionCount();
+        long allocated = getAllocatedBytes( threads );
+        clock.advance( MEASURED );
+        allocated = getAllocatedBytes( threads ) - allocated;
+
+        // then, with the vehicle having both stopped and driven on lines in the measured stretch
+        Assert.assertNull( "laps failed: " + failure, failure );
+        Assert.assertTrue( "correction stops " + correctionStops + " then " + odometerCorrection.getCorrectionStopCount(),
+                odometerCorrection.getCorrectionStopCount() > correctionStops );
+        Assert.assertTrue( "driving corrections " + drivingCorrections + " then "
+                + odometerCorrection.getDrivingCorrectionCount(),
+                odometerCorrection.getDrivingCorrectionCount() > drivingCorrections );
+        Assert.assertEquals( "bytes allocated by the match", 0, allocated );
+    }
+
+    @Test
+    public void testLocalizerMinimumSearchAllocatesNothingOnceWarmedUp() {
+        // given, the readings of a sweep in corner one, 15 cm from both walls
+        Localizer localizer = new Localizer( null, new SimulatedUltrasonicSensor( world ), null, 1 );
+        ArrayList<Localizer.SensorReading> sensorReadings = new ArrayList<>();
+        for ( int i = 0; i < 360; i++ ) {
+            double theta = 3*Math.PI/2 - i*Math.PI/180;
+            double west = -Math.sin( theta ) > 1e-9 ? 15/-Math.sin( theta ) : Double.MAX_VALUE;
+            double south = -Math.cos( theta ) > 1e-9 ? 15/-Math.cos( theta ) : Double.MAX_VALUE;
+            Localizer.SensorReading sensorReading = localizer.new SensorReading();
+            sensorReading.setDistance( (float) Math.min( 255, Math.min( west, south ) ) );
+            sensorReading.setTheta( -i*Math.PI/180 );
+            sensorReadings.add( sensorReading );
+        }
+        for ( int i = 0; i < 1000; i++ ) {
+            localizer.calculateSecondMinimumIndex( sensorReadings, localizer.calculateFirstMinimumIndex( sensorReadings ) );
+        }
+
+        // when
+        long allocated = getAllocatedBytes();
+        int firstMinimumIndex = localizer.calculateFirstMinimumIndex( sensorReadings );
+        int secondMinimumIndex = localizer.calculateSecondMinimumIndex( sensorReadings, firstMinimumIndex );
+        allocated = getAllocatedBytes() - allocated;
+
+        // then
+        Assert.assertTrue( firstMinimumIndex >= 0 && secondMinimumIndex >= 0 );
+        Assert.assertEquals( "bytes allocated by the minimum search", 0, allocated );
+    }
+
+    /**
+     * Starts the thread on which the navigator drives the laps, one leg at a time. The pose estimator is reseeded
+     * before each leg as a relocalization would, once the odometer has taken in the stop, so that the first lines
+     * of a leg are taken while driving and the later ones need a correction stop.
+     */
+    private void startLaps() {
+        Thread laps = new Thread( "laps" ) {
+            public void run() {
+                try {
+                    for ( int leg = 0; running; leg++ ) {
+                        clock.sleep( Constants.ODOMETER_PERIOD );
+                        odometer.getPoseEstimator().setPose( odometer.getX(), odometer.getY(), odometer.getTheta() );
+                        switch ( leg % 4 ) {
+                            case 0:
+                                navigator.travelToY( lapHigh );
+                                break;
+                            case 1:
+                                navigator.travelToX( lapHigh );
+                                break;
+                            case 2:
+                                navigator.travelToY( lapLow );
+                                break;
+                            default:
+                                navigator.travelToX( lapLow );
+                                break;
+                        }
+                    }
+                } catch ( Throwable e ) {
+                    failure = e;
+                }
+            }
+        };
+        laps.setDaemon( true );
+        clock.start( laps );
+    }
+
+    /**
+     * Returns the bytes the threads started on the clock and the feedback thread allocated so far
+     *
+     * @param threads the threads started on the clock
+     * @return the bytes allocated
+     */
+    private long getAllocatedBytes( List<Thread> threads ) {
+        long allocated = threadMXBean.getThreadAllocatedBytes( feedback.getId() );
+        for ( int i = 0; i < threads.size(); i++ ) {
+            allocated += threadMXBean.getThreadAllocatedBytes( threads.get( i ).getId() );
+        }
+        return allocated;
+    }
+
+    private long getAllocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes( Thread.currentThread().getId() );
+    }
+
+}
@@ -0,0 +1,62 @@
+package main.util;
+
+import main.object.FieldGeometry;
+import main.resource.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * A class to test the logic in the WallDistanceTable class
+ *
+ * @author JohnWu
+ */
+public class WallDistanceTableTest {
+
+    private WallDistanceTable wallDistanceTable = new WallDistanceTable( FieldGeometry.getDefault() );
+
+    @Test
+    public void testLookupFacingWalls() {
+        // then, from the middle of a cell facing straight at each wall
+        double x = 5*Constants.SQUARE_LENGTH/3 - Constants.SQUARE_LENGTH/6;
+        double y = x;
+        Assert.assertEquals( x + Constants.SQUARE_LENGTH, wallDistanceTable.getExpectedDistance( x, y, 3*Math.PI/2 ), 0.1 );
+        Assert.assertEquals( y + Constants.SQUARE_LENGTH, wallDistanceTable.getExpectedDistance( x, y, Math.PI ), 0.1 );
+        Assert.assertEquals( Constants.ULTRASONICSENSOR_MAX_DISTANCE, wallDistanceTable.getExpectedDistance( x, y, 0 ), 0.1 );
+    }
+
+    @Test
+    public void testLookupMatchesRaycastOnCellCentres() {
+        // given
+        Random random = new Random( 11 );
+        double cellLength = Constants.SQUARE_LENGTH/Constants.WALL_TABLE_RESOLUTION;
+        int cells = 12*Constants.WALL_TABLE_RESOLUTION;
+
+        // then
+        for ( int i = 0; i < 1000; i++ ) {
+            double x = -Constants.SQUARE_LENGTH + ( random.nextInt( cells ) + 0.5 )*cellLength;
+            double y = -Constants.SQUARE_LENGTH + ( random.nextInt( cells ) + 0.5 )*cellLength;
+            double theta = random.nextInt( Constants.WALL_TABLE_HEADING_BINS )*2*Math.PI/Constants.WALL_TABLE_HEADING_BINS;
+            double exact = Math.min( Constants.ULTRASONICSENSOR_MAX_DISTANCE, wallDistanceTable.calculateWallDistance( x, y, theta ) );
+            Assert.assertEquals( exact, wallDistanceTable.getExpectedDistance( x, y, theta ), 0.05 );
+        }
+    }
+
+    @Test
+    public void testTableGrowsWithTheSidesOfTheField() {
+        // given
+        FieldGeometry large = new FieldGeometry( 1000, 1000, Constants.SQUARE_LENGTH );
+
+        // when
+        WallDistanceTable largeTable = new WallDistanceTable( large );
+
+        // then
+        int cells = 1000*Constants.WALL_TABLE_RESOLUTION;
+        Assert.assertEquals( 2*cells*Constants.WALL_TABLE_HEADING_BINS, largeTable.size() );
+        Assert.assertEquals( Constants.ULTRASONICSENSOR_MAX_DISTANCE, largeTable.getExpectedDistance( 5000, 5000, 0 ), 0.1 );
+        double y = -Constants.SQUARE_LENGTH + ( cells - 2.5 )*Constants.SQUARE_LENGTH/Constants.WALL_TABLE_RESOLUTION;
+        Assert.assertEquals( largeTable.calculateWallDistance( 5000, y, 0 ), largeTable.getExpectedDistance( 5000, y, 0 ), 0.05 );
+    }
+
+}
@@ -0,0 +1,70 @@
+package main.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A class to test when the WarmUp class ends its rounds
+ *
+ * @author JohnWu
+ */
+public class WarmUpTest {
+
+    // time allowed for a warm-up that is expected to end on its own (ms)
+    private static final long TIMEOUT = 60000;
+
+    @Test
+    public void testEndsOnceCompilerIsDone() throws InterruptedException {
+        // given
+        WarmUp warmUp = new WarmUp();
+        warmUp.setWarmUpTime( TIMEOUT );
+        warmUp.setRounds( 50, 5 );
+
+        // when
+        warmUp.start();
+        warmUp.join( TIMEOUT );
+
+        // then
+        Assert.assertFalse( warmUp.isAlive() );
+        Assert.assertTrue( warmUp.isCompiled() );
+        Assert.assertTrue( warmUp.getRounds() >= 50 );
+    }
+
+    @Test
+    public void testEndsWhenTimeIsUp() throws InterruptedException {
+        // given
+        WarmUp warmUp = new WarmUp();
+        warmUp.setWarmUpTime( 200 );
+        warmUp.setRounds( Integer.MAX_VALUE, Integer.MAX_VALUE );
+
+        // when
+        warmUp.start();
+        warmUp.join( TIMEOUT );
+
+        // then
+        Assert.assertFalse( warmUp.isAlive() );
+        Assert.assertFalse( warmUp.isCompiled() );
+        Assert.assertTrue( warmUp.getDuration() >= 200 );
+    }
+
+    @Test
+    public void testFinishStopsAtEndOfRound() throws InterruptedException {
+        // given
+        WarmUp warmUp = new WarmUp();
+        warmUp.setWarmUpTime( TIMEOUT );
+        warmUp.setRounds( Integer.MAX_VALUE, Integer.MAX_VALUE );
+        warmUp.start();
+        Thread.sleep( 200 );
+
+        // when
+        long start = System.currentTimeMillis();
+        warmUp.finish();
+        long waited = System.currentTimeMillis() - start;
+
+        // then, the match is not held up by more than a round
+        Assert.assertFalse( warmUp.isAlive() );
+        Assert.assertFalse( warmUp.isCompiled() );
+        Assert.assertTrue( "waited " + waited + " ms", waited < 1000 );
+    }
+
+}